@@ -55,4 +55,19 @@ public interface PlotDataProvider<XTYPE extends Comparable<XTYPE>>
      *  @return The Sample of given index.
      */
     public PlotDataItem<XTYPE> get(int index);
+
+    /** Count of changes to the samples
+     *
+     *  <p>The plot library uses this to re-use information
+     *  computed from the samples, for example the decimated samples
+     *  drawn for a trace.
+     *  Implementations that track changes need to return a different
+     *  count whenever samples were added, removed or replaced.
+     *
+     *  @return Count that changes with the samples, or -1 if changes are not tracked
+     */
+    default public long getChangeCount()
+    {
+        return -1;
+    }
 }
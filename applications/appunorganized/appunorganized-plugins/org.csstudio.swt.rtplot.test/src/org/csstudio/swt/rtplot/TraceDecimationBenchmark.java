@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot;
+
+import org.csstudio.swt.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.data.PlotDataProvider;
+import org.csstudio.swt.rtplot.data.SimpleDataItem;
+import org.csstudio.swt.rtplot.internal.TraceDecimation;
+import org.csstudio.swt.rtplot.internal.util.IntList;
+import org.csstudio.swt.rtplot.internal.util.LinearScreenTransform;
+
+/** Benchmark of {@link TraceDecimation}
+ *
+ *  <p>Compares the time to prepare the polyline of a trace
+ *  from all samples with the time to decimate the samples
+ *  and prepare the polyline from the decimated samples.
+ *  The number of polyline points is what the GC then needs to draw.
+ */
+@SuppressWarnings("nls")
+public class TraceDecimationBenchmark
+{
+    private static final int WIDTH = 1000, HEIGHT = 500, RUNS = 20;
+
+    private static int[] polyline(final PlotDataProvider<Double> data, final LinearScreenTransform x_transform)
+    {
+        final IntList points = new IntList(2*data.size());
+        for (int i=0; i<data.size(); ++i)
+        {
+            final PlotDataItem<Double> item = data.get(i);
+            points.add((int) Math.round(x_transform.transform(item.getPosition())));
+            points.add((int) Math.round(HEIGHT/2 * (1 - item.getValue()/3)));
+        }
+        return points.toArray();
+    }
+
+    public static void main(String[] args)
+    {
+        final LinearScreenTransform transform = new LinearScreenTransform();
+        transform.config(0.0, 1.0, 0, WIDTH);
+
+        System.out.println("Samples    Full [ms]  Decimated [ms]  Polyline points full / decimated");
+        for (int count = 10000; count <= 10000000; count *= 10)
+        {
+            final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+            for (int i=0; i<count; ++i)
+                data.add(new SimpleDataItem<Double>(i / (double) count, Math.sin(i * 1e-4) + Math.sin(i * 7.3)));
+
+            int full_points = 0, decimated_points = 0;
+            long full = 0, decimated = 0;
+            for (int run=0; run<RUNS; ++run)
+            {
+                long start = System.nanoTime();
+                full_points = polyline(data, transform).length / 2;
+                full += System.nanoTime() - start;
+
+                // New decimation for each run, i.e. no cached result
+                start = System.nanoTime();
+                decimated_points = polyline(new TraceDecimation<Double>().decimate(data, transform, -1, WIDTH), transform).length / 2;
+                decimated += System.nanoTime() - start;
+            }
+            System.out.format("%8d %10.2f %15.2f  %8d / %d\n",
+                              count, full / 1e6 / RUNS, decimated / 1e6 / RUNS,
+                              full_points, decimated_points);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.csstudio.swt.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.data.PlotDataProvider;
+import org.csstudio.swt.rtplot.data.SimpleDataItem;
+import org.csstudio.swt.rtplot.internal.TraceDecimation;
+import org.csstudio.swt.rtplot.internal.util.LinearScreenTransform;
+import org.junit.Test;
+
+/** JUnit test of {@link TraceDecimation}
+ *
+ *  <p>Checks that the decimated data keeps what matters for painting:
+ *  In each pixel column, the first and last sample,
+ *  the value range and the min/max range remain the same.
+ */
+@SuppressWarnings("nls")
+public class TraceDecimationTest
+{
+    private static final int WIDTH = 100;
+
+    private static LinearScreenTransform createTransform(final double x_range)
+    {
+        final LinearScreenTransform transform = new LinearScreenTransform();
+        transform.config(0.0, x_range, 0, WIDTH);
+        return transform;
+    }
+
+    private static ArrayPlotDataProvider<Double> createData(final int count, final double x_range)
+    {
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+        for (int i=0; i<count; ++i)
+        {
+            final double x = i * x_range / count;
+            // Noisy sine, with a gap
+            final double value = (i >= count/2  &&  i < count/2 + count/20)
+                               ? Double.NaN
+                               : Math.sin(x/10) + Math.sin(i * 7.3);
+            data.add(new SimpleDataItem<Double>(x, value, 0.1, value - 1, value + 1, null));
+        }
+        return data;
+    }
+
+    private static int column(final LinearScreenTransform transform, final PlotDataItem<Double> item)
+    {
+        return (int) Math.max(-1, Math.min(WIDTH, Math.round(transform.transform(item.getPosition()))));
+    }
+
+    /** @return Per column: first index, last index, min, max, lowest min, highest max */
+    private static double[][] analyze(final PlotDataProvider<Double> data, final LinearScreenTransform transform)
+    {
+        final double[][] result = new double[WIDTH+2][];
+        for (int i=0; i<data.size(); ++i)
+        {
+            final PlotDataItem<Double> item = data.get(i);
+            final int col = column(transform, item) + 1;
+            if (Double.isNaN(item.getValue()))
+                continue;
+            if (result[col] == null)
+                result[col] = new double[] { item.getPosition(), item.getPosition(),
+                                             item.getValue(), item.getValue(), item.getMin(), item.getMax() };
+            else
+            {
+                result[col][1] = item.getPosition();
+                result[col][2] = Math.min(result[col][2], item.getValue());
+                result[col][3] = Math.max(result[col][3], item.getValue());
+                result[col][4] = Math.min(result[col][4], item.getMin());
+                result[col][5] = Math.max(result[col][5], item.getMax());
+            }
+        }
+        return result;
+    }
+
+    private static int countGaps(final PlotDataProvider<Double> data)
+    {
+        int gaps = 0;
+        for (int i=1; i<data.size(); ++i)
+            if (Double.isNaN(data.get(i).getValue())  &&  !Double.isNaN(data.get(i-1).getValue()))
+                ++gaps;
+        return gaps;
+    }
+
+    @Test
+    public void testDecimation()
+    {
+        final double x_range = 1000.0;
+        final LinearScreenTransform transform = createTransform(x_range);
+        // Extends beyond the right edge of the plot
+        final ArrayPlotDataProvider<Double> data = createData(100000, 1.5*x_range);
+
+        final PlotDataProvider<Double> decimated = new TraceDecimation<Double>().decimate(data, transform, -1, WIDTH);
+        System.out.println(data.size() + " samples decimated to " + decimated.size());
+        assertTrue(decimated.size() < data.size() / 20);
+
+        // First and last sample are kept
+        assertThat(decimated.get(0), sameInstance(data.get(0)));
+        assertThat(decimated.get(decimated.size()-1), sameInstance(data.get(data.size()-1)));
+
+        // Same first, last, value range and min/max range per column
+        final double[][] expected = analyze(data, transform);
+        final double[][] actual = analyze(decimated, transform);
+        for (int col=0; col<expected.length; ++col)
+            assertThat("Column " + col, actual[col], equalTo(expected[col]));
+
+        // Same gap
+        assertThat(countGaps(data), equalTo(1));
+        assertThat(countGaps(decimated), equalTo(1));
+
+        // Samples remain in order
+        for (int i=1; i<decimated.size(); ++i)
+            assertTrue(decimated.get(i-1).getPosition() < decimated.get(i).getPosition());
+    }
+
+    @Test
+    public void testSmallData()
+    {
+        final LinearScreenTransform transform = createTransform(1000.0);
+        final ArrayPlotDataProvider<Double> data = createData(2*WIDTH, 1000.0);
+        // Too few samples to decimate
+        assertThat(new TraceDecimation<Double>().decimate(data, transform, -1, WIDTH), sameInstance(data));
+    }
+
+    @Test
+    public void testCache()
+    {
+        final LinearScreenTransform transform = createTransform(1000.0);
+        final ArrayPlotDataProvider<Double> data = createData(10000, 1000.0);
+        final TraceDecimation<Double> decimation = new TraceDecimation<>();
+
+        final PlotDataProvider<Double> decimated = decimation.decimate(data, transform, -1, WIDTH);
+        // Unchanged data and axis: Re-use result
+        assertThat(decimation.decimate(data, transform.copy(), -1, WIDTH), sameInstance(decimated));
+
+        // New data
+        data.add(new SimpleDataItem<Double>(1000.0, 1.0));
+        final PlotDataProvider<Double> updated = decimation.decimate(data, transform, -1, WIDTH);
+        assertThat(updated, not(sameInstance(decimated)));
+        assertThat(updated.get(updated.size()-1).getPosition(), equalTo(1000.0));
+
+        // Scrolled axis
+        transform.config(10.0, 1010.0, 0, WIDTH);
+        assertThat(decimation.decimate(data, transform, -1, WIDTH), not(sameInstance(updated)));
+    }
+
+    /** Data with an additional sample that isn't tracked by the change count,
+     *  like a last sample extended to 'now'.
+     *  Counts reads of the tracked samples.
+     */
+    private static class ExtendedData extends ArrayPlotDataProvider<Double>
+    {
+        int reads = 0;
+        double now = 0.0;
+
+        @Override
+        public int size()
+        {
+            return super.size() + 1;
+        }
+
+        @Override
+        public int getTrackedSize()
+        {
+            return super.size();
+        }
+
+        @Override
+        public PlotDataItem<Double> get(final int index)
+        {
+            if (index < super.size())
+            {
+                ++reads;
+                return super.get(index);
+            }
+            return new SimpleDataItem<Double>(now, super.get(index-1).getValue());
+        }
+    }
+
+    @Test
+    public void testTrackedSize()
+    {
+        final LinearScreenTransform transform = createTransform(1000.0);
+        final ExtendedData data = new ExtendedData();
+        for (int i=0; i<10000; ++i)
+            data.add(new SimpleDataItem<Double>(i * 0.09, Math.sin(i * 0.01)));
+        data.now = 950.0;
+        final TraceDecimation<Double> decimation = new TraceDecimation<>();
+
+        PlotDataProvider<Double> decimated = decimation.decimate(data, transform, -1, WIDTH);
+        assertTrue(decimated.size() < data.size() / 10);
+        assertThat(decimated.get(decimated.size()-1).getPosition(), equalTo(950.0));
+        assertThat(decimated.get(decimated.size()-2), sameInstance(data.get(data.getTrackedSize()-1)));
+
+        // 'now' moves on: Tracked samples are not read again, decimated ones are re-used
+        data.now = 960.0;
+        data.reads = 0;
+        final int size = decimated.size();
+        decimated = decimation.decimate(data, transform, -1, WIDTH);
+        assertThat(data.reads, equalTo(0));
+        assertThat(decimated.size(), equalTo(size));
+        assertThat(decimated.get(decimated.size()-1).getPosition(), equalTo(960.0));
+
+        // New sample: Decimate again
+        data.add(new SimpleDataItem<Double>(900.0, 1.0));
+        decimation.decimate(data, transform, -1, WIDTH);
+        assertTrue(data.reads > 10000);
+    }
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.csstudio.swt.rtplot.data.ArrayPlotDataProvider;
+import org.csstudio.swt.rtplot.data.SimpleDataItem;
+import org.csstudio.swt.rtplot.internal.TraceGeometry;
+import org.csstudio.swt.rtplot.internal.TraceGeometry.Polylines;
+import org.csstudio.swt.rtplot.internal.util.LinearScreenTransform;
+import org.junit.Test;
+
+/** JUnit test of {@link TraceGeometry} */
+@SuppressWarnings("nls")
+public class TraceGeometryTest
+{
+    private static final int WIDTH = 100, HEIGHT = 100;
+
+    private static LinearScreenTransform createTransform(final double low, final double high, final int y1, final int y2)
+    {
+        final LinearScreenTransform transform = new LinearScreenTransform();
+        transform.config(low, high, y1, y2);
+        return transform;
+    }
+
+    /** @return x axis 0..10 -> 0..100, y axis 0..10 -> 100..0 */
+    private static TraceGeometry<Double> prepare(final TraceType type, final PointType point_type,
+                                                 final ArrayPlotDataProvider<Double> data)
+    {
+        return new TraceGeometry<Double>().prepare(type, point_type, data,
+                                                   createTransform(0.0, 10.0, 0, WIDTH),
+                                                   createTransform(0.0, 10.0, HEIGHT, 0),
+                                                   0, 0, WIDTH, HEIGHT);
+    }
+
+    private static ArrayPlotDataProvider<Double> createData(final double... x_y)
+    {
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+        for (int i=0; i<x_y.length; i+=2)
+            data.add(new SimpleDataItem<Double>(x_y[i], x_y[i+1]));
+        return data;
+    }
+
+    private static List<String> segments(final Polylines lines)
+    {
+        final List<String> result = new ArrayList<>();
+        for (int i=0; i<lines.getSegmentCount(); ++i)
+            result.add(Arrays.toString(lines.getSegment(i)));
+        return result;
+    }
+
+    @Test
+    public void testDirectLine()
+    {
+        final TraceGeometry<Double> geometry = prepare(TraceType.SINGLE_LINE_DIRECT, PointType.NONE,
+                                                       createData(0, 0, 1, 1, 1, 1, 2, Double.NaN, 3, 3, 4, 4, 5, 5));
+        // Duplicate point is skipped, NaN splits the line
+        assertThat(segments(geometry.getValueLines()),
+                   equalTo(Arrays.asList("[0, 100, 10, 90]", "[30, 70, 40, 60, 50, 50]")));
+        assertThat(geometry.getArea().getSegmentCount(), equalTo(0));
+    }
+
+    @Test
+    public void testStaircase()
+    {
+        final TraceGeometry<Double> geometry = prepare(TraceType.SINGLE_LINE, PointType.NONE,
+                                                       createData(0, 0, 1, 1, 2, 1, 3, 5));
+        assertThat(segments(geometry.getValueLines()),
+                   equalTo(Arrays.asList("[0, 100, 10, 100, 10, 90, 20, 90, 30, 90, 30, 50]")));
+    }
+
+    @Test
+    public void testArea()
+    {
+        final ArrayPlotDataProvider<Double> data = new ArrayPlotDataProvider<>();
+        data.add(new SimpleDataItem<Double>(0.0, 5.0, 1.0, 4.0, 6.0, null));
+        data.add(new SimpleDataItem<Double>(1.0, 5.0, 0.0, 3.0, 7.0, null));
+        final TraceGeometry<Double> geometry = prepare(TraceType.AREA_DIRECT, PointType.NONE, data);
+        // min from left to right, then max from right to left
+        assertThat(segments(geometry.getArea()),
+                   equalTo(Arrays.asList("[0, 60, 10, 70, 10, 30, 0, 40]")));
+        // Std. dev. only for first sample
+        assertThat(segments(geometry.getLowerStdDevLines()), equalTo(Arrays.asList("[0, 60]")));
+        assertThat(segments(geometry.getUpperStdDevLines()), equalTo(Arrays.asList("[0, 40]")));
+        assertThat(segments(geometry.getValueLines()), equalTo(Arrays.asList("[0, 50, 10, 50]")));
+        assertThat(geometry.getMinLines().getSegmentCount(), equalTo(0));
+    }
+
+    @Test
+    public void testPointsAndClipping()
+    {
+        final TraceGeometry<Double> geometry = prepare(TraceType.NONE, PointType.CIRCLES,
+                                                       createData(-1000, 1, 5, 5, 5, 5, 6, Double.NaN, 7, 1e6));
+        assertThat(geometry.getValueLines().getSegmentCount(), equalTo(0));
+        // Far outside points are clipped to 1000 pixels outside of the bounds
+        assertThat(segments(geometry.getPoints()), equalTo(Arrays.asList("[-1000, 90, 50, 50, 70, -1000]")));
+    }
+
+    @Test
+    public void testReuse()
+    {
+        final TraceGeometry<Double> geometry = prepare(TraceType.SINGLE_LINE_DIRECT, PointType.NONE, createData(0, 0, 1, 1));
+        final int[] first = geometry.getValueLines().getSegment(0);
+        geometry.prepare(TraceType.SINGLE_LINE_DIRECT, PointType.NONE, createData(0, 1, 1, 2),
+                         createTransform(0.0, 10.0, 0, WIDTH), createTransform(0.0, 10.0, HEIGHT, 0),
+                         0, 0, WIDTH, HEIGHT);
+        // Same number of points re-uses the array
+        assertThat(geometry.getValueLines().getSegment(0) == first, equalTo(true));
+        assertThat(Arrays.toString(first), equalTo("[0, 90, 10, 80]"));
+    }
+
+    @Test
+    public void testParallel() throws Exception
+    {
+        final int traces = 50, samples = 100000;
+        final List<ArrayPlotDataProvider<Double>> data = new ArrayList<>();
+        for (int t=0; t<traces; ++t)
+        {
+            final ArrayPlotDataProvider<Double> trace = new ArrayPlotDataProvider<>();
+            for (int i=0; i<samples; ++i)
+                trace.add(new SimpleDataItem<Double>(i * 10.0 / samples, 5 + 4*Math.sin(i * 0.01 + t)));
+            data.add(trace);
+        }
+        final List<TraceGeometry<Double>> sequential = new ArrayList<>();
+        long start = System.nanoTime();
+        for (ArrayPlotDataProvider<Double> trace : data)
+            sequential.add(prepare(TraceType.SINGLE_LINE_DIRECT, PointType.NONE, trace));
+        final long seq_ns = System.nanoTime() - start;
+
+        final ExecutorService pool = Executors.newWorkStealingPool();
+        final List<Future<TraceGeometry<Double>>> parallel = new ArrayList<>();
+        start = System.nanoTime();
+        for (ArrayPlotDataProvider<Double> trace : data)
+            parallel.add(pool.submit(() -> prepare(TraceType.SINGLE_LINE_DIRECT, PointType.NONE, trace)));
+        for (Future<TraceGeometry<Double>> geometry : parallel)
+            geometry.get();
+        final long par_ns = System.nanoTime() - start;
+        pool.shutdown();
+        for (int t=0; t<traces; ++t)
+            assertThat(segments(parallel.get(t).get().getValueLines()),
+                       equalTo(segments(sequential.get(t).getValueLines())));
+        System.out.format("%d traces of %d samples: Sequential %.1f ms, parallel %.1f ms\n",
+                          traces, samples, seq_ns/1e6, par_ns/1e6);
+    }
+}
@@ -26,6 +26,7 @@ import org.csstudio.swt.rtplot.internal.ToggleToolbarAction;
 import org.csstudio.swt.rtplot.internal.ToolbarHandler;
 import org.csstudio.swt.rtplot.internal.TraceImpl;
 import org.csstudio.swt.rtplot.undo.UndoableActionManager;
+import org.csstudio.swt.rtplot.util.FrameStatistics;
 import org.eclipse.jface.action.Action;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.FontData;
@@ -344,6 +345,12 @@ public class RTPlot<XTYPE extends Comparable<XTYPE>> extends Composite
         plot.setUpdateThrottle(dormant_time, unit);
     }
 
+    /** @return Timing of plot updates */
+    public FrameStatistics getFrameStatistics()
+    {
+        return plot.getFrameStatistics();
+    }
+
     /** Request a complete redraw of the plot */
     public void requestUpdate()
     {
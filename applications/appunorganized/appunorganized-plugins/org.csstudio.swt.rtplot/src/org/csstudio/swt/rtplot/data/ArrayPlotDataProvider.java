@@ -24,18 +24,23 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
     final private ReadWriteLock lock = new ReentrantReadWriteLock();
     final private List<PlotDataItem<XTYPE>> data;
 
+    /** Count of calls to <code>add</code>, or -1 when using existing data that might change elsewhere */
+    private volatile long changes;
+
     /** Construct with existing data
      *  @param data
      */
     public ArrayPlotDataProvider(final List<PlotDataItem<XTYPE>> data)
     {
         this.data = data;
+        changes = -1;
     }
 
     /** Construct with internal array */
     public ArrayPlotDataProvider()
     {
-        this(new ArrayList<PlotDataItem<XTYPE>>());
+        this.data = new ArrayList<PlotDataItem<XTYPE>>();
+        changes = 0;
     }
 
     /** @param item Item to add to the list */
@@ -45,6 +50,8 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
         try
         {
             data.add(item);
+            if (changes >= 0)
+                ++changes;
         }
         finally
         {
@@ -69,4 +76,10 @@ public class ArrayPlotDataProvider<XTYPE extends Comparable<XTYPE>> implements P
     {
         return data.get(index);
     }
+
+    @Override
+    public long getChangeCount()
+    {
+        return changes;
+    }
 }
@@ -55,4 +55,34 @@ public interface PlotDataProvider<XTYPE extends Comparable<XTYPE>>
      *  @return The Sample of given index.
      */
     public PlotDataItem<XTYPE> get(int index);
+
+    /** Count of changes to the samples
+     *
+     *  <p>The plot library uses this to re-use information
+     *  computed from the samples, for example the decimated samples
+     *  drawn for a trace.
+     *  Implementations that track changes need to return a different
+     *  count whenever samples were added, removed or replaced.
+     *
+     *  @return Count that changes with the samples, or -1 if changes are not tracked
+     */
+    default public long getChangeCount()
+    {
+        return -1;
+    }
+
+    /** Number of samples covered by the change count
+     *
+     *  <p>Samples at or beyond this index, for example a last sample
+     *  that is extended to 'now', may change without a change
+     *  of {@link #getChangeCount()}.
+     *  The plot library reads them each time, while re-using
+     *  information computed from the samples before them.
+     *
+     *  @return Number of samples covered by the change count, at most <code>size()</code>
+     */
+    default public int getTrackedSize()
+    {
+        return size();
+    }
 }
@@ -17,9 +17,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Stack;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.csstudio.swt.rtplot.Activator;
 import org.csstudio.swt.rtplot.Annotation;
@@ -34,6 +37,7 @@ import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
 import org.csstudio.swt.rtplot.undo.ChangeAxisRanges;
 import org.csstudio.swt.rtplot.undo.UndoableActionManager;
 import org.csstudio.swt.rtplot.undo.UpdateAnnotationAction;
+import org.csstudio.swt.rtplot.util.FrameStatistics;
 import org.csstudio.swt.rtplot.util.UpdateThrottle;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
@@ -133,6 +137,9 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
 
     final private PlotProcessor<XTYPE> plot_processor;
 
+    /** Timing of updateImageBuffer() */
+    final private FrameStatistics frame_statistics = new FrameStatistics();
+
     final private Runnable redraw_runnable = () ->
     {
         if (isDisposed())
@@ -649,6 +656,7 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
         if (area_copy.width <= 0  ||  area_copy.height <= 0)
             return;
 
+        final long frame_start = System.nanoTime();
         final Image image = new Image(display, area_copy);
         final GC gc = new GC(image);
 
@@ -657,19 +665,35 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
 
         final Rectangle plot_bounds = plot_area.getBounds();
 
+        // Fetch x_axis transformation and use that to paint all traces,
+        // because X Axis tends to change from scrolling
+        // while we're painting traces.
+        // Fetch each y axis transformation once for all its traces.
+        // Decimate the trace data and compute screen coordinates
+        // for all traces in parallel while painting axes etc.
+        final ScreenTransform<XTYPE> x_transform = x_axis.getScreenTransform();
+        final List<Trace<XTYPE>> painted_traces = new ArrayList<>();
+        final List<Future<TraceGeometry<XTYPE>>> painted_geometry = new ArrayList<>();
+        for (YAxisImpl<XTYPE> y_axis : y_axes)
+        {
+            final ScreenTransform<Double> y_transform = y_axis.getScreenTransform();
+            for (Trace<XTYPE> trace : y_axis.getTraces())
+            {
+                painted_traces.add(trace);
+                painted_geometry.add(plot_processor.prepare(trace, x_transform, y_transform, plot_bounds));
+            }
+        }
+        plot_processor.retainTraces(painted_traces);
+
         gc.setBackground(media.get(background));
         gc.fillRectangle(area_copy);
 
         title_part.paint(gc, media, title_font);
         legend.paint(gc, media, legend_font, traces);
 
-        // Fetch x_axis transformation and use that to paint all traces,
-        // because X Axis tends to change from scrolling
-        // while we're painting traces
 //        x_axis.setLabelFont(label_font);
 //        x_axis.setScaleFont(scale_font);
         x_axis.paint(gc, media, plot_bounds);
-        final ScreenTransform<XTYPE> x_transform = x_axis.getScreenTransform();
         for (YAxisImpl<XTYPE> y_axis : y_axes)
         {
 //            y_axis.setLabelFont(label_font);
@@ -680,9 +704,19 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
         gc.setClipping(plot_bounds);
         plot_area.paint(gc, media);
 
-        for (YAxisImpl<XTYPE> y_axis : y_axes)
-            for (Trace<XTYPE> trace : y_axis.getTraces())
-                trace_painter.paint(gc, media, plot_area.getBounds(), opacity, x_transform, y_axis, trace);
+        // Only drawing of the prepared screen coordinates is left
+        long prepare_ns = 0, draw_ns = 0;
+        for (int i=0; i<painted_traces.size(); ++i)
+        {
+            final Trace<XTYPE> trace = painted_traces.get(i);
+            final long wait_start = System.nanoTime();
+            final TraceGeometry<XTYPE> geometry = getGeometry(trace, painted_geometry.get(i));
+            final long draw_start = System.nanoTime();
+            prepare_ns += draw_start - wait_start;
+            if (geometry != null)
+                trace_painter.paint(gc, media, opacity, trace, geometry);
+            draw_ns += System.nanoTime() - draw_start;
+        }
 
         // Annotations use label font
         gc.setFont(label_font);
@@ -701,6 +735,38 @@ public class Plot<XTYPE extends Comparable<XTYPE>> extends Canvas implements Pai
                 old_image.dispose();
             }
         }
+
+        frame_statistics.add(System.nanoTime() - frame_start, prepare_ns, draw_ns);
+        final Logger logger = Activator.getLogger();
+        if (logger.isLoggable(Level.FINE))
+            logger.log(Level.FINE, "Plot update, " + painted_traces.size() + " traces: " + frame_statistics);
+    }
+
+    /** @param trace Trace to paint
+     *  @param geometry Screen coordinates of the trace that are computed in background
+     *  @return Screen coordinates, or <code>null</code> if they could not be computed
+     */
+    private TraceGeometry<XTYPE> getGeometry(final Trace<XTYPE> trace, final Future<TraceGeometry<XTYPE>> geometry)
+    {
+        try
+        {
+            return geometry.get();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException ex)
+        {
+            Activator.getLogger().log(Level.WARNING, "Cannot paint " + trace.getName(), ex);
+        }
+        return null;
+    }
+
+    /** @return Timing of plot updates */
+    public FrameStatistics getFrameStatistics()
+    {
+        return frame_statistics;
     }
 
     /** PaintListener: {@inheritDoc} */
@@ -8,9 +8,12 @@
 package org.csstudio.swt.rtplot.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -21,15 +24,19 @@ import org.csstudio.swt.rtplot.Activator;
 import org.csstudio.swt.rtplot.Axis;
 import org.csstudio.swt.rtplot.AxisRange;
 import org.csstudio.swt.rtplot.Messages;
+import org.csstudio.swt.rtplot.PointType;
 import org.csstudio.swt.rtplot.Trace;
+import org.csstudio.swt.rtplot.TraceType;
 import org.csstudio.swt.rtplot.data.PlotDataItem;
 import org.csstudio.swt.rtplot.data.PlotDataProvider;
 import org.csstudio.swt.rtplot.data.PlotDataSearch;
 import org.csstudio.swt.rtplot.data.ValueRange;
 import org.csstudio.swt.rtplot.internal.util.Log10;
+import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
 import org.csstudio.swt.rtplot.undo.AddAnnotationAction;
 import org.csstudio.swt.rtplot.undo.ChangeAxisRanges;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
 
 /** Helper for processing traces of a plot
  *  in a thread pool to avoid blocking UI thread.
@@ -43,6 +50,12 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
 
     final private Plot<XTYPE> plot;
 
+    /** Decimation of each trace, keeping the last decimated data */
+    final private Map<Trace<XTYPE>, TraceDecimation<XTYPE>> decimations = new ConcurrentHashMap<>();
+
+    /** Screen coordinates of each trace, keeping their buffers */
+    final private Map<Trace<XTYPE>, TraceGeometry<XTYPE>> geometries = new ConcurrentHashMap<>();
+
     /** @param plot Plot on which this processor operates */
     public PlotProcessor(final Plot<XTYPE> plot)
     {
@@ -135,6 +148,65 @@ public class PlotProcessor<XTYPE extends Comparable<XTYPE>>
         });
     }
 
+    /** Forget decimated data and screen coordinates of traces that are no longer in the plot
+     *  @param traces Current traces of the plot
+     */
+    public void retainTraces(final Collection<Trace<XTYPE>> traces)
+    {
+        decimations.keySet().retainAll(traces);
+        geometries.keySet().retainAll(traces);
+    }
+
+    /** Submit background job to decimate the data of a trace
+     *  and compute its screen coordinates for painting
+     *
+     *  <p>Traces that show points for each sample are not decimated.
+     *
+     *  <p>The transformations of the axes are fetched once for all traces
+     *  by the caller, then copied for each trace so that traces
+     *  can be prepared in parallel without locking the shared transformation.
+     *
+     *  @param trace {@link Trace} to paint
+     *  @param x_transform Transformation of horizontal axis
+     *  @param y_transform Transformation of the trace's value axis
+     *  @param bounds Bounds of the plot area
+     *  @return {@link Future} to screen coordinates of the trace
+     */
+    public Future<TraceGeometry<XTYPE>> prepare(final Trace<XTYPE> trace, final ScreenTransform<XTYPE> x_transform,
+                                                final ScreenTransform<Double> y_transform, final Rectangle bounds)
+    {
+        final TraceGeometry<XTYPE> geometry = geometries.computeIfAbsent(trace, t -> new TraceGeometry<>());
+        final TraceType type = trace.getType();
+        final PointType point_type = trace.getPointType();
+        final TraceDecimation<XTYPE> decimation;
+        if (point_type == PointType.NONE)
+            decimation = decimations.computeIfAbsent(trace, t -> new TraceDecimation<>());
+        else
+        {   // Traces that show points for each sample are not decimated
+            decimations.remove(trace);
+            decimation = null;
+        }
+        final ScreenTransform<XTYPE> x_copy = x_transform.copy();
+        final ScreenTransform<Double> y_copy = y_transform.copy();
+        return thread_pool.submit(() ->
+        {
+            PlotDataProvider<XTYPE> data = trace.getData();
+            if (decimation != null)
+            {
+                try
+                {
+                    data = decimation.decimate(data, x_copy, bounds.x - 1, bounds.x + bounds.width);
+                }
+                catch (RuntimeException ex)
+                {
+                    Activator.getLogger().log(Level.WARNING, "Cannot decimate " + trace.getName(), ex);
+                }
+            }
+            return geometry.prepare(type, point_type, data,
+                                    x_copy, y_copy, bounds.x, bounds.y, bounds.width, bounds.height);
+        });
+    }
+
     /** Round value range up/down to add a little room above & below the exact range.
      *  This results in "locking" to a nice looking range for a while
      *  until a new sample outside of the rounded range is added.
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.csstudio.swt.rtplot.Axis;
+import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.data.PlotDataProvider;
+import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
+
+/** Pixel-aware decimation of trace data
+ *
+ *  <p>Reduces the samples of a trace to those that matter for painting.
+ *  Within each pixel column, only the first and last sample
+ *  as well as the samples with the minimum and maximum value are kept ("M4").
+ *  Lines drawn through the remaining samples cover the same pixels
+ *  as lines drawn through all samples.
+ *  The same is done for the min/max and standard deviation
+ *  envelopes of the samples.
+ *
+ *  <p>Samples that start or end gaps, i.e. have NaN values,
+ *  are kept, so the decimated data has the same gaps.
+ *
+ *  <p>An instance is used per trace and keeps the last decimated data.
+ *  It is re-used until the data or the horizontal axis changes.
+ *  Data that does not provide a {@link PlotDataProvider#getChangeCount()}
+ *  is decimated each time.
+ *  Samples beyond the {@link PlotDataProvider#getTrackedSize()}
+ *  are not decimated but appended to the decimated samples.
+ *
+ *  <p>The samples are copied while holding the lock of the data,
+ *  and decimated without holding it.
+ *
+ *  @param <XTYPE> Data type of horizontal {@link Axis}
+ */
+public class TraceDecimation<XTYPE extends Comparable<XTYPE>>
+{
+    /** Decimate only if there are more samples than this per pixel column */
+    final private static int MIN_SAMPLES_PER_COLUMN = 4;
+
+    // Bits of the 'kind' of a sample. Consecutive samples of the same kind
+    // in the same column are combined.
+    final private static int NO_VALUE = 1, NO_MIN_MAX = 2, NO_STDDEV = 4;
+
+    /** Decimated data, immutable */
+    private static class DecimatedData<XTYPE extends Comparable<XTYPE>> implements PlotDataProvider<XTYPE>
+    {
+        final private Lock lock = new ReentrantLock();
+        final private List<PlotDataItem<XTYPE>> items;
+
+        DecimatedData(final List<PlotDataItem<XTYPE>> items)
+        {
+            this.items = items;
+        }
+
+        @Override
+        public Lock getLock()
+        {
+            return lock;
+        }
+
+        @Override
+        public int size()
+        {
+            return items.size();
+        }
+
+        @Override
+        public PlotDataItem<XTYPE> get(final int index)
+        {
+            return items.get(index);
+        }
+    }
+
+    /** Cache of last decimation */
+    private static class Cached<XTYPE extends Comparable<XTYPE>>
+    {
+        final PlotDataProvider<XTYPE> data;
+        final long change_count;
+        final int tracked;
+        final XTYPE start, end;
+        final int x_min, x_max;
+        /** Decimated tracked samples */
+        final List<PlotDataItem<XTYPE>> decimated;
+        /** Decimated data without samples beyond the tracked ones */
+        final PlotDataProvider<XTYPE> result;
+
+        Cached(final PlotDataProvider<XTYPE> data, final long change_count, final int tracked,
+               final XTYPE start, final XTYPE end, final int x_min, final int x_max,
+               final List<PlotDataItem<XTYPE>> decimated)
+        {
+            this.data = data;
+            this.change_count = change_count;
+            this.tracked = tracked;
+            this.start = start;
+            this.end = end;
+            this.x_min = x_min;
+            this.x_max = x_max;
+            this.decimated = decimated;
+            this.result = new DecimatedData<>(decimated);
+        }
+
+        boolean matches(final PlotDataProvider<XTYPE> data, final long change_count, final int tracked,
+                        final XTYPE start, final XTYPE end, final int x_min, final int x_max)
+        {
+            return this.data == data  &&  change_count >= 0  &&  this.change_count == change_count  &&
+                   this.tracked == tracked  &&
+                   this.start.equals(start)  &&  this.end.equals(end)  &&
+                   this.x_min == x_min  &&  this.x_max == x_max;
+        }
+
+        /** @param tail Samples beyond the tracked ones
+         *  @return Decimated data with the tail appended
+         */
+        PlotDataProvider<XTYPE> append(final List<PlotDataItem<XTYPE>> tail)
+        {
+            if (tail.isEmpty())
+                return result;
+            final List<PlotDataItem<XTYPE>> items = new ArrayList<>(decimated.size() + tail.size());
+            items.addAll(decimated);
+            items.addAll(tail);
+            return new DecimatedData<>(items);
+        }
+    }
+
+    private volatile Cached<XTYPE> cached = null;
+
+    /** Get decimated data
+     *  @param data Data to decimate
+     *  @param x_transform Transformation of horizontal axis
+     *  @param x_min Minimum screen coordinate. Samples left of it are treated as one column.
+     *  @param x_max Maximum screen coordinate. Samples right of it are treated as one column.
+     *  @return Decimated data, or the original data if it has too few samples to decimate
+     */
+    public PlotDataProvider<XTYPE> decimate(final PlotDataProvider<XTYPE> data,
+                                            final ScreenTransform<XTYPE> x_transform,
+                                            final int x_min, final int x_max)
+    {
+        final XTYPE start = x_transform.inverse(x_min), end = x_transform.inverse(x_max);
+        final List<PlotDataItem<XTYPE>> samples, tail = new ArrayList<>();
+        final long change_count;
+        final int tracked;
+        data.getLock().lock();
+        try
+        {
+            final int N = data.size();
+            if (N <= (long)MIN_SAMPLES_PER_COLUMN * (x_max - x_min + 1))
+                return data;
+            tracked = Math.min(N, data.getTrackedSize());
+            change_count = data.getChangeCount();
+            for (int i=tracked; i<N; ++i)
+                tail.add(data.get(i));
+
+            final Cached<XTYPE> last_result = cached;
+            if (last_result != null  &&  last_result.matches(data, change_count, tracked, start, end, x_min, x_max))
+                return last_result.append(tail);
+
+            samples = new ArrayList<>(tracked);
+            for (int i=0; i<tracked; ++i)
+                samples.add(data.get(i));
+        }
+        finally
+        {
+            data.getLock().unlock();
+        }
+
+        final Cached<XTYPE> result = new Cached<>(data, change_count, tracked, start, end, x_min, x_max,
+                                                  new Decimator<>(samples).run(x_transform, x_min, x_max));
+        cached = result;
+        return result.append(tail);
+    }
+
+    /** Decimation of one set of samples */
+    private static class Decimator<XTYPE extends Comparable<XTYPE>>
+    {
+        final private List<PlotDataItem<XTYPE>> data;
+        final private List<PlotDataItem<XTYPE>> result = new ArrayList<>();
+
+        /** Indices of samples to keep for the current column */
+        final private int[] keep = new int[8];
+
+        // Current column and kind of samples
+        private int column, kind;
+        // Indices of first, last and extreme samples in current column
+        private int first, last, min_value, max_value, min_min, max_max, min_low, max_high;
+        // .. and their values
+        private double lowest_value, highest_value, lowest_min, highest_max, lowest_low, highest_high;
+
+        Decimator(final List<PlotDataItem<XTYPE>> data)
+        {
+            this.data = data;
+        }
+
+        /** @param x_transform Transformation of horizontal axis
+         *  @param x_min Minimum screen coordinate
+         *  @param x_max Maximum screen coordinate
+         *  @return Decimated samples
+         */
+        List<PlotDataItem<XTYPE>> run(final ScreenTransform<XTYPE> x_transform,
+                                      final int x_min, final int x_max)
+        {
+            final int N = data.size();
+            first = -1;
+            for (int i=0; i<N; ++i)
+            {
+                final PlotDataItem<XTYPE> item = data.get(i);
+                long x = Math.round(x_transform.transform(item.getPosition()));
+                if (x < x_min)
+                    x = x_min;
+                else if (x > x_max)
+                    x = x_max;
+                final double value = item.getValue();
+                final double min = item.getMin(), max = item.getMax(), dev = item.getStdDev();
+                int item_kind = 0;
+                if (Double.isNaN(value))
+                    item_kind |= NO_VALUE;
+                if (Double.isNaN(min)  ||  Double.isNaN(max))
+                    item_kind |= NO_MIN_MAX;
+                if (! (dev > 0))
+                    item_kind |= NO_STDDEV;
+
+                if (first < 0  ||  x != column  ||  item_kind != kind)
+                {
+                    flush();
+                    column = (int) x;
+                    kind = item_kind;
+                    first = last = min_value = max_value = min_min = max_max = min_low = max_high = i;
+                    lowest_value = highest_value = value;
+                    lowest_min = min;
+                    highest_max = max;
+                    lowest_low = value - dev;
+                    highest_high = value + dev;
+                    continue;
+                }
+                last = i;
+                if ((kind & NO_VALUE) == 0)
+                {
+                    if (value < lowest_value)
+                    {
+                        lowest_value = value;
+                        min_value = i;
+                    }
+                    if (value > highest_value)
+                    {
+                        highest_value = value;
+                        max_value = i;
+                    }
+                }
+                if ((kind & NO_MIN_MAX) == 0)
+                {
+                    if (min < lowest_min)
+                    {
+                        lowest_min = min;
+                        min_min = i;
+                    }
+                    if (max > highest_max)
+                    {
+                        highest_max = max;
+                        max_max = i;
+                    }
+                }
+                if ((kind & (NO_VALUE | NO_STDDEV)) == 0)
+                {
+                    if (value - dev < lowest_low)
+                    {
+                        lowest_low = value - dev;
+                        min_low = i;
+                    }
+                    if (value + dev > highest_high)
+                    {
+                        highest_high = value + dev;
+                        max_high = i;
+                    }
+                }
+            }
+            flush();
+            return result;
+        }
+
+        /** Add samples of current column to result */
+        private void flush()
+        {
+            if (first < 0)
+                return;
+            int n = 0;
+            n = insert(n, first);
+            n = insert(n, last);
+            n = insert(n, min_value);
+            n = insert(n, max_value);
+            n = insert(n, min_min);
+            n = insert(n, max_max);
+            n = insert(n, min_low);
+            n = insert(n, max_high);
+            for (int k=0; k<n; ++k)
+                result.add(data.get(keep[k]));
+            first = -1;
+        }
+
+        /** Insert index into sorted 'keep' array, skipping duplicates
+         *  @param n Number of indices in 'keep'
+         *  @param index Index to add
+         *  @return Updated number of indices in 'keep'
+         */
+        private int insert(int n, final int index)
+        {
+            int pos = n;
+            while (pos > 0  &&  keep[pos-1] > index)
+                --pos;
+            if (pos > 0  &&  keep[pos-1] == index)
+                return n;
+            System.arraycopy(keep, pos, keep, pos+1, n - pos);
+            keep[pos] = index;
+            return n+1;
+        }
+    }
+}
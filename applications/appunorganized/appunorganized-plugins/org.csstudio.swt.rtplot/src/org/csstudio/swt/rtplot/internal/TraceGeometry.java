@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.internal;
+
+import java.util.Arrays;
+
+import org.csstudio.swt.rtplot.Axis;
+import org.csstudio.swt.rtplot.PointType;
+import org.csstudio.swt.rtplot.Trace;
+import org.csstudio.swt.rtplot.TraceType;
+import org.csstudio.swt.rtplot.data.PlotDataItem;
+import org.csstudio.swt.rtplot.data.PlotDataProvider;
+import org.csstudio.swt.rtplot.internal.util.IntList;
+import org.csstudio.swt.rtplot.internal.util.ScreenTransform;
+
+/** Screen coordinates of a {@link Trace}, prepared for painting
+ *
+ *  <p>Transforms the samples of a trace into poly lines
+ *  in a background thread, so that the {@link TracePainter}
+ *  only needs to draw them.
+ *  The geometry of a trace is re-used from one plot update to the next,
+ *  keeping its coordinate buffers.
+ *
+ *  <p>Not thread-safe, to be used by one thread at a time.
+ *
+ *  @param <XTYPE> Data type of horizontal {@link Axis}
+ */
+public class TraceGeometry<XTYPE extends Comparable<XTYPE>>
+{
+    /** Poly lines, or polygons, held in one re-used coordinate buffer */
+    public static class Polylines
+    {
+        /** x, y, x, y, ... coordinates of all segments */
+        private int[] points = new int[2048];
+        private int size = 0;
+
+        /** End index in points for each segment */
+        final private IntList ends = new IntList(16);
+
+        /** Arrays of the last segments handed out, re-used when their length matches */
+        private int[][] arrays = new int[16][];
+
+        /** Start index of the segment that's being added */
+        private int start = 0;
+
+        /** @param x Screen coordinate
+         *  @param y .. of point to add to current segment
+         */
+        final void add(final int x, final int y)
+        {
+            if (size + 2 > points.length)
+                points = Arrays.copyOf(points, 2*points.length);
+            points[size++] = x;
+            points[size++] = y;
+        }
+
+        /** @return Number of points in current segment */
+        final int pending()
+        {
+            return (size - start) / 2;
+        }
+
+        /** End the current segment, if it has any points */
+        final void flush()
+        {
+            if (size > start)
+            {
+                ends.add(size);
+                start = size;
+            }
+        }
+
+        /** Remove all segments */
+        final void clear()
+        {
+            size = start = 0;
+            ends.clear();
+        }
+
+        /** @return Number of segments */
+        final public int getSegmentCount()
+        {
+            return ends.size();
+        }
+
+        /** @param segment Segment index
+         *  @return Number of points in the segment
+         */
+        final public int getPointCount(final int segment)
+        {
+            return (ends.get(segment) - (segment > 0 ? ends.get(segment-1) : 0)) / 2;
+        }
+
+        /** @param segment Segment index
+         *  @param point Point index within segment
+         *  @return X coordinate
+         */
+        final public int getX(final int segment, final int point)
+        {
+            return points[(segment > 0 ? ends.get(segment-1) : 0) + 2*point];
+        }
+
+        /** @param segment Segment index
+         *  @param point Point index within segment
+         *  @return Y coordinate
+         */
+        final public int getY(final int segment, final int point)
+        {
+            return points[(segment > 0 ? ends.get(segment-1) : 0) + 2*point + 1];
+        }
+
+        /** @param segment Segment index
+         *  @return x, y, x, y, ... coordinates of the segment as required by the GC.
+         *          Array is owned by this buffer and changes in the next update.
+         */
+        final public int[] getSegment(final int segment)
+        {
+            final int first = segment > 0 ? ends.get(segment-1) : 0;
+            final int length = ends.get(segment) - first;
+            if (segment >= arrays.length)
+                arrays = Arrays.copyOf(arrays, 2*segment);
+            int[] array = arrays[segment];
+            if (array == null  ||  array.length != length)
+                arrays[segment] = array = new int[length];
+            System.arraycopy(points, first, array, 0, length);
+            return array;
+        }
+    }
+
+    /** Fudge to avoid clip errors
+     *
+     *  <p>When coordinates are way outside the clip region,
+     *  clipping fails and graphics are 'aliases' into the visible range.
+     *  By moving clipped coordinates just 'OUTSIDE' the allowed region,
+     *  rounding errors inside the clipping implementation are avoided.
+     *  Strictly speaking, we'd have to compute the intersection of
+     *  lines with the clip region, but this is much easier to implement.
+     */
+    final private static int OUTSIDE = 1000;
+    private int x_min, x_max, y_min, y_max;
+
+    private TraceType type = TraceType.NONE;
+    private PointType point_type = PointType.NONE;
+
+    /** Value line, staircase or direct */
+    final private Polylines value = new Polylines();
+    /** Minimum and maximum lines */
+    final private Polylines min = new Polylines(), max = new Polylines();
+    /** Lines for value -/+ standard deviation */
+    final private Polylines lower = new Polylines(), upper = new Polylines();
+    /** Polygons of the min/max area */
+    final private Polylines area = new Polylines();
+    /** Points, one 'segment' of points for all samples */
+    final private Polylines points = new Polylines();
+
+    /** Scratch buffers for area while collecting one polygon */
+    final private IntList area_pos = new IntList(2048), area_min = new IntList(2048), area_max = new IntList(2048);
+
+    final private int clipX(final double x)
+    {
+        if (x < x_min)
+            return x_min;
+        if (x > x_max)
+            return x_max;
+        return (int)x;
+    }
+
+    final private int clipY(final int y)
+    {
+        if (y < y_min)
+            return y_min;
+        if (y > y_max)
+            return y_max;
+        return y;
+    }
+
+    /** Compute screen coordinates
+     *
+     *  <p>Locks the data while iterating over all samples once.
+     *
+     *  @param type How the trace is drawn
+     *  @param point_type How points are drawn
+     *  @param data Samples of the trace
+     *  @param x_transform Transformation of horizontal axis, used only by the calling thread
+     *  @param y_transform Transformation of value axis, used only by the calling thread
+     *  @param x Left edge,
+     *  @param y top edge,
+     *  @param width width
+     *  @param height and height of clipping region
+     *  @return This geometry
+     */
+    public TraceGeometry<XTYPE> prepare(final TraceType type, final PointType point_type,
+                                        final PlotDataProvider<XTYPE> data,
+                                        final ScreenTransform<XTYPE> x_transform, final ScreenTransform<Double> y_transform,
+                                        final int x, final int y, final int width, final int height)
+    {
+        this.type = type;
+        this.point_type = point_type;
+        x_min = x - OUTSIDE;
+        x_max = x + width + OUTSIDE;
+        y_min = y - OUTSIDE;
+        y_max = y + height + OUTSIDE;
+        value.clear();
+        min.clear();
+        max.clear();
+        lower.clear();
+        upper.clear();
+        area.clear();
+        points.clear();
+        area_pos.clear();
+        area_min.clear();
+        area_max.clear();
+
+        final boolean do_area, do_min_max, do_value;
+        final boolean staircase = type == TraceType.AREA  ||  type == TraceType.LINES  ||  type == TraceType.SINGLE_LINE;
+        switch (type)
+        {
+        case AREA:
+        case AREA_DIRECT:
+            do_area = true;
+            do_min_max = false;
+            do_value = true;
+            break;
+        case LINES:
+        case LINES_DIRECT:
+            do_area = false;
+            do_min_max = true;
+            do_value = true;
+            break;
+        case SINGLE_LINE:
+        case SINGLE_LINE_DIRECT:
+            do_area = false;
+            do_min_max = false;
+            do_value = true;
+            break;
+        case NONE:
+        default:
+            do_area = false;
+            do_min_max = false;
+            do_value = false;
+        }
+        final boolean do_std_dev = do_area  ||  do_min_max;
+        final boolean do_points = point_type != PointType.NONE;
+        if (! (do_value  ||  do_points))
+            return this;
+
+        data.getLock().lock();
+        try
+        {
+            final int N = data.size();
+            int last_x = -1, last_y = -1;
+            int last_point_x = -1, last_point_y = -1;
+            for (int i=0; i<N; ++i)
+            {
+                final PlotDataItem<XTYPE> item = data.get(i);
+                final double pos = x_transform.transform(item.getPosition());
+                final double val = item.getValue();
+                final int x_rounded = clipX(Math.round(pos));
+
+                if (do_value)
+                {
+                    if (staircase  &&  value.pending() > 0  &&  x_rounded != last_x)
+                    {   // Staircase from last 'y'..
+                        value.add(x_rounded, last_y);
+                        last_x = x_rounded;
+                    }
+                    if (Double.isNaN(val))
+                    {
+                        value.flush();
+                        last_x = last_y = -1;
+                    }
+                    else
+                    {
+                        final int y1 = clipY(getScreenCoord(y_transform, val));
+                        if (! (x_rounded == last_x  &&  y1 == last_y))
+                        {
+                            value.add(x_rounded, y1);
+                            if (! staircase)
+                                last_x = x_rounded;
+                            last_y = y1;
+                        }
+                    }
+                }
+
+                if (do_area  ||  do_min_max)
+                {
+                    final double ymin = item.getMin();
+                    final double ymax = item.getMax();
+                    if (Double.isNaN(ymin)  ||  Double.isNaN(ymax))
+                    {
+                        if (do_area)
+                            flushArea();
+                        else
+                        {
+                            min.flush();
+                            max.flush();
+                        }
+                    }
+                    else
+                    {
+                        final int x1 = clipX(pos);
+                        final int y1min = clipY(getScreenCoord(y_transform, ymin));
+                        final int y1max = clipY(getScreenCoord(y_transform, ymax));
+                        if (do_area)
+                        {
+                            area_pos.add(x1);
+                            area_min.add(y1min);
+                            area_max.add(y1max);
+                        }
+                        else
+                        {
+                            min.add(x1, y1min);
+                            max.add(x1, y1max);
+                        }
+                    }
+                }
+
+                if (do_std_dev)
+                {
+                    final double dev = item.getStdDev();
+                    if (Double.isNaN(val) ||  ! (dev > 0))
+                    {
+                        lower.flush();
+                        upper.flush();
+                    }
+                    else
+                    {
+                        final int x1 = clipX(pos);
+                        lower.add(x1, clipY(getScreenCoord(y_transform, val - dev)));
+                        upper.add(x1, clipY(getScreenCoord(y_transform, val + dev)));
+                    }
+                }
+
+                if (do_points  &&  !Double.isNaN(val))
+                {
+                    final int y1 = clipY(getScreenCoord(y_transform, val));
+                    if (! (x_rounded == last_point_x  &&  y1 == last_point_y))
+                    {
+                        points.add(x_rounded, y1);
+                        last_point_x = x_rounded;
+                        last_point_y = y1;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            data.getLock().unlock();
+        }
+        value.flush();
+        min.flush();
+        max.flush();
+        lower.flush();
+        upper.flush();
+        flushArea();
+        points.flush();
+        return this;
+    }
+
+    /** @param y_transform Value axis transformation
+     *  @param value Value
+     *  @return Screen coordinate, same as the value axis would compute it
+     */
+    private static int getScreenCoord(final ScreenTransform<Double> y_transform, final double value)
+    {
+        return (int)Math.round(y_transform.transform(value));
+    }
+
+    /** Turn collected area points into a polygon */
+    private void flushArea()
+    {
+        // 'direct' outline, point-to-point
+        // Turn pos/min/max into array required by fillPolygon:
+        // pos[0], min[0], pos[1], min[1], ..., pos[N-1], max[N-1], pos[N], max[N]
+        final int N = area_pos.size();
+        if (N <= 0)
+            return;
+        for (int i=0; i<N; ++i)
+            area.add(area_pos.get(i), area_min.get(i));
+        for (int i=N-1; i>=0; --i)
+            area.add(area_pos.get(i), area_max.get(i));
+        area.flush();
+        area_pos.clear();
+        area_min.clear();
+        area_max.clear();
+    }
+
+    /** @return How the trace is drawn */
+    public TraceType getType()
+    {
+        return type;
+    }
+
+    /** @return How points are drawn */
+    public PointType getPointType()
+    {
+        return point_type;
+    }
+
+    /** @return Value line, staircase or direct */
+    public Polylines getValueLines()
+    {
+        return value;
+    }
+
+    /** @return Minimum lines */
+    public Polylines getMinLines()
+    {
+        return min;
+    }
+
+    /** @return Maximum lines */
+    public Polylines getMaxLines()
+    {
+        return max;
+    }
+
+    /** @return Lines for value - standard deviation */
+    public Polylines getLowerStdDevLines()
+    {
+        return lower;
+    }
+
+    /** @return Lines for value + standard deviation */
+    public Polylines getUpperStdDevLines()
+    {
+        return upper;
+    }
+
+    /** @return Polygons for min/max area */
+    public Polylines getArea()
+    {
+        return area;
+    }
+
+    /** @return Points, all in one segment */
+    public Polylines getPoints()
+    {
+        return points;
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.rtplot.util;
+
+/** Timing of plot updates
+ *
+ *  <p>For each update ('frame') of the plot image,
+ *  tracks the total time, the time spent waiting for
+ *  the screen coordinates of all traces to be computed in the background,
+ *  and the time spent drawing the traces.
+ *
+ *  <p>Averages are exponential moving averages.
+ */
+@SuppressWarnings("nls")
+public class FrameStatistics
+{
+    /** Weight of the most recent frame in the averages */
+    private static final double WEIGHT = 0.1;
+
+    private long frames = 0;
+    private double last_ms = 0, average_ms = 0, max_ms = 0;
+    private double prepare_ms = 0, draw_ms = 0;
+
+    /** @param frame_ns Total time of frame in nanoseconds
+     *  @param prepare_ns Time spent waiting for traces to be prepared
+     *  @param draw_ns Time spent drawing traces
+     */
+    public synchronized void add(final long frame_ns, final long prepare_ns, final long draw_ns)
+    {
+        last_ms = frame_ns / 1e6;
+        if (frames++ == 0)
+        {
+            average_ms = last_ms;
+            prepare_ms = prepare_ns / 1e6;
+            draw_ms = draw_ns / 1e6;
+        }
+        else
+        {
+            average_ms += WEIGHT * (last_ms - average_ms);
+            prepare_ms += WEIGHT * (prepare_ns / 1e6 - prepare_ms);
+            draw_ms += WEIGHT * (draw_ns / 1e6 - draw_ms);
+        }
+        max_ms = Math.max(max_ms, last_ms);
+    }
+
+    /** @return Number of frames */
+    public synchronized long getFrameCount()
+    {
+        return frames;
+    }
+
+    /** @return Time of last frame in milliseconds */
+    public synchronized double getLastFrameMillis()
+    {
+        return last_ms;
+    }
+
+    /** @return Average time per frame in milliseconds */
+    public synchronized double getAverageFrameMillis()
+    {
+        return average_ms;
+    }
+
+    /** @return Longest frame time in milliseconds */
+    public synchronized double getMaxFrameMillis()
+    {
+        return max_ms;
+    }
+
+    /** @return Average time per frame spent waiting for trace preparation in milliseconds */
+    public synchronized double getAveragePrepareMillis()
+    {
+        return prepare_ms;
+    }
+
+    /** @return Average time per frame spent drawing traces in milliseconds */
+    public synchronized double getAverageDrawMillis()
+    {
+        return draw_ms;
+    }
+
+    /** Reset statistics */
+    public synchronized void reset()
+    {
+        frames = 0;
+        last_ms = average_ms = max_ms = prepare_ms = draw_ms = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%d frames, last %.1f ms, average %.1f ms (prepare %.1f ms, draw %.1f ms), max %.1f ms",
+                             frames, last_ms, average_ms, prepare_ms, draw_ms, max_ms);
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.xygraph.dataprovider;
+
+import java.util.Iterator;
+
+import org.csstudio.swt.xygraph.linearscale.Range;
+
+/** Benchmark of {@link CircularBufferDataProvider} updates
+ *
+ *  <p>Each update adds a sample and then fetches the data range,
+ *  as the plot does on every data change.
+ *  For comparison, the range is also computed by scanning all samples,
+ *  which is what the provider used to do.
+ *
+ *  <p>Run as plain Java application, with for example -Xmx2g for the largest buffer.
+ */
+@SuppressWarnings("nls")
+public class CircularBufferDataProviderBenchmark {
+    /** Buffer sizes to test */
+    private static final int[] SIZES = { 1000, 100000, 1000000, 10000000 };
+
+    /** Run time for each test */
+    private static final long RUNTIME_MS = 2000;
+
+    /** Compute range by scanning all samples */
+    private static Range[] scanRange(final CircularBufferDataProvider data) {
+        double xMin = Double.POSITIVE_INFINITY, xMax = Double.NEGATIVE_INFINITY;
+        double yMin = Double.POSITIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+        final Iterator<ISample> samples = data.iterator();
+        while(samples.hasNext()){
+            final ISample dp = samples.next();
+            xMin = Math.min(xMin, dp.getXValue() - dp.getXMinusError());
+            xMax = Math.max(xMax, dp.getXValue() + dp.getXPlusError());
+            yMin = Math.min(yMin, dp.getYValue() - dp.getYMinusError());
+            yMax = Math.max(yMax, dp.getYValue() + dp.getYPlusError());
+        }
+        return new Range[] { new Range(xMin, xMax), new Range(yMin, yMax) };
+    }
+
+    /** @return Updates per second */
+    private static double run(final CircularBufferDataProvider data, final boolean scan) {
+        long updates = 0;
+        final long start = System.currentTimeMillis();
+        long end;
+        do{
+            // Check time only every so often, since scanning small buffers is fast
+            for(int i=0; i<100; ++i){
+                data.setCurrentYData(Math.sin(updates++ * 0.001));
+                if(scan)
+                    scanRange(data);
+                else{
+                    data.getXDataMinMax();
+                    data.getYDataMinMax();
+                }
+            }
+            end = System.currentTimeMillis();
+        }while(end - start < RUNTIME_MS);
+        return updates * 1000.0 / (end - start);
+    }
+
+    public static void main(String[] args) {
+        for(int size : SIZES){
+            final CircularBufferDataProvider data = new CircularBufferDataProvider(true);
+            data.setUpdateMode(CircularBufferDataProvider.UpdateMode.Y);
+            data.setBufferSize(size);
+            // Fill buffer, then measure with the buffer overflowing
+            for(int i=0; i<size; ++i)
+                data.setCurrentYData(Math.random());
+            final double incremental = run(data, false);
+            final double scanning = run(data, true);
+            System.out.format("Buffer size %10d: %12.0f updates/sec incremental, %12.1f updates/sec scanning\n",
+                              size, incremental, scanning);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.xygraph.dataprovider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+public class SampleRingBufferTest {
+
+    /** Check range of buffer against plain scan of the samples */
+    private void checkRange(final SampleRingBuffer buffer, final List<ISample> expected) {
+        double xMin = Double.NaN, xMax = Double.NaN, yMin = Double.NaN, yMax = Double.NaN;
+        for(ISample dp : expected){
+            final double xl = dp.getXValue() - dp.getXMinusError(), xh = dp.getXValue() + dp.getXPlusError();
+            final double yl = dp.getYValue() - dp.getYMinusError(), yh = dp.getYValue() + dp.getYPlusError();
+            if(!Double.isNaN(xl) && !(xl >= xMin)) xMin = xl;
+            if(!Double.isNaN(xh) && !(xh <= xMax)) xMax = xh;
+            if(!Double.isNaN(yl) && !(yl >= yMin)) yMin = yl;
+            if(!Double.isNaN(yh) && !(yh <= yMax)) yMax = yh;
+        }
+        assertEquals(xMin, buffer.getXMin(), 0.0);
+        assertEquals(xMax, buffer.getXMax(), 0.0);
+        assertEquals(yMin, buffer.getYMin(), 0.0);
+        assertEquals(yMax, buffer.getYMax(), 0.0);
+
+        assertEquals(expected.size(), buffer.size());
+        int i=0;
+        for(ISample sample : buffer)
+            assertEquals(expected.get(i++), sample);
+    }
+
+    @Test
+    public void testAdd() {
+        final SampleRingBuffer buffer = new SampleRingBuffer(5);
+        for(int i=0; i<10; i++)
+            buffer.add(i, 10-i);
+        assertEquals(5, buffer.size());
+        assertEquals(5.0, buffer.getXValue(0), 0.0);
+        assertEquals(9.0, buffer.getXValue(4), 0.0);
+        assertEquals(new Sample(9, 1), buffer.get(4));
+        assertNull(buffer.get(5));
+        assertEquals(5.0, buffer.getXMin(), 0.0);
+        assertEquals(9.0, buffer.getXMax(), 0.0);
+        assertEquals(1.0, buffer.getYMin(), 0.0);
+        assertEquals(5.0, buffer.getYMax(), 0.0);
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(Double.isNaN(buffer.getXMin()));
+    }
+
+    @Test
+    public void testErrorAndInfo() {
+        final SampleRingBuffer buffer = new SampleRingBuffer(3);
+        buffer.add(1, 1);
+        buffer.add(new Sample(2, 5, 1, 2, 0.5, 0.5, "Info"));
+        final ISample sample = buffer.get(1);
+        assertEquals(1.0, sample.getYPlusError(), 0.0);
+        assertEquals(2.0, sample.getYMinusError(), 0.0);
+        assertEquals("Info", sample.getInfo());
+        assertEquals("", buffer.get(0).getInfo());
+        assertEquals(0.0, buffer.get(0).getYPlusError(), 0.0);
+        assertEquals(1.0, buffer.getXMin(), 0.0);
+        assertEquals(2.5, buffer.getXMax(), 0.0);
+        assertEquals(1.0, buffer.getYMin(), 0.0);
+        assertEquals(6.0, buffer.getYMax(), 0.0);
+    }
+
+    @Test
+    public void testRandomRange() {
+        final Random random = new Random(42);
+        final SampleRingBuffer buffer = new SampleRingBuffer(50);
+        final List<ISample> expected = new ArrayList<ISample>();
+        int size = 50;
+        for(int i=0; i<20000; i++){
+            final ISample sample;
+            if(random.nextInt(20) == 0)
+                sample = new Sample(i, Double.NaN);
+            else if(random.nextInt(10) == 0)
+                sample = new Sample(i, random.nextGaussian(), random.nextDouble(), random.nextDouble(), 0, 1);
+            else
+                sample = new Sample(i, random.nextGaussian());
+            buffer.add(sample);
+            expected.add(sample);
+            if(expected.size() > size)
+                expected.remove(0);
+            if(random.nextInt(1000) == 0){
+                // Change buffer size, keeping the newest samples
+                size = 10 + random.nextInt(100);
+                buffer.setBufferSize(size, false);
+                while(expected.size() > size)
+                    expected.remove(0);
+            }
+            checkRange(buffer, expected);
+        }
+    }
+}
@@ -70,7 +70,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 
     private volatile boolean auto_size = false;
 
-    private CircularBuffer<ISample> traceData;
+    private SampleRingBuffer traceData;
 
     private double currentXData;
 
@@ -112,7 +112,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 
     public CircularBufferDataProvider(boolean chronological) {
         super(chronological);
-        traceData = new CircularBuffer<ISample>(100);
+        traceData = new SampleRingBuffer(100);
         fireUpdate = new Runnable(){
             @Override
             public void run() {
@@ -228,12 +228,12 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
                 if(traceData.size() == 0)
                     newXValue = 0;
                 else
-                    newXValue = traceData.getTail().getXValue() +1;
+                    newXValue = traceData.getXValue(traceData.size()-1) +1;
             }
         }else{
             newXValue = currentXData;
         }
-            traceData.add(new Sample(newXValue, currentYData));
+            traceData.add(newXValue, currentYData);
             currentXDataChanged = false;
             currentYDataChanged = false;
 //            currentYDataTimestampChanged = false;
@@ -308,10 +308,12 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
                 for(int i=0; i<currentYDataArray.length; i++){
                     newXValueArray[i] = i;
                 }
-            else
+            else{
+                final double tail = traceData.getXValue(traceData.size()-1);
                 for(int i=1; i<currentYDataArray.length+1; i++){
-                    newXValueArray[i-1] = traceData.getTail().getXValue() + i;
+                    newXValueArray[i-1] = tail + i;
                 }
+            }
             final int size;
             if (auto_size)
             {
@@ -322,7 +324,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
                 size = Math.min(traceData.getBufferSize(),
                     Math.min(newXValueArray.length, currentYDataArray.length));
             for(int i=0; i<size; i++){
-                traceData.add(new Sample(newXValueArray[i], currentYDataArray[i]));
+                traceData.add(newXValueArray[i], currentYDataArray[i]);
             }
         }else{
             //newXValueArray = currentXDataArray;
@@ -339,7 +341,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
                 size = Math.min(traceData.getBufferSize(),
                     Math.min(currentXDataArray.length, currentYDataArray.length));
             for(int i=0; i<size; i++){
-                traceData.add(new Sample(currentXDataArray[i], currentYDataArray[i]));
+                traceData.add(currentXDataArray[i], currentYDataArray[i]);
             }
         }
 
@@ -408,35 +410,17 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
         dataRangedirty = true;
     }
 
+    /** Range is maintained by the buffer as samples are added,
+     *  so this is O(1) instead of iterating over all samples
+     */
     @Override
     protected void updateDataRange(){
         if(!dataRangedirty)
             return;
         dataRangedirty = false;
         if(getSize() > 0){
-            double xMin;
-            double xMax;
-            xMin = traceData.getHead().getXValue();
-            xMax = xMin;
-
-            double yMin;
-            double yMax;
-            yMin = traceData.getHead().getYValue();
-            yMax = yMin;
-            for(ISample dp : traceData){
-                if(xMin > dp.getXValue()-dp.getXMinusError())
-                    xMin = dp.getXValue()-dp.getXMinusError();
-                if(xMax < dp.getXValue()+dp.getXPlusError())
-                    xMax = dp.getXValue()+ dp.getXPlusError();
-
-                if(yMin > dp.getYValue() - dp.getYMinusError())
-                    yMin = dp.getYValue() - dp.getYMinusError();
-                if(yMax < dp.getYValue() + dp.getYPlusError())
-                    yMax = dp.getYValue() + dp.getYPlusError();
-            }
-
-            xDataMinMax = new Range(xMin, xMax);
-            yDataMinMax = new Range(yMin, yMax);
+            xDataMinMax = new Range(traceData.getXMin(), traceData.getXMax());
+            yDataMinMax = new Range(traceData.getYMin(), traceData.getYMax());
         }else {
             xDataMinMax = null;
             yDataMinMax = null;
@@ -452,7 +436,7 @@ public class CircularBufferDataProvider extends AbstractDataProvider{
 
     @Override
     public ISample getSample(int index) {
-        return traceData.getElement(index);
+        return traceData.get(index);
     }
 
     @Override
@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.xygraph.dataprovider;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** Circular buffer of samples, held in primitive arrays.
+ *  New samples are appended to the tail of the buffer.
+ *  When the buffer is full, the oldest sample is dropped.
+ *
+ *  <p>Error ranges and info texts are only stored
+ *  once a sample with errors resp. info is added.
+ *
+ *  <p>The range of x and y values, including their error ranges,
+ *  is maintained incrementally with monotonic queues,
+ *  so adding a sample and reading the range are O(1) amortized.
+ *  NaN values are ignored for the range.
+ *
+ *  <p>Like the {@link CircularBuffer}, each method synchronizes on the buffer.
+ */
+public class SampleRingBuffer implements Iterable<ISample> {
+    /** Queue of (sequence number, value) where values are monotonic,
+     *  providing the minimum or maximum of a sliding window.
+     *
+     *  <p>Arrays grow as needed, since for example the maximum
+     *  of increasing values only holds one element.
+     */
+    private static class MonotonicQueue {
+        private static final int INITIAL_SIZE = 16;
+        private final boolean maximum;
+        private long[] seq = new long[INITIAL_SIZE];
+        private double[] value = new double[INITIAL_SIZE];
+        private int head = 0, size = 0;
+
+        MonotonicQueue(final boolean maximum) {
+            this.maximum = maximum;
+        }
+
+        void clear() {
+            if (seq.length > INITIAL_SIZE) {
+                seq = new long[INITIAL_SIZE];
+                value = new double[INITIAL_SIZE];
+            }
+            head = size = 0;
+        }
+
+        /** @param n Sequence number of new value
+         *  @param v New value
+         */
+        void add(final long n, final double v) {
+            if (Double.isNaN(v))
+                return;
+            // Remove values from tail that can no longer be the extreme
+            while (size > 0) {
+                final double last = value[(head + size - 1) % value.length];
+                if (maximum ? last > v : last < v)
+                    break;
+                --size;
+            }
+            if (size >= seq.length)
+                grow();
+            final int i = (head + size) % value.length;
+            seq[i] = n;
+            value[i] = v;
+            ++size;
+        }
+
+        /** Double the size of the arrays, moving head to index 0 */
+        private void grow() {
+            final long[] newSeq = new long[seq.length * 2];
+            final double[] newValue = new double[value.length * 2];
+            for (int i=0; i<size; ++i) {
+                newSeq[i] = seq[(head + i) % seq.length];
+                newValue[i] = value[(head + i) % value.length];
+            }
+            seq = newSeq;
+            value = newValue;
+            head = 0;
+        }
+
+        /** @param oldest Sequence number of oldest sample that's still in the window */
+        void expire(final long oldest) {
+            while (size > 0 && seq[head] < oldest) {
+                head = (head + 1) % seq.length;
+                --size;
+            }
+        }
+
+        /** @return Minimum or maximum, NaN if there are no values */
+        double get() {
+            return size > 0 ? value[head] : Double.NaN;
+        }
+    }
+
+    private int capacity;
+    private double[] x, y;
+    /** Error ranges, <code>null</code> until a sample with error is added */
+    private double[] xPlus, xMinus, yPlus, yMinus;
+    /** Info texts, <code>null</code> until a sample with info is added */
+    private String[] info;
+    /** Index of oldest sample */
+    private int head = 0;
+    /** Number of samples in buffer */
+    private int count = 0;
+    /** Number of samples ever added, sequence number of the next sample */
+    private long added = 0;
+
+    private final MonotonicQueue xMin, xMax, yMin, yMax;
+
+    /** @param capacity Buffer size */
+    public SampleRingBuffer(final int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Buffer size must be greater than zero."); //$NON-NLS-1$
+        this.capacity = capacity;
+        x = new double[capacity];
+        y = new double[capacity];
+        xMin = new MonotonicQueue(false);
+        xMax = new MonotonicQueue(true);
+        yMin = new MonotonicQueue(false);
+        yMax = new MonotonicQueue(true);
+    }
+
+    /** @return Buffer size */
+    public synchronized int getBufferSize() {
+        return capacity;
+    }
+
+    /** @return Number of samples in buffer */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Add sample without error range or info
+     *  @param xValue
+     *  @param yValue
+     */
+    public synchronized void add(final double xValue, final double yValue) {
+        add(xValue, yValue, 0, 0, 0, 0, null);
+    }
+
+    /** @param sample Sample to add */
+    public synchronized void add(final ISample sample) {
+        add(sample.getXValue(), sample.getYValue(),
+            sample.getYPlusError(), sample.getYMinusError(),
+            sample.getXPlusError(), sample.getXMinusError(),
+            sample.getInfo());
+    }
+
+    private void add(final double xValue, final double yValue,
+                     final double yPlusError, final double yMinusError,
+                     final double xPlusError, final double xMinusError,
+                     final String text) {
+        final int i;
+        if (count < capacity)
+            i = (head + count++) % capacity;
+        else {
+            // Full: Replace oldest sample
+            i = head;
+            head = (head + 1) % capacity;
+        }
+        x[i] = xValue;
+        y[i] = yValue;
+        if (xPlus == null && (xPlusError != 0 || xMinusError != 0 || yPlusError != 0 || yMinusError != 0)) {
+            xPlus = new double[capacity];
+            xMinus = new double[capacity];
+            yPlus = new double[capacity];
+            yMinus = new double[capacity];
+        }
+        if (xPlus != null) {
+            xPlus[i] = xPlusError;
+            xMinus[i] = xMinusError;
+            yPlus[i] = yPlusError;
+            yMinus[i] = yMinusError;
+        }
+        if (info == null && text != null && !text.isEmpty())
+            info = new String[capacity];
+        if (info != null)
+            info[i] = text;
+        addToRange(i, added++);
+    }
+
+    /** @param i Index of sample in arrays
+     *  @param n Sequence number of sample
+     */
+    private void addToRange(final int i, final long n) {
+        final long oldest = n + 1 - count;
+        xMin.expire(oldest);
+        xMax.expire(oldest);
+        yMin.expire(oldest);
+        yMax.expire(oldest);
+        if (xPlus == null) {
+            xMin.add(n, x[i]);
+            xMax.add(n, x[i]);
+            yMin.add(n, y[i]);
+            yMax.add(n, y[i]);
+        } else {
+            xMin.add(n, x[i] - xMinus[i]);
+            xMax.add(n, x[i] + xPlus[i]);
+            yMin.add(n, y[i] - yMinus[i]);
+            yMax.add(n, y[i] + yPlus[i]);
+        }
+    }
+
+    /** Re-compute range information for current samples */
+    private void rebuildRange() {
+        xMin.clear();
+        xMax.clear();
+        yMin.clear();
+        yMax.clear();
+        final int n = count;
+        added = 0;
+        for (count=1; count<=n; ++count)
+            addToRange((head + count - 1) % capacity, added++);
+        count = n;
+    }
+
+    /** @return Minimum x value minus error, NaN if there are no (valid) samples */
+    public synchronized double getXMin() {
+        return xMin.get();
+    }
+
+    /** @return Maximum x value plus error, NaN if there are no (valid) samples */
+    public synchronized double getXMax() {
+        return xMax.get();
+    }
+
+    /** @return Minimum y value minus error, NaN if there are no (valid) samples */
+    public synchronized double getYMin() {
+        return yMin.get();
+    }
+
+    /** @return Maximum y value plus error, NaN if there are no (valid) samples */
+    public synchronized double getYMax() {
+        return yMax.get();
+    }
+
+    /** @param index Index of sample, 0 for oldest
+     *  @return X value
+     */
+    public synchronized double getXValue(final int index) {
+        return x[(head + index) % capacity];
+    }
+
+    /** @param index Index of sample, 0 for oldest
+     *  @return Y value
+     */
+    public synchronized double getYValue(final int index) {
+        return y[(head + index) % capacity];
+    }
+
+    /** @param index Index of sample, 0 for oldest
+     *  @return Sample or <code>null</code> if index is beyond the samples in the buffer
+     */
+    public synchronized ISample get(final int index) {
+        if (index < 0 || index >= count)
+            return null;
+        final int i = (head + index) % capacity;
+        final String text = info == null || info[i] == null ? "" : info[i]; //$NON-NLS-1$
+        if (xPlus == null)
+            return new Sample(x[i], y[i], 0, 0, 0, 0, text);
+        return new Sample(x[i], y[i], yPlus[i], yMinus[i], xPlus[i], xMinus[i], text);
+    }
+
+    /** Remove all samples */
+    public synchronized void clear() {
+        head = count = 0;
+        xPlus = xMinus = yPlus = yMinus = null;
+        info = null;
+        rebuildRange();
+    }
+
+    /** @param bufferSize New buffer size
+     *  @param clear Clear the buffer? Otherwise keep the newest samples that fit
+     */
+    public synchronized void setBufferSize(final int bufferSize, final boolean clear) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Buffer size must be greater than zero."); //$NON-NLS-1$
+        if (bufferSize == capacity) {
+            if (clear)
+                clear();
+            return;
+        }
+        final int keep = clear ? 0 : Math.min(count, bufferSize);
+        final int first = head + count - keep;
+        x = copy(x, first, keep, bufferSize);
+        y = copy(y, first, keep, bufferSize);
+        if (xPlus != null) {
+            xPlus = copy(xPlus, first, keep, bufferSize);
+            xMinus = copy(xMinus, first, keep, bufferSize);
+            yPlus = copy(yPlus, first, keep, bufferSize);
+            yMinus = copy(yMinus, first, keep, bufferSize);
+        }
+        if (info != null) {
+            final String[] newInfo = new String[bufferSize];
+            for (int i=0; i<keep; ++i)
+                newInfo[i] = info[(first + i) % capacity];
+            info = newInfo;
+        }
+        capacity = bufferSize;
+        head = 0;
+        count = keep;
+        rebuildRange();
+    }
+
+    /** @param data Ring buffer data
+     *  @param first Index of first element to copy, may exceed array size
+     *  @param keep Number of elements to copy
+     *  @param size Size of new array
+     *  @return New array
+     */
+    private double[] copy(final double[] data, final int first, final int keep, final int size) {
+        final double[] result = new double[size];
+        for (int i=0; i<keep; ++i)
+            result[i] = data[(first + i) % capacity];
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<ISample> iterator() {
+        return new Iterator<ISample>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public ISample next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return get(index++);
+            }
+        };
+    }
+}
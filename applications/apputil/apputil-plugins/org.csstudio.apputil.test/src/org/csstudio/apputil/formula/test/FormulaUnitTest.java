@@ -7,9 +7,13 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.test;
 
+import java.util.Arrays;
+
 import junit.framework.TestCase;
 
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Formula;
+import org.csstudio.apputil.formula.Node;
 import org.csstudio.apputil.formula.VariableNode;
 import org.junit.Test;
 
@@ -201,6 +205,74 @@ public class FormulaUnitTest extends TestCase
 
     }
 
+    @Test
+    public void testCompile() throws Exception
+    {
+        final VariableNode v[] = new VariableNode[] { new VariableNode("x"), new VariableNode("y") };
+        final String expressions[] = new String[]
+        {
+            "0.5 * x * y - 2 / y",
+            "x ^ 2 + sqrt(abs(y))",
+            "(x > y) ? (x) : ((y <= 1) ? -1 : 2*PI)",
+            "!(x == y) & (x != 1 | y >= 2) & x < 10",
+            "max(x, y, -2) + min(x, y, 3)",
+            "atan2(x, y) + hypot(x, y) + pow(x, 2)",
+            "round(x * 10) / 10",
+        };
+        final double values[][] = new double[][] { { 2.0, 3.0 }, { -1.5, 0.0 }, { 5.25, 5.25 }, { 1.0, Double.NaN } };
+        for (String expression : expressions)
+        {
+            final Formula f = new Formula(expression, v);
+            final Evaluator compiled = f.compile();
+            for (double[] value : values)
+            {
+                v[0].setValue(value[0]);
+                v[1].setValue(value[1]);
+                // Compiled formula uses the passed values, not those of the variables
+                final double expected = f.eval();
+                v[0].setValue(Double.NaN);
+                v[1].setValue(Double.NaN);
+                assertEquals(expression, expected, compiled.eval(value), epsilon);
+            }
+        }
+
+        // round() used to return 0
+        final Formula f = new Formula("round(x)", v);
+        v[0].setValue(2.7);
+        assertEquals(3.0, f.eval(), epsilon);
+        assertEquals(3.0, f.compile().eval(new double[] { 2.7, 0.0 }), epsilon);
+    }
+
+    @Test
+    public void testDefaultCompile() throws Exception
+    {
+        // Node that doesn't implement compile()
+        final VariableNode x = new VariableNode("x"), y = new VariableNode("y");
+        final Node node = new Node()
+        {
+            @Override
+            public double eval()
+            {
+                return x.getValue() - y.getValue();
+            }
+
+            @Override
+            public boolean hasSubnode(final Node node)
+            {
+                return node == x  ||  node == y;
+            }
+
+            @Override
+            public boolean hasSubnode(final String name)
+            {
+                return x.hasSubnode(name)  ||  y.hasSubnode(name);
+            }
+        };
+        final Evaluator compiled = node.compile(Arrays.asList(x, y));
+        assertEquals(-1.0, compiled.eval(new double[] { 2.0, 3.0 }), epsilon);
+        assertEquals(4.5, compiled.eval(new double[] { 5.0, 0.5 }), epsilon);
+    }
+
     @Test
     public void testErrors() throws Exception
     {
@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.apputil.formula;
+
+/** Compiled {@link Node}
+ *  <p>
+ *  Evaluates the node with variable values passed as an array
+ *  instead of values set in the {@link VariableNode}s,
+ *  so an evaluator can be used by several threads.
+ */
+@FunctionalInterface
+public interface Evaluator
+{
+    /** Evaluate
+     *  @param values Values of the variables, in the order used to compile the node
+     *  @return The value of the node
+     */
+    public double eval(double[] values);
+}
@@ -8,6 +8,8 @@
 package org.csstudio.apputil.formula;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Vector;
 
 import org.csstudio.apputil.formula.node.AddNode;
@@ -176,6 +178,26 @@ public class Formula implements Node
         return tree.eval();
     }
 
+    /** Compile the formula
+     *  <p>
+     *  The resulting evaluator does not use the values of the variables
+     *  but expects the values passed in the order of {@link #getVariables()}.
+     *  @return Evaluator for the formula
+     */
+    public Evaluator compile()
+    {
+        if (variables == null)
+            return compile(Collections.emptyList());
+        return compile(variables);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        return tree.compile(variables);
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasSubnode(final Node node)
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula;
 
+import java.util.List;
+
 /** A node used to build a formula.
  *  @author Kay Kasemir
  */
@@ -27,4 +29,28 @@ public interface Node
      *  @return <code>true</code> if given node name was found under this one.
      */
     public boolean hasSubnode(String name);
+
+    /** Compile the node
+     *  <p>
+     *  Default implementation falls back to {@link #eval()}:
+     *  The evaluator sets the passed values in the variables
+     *  and then interprets the node, so it is neither faster
+     *  nor can it be used by several threads in parallel.
+     *  Nodes should override this with a compiled implementation.
+     *
+     *  @param variables Variables. A value for each is passed to the {@link Evaluator}
+     *  @return Evaluator for the node
+     */
+    default public Evaluator compile(final List<VariableNode> variables)
+    {
+        return values ->
+        {
+            synchronized (this)
+            {
+                for (int i=0; i<values.length; ++i)
+                    variables.get(i).setValue(values[i]);
+                return eval();
+            }
+        };
+    }
 }
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula;
 
+import java.util.List;
+
 /** Named Variable.
  *  @author Kay Kasemir
  */
@@ -75,4 +77,15 @@ public class VariableNode implements Node
     {
         return name;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        final int index = variables.indexOf(this);
+        if (index >= 0)
+            return values -> values[index];
+        // Constant or other variable that's set via setValue()
+        return values -> value;
+    }
 }
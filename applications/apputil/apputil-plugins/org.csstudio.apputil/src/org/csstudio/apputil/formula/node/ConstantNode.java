@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 
 /** One computational node.
  *  @author Kay Kasemir
@@ -46,4 +50,11 @@ public class ConstantNode implements Node
     {
         return Double.toString(value);
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        return values -> value;
+    }
 }
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 
 /** One computational node.
  *  @author Kay Kasemir
@@ -33,4 +37,13 @@ public class EqualNode extends AbstractBinaryNode
     {
         return "(" + left + " == " + right + ")";
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        final Evaluator a = left.compile(variables);
+        final Evaluator b = right.compile(variables);
+        return values -> (a.eval(values) == b.eval(values)) ? 1.0 : 0.0;
+    }
 }
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 
 /** One computational node.
  *  @author Kay Kasemir
@@ -55,4 +59,13 @@ public class IfNode implements Node
         return "(" + cond + ") ? (" + yes + ") : (" + no + ")";
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        final Evaluator c = cond.compile(variables);
+        final Evaluator y = yes.compile(variables);
+        final Evaluator n = no.compile(variables);
+        return values -> (c.eval(values) != 0) ? y.eval(values) : n.eval(values);
+    }
 }
@@ -8,8 +8,13 @@
 package org.csstudio.apputil.formula.node;
 
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 
 /** Node for evaluating any of the java.lang.Math.* functions
  *  @author Xiaosong Geng
@@ -41,17 +46,29 @@ public class MathFuncNode implements Node
     @Override
     public double eval()
     {
-        final Object arglist[] = new Object[args.length];
+        final double arg_values[] = new double[args.length];
         for (int i = 0; i < args.length; i++)
+            arg_values[i] = args[i].eval();
+        return invoke(arg_values);
+    }
+
+    /** @param arg_values Argument values
+     *  @return Result of invoking the function via reflection
+     */
+    private double invoke(final double arg_values[])
+    {
+        final Object arglist[] = new Object[arg_values.length];
+        for (int i = 0; i < arg_values.length; i++)
         {
-            arglist[i] = new Double(args[i].eval());
+            arglist[i] = new Double(arg_values[i]);
         }
 
         try
         {
             Object result = method.invoke(null, arglist );
-            if (result instanceof Double)
-                return ((Double) result).doubleValue();
+            // Most functions return double, but round() returns long
+            if (result instanceof Number)
+                return ((Number) result).doubleValue();
         }
         catch (Exception e)
         {
@@ -95,4 +112,87 @@ public class MathFuncNode implements Node
         b.append(")");
         return b.toString();
     }
+
+    /** @param function Name of function with one argument
+     *  @return Function or <code>null</code>
+     */
+    @SuppressWarnings("nls")
+    private static DoubleUnaryOperator getFunction(final String function)
+    {
+        switch (function)
+        {
+        case "abs":       return Math::abs;
+        case "acos":      return Math::acos;
+        case "asin":      return Math::asin;
+        case "atan":      return Math::atan;
+        case "ceil":      return Math::ceil;
+        case "cos":       return Math::cos;
+        case "cosh":      return Math::cosh;
+        case "exp":       return Math::exp;
+        case "expm1":     return Math::expm1;
+        case "floor":     return Math::floor;
+        case "log":       return Math::log;
+        case "log10":     return Math::log10;
+        case "round":     return x -> Math.round(x);
+        case "sin":       return Math::sin;
+        case "sinh":      return Math::sinh;
+        case "sqrt":      return Math::sqrt;
+        case "tan":       return Math::tan;
+        case "tanh":      return Math::tanh;
+        case "toDegrees": return Math::toDegrees;
+        case "toRadians": return Math::toRadians;
+        default:          return null;
+        }
+    }
+
+    /** @param function Name of function with two arguments
+     *  @return Function or <code>null</code>
+     */
+    @SuppressWarnings("nls")
+    private static DoubleBinaryOperator getFunction2(final String function)
+    {
+        switch (function)
+        {
+        case "atan2":     return Math::atan2;
+        case "hypot":     return Math::hypot;
+        case "pow":       return Math::pow;
+        default:          return null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        final Evaluator a[] = new Evaluator[args.length];
+        for (int i = 0; i < args.length; i++)
+            a[i] = args[i].compile(variables);
+        // Call known functions directly
+        if (a.length == 1)
+        {
+            final DoubleUnaryOperator func = getFunction(function);
+            if (func != null)
+            {
+                final Evaluator x = a[0];
+                return values -> func.applyAsDouble(x.eval(values));
+            }
+        }
+        else if (a.length == 2)
+        {
+            final DoubleBinaryOperator func = getFunction2(function);
+            if (func != null)
+            {
+                final Evaluator x = a[0], y = a[1];
+                return values -> func.applyAsDouble(x.eval(values), y.eval(values));
+            }
+        }
+        // Use reflection for others
+        return values ->
+        {
+            final double arg_values[] = new double[a.length];
+            for (int i = 0; i < a.length; i++)
+                arg_values[i] = a[i].eval(values);
+            return invoke(arg_values);
+        };
+    }
 }
@@ -7,7 +7,11 @@
  ******************************************************************************/
 package org.csstudio.apputil.formula.node;
 
+import java.util.List;
+
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Node;
+import org.csstudio.apputil.formula.VariableNode;
 
 /** One computational node.
  *  @author Kay Kasemir
@@ -68,4 +72,24 @@ public class MinNode implements Node
         b.append(")");
         return b.toString();
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Evaluator compile(final List<VariableNode> variables)
+    {
+        final Evaluator a[] = new Evaluator[args.length];
+        for (int i = 0; i < args.length; i++)
+            a[i] = args[i].compile(variables);
+        return values ->
+        {
+            double result = 0.0;
+            for (int i = 0; i < a.length; i++)
+            {
+                final double v = a[i].eval(values);
+                if (i==0  ||  v < result)
+                    result = v;
+            }
+            return result;
+        };
+    }
 }
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.reader.MergingValueIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.archive.ArchiveStreamMerger.Run;
+import org.csstudio.trends.databrowser2.model.TestHelper;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link ArchiveStreamMerger}
+ *
+ *  <p>Uses stand-in archive data sources with artificial latency.
+ */
+@SuppressWarnings("nls")
+public class ArchiveStreamMergerUnitTest
+{
+    /** Stand-in for the values of an archive reader, taking some time for each value */
+    private static class DelayedValueIterator implements ValueIterator
+    {
+        final private List<VType> values;
+        final private long delay_ms;
+        private int index = 0;
+
+        DelayedValueIterator(final List<VType> values, final long delay_ms)
+        {
+            this.values = values;
+            this.delay_ms = delay_ms;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < values.size();
+        }
+
+        @Override
+        public VType next() throws Exception
+        {
+            Thread.sleep(delay_ms);
+            return values.get(index++);
+        }
+
+        @Override
+        public void close()
+        {
+            // NOP
+        }
+    }
+
+    /** @return Values with time stamps start, start + step, ... */
+    private static List<VType> makeValues(final int start, final int step, final int count)
+    {
+        final List<VType> values = new ArrayList<>();
+        for (int i=0; i<count; ++i)
+            values.add(TestHelper.makeValue(start + i*step));
+        return values;
+    }
+
+    /** Read sources in parallel
+     *  @param sources Values of each source
+     *  @param delays Delay per value of each source
+     *  @param runs Runs that were taken
+     *  @return Millisecs until first run was taken
+     */
+    private static long stream(final List<List<VType>> sources, final long[] delays, final List<Run> runs) throws Exception
+    {
+        final long start = System.currentTimeMillis();
+        final ArchiveStreamMerger merger = new ArchiveStreamMerger(sources.size());
+        for (int i=0; i<sources.size(); ++i)
+        {
+            final int index = i;
+            final Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    merger.add(index, "Source" + index, new DelayedValueIterator(sources.get(index), delays[index]));
+                }
+                catch (Exception ex)
+                {
+                    ex.printStackTrace();
+                }
+                merger.done(index);
+            });
+            thread.start();
+        }
+        long first = -1;
+        while (! merger.isDone())
+        {
+            final List<Run> taken = merger.take(1000);
+            if (first < 0  &&  ! taken.isEmpty())
+                first = System.currentTimeMillis() - start;
+            runs.addAll(taken);
+        }
+        return first;
+    }
+
+    @Test(timeout=20000)
+    public void testMerge() throws Exception
+    {
+        // Interleaved time stamps, same time stamps in the first two sources
+        final List<List<VType>> sources = new ArrayList<>();
+        sources.add(makeValues(0, 2, 500));
+        sources.add(makeValues(100, 3, 500));
+        sources.add(makeValues(1000, 1, 500));
+
+        final List<Run> runs = new ArrayList<>();
+        stream(sources, new long[] { 0, 1, 0 }, runs);
+
+        // Same values as from MergingValueIterator
+        final List<VType> merged = new ArrayList<>();
+        for (Run run : runs)
+            merged.addAll(run.getValues());
+        final MergingValueIterator expected = new MergingValueIterator(
+                new DelayedValueIterator(sources.get(0), 0),
+                new DelayedValueIterator(sources.get(1), 0),
+                new DelayedValueIterator(sources.get(2), 0));
+        int i = 0;
+        while (expected.hasNext())
+        {
+            final VType value = expected.next();
+            assertThat(VTypeHelper.getTimestamp(merged.get(i)), equalTo(VTypeHelper.getTimestamp(value)));
+            ++i;
+        }
+        assertThat(merged.size(), equalTo(i));
+
+        // Each run follows the previous one
+        assertThat(runs.get(0).getReplaceAfter(), nullValue());
+        for (int r=1; r<runs.size(); ++r)
+        {
+            final List<VType> previous = runs.get(r-1).getValues();
+            assertThat(runs.get(r).getReplaceAfter(),
+                       equalTo(VTypeHelper.getTimestamp(previous.get(previous.size()-1))));
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testTimeToFirstSamples() throws Exception
+    {
+        // Fast source and slow source that needs 2 seconds in total
+        final List<List<VType>> sources = new ArrayList<>();
+        sources.add(makeValues(0, 1, 1000));
+        sources.add(makeValues(0, 10, 100));
+        final long start = System.currentTimeMillis();
+        final List<Run> runs = new ArrayList<>();
+        final long first = stream(sources, new long[] { 0, 20 }, runs);
+        final long total = System.currentTimeMillis() - start;
+        System.out.println("First samples after " + first + " ms, all samples after " + total + " ms");
+        assertTrue(total >= 2000);
+        assertTrue(first < total / 2);
+
+        // Samples were added in several runs, in order
+        assertTrue(runs.size() > 1);
+        Instant last = Instant.MIN;
+        for (Run run : runs)
+            for (VType value : run.getValues())
+            {
+                final Instant time = VTypeHelper.getTimestamp(value);
+                assertTrue(! time.isBefore(last));
+                last = time;
+            }
+    }
+}
@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.reader.SpreadsheetIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of the parallel, streaming export components
+ *
+ *  <p>Uses a synthetic reader that produces millions of samples.
+ */
+@SuppressWarnings("nls")
+public class ParallelExportUnitTest
+{
+    /** Synthetic reader: Samples 'step' millisecs apart, value is the sample index */
+    private static class SyntheticValueIterator implements ValueIterator
+    {
+        final private long start, step;
+        final private int count;
+        private int index = 0;
+
+        SyntheticValueIterator(final long start, final long step, final int count)
+        {
+            this.start = start;
+            this.step = step;
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return index < count;
+        }
+
+        @Override
+        public VType next() throws Exception
+        {
+            final Instant time = Instant.ofEpochMilli(start + index * step);
+            return new ArchiveVNumber(time, AlarmSeverity.NONE, "OK", ValueFactory.displayNone(), index++);
+        }
+
+        @Override
+        public void close()
+        {
+            // NOP
+        }
+    }
+
+    private static ValueIterator[] createChannels(final int channels, final int count)
+    {
+        final ValueIterator[] iters = new ValueIterator[channels];
+        for (int i=0; i<channels; ++i)
+            iters[i] = new SyntheticValueIterator(i, channels + i, count);
+        return iters;
+    }
+
+    /** @return Number of spreadsheet lines */
+    private static long countLines(final SpreadsheetIterator sheet) throws Exception
+    {
+        long lines = 0;
+        double checksum = 0;
+        while (sheet.hasNext())
+        {
+            final VType[] line = sheet.next();
+            for (VType value : line)
+                if (value != null)
+                    checksum += VTypeHelper.toDouble(value);
+            ++lines;
+        }
+        System.out.println(lines + " lines, checksum " + checksum);
+        return lines;
+    }
+
+    @Test(timeout=60000)
+    public void testPrefetchSpreadsheet() throws Exception
+    {
+        final int channels = 4, count = 500000;
+        long start = System.currentTimeMillis();
+        final long expected = countLines(new SpreadsheetIterator(createChannels(channels, count)));
+        long millis = System.currentTimeMillis() - start;
+        System.out.println("Plain    : " + expected * 1000 / Math.max(1, millis) + " lines/sec");
+
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final ValueIterator[] sources = createChannels(channels, count);
+        final List<ValueIterator> iters = new ArrayList<>();
+        for (ValueIterator source : sources)
+        {
+            final PrefetchValueIterator iter = new PrefetchValueIterator(() -> source);
+            iter.start(executor);
+            iters.add(iter);
+        }
+        start = System.currentTimeMillis();
+        final long lines = countLines(new SpreadsheetIterator(iters.toArray(new ValueIterator[channels])));
+        millis = System.currentTimeMillis() - start;
+        System.out.println("Prefetch : " + lines * 1000 / Math.max(1, millis) + " lines/sec");
+        for (ValueIterator iter : iters)
+            iter.close();
+        executor.shutdown();
+
+        assertThat(lines, equalTo(expected));
+    }
+
+    @Test(timeout=20000)
+    public void testPrefetchWindow() throws Exception
+    {
+        // Closing one iterator starts the next
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final List<PrefetchValueIterator> iters = Arrays.asList(
+            new PrefetchValueIterator(() -> new SyntheticValueIterator(0, 1, 5000)),
+            new PrefetchValueIterator(() -> new SyntheticValueIterator(0, 1, 7000)));
+        iters.get(0).setOnClose(() -> iters.get(1).start(executor));
+        iters.get(0).start(executor);
+        int count = 0;
+        for (PrefetchValueIterator iter : iters)
+        {
+            while (iter.hasNext())
+            {
+                iter.next();
+                ++count;
+            }
+            iter.close();
+        }
+        assertThat(count, equalTo(12000));
+        executor.shutdown();
+    }
+
+    @Test(timeout=20000)
+    public void testPrefetchJobWindow() throws Exception
+    {
+        // Window of iterators as used by the export jobs
+        final int channels = 7, parallel = 3, count = 3500;
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final AtomicInteger started = new AtomicInteger(), closed = new AtomicInteger();
+        final AtomicBoolean exceeded = new AtomicBoolean(false);
+        final List<Callable<ValueIterator>> sources = new ArrayList<>();
+        for (int i=0; i<channels; ++i)
+            sources.add(() ->
+            {
+                if (started.incrementAndGet() > closed.get() + parallel)
+                    exceeded.set(true);
+                return new SyntheticValueIterator(0, 1, count);
+            });
+        final List<ValueIterator> iters = PrefetchValueIterator.prefetch(sources, parallel, executor);
+        assertThat(iters.size(), equalTo(channels));
+
+        for (int i=0; i<channels; ++i)
+        {
+            final ValueIterator iter = iters.get(i);
+            int n = 0;
+            while (iter.hasNext())
+            {
+                iter.next();
+                ++n;
+            }
+            assertThat(n, equalTo(count));
+            // Count before closing, which starts the next fetch
+            closed.incrementAndGet();
+            iter.close();
+        }
+        // Never more than 'parallel' iterators fetched at the same time
+        assertThat(exceeded.get(), equalTo(false));
+        assertThat(started.get(), equalTo(channels));
+
+        PrefetchValueIterator.close(iters);
+        executor.shutdown();
+    }
+
+    @Test(timeout=20000)
+    public void testPrefetchJobCancel() throws Exception
+    {
+        // Closing all iterators, as on cancellation, doesn't start further fetches
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final AtomicInteger started = new AtomicInteger();
+        final List<Callable<ValueIterator>> sources = new ArrayList<>();
+        for (int i=0; i<5; ++i)
+            sources.add(() ->
+            {
+                started.incrementAndGet();
+                return new SyntheticValueIterator(0, 1, 100000);
+            });
+        final List<ValueIterator> iters = PrefetchValueIterator.prefetch(sources, 2, executor);
+        PrefetchValueIterator.close(iters);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(started.get() <= 2);
+    }
+
+    @Test(timeout=20000)
+    public void testPrefetchError() throws Exception
+    {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        final PrefetchValueIterator iter = new PrefetchValueIterator(() ->
+        {
+            throw new Exception("No such channel");
+        });
+        iter.start(executor);
+        assertTrue(iter.hasNext());
+        try
+        {
+            iter.next();
+            fail("Didn't report error");
+        }
+        catch (Exception ex)
+        {
+            assertThat(ex.getMessage(), equalTo("No such channel"));
+        }
+        assertThat(iter.hasNext(), equalTo(false));
+        iter.close();
+        executor.shutdown();
+    }
+
+    @Test(timeout=60000)
+    public void testBinaryExport() throws Exception
+    {
+        final int channels = 2, count = 1500000;
+        final File file = File.createTempFile("export", ".bin");
+        file.deleteOnExit();
+
+        final long start = System.currentTimeMillis();
+        final ValueIterator[] iters = createChannels(channels, count);
+        try
+        (
+            final BinaryExportWriter writer = new BinaryExportWriter(
+                FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                Arrays.asList("one", "two"));
+        )
+        {
+            for (int i=0; i<channels; ++i)
+                while (iters[i].hasNext())
+                    writer.add(i, iters[i].next());
+            assertThat(writer.getSampleCount(), equalTo((long) channels * count));
+        }
+        final long millis = System.currentTimeMillis() - start;
+        final long bytes = file.length();
+        System.out.format("Binary export: %d samples, %.1f bytes/sample, %d samples/sec\n",
+                          channels * count, bytes / (double) (channels * count),
+                          channels * count * 1000L / Math.max(1, millis));
+
+        // Read back
+        try
+        (
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+        )
+        {
+            assertThat(in.readInt(), equalTo(BinaryExportWriter.MAGIC));
+            assertThat(in.readInt(), equalTo(BinaryExportWriter.VERSION));
+            assertThat(in.readInt(), equalTo(channels));
+            for (String name : Arrays.asList("one", "two"))
+            {
+                final byte[] bytes_of_name = new byte[in.readShort()];
+                in.readFully(bytes_of_name);
+                assertThat(new String(bytes_of_name, "UTF-8"), equalTo(name));
+            }
+            final int[] read = new int[channels];
+            while (in.available() > 0)
+            {
+                final int channel = in.readInt();
+                final int n = in.readInt();
+                assertTrue(n > 0  &&  n <= BinaryExportWriter.CHUNK_SIZE);
+                final long[] seconds = new long[n];
+                final int[] nanos = new int[n];
+                for (int i=0; i<n; ++i)
+                    seconds[i] = in.readLong();
+                for (int i=0; i<n; ++i)
+                    nanos[i] = in.readInt();
+                for (int i=0; i<n; ++i)
+                {
+                    final int index = read[channel] + i;
+                    final Instant expected = Instant.ofEpochMilli(channel + index * (long) (channels + channel));
+                    assertThat(Instant.ofEpochSecond(seconds[i], nanos[i]), equalTo(expected));
+                    assertThat(in.readDouble(), equalTo((double) index));
+                }
+                // No min/max
+                for (int i=0; i<2*n; ++i)
+                    assertTrue(Double.isNaN(in.readDouble()));
+                for (int i=0; i<n; ++i)
+                    assertThat((int) in.readByte(), equalTo(AlarmSeverity.NONE.ordinal()));
+                read[channel] += n;
+            }
+            for (int i=0; i<channels; ++i)
+                assertThat(read[i], equalTo(count));
+        }
+    }
+}
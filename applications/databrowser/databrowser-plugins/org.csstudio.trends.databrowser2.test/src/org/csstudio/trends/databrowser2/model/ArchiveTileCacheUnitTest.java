@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.model.ArchiveTileCache.Tile;
+import org.csstudio.trends.databrowser2.model.ArchiveTileCache.TileData;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link ArchiveTileCache} */
+@SuppressWarnings("nls")
+public class ArchiveTileCacheUnitTest
+{
+    private static final int BINS = 800;
+
+    private static final ArchiveDataSource ARCHIVE = new ArchiveDataSource("test://archive", 1, "Test");
+
+    private static List<VType> makeValues(final int start, final int end)
+    {
+        final List<VType> values = new ArrayList<>();
+        for (int i=start; i<end; ++i)
+            values.add(TestHelper.makeValue(i));
+        return values;
+    }
+
+    @Test
+    public void testTiles()
+    {
+        final Instant start = Instant.parse("2016-01-01T00:00:00Z");
+        for (Duration range : Arrays.asList(Duration.ofSeconds(1), Duration.ofHours(1), Duration.ofDays(300)))
+        {
+            final Instant end = start.plus(range);
+            final List<Tile> tiles = ArchiveTileCache.getTiles(start, end, BINS);
+            System.out.println(range + ": " + tiles.size() + " tiles on level " + tiles.get(0).getLevel());
+
+            // Tiles are adjacent and cover the range
+            assertTrue(! tiles.get(0).getStart().isAfter(start));
+            assertTrue(tiles.get(tiles.size()-1).getEnd().isAfter(end));
+            for (int i=1; i<tiles.size(); ++i)
+                assertThat(tiles.get(i).getStart(), equalTo(tiles.get(i-1).getEnd()));
+
+            // Provide at least the requested resolution with a handful of tiles
+            final int tile_bins = ArchiveTileCache.getTileBins(BINS);
+            assertTrue(tiles.size() * tile_bins >= BINS);
+            assertTrue(tiles.size() <= 2 * BINS / tile_bins + 2);
+        }
+
+        // Panning by a little re-uses all but at most one tile
+        final Instant end = start.plus(Duration.ofHours(1));
+        final List<Tile> tiles = ArchiveTileCache.getTiles(start, end, BINS);
+        final List<Tile> panned = ArchiveTileCache.getTiles(start.plusSeconds(10), end.plusSeconds(10), BINS);
+        final List<Tile> missing = new ArrayList<>(panned);
+        missing.removeAll(tiles);
+        assertTrue(missing.size() <= 1);
+
+        // Zooming in uses a finer level
+        final List<Tile> zoomed = ArchiveTileCache.getTiles(start, start.plus(Duration.ofMinutes(10)), BINS);
+        assertTrue(zoomed.get(0).getLevel() < tiles.get(0).getLevel());
+    }
+
+    @Test
+    public void testCache()
+    {
+        final ArchiveTileCache cache = new ArchiveTileCache();
+        final List<Tile> tiles = ArchiveTileCache.getTiles(Instant.ofEpochSecond(0), Instant.ofEpochSecond(1000), BINS);
+        final TileData data = new TileData("Test", makeValues(0, 10));
+        assertThat(cache.get(ARCHIVE, "pv", tiles.get(0)), nullValue());
+        assertTrue(cache.put(ARCHIVE, "pv", tiles.get(0), data));
+        assertThat(cache.get(ARCHIVE, "pv", tiles.get(0)), sameInstance(data));
+        // Different channel or archive
+        assertThat(cache.get(ARCHIVE, "other", tiles.get(0)), nullValue());
+        assertThat(cache.get(new ArchiveDataSource("test://archive", 2, "Other"), "pv", tiles.get(0)), nullValue());
+        assertThat(cache.getSampleCount(), equalTo(10));
+
+        // Recent tiles are not cached
+        final Instant now = Instant.now();
+        final Tile recent = ArchiveTileCache.getTiles(now.minusSeconds(60), now, BINS).get(0);
+        assertThat(cache.put(ARCHIVE, "pv", recent, data), equalTo(false));
+        assertThat(cache.size(), equalTo(1));
+    }
+
+    @Test
+    public void testLRU()
+    {
+        final ArchiveTileCache cache = new ArchiveTileCache();
+        final List<Tile> tiles = ArchiveTileCache.getTiles(Instant.ofEpochSecond(0), Instant.ofEpochSecond(1000), BINS);
+        final int per_tile = ArchiveTileCache.MAX_SAMPLES / 4;
+        cache.put(ARCHIVE, "pv", tiles.get(0), new TileData("Test", makeValues(0, per_tile)));
+        cache.put(ARCHIVE, "pv", tiles.get(1), new TileData("Test", makeValues(0, per_tile)));
+        cache.put(ARCHIVE, "pv", tiles.get(2), new TileData("Test", makeValues(0, per_tile)));
+        cache.put(ARCHIVE, "pv", tiles.get(3), new TileData("Test", makeValues(0, per_tile)));
+        assertThat(cache.size(), equalTo(4));
+
+        // Access first tile, then add one more: Second tile is least recently used
+        cache.get(ARCHIVE, "pv", tiles.get(0));
+        cache.put(ARCHIVE, "pv", tiles.get(4), new TileData("Test", makeValues(0, per_tile)));
+        assertThat(cache.size(), equalTo(4));
+        assertThat(cache.get(ARCHIVE, "pv", tiles.get(1)), nullValue());
+        assertTrue(cache.get(ARCHIVE, "pv", tiles.get(0)) != null);
+        assertThat(cache.getSampleCount(), equalTo(ArchiveTileCache.MAX_SAMPLES));
+    }
+
+    @Test
+    public void testValuesAfter()
+    {
+        final List<VType> first = makeValues(0, 10);
+        assertThat(ArchiveTileCache.getValuesAfter(first, null), sameInstance(first));
+
+        // Second tile starts with initial value that's already in the first tile
+        final List<VType> second = ArchiveTileCache.getValuesAfter(makeValues(9, 20), Instant.ofEpochSecond(9));
+        assertThat(second.size(), equalTo(10));
+        for (int i=0; i<second.size(); ++i)
+            assertThat(VTypeHelper.getTimestamp(second.get(i)), equalTo(Instant.ofEpochSecond(10 + i)));
+    }
+}
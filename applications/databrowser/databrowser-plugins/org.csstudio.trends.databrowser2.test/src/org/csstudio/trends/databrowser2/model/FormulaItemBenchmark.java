@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Time needed by a {@link FormulaItem} to handle new live samples
+ *  when its inputs hold many archived samples.
+ *
+ *  <p>Compares re-evaluating only the lines after new live samples
+ *  with computing all lines.
+ *
+ *  <p>Run with for example -Xmx4g.
+ */
+@SuppressWarnings("nls")
+public class FormulaItemBenchmark
+{
+    private static final int N = 1000000;
+
+    private static final int UPDATES = 50;
+
+    private static final Display display = ValueFactory.displayNone();
+
+    private static VType createValue(final Instant time, final double value)
+    {
+        return new ArchiveVNumber(time, AlarmSeverity.NONE, "NO_ALARM", display, value);
+    }
+
+    private static PVItem createInput(final String name, final Instant start)
+            throws Exception
+    {
+        final PVItem item = new PVItem(name, 0.0);
+        final List<VType> values = new ArrayList<>(N);
+        for (int i=0; i<N; ++i)
+            values.add(createValue(start.plusMillis(i), Math.sin(i * 0.001)));
+        item.getSamples().mergeArchivedData("Archive", values);
+        return item;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        final Instant start = Instant.now().minusMillis(N + 1000);
+        final PVItem x = createInput("x", start);
+        final PVItem y = createInput("y", start.plusNanos(500000));
+        final FormulaInput[] inputs = new FormulaInput[]
+        {
+            new FormulaInput(x, "x"),
+            new FormulaInput(y, "y")
+        };
+        long nanos = System.nanoTime();
+        final FormulaItem formula = new FormulaItem("f", "2*x + sqrt(abs(y)) - 1", inputs);
+        nanos = System.nanoTime() - nanos;
+        System.out.format("Initial computation of %d lines: %.1f ms\n",
+                          formula.getSamples().size(), nanos / 1e6);
+
+        Instant time = start.plusMillis(N);
+        long incremental = 0, full = 0;
+        for (int i=0; i<UPDATES; ++i)
+        {
+            time = time.plusMillis(1);
+            x.getSamples().addLiveSample(new PlotSample("Live", createValue(time, i)));
+            y.getSamples().addLiveSample(new PlotSample("Live", createValue(time.plusNanos(500000), -i)));
+
+            nanos = System.nanoTime();
+            formula.reevaluate();
+            incremental += System.nanoTime() - nanos;
+
+            // Changing the formula forces computation of all lines
+            nanos = System.nanoTime();
+            formula.updateFormula(formula.getExpression(), inputs);
+            formula.reevaluate();
+            full += System.nanoTime() - nanos;
+        }
+        System.out.format("Update with new live samples, %d lines: incremental %.3f ms, full %.1f ms\n",
+                          formula.getSamples().size(),
+                          incremental / 1e6 / UPDATES, full / 1e6 / UPDATES);
+    }
+}
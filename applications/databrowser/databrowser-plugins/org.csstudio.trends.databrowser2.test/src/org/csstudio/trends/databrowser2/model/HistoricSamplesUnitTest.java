@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VType;
+import org.junit.Test;
+
+/** JUnit test of {@link HistoricSamples} and the {@link SampleColumns} it uses
+ *
+ *  <p>Values and time stamps of the test samples are the same,
+ *  and samples from different merges use different sources,
+ *  so checks can tell which merge provided a sample.
+ */
+@SuppressWarnings("nls")
+public class HistoricSamplesUnitTest
+{
+    private static List<VType> makeValues(final int start, final int end)
+    {
+        final List<VType> values = new ArrayList<>();
+        for (int i=start; i<end; ++i)
+            values.add(TestHelper.makeValue(i));
+        return values;
+    }
+
+    /** @param samples Samples
+     *  @param start Expected first value
+     *  @param end Expected last value + 1
+     *  @param source Expected source
+     *  @param offset Index of first sample to check
+     */
+    private static void check(final HistoricSamples samples, final int start, final int end,
+                              final String source, final int offset)
+    {
+        for (int i=start; i<end; ++i)
+        {
+            final PlotSample sample = samples.getRawSample(offset + i - start);
+            assertThat(sample.getValue(), equalTo((double) i));
+            assertThat(sample.getPosition(), equalTo(Instant.ofEpochSecond(i)));
+            assertThat(sample.getSource(), equalTo(source));
+        }
+    }
+
+    @Test
+    public void testMerge()
+    {
+        final HistoricSamples samples = new HistoricSamples(new AtomicInteger(0));
+        assertThat(samples.size(), equalTo(0));
+
+        // Span several chunks
+        final int N = 3 * HistoricSamples.CHUNK_SIZE + 10;
+        samples.mergeArchivedData("A", makeValues(1000, 1000 + N));
+        assertThat(samples.getRawSize(), equalTo(N));
+        check(samples, 1000, 1000 + N, "A", 0);
+
+        // Replace a section in the middle, across a chunk boundary
+        final int replace = HistoricSamples.CHUNK_SIZE + 1000 - 5;
+        samples.mergeArchivedData("B", makeValues(replace, replace + 10));
+        assertThat(samples.getRawSize(), equalTo(N));
+        check(samples, 1000, replace, "A", 0);
+        check(samples, replace, replace + 10, "B", replace - 1000);
+        check(samples, replace + 10, 1000 + N, "A", replace + 10 - 1000);
+
+        // Add before
+        samples.mergeArchivedData("C", makeValues(0, 10));
+        assertThat(samples.getRawSize(), equalTo(N + 10));
+        check(samples, 0, 10, "C", 0);
+        check(samples, 1000, 1010, "A", 10);
+
+        // Overlap the end
+        samples.mergeArchivedData("D", makeValues(N + 900, N + 1100));
+        assertThat(samples.getRawSize(), equalTo(10 + N - 100 + 200));
+        check(samples, N + 900, N + 1100, "D", 10 + N - 100);
+
+        // Replace everything
+        samples.mergeArchivedData("E", makeValues(0, 100000));
+        assertThat(samples.getRawSize(), equalTo(100000));
+        check(samples, 0, 100000, "E", 0);
+    }
+
+    @Test
+    public void testMergeParts()
+    {
+        final HistoricSamples samples = new HistoricSamples(new AtomicInteger(0));
+        samples.mergeArchivedData("A", makeValues(0, 100));
+
+        // New data arrives in parts, leaving a gap between 20 and 30.
+        // Second part replaces old samples from the end of the first part on
+        samples.mergeArchivedData("B", makeValues(10, 20), null);
+        samples.mergeArchivedData("B", makeValues(30, 40), Instant.ofEpochSecond(19));
+        assertThat(samples.getRawSize(), equalTo(100 - 10));
+        check(samples, 0, 10, "A", 0);
+        check(samples, 10, 20, "B", 10);
+        check(samples, 30, 40, "B", 20);
+        check(samples, 40, 100, "A", 30);
+    }
+
+    @Test
+    public void testBorderTime()
+    {
+        final HistoricSamples samples = new HistoricSamples(new AtomicInteger(0));
+        samples.mergeArchivedData("A", makeValues(0, 100));
+        assertThat(samples.size(), equalTo(100));
+
+        samples.setBorderTime(Optional.of(Instant.ofEpochSecond(50)));
+        assertThat(samples.size(), equalTo(50));
+        assertThat(samples.get(49).getValue(), equalTo(49.0));
+
+        samples.setBorderTime(Optional.empty());
+        assertThat(samples.size(), equalTo(100));
+    }
+
+    @Test
+    public void testSampleTypes()
+    {
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+        final HistoricSamples samples = new HistoricSamples(waveform_index);
+        final List<VType> values = new ArrayList<>();
+        values.add(TestHelper.makeValue(1));
+        values.add(TestHelper.makeWaveform(2, new double[] { 2.0, 2.1 }));
+        values.add(TestHelper.makeError(3, "Disconnected"));
+        samples.mergeArchivedData("A", values);
+
+        // Scalar from columns provides a VType when asked
+        assertThat(samples.getRawSample(0).getVType(), instanceOf(VNumber.class));
+        assertThat(((VNumber) samples.getRawSample(0).getVType()).getValue().doubleValue(), equalTo(1.0));
+        // Waveform kept as is
+        assertThat(samples.getRawSample(1).getVType(), sameInstance(values.get(1)));
+        assertThat(samples.getRawSample(1).getValue(), equalTo(2.0));
+        // Alarm is preserved
+        final VType error = samples.getRawSample(2).getVType();
+        assertThat(VTypeHelper.getSeverity(error), equalTo(AlarmSeverity.UNDEFINED));
+        assertThat(VTypeHelper.getMessage(error), equalTo("Disconnected"));
+
+        waveform_index.set(1);
+        assertThat(Double.isNaN(samples.getRawSample(0).getValue()), equalTo(true));
+        assertThat(samples.getRawSample(1).getValue(), equalTo(2.1));
+    }
+}
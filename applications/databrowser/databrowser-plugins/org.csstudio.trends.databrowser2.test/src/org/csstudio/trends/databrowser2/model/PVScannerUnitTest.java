@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link PVScanner}
+ *
+ *  <p>Items are not started, i.e. they have no PV
+ *  and will log a 'disconnected' sample when scanned.
+ */
+@SuppressWarnings("nls")
+public class PVScannerUnitTest
+{
+    @Test(timeout=20000)
+    public void testScanGroups() throws Exception
+    {
+        final Model model = new Model();
+        final List<PVItem> items = new ArrayList<>();
+        for (int i=0; i<200; ++i)
+        {
+            final PVItem item = new PVItem("test" + i, 0.5);
+            model.addItem(item);
+            items.add(item);
+        }
+
+        for (PVItem item : items)
+            PVScanner.add(item, item.getScanPeriod());
+        assertThat(PVScanner.getStatistics().size(), equalTo(1));
+
+        // Wait for each item to log one 'disconnected' sample
+        for (PVItem item : items)
+            while (item.getSamples().size() < 1)
+                Thread.sleep(50);
+        for (PVItem item : items)
+            PVScanner.remove(item);
+
+        // Repeated scans of a disconnected item only log one sample
+        for (PVItem item : items)
+            assertThat(item.getSamples().size(), equalTo(1));
+        // Scan group was removed
+        assertTrue(PVScanner.getStatistics().isEmpty());
+    }
+}
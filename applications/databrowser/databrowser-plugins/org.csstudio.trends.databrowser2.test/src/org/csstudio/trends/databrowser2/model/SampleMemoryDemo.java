@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Compare memory used by samples held as {@link PlotSample} objects
+ *  with samples held in {@link SampleColumns} by {@link HistoricSamples}
+ *
+ *  <p>Run with for example -Xmx4g.
+ */
+@SuppressWarnings("nls")
+public class SampleMemoryDemo
+{
+    private static final int N = 2000000;
+
+    private static long usedMemory()
+    {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<5; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<VType> createValues(final boolean statistics)
+    {
+        final Display display = ValueFactory.displayNone();
+        final Instant start = Instant.now();
+        final List<VType> values = new ArrayList<>(N);
+        for (int i=0; i<N; ++i)
+        {
+            final Instant time = start.plusMillis(i);
+            final double value = Math.sin(i * 0.001);
+            if (statistics)
+                values.add(new ArchiveVStatistics(time, AlarmSeverity.NONE, "NO_ALARM", display,
+                                                  value, value - 1, value + 1, 0.1, 10));
+            else
+                values.add(new ArchiveVNumber(time, AlarmSeverity.NONE, "NO_ALARM", display, value));
+        }
+        return values;
+    }
+
+    private static void compare(final String title, final boolean statistics)
+    {
+        final AtomicInteger waveform_index = new AtomicInteger(0);
+
+        long before = usedMemory();
+        List<VType> values = createValues(statistics);
+        final PlotSample[] objects = new PlotSample[N];
+        for (int i=0; i<N; ++i)
+            objects[i] = new PlotSample(waveform_index, "Archive", values.get(i));
+        values = null;
+        final long object_bytes = usedMemory() - before;
+
+        before = usedMemory();
+        final HistoricSamples columns = new HistoricSamples(waveform_index);
+        columns.mergeArchivedData("Archive", createValues(statistics));
+        final long column_bytes = usedMemory() - before;
+
+        System.out.format("%-12s PlotSample[]: %6.1f bytes/sample, SampleColumns: %6.1f bytes/sample\n",
+                          title, object_bytes / (double) N, column_bytes / (double) N);
+        // Keep both alive until measured
+        if (objects.length != columns.getRawSize())
+            throw new IllegalStateException();
+    }
+
+    public static void main(String[] args)
+    {
+        compare("Numbers", false);
+        compare("Statistics", true);
+    }
+}
@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit test of {@link SpilledSamples} */
+@SuppressWarnings("nls")
+public class SpilledSamplesUnitTest
+{
+    final private AtomicInteger waveform_index = new AtomicInteger(0);
+    final private SampleColumns.Texts texts = new SampleColumns.Texts();
+
+    /** @return Value for sample i, with a gap every 10000 samples */
+    private static double valueOf(final int i)
+    {
+        return (i % 10000) == 5000 ? Double.NaN : Math.sin(i * 0.01);
+    }
+
+    /** Spill 'count' samples via a ring of columns
+     *  @return Number of calls that reported changed samples
+     */
+    private int spill(final SpilledSamples spill, final int count)
+    {
+        final SampleColumns columns = new SampleColumns(texts, 100);
+        int changes = 0;
+        for (int i=0; i<count; ++i)
+        {
+            final double value = valueOf(i);
+            final VType vtype = new ArchiveVNumber(Instant.ofEpochSecond(1000 + i), Double.isNaN(value) ? AlarmSeverity.UNDEFINED : AlarmSeverity.NONE,
+                                                   Double.isNaN(value) ? "Disconnected" : "OK", ValueFactory.displayNone(), value);
+            columns.set(i % 100, new PlotSample(waveform_index, "Test", vtype));
+            if (spill.add(columns, i % 100))
+                ++changes;
+        }
+        return changes;
+    }
+
+    @Test
+    public void testRawSpill() throws Exception
+    {
+        final SpilledSamples spill = new SpilledSamples(texts, 1000000, 100*1024*1024);
+        final int count = 100000;
+        assertThat(spill(spill, count), equalTo(0));
+        assertThat(spill.size(), equalTo(count));
+        for (int i=0; i<count; i+=997)
+        {
+            final PlotSample sample = spill.get(i, waveform_index);
+            assertThat(sample.getPosition(), equalTo(Instant.ofEpochSecond(1000 + i)));
+            assertThat(sample.getValue(), equalTo(valueOf(i)));
+            assertThat(sample.getSource(), equalTo("Test"));
+        }
+        final PlotSample gap = spill.get(5000, waveform_index);
+        assertTrue(Double.isNaN(gap.getValue()));
+        assertThat(((org.diirt.vtype.Alarm) gap.getVType()).getAlarmName(), equalTo("Disconnected"));
+        spill.clear();
+        assertThat(spill.size(), equalTo(0));
+    }
+
+    @Test
+    public void testDownsampling() throws Exception
+    {
+        // Keep only one segment of raw samples
+        final SpilledSamples spill = new SpilledSamples(texts, 1, 100*1024*1024);
+        final int count = 5 * SpilledSamples.SEGMENT_SAMPLES;
+        assertTrue(spill(spill, count) > 0);
+        // Last segment is raw, the others are down-sampled
+        final int raw = count - 4*SpilledSamples.SEGMENT_SAMPLES;
+        assertTrue(spill.size() < raw + 4*SpilledSamples.SEGMENT_SAMPLES/SpilledSamples.DOWNSAMPLE + 100);
+        System.out.println(count + " samples spilled into " + spill.size() + " samples, " + spill.getFileSize() + " bytes");
+
+        // Time stamps still increase, statistics cover the original samples
+        Instant last = Instant.MIN;
+        int original = 0, gaps = 0;
+        for (int i=0; i<spill.size(); ++i)
+        {
+            final PlotSample sample = spill.get(i, waveform_index);
+            assertTrue(sample.getPosition().isAfter(last));
+            last = sample.getPosition();
+            final VType vtype = sample.getVType();
+            if (vtype instanceof VStatistics)
+            {
+                final VStatistics stats = (VStatistics) vtype;
+                final int first = (int) (sample.getPosition().getEpochSecond() - 1000);
+                double min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sum = 0;
+                for (int s=first; s<first + stats.getNSamples(); ++s)
+                {
+                    min = Math.min(min, valueOf(s));
+                    max = Math.max(max, valueOf(s));
+                    sum += valueOf(s);
+                }
+                assertThat(stats.getMin(), equalTo(min));
+                assertThat(stats.getMax(), equalTo(max));
+                assertThat(stats.getAverage(), equalTo(sum / stats.getNSamples()));
+                original += stats.getNSamples();
+            }
+            else
+            {
+                if (Double.isNaN(sample.getValue()))
+                    ++gaps;
+                ++original;
+            }
+        }
+        assertThat(original, equalTo(count));
+        assertThat(gaps, equalTo((count + 5000) / 10000));
+    }
+
+    @Test
+    public void testMaximumSize() throws Exception
+    {
+        // File for 2 segments, one raw and one down-sampled,
+        // which overflows when down-sampling more than DOWNSAMPLE segments
+        final SpilledSamples spill = new SpilledSamples(texts, 1, 2L * SpilledSamples.SEGMENT_BYTES);
+        final int count = (SpilledSamples.DOWNSAMPLE + 6) * SpilledSamples.SEGMENT_SAMPLES;
+        spill(spill, count);
+        assertTrue(spill.getFileSize() <= 2L * SpilledSamples.SEGMENT_BYTES);
+        // Oldest samples were dropped, newest sample is still there
+        final PlotSample oldest = spill.get(0, waveform_index);
+        assertTrue(oldest.getPosition().isAfter(Instant.ofEpochSecond(1000)));
+        final PlotSample newest = spill.get(spill.size()-1, waveform_index);
+        assertThat(newest.getPosition(), equalTo(Instant.ofEpochSecond(1000 + count - 1)));
+        spill.clear();
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        final SpilledSamples spill = new SpilledSamples(texts, 1000, 10*1024*1024);
+        assertFalse(spill.isFileOpen());
+        spill(spill, 1000);
+        assertTrue(spill.isFileOpen());
+
+        // Clearing the samples closes the file, which deletes it
+        spill.clear();
+        assertThat(spill.size(), equalTo(0));
+        assertThat(spill.getFileSize(), equalTo(0L));
+        assertFalse(spill.isFileOpen());
+
+        // .. and it is re-created when adding samples
+        spill(spill, 10);
+        assertThat(spill.size(), equalTo(10));
+        assertTrue(spill.isFileOpen());
+        spill.clear();
+        assertFalse(spill.isFileOpen());
+    }
+}
@@ -133,6 +133,8 @@ public class Messages extends NLS
     public static String ExportStartExportTT;
     public static String ExportTabular;
     public static String ExportTabularTT;
+    public static String ExportTypeBinary;
+    public static String ExportTypeBinaryTT;
     public static String ExportTypeMatlab;
     public static String ExportTypeMatlabTT;
     public static String ExportTypeSpreadsheet;
@@ -7,9 +7,12 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.archive;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -19,9 +22,14 @@ import org.csstudio.archive.reader.ArchiveReader;
 import org.csstudio.archive.reader.ArchiveRepository;
 import org.csstudio.archive.reader.UnknownChannelException;
 import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
 import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
+import org.csstudio.trends.databrowser2.archive.ArchiveStreamMerger.Run;
 import org.csstudio.trends.databrowser2.model.ArchiveDataSource;
+import org.csstudio.trends.databrowser2.model.ArchiveTileCache;
+import org.csstudio.trends.databrowser2.model.ArchiveTileCache.Tile;
+import org.csstudio.trends.databrowser2.model.ArchiveTileCache.TileData;
 import org.csstudio.trends.databrowser2.model.PVItem;
 import org.csstudio.trends.databrowser2.model.RequestType;
 import org.csstudio.trends.databrowser2.model.TimeHelper;
@@ -34,6 +42,15 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.osgi.util.NLS;
 
 /** Eclipse Job for fetching archived data.
+ *  <p>
+ *  Optimized data is fetched in tiles which are cached
+ *  by the {@link ArchiveTileCache} of the item,
+ *  so only tiles that are not already cached are requested from the archive.
+ *  <p>
+ *  All archive data sources are queried in parallel.
+ *  Their values are merged by time stamp and added to the item
+ *  in parts as they arrive, so the plot can show them
+ *  before the slowest archive data source completes.
  *  <p>
  *  Actually spawns another thread so that the 'main' job can
  *  poll the progress monitor for cancellation and ask the secondary
@@ -58,6 +75,9 @@ public class ArchiveFetchJob extends Job
     /** Listener that's notified when (if) we completed OK */
     final private ArchiveFetchJobListener listener;
 
+    /** Time from start of the fetch until first samples were merged into the item */
+    private volatile Duration time_to_first_samples = null;
+
     /** Thread that performs the actual background work.
      *
      *  Instead of directly accessing the archive, ArchiveFetchJob launches
@@ -71,10 +91,17 @@ public class ArchiveFetchJob extends Job
         private String message = "";
         private volatile boolean cancelled = false;
 
-        /** Archive reader that's currently queried.
+        /** Archive readers that are currently queried.
          *  Synchronize 'this' on access.
          */
-        private volatile ArchiveReader reader = null;
+        final private List<ArchiveReader> readers = new ArrayList<>();
+
+        /** Merger for the values of all archive data sources */
+        private volatile ArchiveStreamMerger merger = null;
+
+        /** Archive data sources that don't know the channel */
+        final private List<ArchiveDataSource> sourcesWhereChannelDoesntExist =
+            Collections.synchronizedList(new ArrayList<>());
 
         /** @return Message that somehow indicates progress */
         public synchronized String getMessage()
@@ -86,11 +113,10 @@ public class ArchiveFetchJob extends Job
         public synchronized void cancel()
         {
             cancelled = true;
-            synchronized (this)
-            {
-                if (reader != null)
-                    reader.cancel();
-            }
+            for (ArchiveReader reader : readers)
+                reader.cancel();
+            if (merger != null)
+                merger.cancel();
         }
 
         /** {@inheritDoc} */
@@ -99,88 +125,195 @@ public class ArchiveFetchJob extends Job
         {
             Activator.getLogger().log(Level.FINE, "Starting {0}", ArchiveFetchJob.this);
             final BenchmarkTimer timer = new BenchmarkTimer();
+            final long start_nanos = System.nanoTime();
             long samples = 0;
             final int bins = Preferences.getPlotBins();
+            final List<Tile> tiles = item.getRequestType() == RequestType.RAW
+                                   ? null
+                                   : ArchiveTileCache.getTiles(start, end, bins);
             final ArchiveDataSource archives[] = item.getArchiveDataSources();
-            List<ArchiveDataSource> sourcesWhereChannelDoesntExist = new ArrayList<>();
-            for (int i=0; i<archives.length && !cancelled; ++i)
+            final ArchiveStreamMerger merger = new ArchiveStreamMerger(archives.length);
+            synchronized (this)
+            {
+                this.merger = merger;
+                if (cancelled)
+                    merger.cancel();
+            }
+            // Query all archive data sources in parallel
+            for (int i=0; i<archives.length; ++i)
             {
-                final ArchiveDataSource archive = archives[i];
-                final String url = archive.getUrl();
-                // Display "N/total", using '1' for the first sub-archive.
-                synchronized  (this)
+                final int index = i;
+                Activator.getThreadPool().submit(() -> fetch(merger, index, archives, tiles, bins));
+            }
+            // Merge values into the item as they arrive.
+            // The item then indicates new samples, and the periodic plot update redraws.
+            while (!cancelled  &&  !merger.isDone())
+            {
+                final List<Run> runs;
+                try
                 {
-                    message = NLS.bind(Messages.ArchiveFetchDetailFmt,
-                            new Object[]
-                            {
-                                archive.getName(),
-                                (i+1),
-                                archives.length
-                            });
+                    runs = merger.take(POLL_PERIOD_MS);
                 }
-                try
+                catch (InterruptedException ex)
                 {
-                    final ArchiveReader the_reader;
-                    synchronized (this)
-                    {
-                        the_reader = reader = ArchiveRepository.getInstance().getArchiveReader(url);
-                    }
-                    the_reader.enableConcurrency(concurrency);
-                    final ValueIterator value_iter;
+                    break;
+                }
+                for (Run run : runs)
+                {
+                    if (cancelled)
+                        break;
+                    if (samples == 0)
+                        time_to_first_samples = Duration.ofNanos(System.nanoTime() - start_nanos);
+                    samples += run.getValues().size();
+                    item.mergeArchivedSamples(run.getSource(), run.getValues(), run.getReplaceAfter());
+                }
+            }
+            if (!sourcesWhereChannelDoesntExist.isEmpty() && !cancelled)
+            {
+                listener.channelNotFound(ArchiveFetchJob.this, sourcesWhereChannelDoesntExist.size() < archives.length,
+                    sourcesWhereChannelDoesntExist
+                        .toArray(new ArchiveDataSource[sourcesWhereChannelDoesntExist.size()]));
+            }
+            timer.stop();
+            if (!cancelled)
+                listener.fetchCompleted(ArchiveFetchJob.this);
+            Activator.getLogger().log(Level.FINE,
+                    "Ended {0} with {1} samples in {2}, first samples after {3}",
+                    new Object[] { ArchiveFetchJob.this, samples, timer, time_to_first_samples });
+        }
+
+        /** Fetch values from one archive data source
+         *  @param merger Merger to which values are added
+         *  @param index Index of the archive data source
+         *  @param archives All archive data sources
+         *  @param tiles Tiles to fetch, <code>null</code> to fetch raw data
+         *  @param bins Number of bins requested for the plot
+         */
+        private void fetch(final ArchiveStreamMerger merger, final int index, final ArchiveDataSource archives[],
+                           final List<Tile> tiles, final int bins)
+        {
+            final ArchiveDataSource archive = archives[index];
+            // Display "N/total", using '1' for the first sub-archive.
+            synchronized  (this)
+            {
+                message = NLS.bind(Messages.ArchiveFetchDetailFmt,
+                        new Object[]
+                        {
+                            archive.getName(),
+                            (index+1),
+                            archives.length
+                        });
+            }
+            ArchiveReader the_reader = null;
+            try
+            {
+                if (tiles == null)
+                {
+                    the_reader = openReader(archive);
+                    final ValueIterator value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
+                                                                             start, end);
                     try
                     {
-                        if (item.getRequestType() == RequestType.RAW)
-                            value_iter = the_reader.getRawValues(archive.getKey(), item.getResolvedName(),
-                                                                 start, end);
-                        else
-                            value_iter = the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
-                                                                       start, end, bins);
+                        merger.add(index, the_reader.getServerName(), value_iter);
                     }
-                    catch (UnknownChannelException e)
+                    finally
                     {
-                        // Do not immediately notify about unknown channels. First search for the data in all archive
-                        // sources and only report this kind of errors at the end
-                        sourcesWhereChannelDoesntExist.add(archives[i]);
-                        continue;
+                        value_iter.close();
                     }
-                    // Get samples into array
-                    final List<VType> result = new ArrayList<VType>();
-                    while (value_iter.hasNext())
-                        result.add(value_iter.next());
-                    samples += result.size();
-                    item.mergeArchivedSamples(the_reader.getServerName(), result);
-                    if (cancelled)
-                        break;
-                    value_iter.close();
                 }
-                catch (Exception ex)
-                {   // Tell listener unless it's the result of a 'cancel'?
-                    if (! cancelled)
-                        listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
-                    // Continue with the next data source
+                else
+                {   // Use cached tiles where possible, only fetch the missing ones
+                    final ArchiveTileCache cache = item.getArchiveTileCache();
+                    final int tile_bins = ArchiveTileCache.getTileBins(bins);
+                    Instant last = null;
+                    int cached = 0;
+                    for (Tile tile : tiles)
+                    {
+                        if (cancelled)
+                            break;
+                        TileData data = cache.get(archive, item.getResolvedName(), tile);
+                        if (data == null)
+                        {
+                            if (the_reader == null)
+                                the_reader = openReader(archive);
+                            final List<VType> values = readValues(the_reader.getOptimizedValues(archive.getKey(), item.getResolvedName(),
+                                                                                                tile.getStart(), tile.getEnd(), tile_bins));
+                            if (cancelled)
+                                break;
+                            data = new TileData(the_reader.getServerName(), values);
+                            cache.put(archive, item.getResolvedName(), tile, data);
+                        }
+                        else
+                            ++cached;
+                        final List<VType> values = ArchiveTileCache.getValuesAfter(data.getValues(), last);
+                        if (! values.isEmpty())
+                        {
+                            merger.add(index, data.getServerName(), values);
+                            last = VTypeHelper.getTimestamp(values.get(values.size()-1));
+                        }
+                    }
+                    Activator.getLogger().log(Level.FINE,
+                            "{0}: {1} of {2} tiles cached for {3}",
+                            new Object[] { ArchiveFetchJob.this, cached, tiles.size(), archive.getName() });
                 }
-                finally
+            }
+            catch (UnknownChannelException e)
+            {
+                // Do not immediately notify about unknown channels. First search for the data in all archive
+                // sources and only report this kind of errors at the end
+                sourcesWhereChannelDoesntExist.add(archive);
+            }
+            catch (Exception ex)
+            {   // Tell listener unless it's the result of a 'cancel'?
+                if (! cancelled)
+                    listener.archiveFetchFailed(ArchiveFetchJob.this, archive, ex);
+            }
+            finally
+            {
+                if (the_reader != null)
                 {
                     synchronized (this)
                     {
-                        if (reader != null)
-                            reader.close();
-                        reader = null;
+                        readers.remove(the_reader);
                     }
+                    the_reader.close();
                 }
+                merger.done(index);
             }
-            if (!sourcesWhereChannelDoesntExist.isEmpty() && !cancelled)
+        }
+
+        /** @param archive Archive data source
+         *  @return Reader for the archive data source
+         *  @throws Exception on error
+         */
+        private ArchiveReader openReader(final ArchiveDataSource archive) throws Exception
+        {
+            final ArchiveReader the_reader = ArchiveRepository.getInstance().getArchiveReader(archive.getUrl());
+            the_reader.enableConcurrency(concurrency);
+            synchronized (this)
             {
-                listener.channelNotFound(ArchiveFetchJob.this, sourcesWhereChannelDoesntExist.size() < archives.length,
-                    sourcesWhereChannelDoesntExist
-                        .toArray(new ArchiveDataSource[sourcesWhereChannelDoesntExist.size()]));
+                readers.add(the_reader);
+            }
+            return the_reader;
+        }
+
+        /** @param value_iter Iterator, will be closed
+         *  @return Values of the iterator
+         *  @throws Exception on error
+         */
+        private List<VType> readValues(final ValueIterator value_iter) throws Exception
+        {
+            try
+            {
+                final List<VType> result = new ArrayList<VType>();
+                while (value_iter.hasNext()  &&  !cancelled)
+                    result.add(value_iter.next());
+                return result;
+            }
+            finally
+            {
+                value_iter.close();
             }
-            timer.stop();
-            if (!cancelled)
-                listener.fetchCompleted(ArchiveFetchJob.this);
-            Activator.getLogger().log(Level.FINE,
-                    "Ended {0} with {1} samples in {2}",
-                    new Object[] { ArchiveFetchJob.this, samples, timer });
         }
 
         @Override
@@ -232,6 +365,14 @@ public class ArchiveFetchJob extends Job
         return item;
     }
 
+    /** @return Time from start of the fetch until first samples were merged into the item,
+     *          empty if no samples have been received
+     */
+    public Optional<Duration> getTimeToFirstSamples()
+    {
+        return Optional.ofNullable(time_to_first_samples);
+    }
+
     /** Job's main routine which starts and monitors WorkerThread */
     @Override
     protected IStatus run(final IProgressMonitor monitor)
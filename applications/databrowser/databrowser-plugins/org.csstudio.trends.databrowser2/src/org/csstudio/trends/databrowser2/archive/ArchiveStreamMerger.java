@@ -0,0 +1,243 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.archive;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.csstudio.archive.reader.MergingValueIterator;
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VType;
+
+/** Merge values that several archive sources provide in parallel
+ *
+ *  <p>Each source adds its values in time order, in parts as they arrive.
+ *  Values are merged by time stamp like the {@link MergingValueIterator},
+ *  but as soon as they can be placed:
+ *  Once every source that's still active has provided values up to some time,
+ *  all values up to that time are complete and can be taken.
+ */
+class ArchiveStreamMerger
+{
+    /** Maximum number of values that a source adds as one part */
+    final static int CHUNK_SIZE = 1000;
+
+    /** Maximum time in millisecs that a source holds values before adding them */
+    final static long CHUNK_MS = 200;
+
+    /** Values of one source */
+    private static class Stream
+    {
+        /** Server name of the source */
+        String source = null;
+
+        /** Values that have not been taken */
+        final ArrayDeque<VType> pending = new ArrayDeque<>();
+
+        /** Time stamp of the last value added, <code>null</code> before receiving anything */
+        Instant latest = null;
+
+        /** Will the source add more values? */
+        boolean done = false;
+    }
+
+    /** Values of one source, in time order and adjacent to the values of the previous run */
+    public static class Run
+    {
+        final private String source;
+        final private Instant replace_after;
+        final private List<VType> values = new ArrayList<>();
+
+        Run(final String source, final Instant replace_after)
+        {
+            this.source = source;
+            this.replace_after = replace_after;
+        }
+
+        /** @return Server name of the source */
+        public String getSource()
+        {
+            return source;
+        }
+
+        /** @return Time of the last value before this run, <code>null</code> for the first run */
+        public Instant getReplaceAfter()
+        {
+            return replace_after;
+        }
+
+        /** @return Values */
+        public List<VType> getValues()
+        {
+            return values;
+        }
+    }
+
+    /** Sources. Synchronize on 'this' */
+    final private Stream[] streams;
+
+    /** Time stamp of last value taken */
+    private Instant last_taken = null;
+
+    private volatile boolean cancelled = false;
+
+    /** @param sources Number of sources */
+    public ArchiveStreamMerger(final int sources)
+    {
+        streams = new Stream[sources];
+        for (int i=0; i<sources; ++i)
+            streams[i] = new Stream();
+    }
+
+    /** Add values of a source
+     *  @param index Index of the source
+     *  @param source Server name of the source
+     *  @param values Values, in time order, following values that were previously added
+     */
+    public synchronized void add(final int index, final String source, final List<VType> values)
+    {
+        if (values.isEmpty())
+            return;
+        final Stream stream = streams[index];
+        stream.source = source;
+        stream.pending.addAll(values);
+        stream.latest = VTypeHelper.getTimestamp(values.get(values.size()-1));
+        notifyAll();
+    }
+
+    /** Read values from iterator, adding them in parts
+     *
+     *  <p>Values are added as soon as {@link #CHUNK_SIZE} values
+     *  have been read or the oldest value was read {@link #CHUNK_MS} ago.
+     *
+     *  @param index Index of the source
+     *  @param source Server name of the source
+     *  @param iter Iterator for the values
+     *  @return Number of values read
+     *  @throws Exception on error
+     */
+    public int add(final int index, final String source, final ValueIterator iter) throws Exception
+    {
+        int count = 0;
+        List<VType> chunk = new ArrayList<>();
+        long chunk_start = 0;
+        while (iter.hasNext()  &&  !cancelled)
+        {
+            if (chunk.isEmpty())
+                chunk_start = System.currentTimeMillis();
+            chunk.add(iter.next());
+            ++count;
+            if (chunk.size() >= CHUNK_SIZE  ||
+                System.currentTimeMillis() - chunk_start >= CHUNK_MS)
+            {
+                add(index, source, chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        add(index, source, chunk);
+        return count;
+    }
+
+    /** Indicate that a source will not add more values
+     *  @param index Index of the source
+     */
+    public synchronized void done(final int index)
+    {
+        streams[index].done = true;
+        notifyAll();
+    }
+
+    /** Stop reading values */
+    public void cancel()
+    {
+        cancelled = true;
+        synchronized (this)
+        {
+            notifyAll();
+        }
+    }
+
+    /** @return <code>true</code> when all sources are done and all values have been taken */
+    public synchronized boolean isDone()
+    {
+        for (Stream stream : streams)
+            if (! (stream.done  &&  stream.pending.isEmpty()))
+                return false;
+        return true;
+    }
+
+    /** Take values that can be merged, waiting for them if necessary
+     *  @param timeout_ms Maximum time to wait
+     *  @return Runs of values in time order. Empty if nothing arrived in time
+     *  @throws InterruptedException on interruption
+     */
+    public synchronized List<Run> take(final long timeout_ms) throws InterruptedException
+    {
+        List<Run> runs = takeAvailable();
+        if (runs.isEmpty()  &&  !cancelled  &&  !isDone())
+        {
+            wait(timeout_ms);
+            runs = takeAvailable();
+        }
+        return runs;
+    }
+
+    /** @return Runs of values that can be merged */
+    private List<Run> takeAvailable()
+    {
+        // Values up to the 'limit' are complete
+        Instant limit = null;
+        for (Stream stream : streams)
+        {
+            if (stream.done)
+                continue;
+            if (stream.latest == null)
+                return Collections.emptyList();
+            if (limit == null  ||  stream.latest.isBefore(limit))
+                limit = stream.latest;
+        }
+
+        final List<Run> runs = new ArrayList<>();
+        Run run = null;
+        while (true)
+        {   // Find oldest value, on equal time stamps prefer the first source
+            Instant time = null;
+            int index = -1;
+            for (int i=0; i<streams.length; ++i)
+            {
+                final VType value = streams[i].pending.peek();
+                if (value == null)
+                    continue;
+                final Instant sample_time = VTypeHelper.getTimestamp(value);
+                if (limit != null  &&  sample_time.isAfter(limit))
+                    continue;
+                if (time == null  ||  sample_time.isBefore(time))
+                {
+                    time = sample_time;
+                    index = i;
+                }
+            }
+            if (index < 0)
+                break;
+            final Stream stream = streams[index];
+            if (run == null  ||  !Objects.equals(run.source, stream.source))
+            {
+                run = new Run(stream.source, last_taken);
+                runs.add(run);
+            }
+            run.values.add(stream.pending.poll());
+            last_taken = time;
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.csstudio.trends.databrowser2.model.Model;
+import org.csstudio.trends.databrowser2.model.ModelItem;
+import org.diirt.vtype.VType;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+
+/** Eclipse Job for exporting data from Model to binary, columnar file
+ *  @see BinaryExportWriter
+ */
+@SuppressWarnings("nls")
+public class BinaryExportJob extends ExportJob
+{
+    final private String filename;
+
+    public BinaryExportJob(final Model model, final Instant start,
+            final Instant end, final Source source,
+            final int optimize_parameter, final String filename,
+            final ExportErrorHandler error_handler)
+    {
+        super("", model, start, end, source, optimize_parameter, null, error_handler);
+        this.filename = filename;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void performExport(final IProgressMonitor monitor,
+                                 final PrintStream out) throws Exception
+    {
+        // This exporter does its own file handling
+        if (out != null)
+            throw new IllegalStateException();
+
+        final List<ModelItem> items = getModelItems();
+        final List<String> names = new ArrayList<>(items.size());
+        for (ModelItem item : items)
+            names.add(item.getResolvedName());
+        final BinaryExportWriter writer = new BinaryExportWriter(
+            FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                             StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+            names);
+        // Fetch data for the next few items while writing one item
+        final List<ValueIterator> iters = fetchValues(items, PARALLEL_FETCHES);
+        try
+        {
+            for (int i=0; i<items.size()  &&  !monitor.isCanceled(); ++i)
+            {
+                final ModelItem item = items.get(i);
+                monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
+                final ValueIterator iter = iters.get(i);
+                long count = 0;
+                while (iter.hasNext()  &&  !monitor.isCanceled())
+                {
+                    final VType value = iter.next();
+                    writer.add(i, value);
+                    if (++count % PROGRESS_UPDATE_LINES == 0)
+                        updateProgress(monitor, (i + getTimeFraction(VTypeHelper.getTimestamp(value))) / items.size(),
+                                       item.getResolvedName(), writer.getSampleCount());
+                }
+                iter.close();
+            }
+        }
+        finally
+        {
+            close(iters);
+            writer.close();
+        }
+        logThroughput(writer.getSampleCount());
+    }
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+
+/** Writer for the binary, columnar export format
+ *
+ *  <p>All numbers are big-endian.
+ *  The file starts with a header:
+ *  <pre>
+ *  int    MAGIC
+ *  int    VERSION
+ *  int    Number of channels
+ *  For each channel:
+ *    short  Length of name in bytes
+ *    byte[] UTF-8 name
+ *  </pre>
+ *  followed by chunks of samples until the end of the file:
+ *  <pre>
+ *  int      Channel index
+ *  int      Number of samples N
+ *  long[N]  Epoch seconds of time stamps
+ *  int[N]   Nanoseconds of time stamps
+ *  double[N] Values
+ *  double[N] Minimum or NaN
+ *  double[N] Maximum or NaN
+ *  byte[N]   Ordinal of AlarmSeverity
+ *  </pre>
+ *  Chunks of different channels may be interleaved.
+ *  The chunks of one channel are in time order.
+ */
+public class BinaryExportWriter implements AutoCloseable
+{
+    /** Magic number at start of file, "DBEX" */
+    final public static int MAGIC = 0x44424558;
+
+    /** Format version */
+    final public static int VERSION = 1;
+
+    /** Maximum number of samples per chunk */
+    final public static int CHUNK_SIZE = 4096;
+
+    /** Bytes per sample in a chunk */
+    final public static int SAMPLE_BYTES = 8 + 4 + 3*8 + 1;
+
+    /** Buffered samples of one channel */
+    private static class Columns
+    {
+        final long[] seconds = new long[CHUNK_SIZE];
+        final int[] nanos = new int[CHUNK_SIZE];
+        final double[] value = new double[CHUNK_SIZE];
+        final double[] min = new double[CHUNK_SIZE];
+        final double[] max = new double[CHUNK_SIZE];
+        final byte[] severity = new byte[CHUNK_SIZE];
+        int count = 0;
+    }
+
+    final private WritableByteChannel channel;
+    final private Columns[] columns;
+    final private ByteBuffer buffer = ByteBuffer.allocateDirect(8 + CHUNK_SIZE * SAMPLE_BYTES);
+    private long samples = 0;
+
+    /** Write header
+     *  @param channel Channel for output, will be closed by writer
+     *  @param names Channel names
+     *  @throws IOException on error
+     */
+    public BinaryExportWriter(final WritableByteChannel channel, final List<String> names) throws IOException
+    {
+        this.channel = channel;
+        columns = new Columns[names.size()];
+        for (int i=0; i<columns.length; ++i)
+            columns[i] = new Columns();
+        final byte[][] encoded = new byte[names.size()][];
+        int header = 3*4;
+        for (int i=0; i<encoded.length; ++i)
+        {
+            encoded[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            header += 2 + encoded[i].length;
+        }
+        final ByteBuffer buf = ByteBuffer.allocate(header);
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putInt(encoded.length);
+        for (byte[] name : encoded)
+        {
+            buf.putShort((short) name.length);
+            buf.put(name);
+        }
+        buf.flip();
+        write(buf);
+    }
+
+    /** Add a sample
+     *  @param index Channel index
+     *  @param value Sample
+     *  @throws IOException on error
+     */
+    public void add(final int index, final VType value) throws IOException
+    {
+        final Columns col = columns[index];
+        final int i = col.count;
+        final Instant time = VTypeHelper.getTimestamp(value);
+        col.seconds[i] = time.getEpochSecond();
+        col.nanos[i] = time.getNano();
+        col.value[i] = VTypeHelper.toDouble(value);
+        if (value instanceof VStatistics)
+        {
+            final VStatistics stats = (VStatistics) value;
+            col.min[i] = stats.getMin();
+            col.max[i] = stats.getMax();
+        }
+        else
+            col.min[i] = col.max[i] = Double.NaN;
+        col.severity[i] = (byte) VTypeHelper.getSeverity(value).ordinal();
+        ++samples;
+        if (++col.count >= CHUNK_SIZE)
+            writeChunk(index);
+    }
+
+    /** @return Number of samples added */
+    public long getSampleCount()
+    {
+        return samples;
+    }
+
+    /** @param index Channel index
+     *  @throws IOException on error
+     */
+    private void writeChunk(final int index) throws IOException
+    {
+        final Columns col = columns[index];
+        final int n = col.count;
+        if (n <= 0)
+            return;
+        buffer.clear();
+        buffer.putInt(index);
+        buffer.putInt(n);
+        buffer.asLongBuffer().put(col.seconds, 0, n);
+        buffer.position(buffer.position() + n*8);
+        buffer.asIntBuffer().put(col.nanos, 0, n);
+        buffer.position(buffer.position() + n*4);
+        buffer.asDoubleBuffer().put(col.value, 0, n);
+        buffer.position(buffer.position() + n*8);
+        buffer.asDoubleBuffer().put(col.min, 0, n);
+        buffer.position(buffer.position() + n*8);
+        buffer.asDoubleBuffer().put(col.max, 0, n);
+        buffer.position(buffer.position() + n*8);
+        buffer.put(col.severity, 0, n);
+        buffer.flip();
+        write(buffer);
+        col.count = 0;
+    }
+
+    /** @param buf Buffer to write completely
+     *  @throws IOException on error
+     */
+    private void write(final ByteBuffer buf) throws IOException
+    {
+        while (buf.hasRemaining())
+            channel.write(buf);
+    }
+
+    /** Write remaining samples, close channel
+     *  @throws IOException on error
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            for (int i=0; i<columns.length; ++i)
+                writeChunk(i);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
@@ -7,10 +7,15 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.export;
 
+import java.io.BufferedOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
@@ -33,6 +38,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
 
 /** Base for Eclipse Job for exporting data from Model to file
  *  @author Kay Kasemir
@@ -41,6 +47,23 @@ import org.eclipse.core.runtime.jobs.Job;
 abstract public class ExportJob extends Job
 {
     final protected static int PROGRESS_UPDATE_LINES = 1000;
+
+    /** Number of channels for which samples are fetched in parallel
+     *  when writing one channel after the other
+     */
+    final protected static int PARALLEL_FETCHES = 4;
+
+    /** Size of output buffer */
+    final private static int BUFFER_SIZE = 1 << 16;
+
+    /** Work units for the progress monitor */
+    final private static int WORK = 1000;
+
+    /** Work units reported to the progress monitor */
+    private int work_done = 0;
+
+    /** Start of export in millisecs, used to compute throughput */
+    private long export_start;
     final protected String comment;
     final protected Model model;
     final protected Instant start, end;
@@ -120,13 +143,15 @@ abstract public class ExportJob extends Job
     @Override
     final protected IStatus run(final IProgressMonitor monitor)
     {
-        monitor.beginTask("Data Export", IProgressMonitor.UNKNOWN);
+        monitor.beginTask("Data Export", WORK);
+        work_done = 0;
+        export_start = System.currentTimeMillis();
         try
         {
             final PrintStream out;
             if (filename != null)
             {
-                out = new PrintStream(filename);
+                out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), BUFFER_SIZE));
                 printExportInfo(out);
             }
             else
@@ -199,6 +224,87 @@ abstract public class ExportJob extends Job
         out.println(comment);
     }
 
+    /** Update progress information
+     *  @param monitor Progress monitor
+     *  @param fraction Fraction of the overall export that's done, 0 to 1
+     *  @param info Info about the current step
+     *  @param samples Number of samples written so far
+     */
+    protected void updateProgress(final IProgressMonitor monitor, final double fraction,
+                                  final String info, final long samples)
+    {
+        final int work = (int) (Math.max(0.0, Math.min(1.0, fraction)) * WORK);
+        if (work > work_done)
+        {
+            monitor.worked(work - work_done);
+            work_done = work;
+        }
+        monitor.subTask(NLS.bind("{0}: Wrote {1} samples, {2} samples/sec", new Object[] { info, samples, getThroughput(samples) }));
+    }
+
+    /** @param samples Number of samples written so far
+     *  @return Samples per second since start of export
+     */
+    protected long getThroughput(final long samples)
+    {
+        final long millis = Math.max(1, System.currentTimeMillis() - export_start);
+        return samples * 1000 / millis;
+    }
+
+    /** @param samples Number of samples written in total */
+    protected void logThroughput(final long samples)
+    {
+        final Duration time = Duration.ofMillis(System.currentTimeMillis() - export_start);
+        Logger.getLogger(getClass().getName()).log(Level.INFO,
+            "Exported {0} samples in {1} ({2} samples/sec)",
+            new Object[] { samples, time, getThroughput(samples) });
+    }
+
+    /** @param time Time stamp
+     *  @return Fraction of the export time range up to the time stamp, 0 to 1
+     */
+    protected double getTimeFraction(final Instant time)
+    {
+        final long range = Duration.between(start, end).toMillis();
+        if (range <= 0)
+            return 1.0;
+        return Math.max(0.0, Math.min(1.0, Duration.between(start, time).toMillis() / (double) range));
+    }
+
+    /** @return Items of the model */
+    protected List<ModelItem> getModelItems()
+    {
+        final List<ModelItem> items = new ArrayList<>();
+        for (ModelItem item : model.getItems())
+            items.add(item);
+        return items;
+    }
+
+    /** Fetch samples of items in the background
+     *
+     *  <p>Samples for up to <code>parallel</code> items are fetched at the same time.
+     *  When the iterator for an item is closed, fetching starts for the next item.
+     *  Each background fetch holds only a limited number of samples
+     *  until they are read from its iterator.
+     *
+     *  @param items Items for which to fetch samples
+     *  @param parallel Number of items to fetch in parallel
+     *  @return {@link PrefetchValueIterator} for each item, to be closed when done
+     */
+    protected List<ValueIterator> fetchValues(final List<ModelItem> items, final int parallel)
+    {
+        final List<Callable<ValueIterator>> sources = new ArrayList<>(items.size());
+        for (ModelItem item : items)
+            sources.add(() -> createValueIterator(item));
+        return PrefetchValueIterator.prefetch(sources, parallel, Activator.getThreadPool());
+    }
+
+    /** @param iters Iterators to close */
+    protected void close(final List<ValueIterator> iters)
+    {
+        PrefetchValueIterator.close(iters);
+    }
+
     /** @param item ModelItem
      *  @return ValueIterator for samples in the item
      *  @throws Exception on error
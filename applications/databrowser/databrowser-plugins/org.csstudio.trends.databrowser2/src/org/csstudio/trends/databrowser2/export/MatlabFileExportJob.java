@@ -55,29 +55,44 @@ public class MatlabFileExportJob extends ExportJob
             throw new IllegalStateException();
 
         final MatFileIncrementalWriter writer = new MatFileIncrementalWriter(filename);
-        int i = 0;
-        for (ModelItem item : model.getItems())
-        {   // Get data
-            monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            final ValueIterator iter = createValueIterator(item);
-            final List<Instant> times = new ArrayList<Instant>();
-            final List<Double> values = new ArrayList<Double>();
-            final List<AlarmSeverity> severities = new ArrayList<AlarmSeverity>();
-            while (iter.hasNext()  &&  !monitor.isCanceled())
-            {
-                final VType value = iter.next();
-                times.add(VTypeHelper.getTimestamp(value));
-                values.add(VTypeHelper.toDouble(value));
-                severities.add(VTypeHelper.getSeverity(value));
-                if (values.size() % PROGRESS_UPDATE_LINES == 0)
-                    monitor.subTask(NLS.bind("{0}: Obtained {1} samples", item.getResolvedName(), values.size()));
+        final List<ModelItem> items = getModelItems();
+        // Fetch data for the next few items while writing one item
+        final List<ValueIterator> iters = fetchValues(items, PARALLEL_FETCHES);
+        long total = 0;
+        try
+        {
+            for (int i=0; i<items.size()  &&  !monitor.isCanceled(); ++i)
+            {   // Get data
+                final ModelItem item = items.get(i);
+                monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
+                final ValueIterator iter = iters.get(i);
+                final List<Instant> times = new ArrayList<Instant>();
+                final List<Double> values = new ArrayList<Double>();
+                final List<AlarmSeverity> severities = new ArrayList<AlarmSeverity>();
+                while (iter.hasNext()  &&  !monitor.isCanceled())
+                {
+                    final VType value = iter.next();
+                    final Instant time = VTypeHelper.getTimestamp(value);
+                    times.add(time);
+                    values.add(VTypeHelper.toDouble(value));
+                    severities.add(VTypeHelper.getSeverity(value));
+                    ++total;
+                    if (values.size() % PROGRESS_UPDATE_LINES == 0)
+                        updateProgress(monitor, (i + getTimeFraction(time)) / items.size(),
+                                       item.getResolvedName(), total);
+                }
+                iter.close();
+                // Add to Matlab file
+                final MLStructure struct = createMLStruct(i, item.getResolvedName(), times, values, severities);
+                writer.write(struct);
             }
-            // Add to Matlab file
-            final MLStructure struct = createMLStruct(i++, item.getResolvedName(), times, values, severities);
-            writer.write(struct);
         }
-
-        writer.close();
+        finally
+        {
+            close(iters);
+            writer.close();
+        }
+        logThroughput(total);
     }
 
     /** Set element of cell array to text
@@ -76,8 +76,7 @@ public class ModelSampleIterator implements ValueIterator
      */
     private int findSampleLessOrEqual(final Instant start)
     {
-        // Would like to use PlotSampleSearch, but that operates on array
-        // of PlotSample[]
+        // Binary search via PlotSamples.get()
         int low = 0;
         int high = samples.size()-1;
         int cmp = 0;
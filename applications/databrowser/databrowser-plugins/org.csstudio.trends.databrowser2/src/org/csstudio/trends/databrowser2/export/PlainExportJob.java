@@ -9,6 +9,7 @@ package org.csstudio.trends.databrowser2.export;
 
 import java.io.PrintStream;
 import java.time.Instant;
+import java.util.List;
 
 import org.csstudio.archive.reader.ValueIterator;
 import org.csstudio.archive.vtype.TimestampHelper;
@@ -54,29 +55,41 @@ public class PlainExportJob extends ExportJob
     protected void performExport(final IProgressMonitor monitor,
                                  final PrintStream out) throws Exception
     {
-        int count = 0;
-        for (ModelItem item : model.getItems())
-        {   // Item header
-            if (count > 0)
-                out.println();
-            printItemInfo(out, item);
-            // Get data
-            monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            final ValueIterator values = createValueIterator(item);
-            // Dump all values
-            out.println(comment + Messages.TimeColumn + Messages.Export_Delimiter + formatter.getHeader());
-            long line_count = 0;
-            while (values.hasNext()  &&  !monitor.isCanceled())
-            {
-                final VType value = values.next();
-
-                final String time = TimestampHelper.format(VTypeHelper.getTimestamp(value));
-                out.println(time + Messages.Export_Delimiter + formatter.format(value));
-                ++line_count;
-                if (++line_count % PROGRESS_UPDATE_LINES == 0)
-                    monitor.subTask(NLS.bind("{0}: Wrote {1} samples", item.getResolvedName(), line_count));
+        final List<ModelItem> items = getModelItems();
+        // Fetch data for the next few items while writing one item
+        final List<ValueIterator> iters = fetchValues(items, PARALLEL_FETCHES);
+        long total = 0;
+        try
+        {
+            for (int count=0; count<items.size()  &&  !monitor.isCanceled(); ++count)
+            {   // Item header
+                final ModelItem item = items.get(count);
+                if (count > 0)
+                    out.println();
+                printItemInfo(out, item);
+                // Get data
+                monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
+                final ValueIterator values = iters.get(count);
+                // Dump all values
+                out.println(comment + Messages.TimeColumn + Messages.Export_Delimiter + formatter.getHeader());
+                long line_count = 0;
+                while (values.hasNext()  &&  !monitor.isCanceled())
+                {
+                    final VType value = values.next();
+                    final Instant time = VTypeHelper.getTimestamp(value);
+                    out.println(TimestampHelper.format(time) + Messages.Export_Delimiter + formatter.format(value));
+                    ++total;
+                    if (++line_count % PROGRESS_UPDATE_LINES == 0)
+                        updateProgress(monitor, (count + getTimeFraction(time)) / items.size(),
+                                       item.getResolvedName(), total);
+                }
+                values.close();
             }
-            ++count;
         }
+        finally
+        {
+            close(iters);
+        }
+        logThroughput(total);
     }
 }
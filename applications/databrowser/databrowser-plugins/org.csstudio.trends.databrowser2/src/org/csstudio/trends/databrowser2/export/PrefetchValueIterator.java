@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.export;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.archive.reader.ValueIterator;
+import org.diirt.vtype.VType;
+
+/** {@link ValueIterator} that reads the values of another iterator in the background
+ *
+ *  <p>Values are read ahead in chunks into a bounded queue,
+ *  so several channels can be fetched in parallel
+ *  while the memory used for each channel is limited.
+ */
+@SuppressWarnings("nls")
+public class PrefetchValueIterator implements ValueIterator
+{
+    /** Number of values per chunk */
+    final public static int CHUNK_SIZE = 1000;
+
+    /** Number of chunks that are read ahead */
+    final public static int CHUNKS = 10;
+
+    /** Marker for the end of the values */
+    final private static List<VType> END = new ArrayList<>();
+
+    /** Creates the iterator that's read in the background */
+    final private Callable<ValueIterator> source;
+
+    /** Chunks of values that have been read */
+    final private BlockingQueue<List<VType>> chunks = new ArrayBlockingQueue<>(CHUNKS);
+
+    /** Invoked once when this iterator is closed, may be <code>null</code> */
+    private Runnable on_close = null;
+
+    private volatile boolean started = false;
+
+    private volatile boolean closed = false;
+
+    /** Error from the background thread */
+    private volatile Exception error = null;
+
+    /** Current chunk, <code>null</code> when all values have been read */
+    private List<VType> chunk = new ArrayList<>();
+
+    /** Index of next value in chunk */
+    private int index = 0;
+
+    /** @param source Creates the iterator to read in the background */
+    public PrefetchValueIterator(final Callable<ValueIterator> source)
+    {
+        this.source = source;
+    }
+
+    /** Read the values of several iterators in the background
+     *
+     *  <p>Values for up to <code>parallel</code> iterators are read at the same time.
+     *  When one of the returned iterators is closed, reading starts for the next one.
+     *
+     *  @param sources Create the iterators to read
+     *  @param parallel Number of iterators to read in parallel
+     *  @param executor Executor to use
+     *  @return {@link PrefetchValueIterator} for each source, to be closed when done
+     */
+    public static List<ValueIterator> prefetch(final List<Callable<ValueIterator>> sources, final int parallel,
+                                               final ExecutorService executor)
+    {
+        final List<PrefetchValueIterator> iters = new ArrayList<>(sources.size());
+        for (Callable<ValueIterator> source : sources)
+            iters.add(new PrefetchValueIterator(source));
+        for (int i=0; i<iters.size(); ++i)
+        {
+            final int next = i + parallel;
+            if (next < iters.size())
+                iters.get(i).setOnClose(() -> iters.get(next).start(executor));
+        }
+        for (int i=0; i<parallel  &&  i<iters.size(); ++i)
+            iters.get(i).start(executor);
+        return new ArrayList<>(iters);
+    }
+
+    /** @param iters Iterators to close, for example after an error or cancellation */
+    public static void close(final List<ValueIterator> iters)
+    {
+        // Close last one first, so closing an iterator doesn't start fetching for the next
+        for (int i=iters.size()-1; i>=0; --i)
+            iters.get(i).close();
+    }
+
+    /** @param on_close Invoked once when this iterator is closed */
+    public void setOnClose(final Runnable on_close)
+    {
+        this.on_close = on_close;
+    }
+
+    /** Start reading values in the background
+     *  @param executor Executor to use
+     */
+    public synchronized void start(final ExecutorService executor)
+    {
+        if (started  ||  closed)
+            return;
+        started = true;
+        executor.submit(this::fetch);
+    }
+
+    /** Background thread: Read values into chunks */
+    private void fetch()
+    {
+        ValueIterator iter = null;
+        try
+        {
+            iter = source.call();
+            List<VType> values = new ArrayList<>(CHUNK_SIZE);
+            while (!closed  &&  iter.hasNext())
+            {
+                values.add(iter.next());
+                if (values.size() >= CHUNK_SIZE)
+                {
+                    put(values);
+                    values = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (! values.isEmpty())
+                put(values);
+        }
+        catch (Exception ex)
+        {
+            error = ex;
+        }
+        finally
+        {
+            if (iter != null)
+                iter.close();
+        }
+        try
+        {
+            put(END);
+        }
+        catch (InterruptedException ex)
+        {
+            // Ignore, closing
+        }
+    }
+
+    /** @param values Values to add to queue, waiting for room unless closed */
+    private void put(final List<VType> values) throws InterruptedException
+    {
+        while (! closed)
+            if (chunks.offer(values, 100, TimeUnit.MILLISECONDS))
+                return;
+    }
+
+    /** {@inheritDoc}
+     *
+     *  <p>Waits for the background thread to provide values.
+     *  When the background thread encountered an error,
+     *  this returns <code>true</code> and {@link #next()} throws the error.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        if (chunk == null)
+            return error != null;
+        if (index < chunk.size())
+            return true;
+        try
+        {
+            chunk = chunks.take();
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            chunk = END;
+        }
+        index = 0;
+        if (chunk == END)
+        {
+            chunk = null;
+            return error != null;
+        }
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public VType next() throws Exception
+    {
+        if (chunk == null)
+        {
+            final Exception ex = error;
+            error = null;
+            if (ex != null)
+                throw ex;
+            throw new IllegalStateException("No more values");
+        }
+        return chunk.get(index++);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+    {
+        final Runnable action;
+        synchronized (this)
+        {
+            if (closed)
+                return;
+            closed = true;
+            action = on_close;
+        }
+        chunks.clear();
+        if (action != null)
+            action.run();
+    }
+}
@@ -9,7 +9,6 @@ package org.csstudio.trends.databrowser2.export;
 
 import java.io.PrintStream;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.csstudio.archive.reader.SpreadsheetIterator;
@@ -20,7 +19,6 @@ import org.csstudio.trends.databrowser2.model.Model;
 import org.csstudio.trends.databrowser2.model.ModelItem;
 import org.diirt.vtype.VType;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.osgi.util.NLS;
 
 /** Ecipse Job for exporting data from Model to file
  *  @author Kay Kasemir
@@ -42,41 +40,47 @@ public class SpreadsheetExportJob extends PlainExportJob
     protected void performExport(final IProgressMonitor monitor,
                                  final PrintStream out) throws Exception
     {
+        final List<ModelItem> items = getModelItems();
         // Item header
-        for (ModelItem item : model.getItems())
+        for (ModelItem item : items)
             printItemInfo(out, item);
         out.println();
         // Spreadsheet Header
         out.print("# " + Messages.TimeColumn);
-        for (ModelItem item : model.getItems())
+        for (ModelItem item : items)
             out.print(Messages.Export_Delimiter + item.getResolvedName() + " " + formatter.getHeader());
         out.println();
 
-        // Create speadsheet interpolation
-        final List<ValueIterator> iters = new ArrayList<>();
-        for (ModelItem item : model.getItems())
+        // Fetch all channels in parallel, each holding only a limited number of samples
+        monitor.subTask("Fetching data");
+        final List<ValueIterator> iters = fetchValues(items, items.size());
+        long line_count = 0;
+        try
         {
-            monitor.subTask(NLS.bind("Fetching data for {0}", item.getResolvedName()));
-            iters.add(createValueIterator(item));
+            // Create speadsheet interpolation
+            final SpreadsheetIterator sheet = new SpreadsheetIterator(iters.toArray(new ValueIterator[iters.size()]));
+            // Dump the spreadsheet lines
+            final StringBuilder buf = new StringBuilder();
+            while (sheet.hasNext()  &&  !monitor.isCanceled())
+            {
+                final Instant time = sheet.getTime();
+                final VType line[] = sheet.next();
+                buf.setLength(0);
+                buf.append(TimestampHelper.format(time));
+                for (int i=0; i<line.length; ++i)
+                    buf.append(Messages.Export_Delimiter).append(formatter.format(line[i]));
+                out.println(buf);
+                ++line_count;
+                if ((line_count % PROGRESS_UPDATE_LINES) == 0)
+                    updateProgress(monitor, getTimeFraction(time), "Spreadsheet", line_count);
+                if (monitor.isCanceled())
+                    break;
+            }
         }
-        final SpreadsheetIterator sheet = new SpreadsheetIterator(iters.toArray(new ValueIterator[iters.size()]));
-        // Dump the spreadsheet lines
-        long line_count = 0;
-
-        while (sheet.hasNext()  &&  !monitor.isCanceled())
+        finally
         {
-            final Instant time = sheet.getTime();
-            final VType line[] = sheet.next();
-            out.print(TimestampHelper.format(time));
-
-            for (int i=0; i<line.length; ++i)
-                out.print(Messages.Export_Delimiter + formatter.format(line[i]));
-            out.println();
-            ++line_count;
-            if ((line_count % PROGRESS_UPDATE_LINES) == 0)
-                monitor.subTask(NLS.bind("Wrote {0} samples", line_count));
-            if (monitor.isCanceled())
-                break;
+            close(iters);
         }
+        logThroughput(line_count);
     }
 }
@@ -18,6 +18,7 @@ import org.csstudio.apputil.ui.time.StartEndDialog;
 import org.csstudio.archive.vtype.Style;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.editor.DataBrowserAwareView;
+import org.csstudio.trends.databrowser2.export.BinaryExportJob;
 import org.csstudio.trends.databrowser2.export.ExportErrorHandler;
 import org.csstudio.trends.databrowser2.export.MatlabFileExportJob;
 import org.csstudio.trends.databrowser2.export.MatlabScriptExportJob;
@@ -74,6 +75,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
     private Text optimize;
     private Text linear;
     private Button type_matlab;
+    private Button type_binary;
     private Button tabular;
     private Button min_max_col;
     private Button sev_stat;
@@ -97,7 +99,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
         // Source: ( ) Plot  (*) Raw Archived Data  ( ) Averaged Archived Data  __time__  ( ) Linear __linear__ {ghost}
 
         // * Format *
-        // (*) Spreadsheet ( ) Matlab
+        // (*) Spreadsheet ( ) Matlab ( ) Binary
         // [x] Tabular [x] ... with min/max column [x] ... with Severity/Status
         // (*) Default format  ( ) decimal notation  ( ) exponential notation _digits_ fractional digits
 
@@ -271,7 +273,11 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
         type_matlab.setText(Messages.ExportTypeMatlab);
         type_matlab.setToolTipText(Messages.ExportTypeMatlabTT);
 
-        box.setTabList(new Control[] { type_spreadsheet, type_matlab });
+        type_binary = new Button(box, SWT.RADIO);
+        type_binary.setText(Messages.ExportTypeBinary);
+        type_binary.setToolTipText(Messages.ExportTypeBinaryTT);
+
+        box.setTabList(new Control[] { type_spreadsheet, type_matlab, type_binary });
 
         // [x] Tabular [x] ... with min/max column [x] ... with Severity/Status
         box = new Composite(group, 0);
@@ -334,7 +340,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
                 min_max_col.setEnabled(!source_raw.getSelection());
             }
         });
-        type_matlab.addSelectionListener(new SelectionAdapter()
+        final SelectionAdapter unformatted = new SelectionAdapter()
         {
             @Override
             public void widgetSelected(SelectionEvent e)
@@ -347,7 +353,9 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
                 format_digits.setEnabled(false);
                 min_max_col.setEnabled(minMaxAllowed());
             }
-        });
+        };
+        type_matlab.addSelectionListener(unformatted);
+        type_binary.addSelectionListener(unformatted);
         final SelectionAdapter digit_enabler = new SelectionAdapter()
         {
             @Override
@@ -422,7 +430,7 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
     /** @return <code>true</code> if the min/max (error) column option should be enabled */
     private boolean minMaxAllowed()
     {
-        return !type_matlab.getSelection()  &&   !source_raw.getSelection();
+        return !type_matlab.getSelection()  &&  !type_binary.getSelection()  &&   !source_raw.getSelection();
     }
 
     /** {@inheritDoc} */
@@ -585,6 +593,9 @@ public class ExportView extends DataBrowserAwareView implements ExportErrorHandl
                 return;
             }
         }
+        else if (type_binary.getSelection())
+            export = new BinaryExportJob(model, start_time, end_time, source,
+                    optimize_parameter, filename, this);
         else
         {   // Spreadsheet file export
             final Style style;
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.VType;
+
+/** Level-of-detail cache for optimized archive data of one {@link PVItem}
+ *
+ *  <p>Optimized archive data is fetched in tiles
+ *  that cover a fixed time span.
+ *  On level <code>L</code>, each bin of a tile covers <code>2^L</code> milliseconds,
+ *  and tiles are aligned to multiples of their span,
+ *  so panning or zooming back to a previous level re-uses tiles
+ *  which were already fetched, and only the missing tiles need to be requested.
+ *
+ *  <p>The level for a time range is selected such that the tiles
+ *  provide at least the number of bins requested for the plot.
+ *
+ *  <p>Tiles are kept in a least-recently-used cache,
+ *  limited by the total number of samples.
+ *  Tiles that end close to 'now' are not cached
+ *  because the archive might still receive data for them.
+ */
+@SuppressWarnings("nls")
+public class ArchiveTileCache
+{
+    /** Maximum number of samples held by the cache */
+    final public static int MAX_SAMPLES = 200000;
+
+    /** Minimum number of bins per tile */
+    final public static int MIN_TILE_BINS = 10;
+
+    /** Highest level, bins of 2^40 ms are about 35 years */
+    final public static int MAX_LEVEL = 40;
+
+    /** Tiles that end within this time before 'now' are not cached */
+    final public static Duration CACHE_DELAY = Duration.ofMinutes(5);
+
+    /** Time span of a tile on a level */
+    public static class Tile
+    {
+        final private int level;
+        final private long index;
+        final private long span;
+
+        /** @param level Level
+         *  @param index Index of tile, start time is index * span
+         *  @param span Time span of tile in milliseconds
+         */
+        public Tile(final int level, final long index, final long span)
+        {
+            this.level = level;
+            this.index = index;
+            this.span = span;
+        }
+
+        /** @return Level */
+        public int getLevel()
+        {
+            return level;
+        }
+
+        /** @return Start time of tile */
+        public Instant getStart()
+        {
+            return Instant.ofEpochMilli(index * span);
+        }
+
+        /** @return End time of tile */
+        public Instant getEnd()
+        {
+            return Instant.ofEpochMilli((index + 1) * span);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(index) * 31 + Long.hashCode(span);
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof Tile))
+                return false;
+            final Tile other = (Tile) obj;
+            return level == other.level  &&  index == other.index  &&  span == other.span;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Tile L" + level + " " + TimeHelper.format(getStart()) + " - " + TimeHelper.format(getEnd());
+        }
+    }
+
+    /** Key of cached data: Archive, channel name, tile */
+    private static class Key
+    {
+        final ArchiveDataSource archive;
+        final String name;
+        final Tile tile;
+
+        Key(final ArchiveDataSource archive, final String name, final Tile tile)
+        {
+            this.archive = archive;
+            this.name = name;
+            this.tile = tile;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (archive.hashCode() * 31 + name.hashCode()) * 31 + tile.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (! (obj instanceof Key))
+                return false;
+            final Key other = (Key) obj;
+            return archive.equals(other.archive)  &&  name.equals(other.name)  &&  tile.equals(other.tile);
+        }
+    }
+
+    /** Cached data of a tile */
+    public static class TileData
+    {
+        final private String server_name;
+        final private List<VType> values;
+
+        /** @param server_name Archive server that provided the values
+         *  @param values Values of the tile
+         */
+        public TileData(final String server_name, final List<VType> values)
+        {
+            this.server_name = server_name;
+            this.values = values;
+        }
+
+        /** @return Archive server that provided the values */
+        public String getServerName()
+        {
+            return server_name;
+        }
+
+        /** @return Values of the tile */
+        public List<VType> getValues()
+        {
+            return values;
+        }
+    }
+
+    /** Cached tiles in access order. Synchronize on 'this' */
+    final private LinkedHashMap<Key, TileData> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Number of samples in 'tiles' */
+    private int samples = 0;
+
+    /** @param plot_bins Number of bins requested for the plot
+     *  @return Number of bins per tile
+     */
+    public static int getTileBins(final int plot_bins)
+    {
+        return Math.max(MIN_TILE_BINS, plot_bins / 4);
+    }
+
+    /** @param start Start of time range
+     *  @param end End of time range
+     *  @param plot_bins Number of bins requested for the time range
+     *  @return Level where bins are as short as or just shorter than the requested bins
+     */
+    public static int getLevel(final Instant start, final Instant end, final int plot_bins)
+    {
+        final long range = Math.max(1, Duration.between(start, end).toMillis());
+        final long bin = range / Math.max(1, plot_bins);
+        if (bin <= 1)
+            return 0;
+        // Largest power of 2 that's not above 'bin'
+        return Math.min(MAX_LEVEL, 63 - Long.numberOfLeadingZeros(bin));
+    }
+
+    /** @param start Start of time range
+     *  @param end End of time range
+     *  @param plot_bins Number of bins requested for the time range
+     *  @return Tiles that cover the time range
+     */
+    public static List<Tile> getTiles(final Instant start, final Instant end, final int plot_bins)
+    {
+        final int level = getLevel(start, end, plot_bins);
+        final long span = (1L << level) * getTileBins(plot_bins);
+        final long first = Math.floorDiv(start.toEpochMilli(), span);
+        final long last = Math.floorDiv(end.toEpochMilli(), span);
+        final List<Tile> result = new ArrayList<>((int) (last - first + 1));
+        for (long index = first; index <= last; ++index)
+            result.add(new Tile(level, index, span));
+        return result;
+    }
+
+    /** @param archive Archive data source
+     *  @param name Channel name
+     *  @param tile Tile
+     *  @return Cached data or <code>null</code>
+     */
+    public synchronized TileData get(final ArchiveDataSource archive, final String name, final Tile tile)
+    {
+        return tiles.get(new Key(archive, name, tile));
+    }
+
+    /** Add tile to cache
+     *
+     *  <p>Tiles that are too recent are ignored.
+     *
+     *  @param archive Archive data source
+     *  @param name Channel name
+     *  @param tile Tile
+     *  @param data Data for the tile
+     *  @return <code>true</code> if tile was cached
+     */
+    public synchronized boolean put(final ArchiveDataSource archive, final String name,
+                                    final Tile tile, final TileData data)
+    {
+        if (tile.getEnd().isAfter(Instant.now().minus(CACHE_DELAY)))
+            return false;
+        final TileData previous = tiles.put(new Key(archive, name, tile), data);
+        if (previous != null)
+            samples -= previous.getValues().size();
+        samples += data.getValues().size();
+        // Remove least recently used tiles, but keep the one just added
+        final Iterator<Map.Entry<Key, TileData>> entries = tiles.entrySet().iterator();
+        while (samples > MAX_SAMPLES  &&  tiles.size() > 1)
+        {
+            samples -= entries.next().getValue().getValues().size();
+            entries.remove();
+        }
+        return true;
+    }
+
+    /** @return Number of cached tiles */
+    public synchronized int size()
+    {
+        return tiles.size();
+    }
+
+    /** @return Number of samples in cached tiles */
+    public synchronized int getSampleCount()
+    {
+        return samples;
+    }
+
+    /** Remove all cached tiles */
+    public synchronized void clear()
+    {
+        tiles.clear();
+        samples = 0;
+    }
+
+    /** Get values of a tile that follow the values of the previous tile
+     *
+     *  <p>Archive readers may return a sample before the start of a tile
+     *  to provide its initial value,
+     *  which is then already included in the previous tile.
+     *
+     *  @param values Values of a tile, in order of time
+     *  @param time Time of last value from previous tile, <code>null</code> for first tile
+     *  @return Values after the time
+     */
+    public static List<VType> getValuesAfter(final List<VType> values, final Instant time)
+    {
+        if (time == null)
+            return values;
+        int i = 0;
+        while (i < values.size()  &&  !VTypeHelper.getTimestamp(values.get(i)).isAfter(time))
+            ++i;
+        return values.subList(i, values.size());
+    }
+}
@@ -7,6 +7,8 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.model;
 
+import java.time.Instant;
+
 import org.diirt.vtype.VType;
 
 /** One input to the formula: Model item that provides data, Variable name
@@ -68,6 +70,70 @@ public class FormulaInput
         }
     }
 
+    /** Position the sample iterator at a time
+     *  @param time Time stamp
+     *  @see #next()
+     *  @return First sample at or after the time or <code>null</code>
+     */
+    public VType seek(final Instant time)
+    {
+        final PlotSamples samples = item.getSamples();
+        samples.getLock().lock();
+        try
+        {   // Binary search for first sample at or after time
+            int low = 0, high = samples.size();
+            while (low < high)
+            {
+                final int mid = (low + high) >>> 1;
+                if (samples.get(mid).getPosition().compareTo(time) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            index = low;
+            return next();
+        }
+        finally
+        {
+            samples.getLock().unlock();
+        }
+    }
+
+    /** Get time before which samples are complete
+     *
+     *  <p>New samples are added at the end,
+     *  and the last sample may be a continuation of the previous one to 'now',
+     *  so samples before the time of the next-to-last sample
+     *  will not change until the reset count changes.
+     *
+     *  @return Time of next-to-last sample or <code>null</code>
+     *  @see #getResetCount()
+     */
+    public Instant getStableTime()
+    {
+        final PlotSamples samples = item.getSamples();
+        samples.getLock().lock();
+        try
+        {
+            final int size = samples.size();
+            if (size < 2)
+                return null;
+            return samples.get(size - 2).getPosition();
+        }
+        finally
+        {
+            samples.getLock().unlock();
+        }
+    }
+
+    /** @return Reset count of the input's samples
+     *  @see PlotSamples#getResetCount()
+     */
+    public long getResetCount()
+    {
+        return item.getSamples().getResetCount();
+    }
+
     /** Iterate over the samples of the input's ModelItem
      *  @return Next value or <code>null</code>
      */
@@ -10,8 +10,10 @@ package org.csstudio.trends.databrowser2.model;
 import java.io.PrintWriter;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.csstudio.apputil.formula.Evaluator;
 import org.csstudio.apputil.formula.Formula;
 import org.csstudio.apputil.formula.VariableNode;
 import org.csstudio.apputil.xml.DOMHelper;
@@ -63,10 +65,54 @@ public class FormulaItem extends ModelItem
      */
     private VariableNode variables[];
 
+    /** Compiled formula, called with values that correspond to <code>inputs[]</code>
+     *  @see #formula for synchronization
+     */
+    private Evaluator evaluator;
+
+    /** State of the computation after the last line that will not change,
+     *  or <code>null</code> to compute all lines.
+     *  @see #formula for synchronization
+     */
+    private Checkpoint checkpoint = null;
+
     /** Samples of the formula, computed from inputs.
      *  Access must synchronize on samples (done inside PlotSampleArray) */
     private PlotSampleArray samples = new PlotSampleArray();
 
+    /** State of the computation at some time
+     *
+     *  <p>When new input samples arrive after that time,
+     *  the computation can resume from the checkpoint
+     *  instead of evaluating all lines again.
+     */
+    private static class Checkpoint
+    {
+        /** All input samples before this time have been used */
+        final Instant time;
+
+        /** Number of result lines before the time */
+        final int lines;
+
+        /** Current min/val/max of each input */
+        final double min[], val[], max[];
+
+        /** Reset count of each input */
+        final long resets[];
+
+        Checkpoint(final Instant time, final int lines,
+                   final double min[], final double val[], final double max[],
+                   final long resets[])
+        {
+            this.time = time;
+            this.lines = lines;
+            this.min = min.clone();
+            this.val = val.clone();
+            this.max = max.clone();
+            this.resets = resets;
+        }
+    }
+
     /** Initialize formula
      *  @param name Name of the Formula item
      *  @param expression Expression to evaluate
@@ -122,6 +168,9 @@ public class FormulaItem extends ModelItem
             for (int i=0; i<variables.length; ++i)
                 variables[i] = new VariableNode(inputs[i].getVariableName());
             this.formula = new Formula(expression, variables);
+            evaluator = formula.compile();
+            // Need to compute all lines with new formula or inputs
+            checkpoint = null;
         }
         fireItemLookChanged();
     }
@@ -131,11 +180,16 @@ public class FormulaItem extends ModelItem
      *  Iterates over the input samples in a manner of spreadsheet or
      *  staircase-interpolation: An input with a time stamp is valid
      *  until there's a sample with a greater time stamp.
+     *  <p>
+     *  Lines before the time where all inputs have complete samples
+     *  will not change, so the next computation resumes from there
+     *  unless the existing samples of an input change.
      */
     private void compute()
     {
         final List<PlotSample> result = new ArrayList<PlotSample>();
         final Display display = ValueFactory.displayNone();
+        final int keep;
         // Prevent changes to formula & inputs
         synchronized (this)
         {
@@ -145,21 +199,63 @@ public class FormulaItem extends ModelItem
             final VType values[] = new VType[inputs.length];
 
             // 'Current' numeric min/val/max of values
-            final double min[] = new double[inputs.length];
-            final double val[] = new double[inputs.length];
-            final double max[] = new double[inputs.length];
+            final double min[], val[], max[];
 
-            // Determine first sample for each input
-            boolean more_input = false;
+            // Determine reset counts before looking at any samples
+            final long resets[] = new long[inputs.length];
+            for (int i = 0; i < values.length; i++)
+                resets[i] = inputs[i].getResetCount();
+
+            // Lines before 'stable' time will not change
+            Instant stable = null;
             for (int i = 0; i < values.length; i++)
             {
-                // Initially, none have any data
-                min[i] = val[i] = max[i] = Double.NaN;
-                // Is there an initial value for any input?
-                values[i] = inputs[i].first();
-                if (values[i] != null)
-                    more_input = true;
+                final Instant input_stable = inputs[i].getStableTime();
+                if (input_stable == null)
+                {
+                    stable = null;
+                    break;
+                }
+                if (stable == null  ||  input_stable.compareTo(stable) < 0)
+                    stable = input_stable;
+            }
+
+            // Determine first sample for each input
+            boolean more_input = false;
+            if (checkpoint != null  &&  Arrays.equals(checkpoint.resets, resets))
+            {   // Resume after checkpoint
+                keep = checkpoint.lines;
+                min = checkpoint.min.clone();
+                val = checkpoint.val.clone();
+                max = checkpoint.max.clone();
+                for (int i = 0; i < values.length; i++)
+                {
+                    values[i] = inputs[i].seek(checkpoint.time);
+                    if (values[i] != null)
+                        more_input = true;
+                }
+                if (stable == null  ||  stable.compareTo(checkpoint.time) < 0)
+                    stable = checkpoint.time;
+            }
+            else
+            {   // Start over
+                keep = 0;
+                min = new double[inputs.length];
+                val = new double[inputs.length];
+                max = new double[inputs.length];
+                checkpoint = null;
+                for (int i = 0; i < values.length; i++)
+                {
+                    // Initially, none have any data
+                    min[i] = val[i] = max[i] = Double.NaN;
+                    // Is there an initial value for any input?
+                    values[i] = inputs[i].first();
+                    if (values[i] != null)
+                        more_input = true;
+                }
             }
+            // Checkpoint at 'stable' time has not been set
+            boolean at_stable = false;
 
             // Compute result for each 'line in the spreadsheet'
             Instant time;
@@ -180,6 +276,13 @@ public class FormulaItem extends ModelItem
                     break;
                 }
 
+                // All input samples before the 'stable' time have been used
+                if (!at_stable  &&  stable != null  &&  time.compareTo(stable) >= 0)
+                {
+                    checkpoint = new Checkpoint(stable, keep + result.size(), min, val, max, resets);
+                    at_stable = true;
+                }
+
                 // 'time' now defines the current spreadsheet line.
                 // Set min/max/val to sample from each input for that time.
                 // This might move values[i] resp. the inputs' iterators
@@ -222,22 +325,14 @@ public class FormulaItem extends ModelItem
                     }
                 }
 
-                // Set variables[] from val to get res_val
-                for (int i = 0; i < values.length; i++)
-                    variables[i].setValue(val[i]);
                 // Evaluate formula for these inputs
-                final double res_val = formula.eval();
+                final double res_val = evaluator.eval(val);
                 final VType value;
 
                 if (have_min_max)
-                {   // Set variables[] from min
-                    for (int i = 0; i < values.length; i++)
-                        variables[i].setValue(min[i]);
-                    final double res_min = formula.eval();
-                    // Set variables[] from max
-                    for (int i = 0; i < values.length; i++)
-                        variables[i].setValue(max[i]);
-                    final double res_max = formula.eval();
+                {
+                    final double res_min = evaluator.eval(min);
+                    final double res_max = evaluator.eval(max);
                     value = new ArchiveVStatistics(time, AlarmSeverity.NONE, Messages.Formula,
                             display, res_val, res_min, res_max, 0.0, 1);
                 }
@@ -252,9 +347,12 @@ public class FormulaItem extends ModelItem
                 }
                 result.add(new PlotSample(Messages.Formula, value));
             }
+            // All lines are before the 'stable' time?
+            if (!at_stable  &&  stable != null)
+                checkpoint = new Checkpoint(stable, keep + result.size(), min, val, max, resets);
         }
         // Update PlotSamples
-        samples.set(result);
+        samples.update(keep, result);
     }
 
     /** Re-evaluate the formula in case some of the input samples changed.
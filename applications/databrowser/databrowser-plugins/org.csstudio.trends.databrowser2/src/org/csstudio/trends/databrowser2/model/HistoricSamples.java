@@ -8,6 +8,9 @@
 package org.csstudio.trends.databrowser2.model;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -27,6 +30,10 @@ import org.diirt.vtype.VType;
  *  the live data ring buffer rolls around, the 'border' time adjustments
  *  might then uncover historic samples that were previously
  *  hidden below the 'live' time range.
+ *  <p>
+ *  Samples are held in chunks of {@link SampleColumns}.
+ *  Merging new archive data replaces the affected range of samples,
+ *  copying only the chunks at the start and end of that range.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed HistoricSamples to handle waveform index.
@@ -35,13 +42,27 @@ public class HistoricSamples extends PlotSamples
 {
     // No locking in here, all access is via PVSamples
 
-    /** "All" historic samples */
-    private PlotSample samples[] = new PlotSample[0];
+    /** Maximum number of samples in a chunk */
+    final static int CHUNK_SIZE = 16 * 1024;
+
+    /** Status and source texts shared by all chunks */
+    final private SampleColumns.Texts texts = new SampleColumns.Texts();
+
+    /** "All" historic samples.
+     *  Each chunk is completely filled, and never changed once it's in the list.
+     */
+    private List<SampleColumns> chunks = Collections.emptyList();
+
+    /** Index of first sample in each chunk, followed by total sample count */
+    private int[] chunk_start = new int[] { 0 };
+
+    /** Chunk used by last call to {@link #getRawSample(int)} */
+    private int last_chunk = 0;
 
     /** If set, samples beyond this time are hidden from access */
     private Optional<Instant> border_time = Optional.empty();
 
-    /** Subset of samples.length that's below border_time
+    /** Subset of samples that's below border_time
      *  @see #computeVisibleSize()
      */
     private int visible_size = 0;
@@ -71,13 +92,67 @@ public class HistoricSamples extends PlotSamples
     private void computeVisibleSize()
     {
         if (border_time.isPresent())
+            visible_size = countSamplesBefore(SampleColumns.toLimitedNanos(border_time.get()));
+        else
+            visible_size = getRawSize();
+    }
+
+    /** @param time Epoch nanoseconds
+     *  @return Number of samples before that time
+     */
+    private int countSamplesBefore(final long time)
+    {
+        int low = 0, high = getRawSize();
+        while (low < high)
         {
-            final int last_index = PlotSampleSearch.findSampleLessThan(
-                    samples, border_time.get());
-            visible_size = (last_index < 0)   ?   0   :   last_index + 1;
+            final int mid = (low + high) >>> 1;
+            if (getTime(mid) < time)
+                low = mid + 1;
+            else
+                high = mid;
         }
-        else
-            visible_size = samples.length;
+        return low;
+    }
+
+    /** @param time Epoch nanoseconds
+     *  @return Index of first sample after that time, or size if there is none
+     */
+    private int findSampleAfter(final long time)
+    {
+        int low = 0, high = getRawSize();
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (getTime(mid) <= time)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /** @param i Sample index
+     *  @return Index of chunk that holds the sample
+     */
+    private int getChunk(final int i)
+    {
+        int c = last_chunk;
+        if (c < chunks.size()  &&  chunk_start[c] <= i  &&  i < chunk_start[c+1])
+            return c;
+        c = Arrays.binarySearch(chunk_start, 0, chunks.size(), i);
+        if (c < 0)
+            c = -c - 2;
+        last_chunk = c;
+        return c;
+    }
+
+    /** @param i Sample index
+     *  @return Time stamp of sample in epoch nanoseconds
+     */
+    private long getTime(final int i)
+    {
+        final int c = getChunk(i);
+        return chunks.get(c).getTime(i - chunk_start[c]);
     }
 
     /** {@inheritDoc} */
@@ -87,7 +162,7 @@ public class HistoricSamples extends PlotSamples
     {
         if (i >= visible_size)
             throw new IndexOutOfBoundsException("Index " + i + " exceeds visible size " + visible_size);
-        return samples[i];
+        return getRawSample(i);
     }
 
     /** {@inheritDoc} */
@@ -101,7 +176,7 @@ public class HistoricSamples extends PlotSamples
      * @return the number of samples, ignoring the border time
      */
     public int getRawSize() {
-        return samples.length;
+        return chunk_start[chunks.size()];
     }
 
     /**
@@ -111,34 +186,126 @@ public class HistoricSamples extends PlotSamples
      * @return the plot sample
      */
     public PlotSample getRawSample(int i) {
-        return samples[i];
+        final int c = getChunk(i);
+        return chunks.get(c).get(i - chunk_start[c], waveform_index);
     }
 
     /** Merge newly received archive data into historic samples
+     *
+     *  <p>Where the time ranges overlap, the new data replaces the old data.
+     *
      *  @param source Info about data source
      *  @param result Samples to add/merge
      */
     public void mergeArchivedData(final String source, final List<VType> result)
+    {
+        mergeArchivedData(source, result, null);
+    }
+
+    /** Merge section of archive data that is received in several parts
+     *
+     *  <p>Old samples are replaced from the given time on,
+     *  so the parts of one fetch together replace
+     *  all old samples in their time range.
+     *
+     *  @param source Info about data source
+     *  @param result Samples to add/merge
+     *  @param replace_after Old samples after this time are replaced.
+     *                       <code>null</code> to replace from the first new sample on.
+     */
+    public void mergeArchivedData(final String source, final List<VType> result, final Instant replace_after)
     {
         // Anything new at all?
-        if (result.size() <= 0)
+        final int N = result.size();
+        if (N <= 0)
             return;
-        // Turn IValues into PlotSamples
-        final PlotSample new_samples[] = new PlotSample[result.size()];
-        for (int i=0; i<new_samples.length; ++i)
-            new_samples[i] = new PlotSample(waveform_index, source, result.get(i));
-        // Merge with existing samples
-        final PlotSample merged[] = PlotSampleMerger.merge(samples, new_samples);
-        if (merged == samples)
+        // Turn VTypes into chunks of columns
+        final List<SampleColumns> add = new ArrayList<>();
+        for (int start = 0;  start < N;  start += CHUNK_SIZE)
+        {
+            final int n = Math.min(CHUNK_SIZE, N - start);
+            final SampleColumns chunk = new SampleColumns(texts, n);
+            for (int i=0; i<n; ++i)
+                chunk.set(i, waveform_index, source, result.get(start + i));
+            add.add(chunk);
+        }
+        final SampleColumns last = add.get(add.size()-1);
+        final long add_start = add.get(0).getTime(0);
+        final long add_end = last.getTime(last.getCapacity()-1);
+
+        // Keep old samples before and after the new ones
+        final int keep_before = replace_after == null
+                              ? countSamplesBefore(add_start)
+                              : Math.min(findSampleAfter(SampleColumns.toNanos(replace_after)),
+                                         findSampleAfter(add_start));
+        final int keep_after = Math.max(keep_before, findSampleAfter(add_end));
+        final List<SampleColumns> merged = new ArrayList<>(chunks.size() + add.size() + 1);
+        addSamples(merged, 0, keep_before);
+        for (SampleColumns chunk : add)
+            addChunk(merged, chunk, 0, chunk.getCapacity());
+        addSamples(merged, keep_after, getRawSize());
+
+        setChunks(merged);
+    }
+
+    /** @param merged Chunks to which to add
+     *  @param start Index of first current sample to add
+     *  @param end Index after last current sample to add
+     */
+    private void addSamples(final List<SampleColumns> merged, final int start, final int end)
+    {
+        if (start >= end)
             return;
-        samples = merged;
+        for (int c = getChunk(start);  c < chunks.size()  &&  chunk_start[c] < end;  ++c)
+        {
+            final int from = Math.max(start, chunk_start[c]) - chunk_start[c];
+            final int to = Math.min(end, chunk_start[c+1]) - chunk_start[c];
+            addChunk(merged, chunks.get(c), from, to - from);
+        }
+    }
+
+    /** Add section of a chunk, using it as is if possible
+     *  @param merged Chunks to which to add
+     *  @param chunk Chunk to add
+     *  @param start First sample of chunk to add
+     *  @param count Number of samples to add
+     */
+    private void addChunk(final List<SampleColumns> merged, final SampleColumns chunk, final int start, final int count)
+    {
+        final int last = merged.size() - 1;
+        if (last >= 0  &&  merged.get(last).getCapacity() + count <= CHUNK_SIZE)
+        {   // Combine small chunks
+            final SampleColumns previous = merged.get(last);
+            final SampleColumns combined = new SampleColumns(texts, previous.getCapacity() + count);
+            previous.copy(0, combined, 0, previous.getCapacity());
+            chunk.copy(start, combined, previous.getCapacity(), count);
+            merged.set(last, combined);
+        }
+        else if (start == 0  &&  count == chunk.getCapacity())
+            merged.add(chunk);
+        else
+        {
+            final SampleColumns section = new SampleColumns(texts, count);
+            chunk.copy(start, section, 0, count);
+            merged.add(section);
+        }
+    }
+
+    /** @param new_chunks New chunks of samples */
+    private void setChunks(final List<SampleColumns> new_chunks)
+    {
+        final int[] new_start = new int[new_chunks.size() + 1];
+        for (int c=0; c<new_chunks.size(); ++c)
+            new_start[c+1] = new_start[c] + new_chunks.get(c).getCapacity();
+        chunks = new_chunks;
+        chunk_start = new_start;
+        last_chunk = 0;
         computeVisibleSize();
     }
 
     /** Delete all samples */
     public void clear()
     {
-        visible_size = 0;
-        samples = new PlotSample[0];
+        setChunks(Collections.emptyList());
     }
 }
@@ -9,12 +9,16 @@ package org.csstudio.trends.databrowser2.model;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.csstudio.apputil.ringbuffer.RingBuffer;
 import org.csstudio.trends.databrowser2.preferences.Preferences;
 
 /** Ring buffer for 'live' samples.
  *  <p>
  *  New samples are always added to the end of a ring buffer.
+ *  The ring buffer uses {@link SampleColumns}.
+ *  <p>
+ *  When enabled in the preferences, samples that drop out of the
+ *  ring buffer are kept in {@link SpilledSamples} on disk
+ *  and presented before the samples in the ring buffer.
  *
  *  @author Kay Kasemir
  *  @author Takashi Nakamoto changed LiveSamples to handle waveform index.
@@ -23,8 +27,18 @@ public class LiveSamples extends PlotSamples
 {
     // No locking in here, all access is via PVSamples
 
-    private RingBuffer<PlotSample> samples =
-        new RingBuffer<PlotSample>(Preferences.getLiveSampleBufferSize());
+    final private SampleColumns.Texts texts = new SampleColumns.Texts();
+
+    private SampleColumns samples = new SampleColumns(texts, Preferences.getLiveSampleBufferSize());
+
+    /** Index of oldest sample in ring buffer */
+    private int start = 0;
+
+    /** Number of samples in ring buffer */
+    private int size = 0;
+
+    /** Samples that dropped out of the ring buffer, <code>null</code> if not enabled */
+    final private SpilledSamples spill;
 
     /** Waveform index */
     final private AtomicInteger waveform_index;
@@ -32,6 +46,11 @@ public class LiveSamples extends PlotSamples
     LiveSamples(final AtomicInteger waveform_index)
     {
         this.waveform_index = waveform_index;
+        if (Preferences.isLiveSampleSpillEnabled())
+            spill = new SpilledSamples(texts, Preferences.getLiveSampleSpillRawSamples(),
+                                       Preferences.getLiveSampleSpillMaxSize());
+        else
+            spill = null;
     }
 
     /** @return Maximum number of samples in ring buffer */
@@ -46,37 +65,87 @@ public class LiveSamples extends PlotSamples
      *  @param new_capacity New sample count capacity
      *  @throws Exception on out-of-memory error
      */
+    @SuppressWarnings("nls")
     public void setCapacity(int new_capacity) throws Exception
     {
         if (new_capacity < 10)
             new_capacity = 10;
-        samples.setCapacity(new_capacity);
+        try
+        {
+            final SampleColumns new_samples = new SampleColumns(texts, new_capacity);
+            // Copy newest samples
+            final int copy = Math.min(size, new_capacity);
+            // Spill the older samples
+            if (spill != null)
+                for (int i=0; i<size-copy; ++i)
+                    spill.add(samples, (start + i) % samples.getCapacity());
+            final int copy_start = (start + size - copy) % samples.getCapacity();
+            final int first = Math.min(copy, samples.getCapacity() - copy_start);
+            samples.copy(copy_start, new_samples, 0, first);
+            samples.copy(0, new_samples, first, copy - first);
+            samples = new_samples;
+            start = 0;
+            size = copy;
+        }
+        catch (OutOfMemoryError err)
+        {
+            throw new Exception("Out of memory: " + err.getMessage());
+        }
     }
 
-    /** @param sample Sample to add to ring buffer */
-    void add(final PlotSample sample)
+    /** @param sample Sample to add to ring buffer
+     *  @return <code>true</code> if existing samples were dropped or changed,
+     *          <code>false</code> if the sample was simply added at the end
+     */
+    boolean add(final PlotSample sample)
     {
         sample.setWaveformIndex(waveform_index);
-        samples.add(sample);
-        have_new_samples.set(true);
+        final int capacity = samples.getCapacity();
+        final int slot;
+        final boolean changed;
+        if (size >= capacity)
+        {   // Overwrite oldest sample, spilling it to disk
+            slot = start;
+            start = (start + 1) % capacity;
+            changed = spill == null  ||  spill.add(samples, slot);
+        }
+        else
+        {
+            slot = (start + size++) % capacity;
+            changed = false;
+        }
+        samples.set(slot, sample);
+        samplesChanged();
+        return changed;
     }
 
+    /** @return Number of samples in ring buffer and spilled to disk */
     @Override
     public int size()
     {
-        return samples.size();
+        return spill == null ? size : spill.size() + size;
     }
 
+    @SuppressWarnings("nls")
     @Override
     public PlotSample get(final int i)
     {
-        return samples.get(i);
+        final int spilled = spill == null ? 0 : spill.size();
+        if (i < spilled)
+            return spill.get(i, waveform_index);
+        final int index = i - spilled;
+        if (index < 0  ||  index >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " exceeds size " + (spilled + size));
+        return samples.get((start + index) % samples.getCapacity(), waveform_index);
     }
 
     /** Delete all samples */
     public void clear()
     {
-        samples.clear();
-        have_new_samples.set(true);
+        samples.clear(0, samples.getCapacity());
+        start = size = 0;
+        if (spill != null)
+            spill.clear();
+        samplesChanged();
     }
 }
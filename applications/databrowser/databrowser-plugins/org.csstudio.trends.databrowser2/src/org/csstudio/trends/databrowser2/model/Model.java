@@ -468,15 +468,16 @@ public class Model
     public void removeItem(final ModelItem item)
     {
         Objects.requireNonNull(item);
-        if (is_running  &&  item instanceof PVItem)
+        if (item instanceof PVItem)
         {
             final PVItem pv = (PVItem)item;
-            pv.stop();
+            if (is_running)
+                pv.stop();
             // Delete its samples:
-            // For one, so save memory.
+            // For one, so save memory and close the spill file.
             // Also, in case item is later added back in, its old samples
             // will have gaps because the item was stopped
-            pv.getSamples().clear();
+            pv.dispose();
         }
         if (! items.remove(item))
             throw new RuntimeException("Unknown item " + item.getName());
@@ -885,6 +886,19 @@ public class Model
         }
     }
 
+    /** Release resources of all items: Delete samples, close spill files, ...
+     *  <p>
+     *  Model must be stopped.
+     */
+    public void dispose()
+    {
+        if (is_running)
+            throw new RuntimeException("Model still running");
+        for (ModelItem item : items)
+            if (item instanceof PVItem)
+                ((PVItem) item).dispose();
+    }
+
     /** Test if any ModelItems received new samples,
      *  if formulas need to be re-computed,
      *  since the last time this method was called.
@@ -12,19 +12,15 @@ import static org.diirt.datasource.vtype.ExpressionLanguage.vType;
 import static org.diirt.util.time.TimeDuration.ofSeconds;
 
 import java.io.PrintWriter;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.csstudio.apputil.xml.DOMHelper;
 import org.csstudio.apputil.xml.XMLWriter;
 import org.csstudio.archive.vtype.VTypeHelper;
-import org.csstudio.swt.rtplot.util.NamedThreadFactory;
 import org.csstudio.trends.databrowser2.Activator;
 import org.csstudio.trends.databrowser2.Messages;
 import org.csstudio.trends.databrowser2.imports.ImportArchiveReaderFactory;
@@ -63,6 +59,9 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
     private ArrayList<ArchiveDataSource> archives
         = new ArrayList<ArchiveDataSource>();
 
+    /** Optimized archive data that was fetched for this item */
+    final private ArchiveTileCache tile_cache = new ArchiveTileCache();
+
     /** Control system PV, set when running */
     private PVReader<List<VType>> pv = null;
 
@@ -72,12 +71,8 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
     /** Scan period in seconds, &le;0 to 'monitor' */
     private double period;
 
-    /** Timer that was used to schedule the scanner */
-    final private static ScheduledExecutorService scan_timer =
-            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("DataBrowserScanner"));
-
-    /** For a period &gt;0, this timer task performs the scanning */
-    private ScheduledFuture<?> scanner = null;
+    /** For a period &gt;0, is this item scanned by the {@link PVScanner}? */
+    private boolean scanning = false;
 
     /** Archive data request type */
     private RequestType request_type = RequestType.OPTIMIZED;
@@ -111,7 +106,10 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
         if (index < 0)
             index = 0;
         if (waveform_index.getAndSet(index) != index)
+        {   // Sample values depend on the waveform index
+            samples.samplesReset();
             fireItemDataConfigChanged();
+        }
     }
 
     /** Set new item name, which changes the underlying PV name
@@ -194,6 +192,12 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
         return (ArchiveDataSource[]) archives.toArray(new ArchiveDataSource[archives.size()]);
     }
 
+    /** @return Cache of optimized archive data for this item */
+    public ArchiveTileCache getArchiveTileCache()
+    {
+        return tile_cache;
+    }
+
     /** Replace archives with settings from preferences */
     public void useDefaultArchiveDataSources()
     {
@@ -316,8 +320,8 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
         if (period <= 0.0)
             return;
         // Start scanner for periodic log
-        final long delay = (long) (period*1000);
-        scanner = scan_timer.scheduleAtFixedRate(this::doScan, delay, delay, TimeUnit.MILLISECONDS);
+        PVScanner.add(this, period);
+        scanning = true;
     }
 
     /** Disconnect from control system PV, stop scanning, ... */
@@ -325,15 +329,27 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
     {
         if (pv == null)
             throw new RuntimeException("Not running " + getName());
-        if (scanner != null)
+        if (scanning)
         {
-            scanner.cancel(true);
-            scanner = null;
+            PVScanner.remove(this);
+            scanning = false;
         }
         pv.close();
         pv = null;
     }
 
+    /** Delete all samples and release their resources,
+     *  for example the file that holds spilled live samples.
+     *  <p>
+     *  Item must be stopped. When started again, it begins with empty samples.
+     */
+    public void dispose()
+    {
+        if (pv != null)
+            throw new RuntimeException("Still running " + getName());
+        samples.clear();
+    }
+
     /** {@inheritDoc} */
     @Override
     public PVSamples getSamples()
@@ -393,8 +409,10 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
         setUnits(display.getUnits());
     }
 
-    /** Scan, i.e. add 'current' value to live samples */
-    private void doScan()
+    /** Scan, i.e. add 'current' value to live samples
+     *  @param now Time stamp for the sample
+     */
+    void scan(final Instant now)
     {
         final VType value = current_value;
         Activator.getLogger().log(Level.FINE, "PV {0} scans {1}", new Object[] { getName(), value });
@@ -402,7 +420,7 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
             logDisconnected();
         else
             // Transform value to have 'now' as time stamp
-            samples.addLiveSample(VTypeHelper.transformTimestampToNow(value));
+            samples.addLiveSample(VTypeHelper.transformTimestamp(value, now));
     }
 
     /** Add one(!) 'disconnected' sample */
@@ -434,12 +452,23 @@ public class PVItem extends ModelItem implements PVReaderListener<List<VType>>
      */
     public void mergeArchivedSamples(final String server_name,
             final List<VType> new_samples)
+    {
+        mergeArchivedSamples(server_name, new_samples, null);
+    }
+
+    /** Add part of the data retrieved from an archive to the 'historic' section
+     *  @param server_name Archive server that provided these samples
+     *  @param new_samples Historic data
+     *  @param replace_after Old samples after this time are replaced, <code>null</code> for all in range of new samples
+     */
+    public void mergeArchivedSamples(final String server_name,
+            final List<VType> new_samples, final Instant replace_after)
     {
         final boolean need_refresh;
         samples.lockForWriting();
         try
         {
-            samples.mergeArchivedData(server_name, new_samples);
+            samples.mergeArchivedData(server_name, new_samples, replace_after);
             need_refresh = automaticRefresh && model.isPresent() &&
                            samples.isHistoryRefreshNeeded(model.get().getStartTime(), model.get().getEndTime());
         }
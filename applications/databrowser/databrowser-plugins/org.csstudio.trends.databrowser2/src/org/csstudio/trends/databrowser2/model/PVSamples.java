@@ -73,6 +73,7 @@ public class PVSamples extends PlotSamples
     public void setLiveCapacity(final int new_capacity) throws Exception
     {
         live.setCapacity(new_capacity);
+        samplesReset();
     }
 
     /** @return Combined count of historic and live samples */
@@ -89,6 +90,17 @@ public class PVSamples extends PlotSamples
         return raw+1;
     }
 
+    /** {@inheritDoc}
+     *
+     *  <p>The change count only tracks the actual historic and live samples.
+     *  The continuation of the last sample to 'now' changes with time.
+     */
+    @Override
+    public int getTrackedSize()
+    {
+        return getRawSize();
+    }
+
     /** @return Size of the actual historic and live samples
      *          without the continuation to 'now'
      */
@@ -156,6 +168,18 @@ public class PVSamples extends PlotSamples
      */
     public void mergeArchivedData(final String source,
             final List<VType> result)
+    {
+        mergeArchivedData(source, result, null);
+    }
+
+    /** Add part of data retrieved from an archive to the 'historic' section
+     *  @param source Source of the samples
+     *  @param result Historic data
+     *  @param replace_after Old samples after this time are replaced, <code>null</code> for all in range of new samples
+     *  @see HistoricSamples#mergeArchivedData(String, List, Instant)
+     */
+    public void mergeArchivedData(final String source,
+            final List<VType> result, final Instant replace_after)
     {
         lockForWriting();
         try
@@ -165,7 +189,8 @@ public class PVSamples extends PlotSamples
                 emptyHistoryOnAdd = false;
                 history.clear();
             }
-            history.mergeArchivedData(source, result);
+            history.mergeArchivedData(source, result, replace_after);
+            samplesReset();
         }
         finally
         {
@@ -195,11 +220,16 @@ public class PVSamples extends PlotSamples
             if (live.size() == 0  &&
                 VTypeHelper.getSeverity(sample.getVType()) == AlarmSeverity.UNDEFINED)
                 return;
-            live.add(sample);
+            final int history_size = history.size();
+            final boolean moved = live.add(sample);
             // History ends before the start of 'live' samples.
             // Adding a live sample might have moved the ring buffer,
             // so need to update whenever live data is extended.
             history.setBorderTime(Optional.of(live.get(0).getPosition()));
+            // Dropping or down-sampling live samples or changing the visible history
+            // affects existing samples, not just the end
+            if (moved  ||  history.size() != history_size)
+                samplesReset();
         }
         finally
         {
@@ -216,6 +246,7 @@ public class PVSamples extends PlotSamples
         {
             history.clear();
             live.clear();
+            samplesReset();
         }
         finally
         {
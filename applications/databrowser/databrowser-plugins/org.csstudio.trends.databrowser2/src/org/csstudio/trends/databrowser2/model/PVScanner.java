@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.csstudio.swt.rtplot.util.NamedThreadFactory;
+import org.csstudio.trends.databrowser2.Activator;
+
+/** Periodic scanner for {@link PVItem}s
+ *
+ *  <p>Items with the same scan period are scanned together:
+ *  One timer task per period scans all its items,
+ *  using the same time stamp for all the new samples.
+ *  The plot picks them up on its next update, like any other new samples.
+ *
+ *  <p>Tracks the duration of each scan 'tick'.
+ */
+@SuppressWarnings("nls")
+public class PVScanner
+{
+    /** Timer that performs the scans */
+    final private static ScheduledExecutorService scan_timer =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("DataBrowserScanner"));
+
+    /** Items that are scanned with the same period */
+    private static class ScanGroup implements Runnable
+    {
+        final private long period_ms;
+        final private List<PVItem> items = new CopyOnWriteArrayList<>();
+        private ScheduledFuture<?> task = null;
+
+        /** Scan statistics, only updated by the timer thread */
+        private volatile long ticks = 0;
+        private volatile double last_ms = 0, average_ms = 0, max_ms = 0;
+
+        ScanGroup(final long period_ms)
+        {
+            this.period_ms = period_ms;
+        }
+
+        void start()
+        {
+            task = scan_timer.scheduleAtFixedRate(this, period_ms, period_ms, TimeUnit.MILLISECONDS);
+        }
+
+        void stop()
+        {
+            task.cancel(false);
+        }
+
+        /** Scan all items of the group */
+        @Override
+        public void run()
+        {
+            final long start = System.nanoTime();
+            final Instant now = Instant.now();
+            for (PVItem item : items)
+            {
+                try
+                {
+                    item.scan(now);
+                }
+                catch (Throwable ex)
+                {   // Keep scanning the other items
+                    Activator.getLogger().log(Level.WARNING, "Scan error for " + item.getName(), ex);
+                }
+            }
+            updateStatistics((System.nanoTime() - start) / 1e6);
+        }
+
+        private void updateStatistics(final double ms)
+        {
+            last_ms = ms;
+            if (ticks++ == 0)
+                average_ms = ms;
+            else
+                average_ms += 0.1 * (ms - average_ms);
+            max_ms = Math.max(max_ms, ms);
+            final Logger logger = Activator.getLogger();
+            if (logger.isLoggable(Level.FINE))
+                logger.log(Level.FINE, toString());
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("Scan %.1f sec: %d items, %d ticks, last %.2f ms, average %.2f ms, max %.2f ms",
+                                 period_ms / 1000.0, items.size(), ticks, last_ms, average_ms, max_ms);
+        }
+    }
+
+    /** Scan groups by period in milliseconds */
+    final private static Map<Long, ScanGroup> groups = new HashMap<>();
+
+    /** @param item Item to scan
+     *  @param period Scan period in seconds
+     */
+    static void add(final PVItem item, final double period)
+    {
+        final long period_ms = (long) (period*1000);
+        synchronized (groups)
+        {
+            ScanGroup group = groups.get(period_ms);
+            ScanGroup new_group = null;
+            if (group == null)
+            {
+                group = new_group = new ScanGroup(period_ms);
+                groups.put(period_ms, group);
+            }
+            group.items.add(item);
+            if (new_group != null)
+                new_group.start();
+        }
+    }
+
+    /** @param item Item to no longer scan */
+    static void remove(final PVItem item)
+    {
+        synchronized (groups)
+        {
+            for (ScanGroup group : groups.values())
+                if (group.items.remove(item))
+                {
+                    if (group.items.isEmpty())
+                    {
+                        group.stop();
+                        groups.remove(group.period_ms);
+                    }
+                    return;
+                }
+        }
+    }
+
+    /** @return Info about each scan group: Period, number of items, tick durations */
+    public static List<String> getStatistics()
+    {
+        final List<String> info = new ArrayList<>();
+        synchronized (groups)
+        {
+            for (ScanGroup group : groups.values())
+                info.add(group.toString());
+        }
+        return info;
+    }
+}
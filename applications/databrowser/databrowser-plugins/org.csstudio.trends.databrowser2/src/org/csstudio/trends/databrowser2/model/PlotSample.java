@@ -86,6 +86,16 @@ public class PlotSample implements PlotDataItem<Instant>
              info);
     }
 
+    /** Initialize without control system value.
+     *  Derived class must provide the value.
+     *  @param waveform_index Waveform index
+     *  @param source Info about the source of this sample
+     */
+    PlotSample(final AtomicInteger waveform_index, final  String source)
+    {
+        this(waveform_index, source, null, null);
+    }
+
     /** Package-level constructor, only used in unit tests */
     PlotSample(final double x, final double y)
     {
@@ -99,6 +109,18 @@ public class PlotSample implements PlotDataItem<Instant>
         this.waveform_index = index;
     }
 
+    /** @return Waveform index to plot */
+    int getWaveformIndex()
+    {
+        return waveform_index.get();
+    }
+
+    /** @return <code>true</code> if sample has an info text */
+    boolean hasInfo()
+    {
+        return info.isPresent();
+    }
+
     /** @return Source of the data */
     public String getSource()
     {
@@ -187,6 +209,6 @@ public class PlotSample implements PlotDataItem<Instant>
     @Override
     public String toString()
     {
-        return VTypeHelper.toString(value);
+        return VTypeHelper.toString(getVType());
     }
 }
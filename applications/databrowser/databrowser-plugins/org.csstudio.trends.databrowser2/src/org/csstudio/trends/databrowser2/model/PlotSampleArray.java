@@ -7,6 +7,7 @@
  ******************************************************************************/
 package org.csstudio.trends.databrowser2.model;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -17,10 +18,42 @@ public class PlotSampleArray extends PlotSamples
 {
     private List<PlotSample> samples = Collections.emptyList();
 
+    /** Is <code>samples</code> a list that was passed in, not owned by this class? */
+    private boolean shared = true;
+
     /** @param samples Samples <u>which are NOT copied</u> */
     public void set(final List<PlotSample> samples)
     {
         this.samples = samples;
+        shared = true;
+        samplesReset();
+    }
+
+    /** Replace the samples after the initial ones
+     *  @param keep Number of initial samples to keep
+     *  @param samples Samples to add after those that are kept
+     */
+    public void update(final int keep, final List<PlotSample> samples)
+    {
+        lockForWriting();
+        try
+        {
+            final int old_size = this.samples.size();
+            if (shared)
+            {
+                this.samples = new ArrayList<>(this.samples.subList(0, Math.min(keep, old_size)));
+                shared = false;
+            }
+            else if (keep < old_size)
+                this.samples.subList(keep, old_size).clear();
+            this.samples.addAll(samples);
+            if (keep < old_size)
+                samplesReset();
+        }
+        finally
+        {
+            unlockForWriting();
+        }
     }
 
     /** {@inheritDoc} */
@@ -9,6 +9,7 @@ package org.csstudio.trends.databrowser2.model;
 
 import java.time.Instant;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -29,6 +30,16 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
      */
     final protected AtomicBoolean have_new_samples = new AtomicBoolean();
 
+    /** Incremented when samples change
+     *  @see #getChangeCount()
+     */
+    final private AtomicLong changes = new AtomicLong();
+
+    /** Incremented when existing samples change
+     *  @see #getResetCount()
+     */
+    final private AtomicLong resets = new AtomicLong();
+
     /** Lock for writing */
     public void lockForWriting()
     {
@@ -38,10 +49,29 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
     /** Un-lock after writing */
     public void unlockForWriting()
     {
+        samplesChanged();
         lock.writeLock().unlock();
+    }
+
+    /** To be called when samples change.
+     *  Updates the change count and sets the 'new samples' flag.
+     */
+    protected void samplesChanged()
+    {
+        changes.incrementAndGet();
         have_new_samples.set(true);
     }
 
+    /** To be called when existing samples change or are removed,
+     *  as opposed to new samples being added at the end.
+     *  Updates the reset count and marks the samples as changed.
+     */
+    protected void samplesReset()
+    {
+        resets.incrementAndGet();
+        samplesChanged();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Lock getLock()
@@ -57,6 +87,28 @@ abstract public class PlotSamples implements PlotDataProvider<Instant>
     @Override
     abstract public PlotSample get(int index);
 
+    /** {@inheritDoc} */
+    @Override
+    public long getChangeCount()
+    {
+        return changes.get();
+    }
+
+    /** Get count of changes to existing samples
+     *
+     *  <p>While the reset count remains the same,
+     *  samples are only added at the end,
+     *  except for the last sample which may be replaced.
+     *  Code that processes samples incrementally
+     *  needs to start over when the reset count changes.
+     *
+     *  @return Count that changes whenever existing samples change
+     */
+    public long getResetCount()
+    {
+        return resets.get();
+    }
+
     /** Test if samples changed since the last time
      *  <code>testAndClearNewSamplesFlag</code> was called.
      *  @return <code>true</code> if there were new samples
@@ -0,0 +1,498 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.archive.vtype.ArchiveVNumber;
+import org.csstudio.archive.vtype.ArchiveVStatistics;
+import org.csstudio.archive.vtype.VTypeHelper;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Display;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VStatistics;
+import org.diirt.vtype.VType;
+
+/** Columnar storage of plot samples
+ *
+ *  <p>Instead of one {@link PlotSample} and {@link VType} per sample,
+ *  scalar numeric samples are kept in primitive arrays:
+ *  Time stamp, value, alarm severity, and indices into a shared
+ *  table of status and source texts.
+ *  Min, max, standard deviation and count of statistics samples
+ *  are only allocated once a statistics sample is stored.
+ *  The display information (units, limits, format) is kept once
+ *  for all samples.
+ *
+ *  <p>Samples that do not fit into the columns, for example
+ *  arrays, strings or samples with info text, are kept as {@link PlotSample}.
+ *
+ *  <p>{@link #get(int, AtomicInteger)} returns a light-weight {@link PlotSample}
+ *  that only creates a {@link VType} when {@link PlotSample#getVType()} is called.
+ *
+ *  <p>No locking in here, all access is via {@link PVSamples}.
+ */
+public class SampleColumns
+{
+    /** Table of texts used for status and source of samples */
+    static class Texts
+    {
+        final private Map<String, Short> indices = new HashMap<>();
+        final private List<String> texts = new ArrayList<>();
+
+        /** @param text Text
+         *  @return Index of text, or -1 if table is full
+         */
+        synchronized int indexOf(final String text)
+        {
+            final Short index = indices.get(text);
+            if (index != null)
+                return index;
+            if (texts.size() > Short.MAX_VALUE)
+                return -1;
+            final short new_index = (short) texts.size();
+            texts.add(text);
+            indices.put(text, new_index);
+            return new_index;
+        }
+
+        /** @param index Index of text
+         *  @return Text
+         */
+        synchronized String get(final int index)
+        {
+            return texts.get(index);
+        }
+    }
+
+    // Kinds of samples
+    final static byte KIND_DOUBLE = 0, KIND_LONG = 1, KIND_STATISTICS = 2, KIND_OBJECT = 3;
+
+    /** Size of a sample written by {@link #write(int, ByteBuffer, int)}:
+     *  Time, value, min, max, std.dev., count, status, source, kind, severity
+     */
+    final static int RECORD_BYTES = 8 + 4*8 + 4 + 2 + 2 + 1 + 1;
+
+    final private static AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    final private Texts texts;
+    final private int capacity;
+
+    /** Time stamps in epoch nanoseconds */
+    final private long[] times;
+    /** Values, or average of statistics */
+    final private double[] values;
+    final private byte[] kinds;
+    final private byte[] severities;
+    /** Indices into {@link #texts} */
+    final private short[] status, sources;
+
+    /** Statistics, <code>null</code> until first statistics sample is added */
+    private double[] mins, maxs, stddevs;
+    private int[] counts;
+
+    /** Samples that don't fit the columns, <code>null</code> until needed */
+    private PlotSample[] objects;
+
+    /** Display information of the samples */
+    private Display display;
+
+    /** @param texts Table of status and source texts, may be shared with other {@link SampleColumns}
+     *  @param capacity Number of samples to hold
+     */
+    SampleColumns(final Texts texts, final int capacity)
+    {
+        this.texts = texts;
+        this.capacity = capacity;
+        times = new long[capacity];
+        values = new double[capacity];
+        kinds = new byte[capacity];
+        severities = new byte[capacity];
+        status = new short[capacity];
+        sources = new short[capacity];
+    }
+
+    /** @return Number of samples that can be held */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /** @param time Time stamp
+     *  @return Epoch nanoseconds
+     *  @throws ArithmeticException if time is outside of the supported range
+     */
+    static long toNanos(final Instant time)
+    {
+        return Math.addExact(Math.multiplyExact(time.getEpochSecond(), 1000000000L), time.getNano());
+    }
+
+    /** @param time Time stamp
+     *  @return Epoch nanoseconds, limited to the supported range
+     */
+    static long toLimitedNanos(final Instant time)
+    {
+        try
+        {
+            return toNanos(time);
+        }
+        catch (ArithmeticException ex)
+        {
+            return time.getEpochSecond() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /** @param nanos Epoch nanoseconds
+     *  @return Time stamp
+     */
+    static Instant toInstant(final long nanos)
+    {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1000000000L), Math.floorMod(nanos, 1000000000L));
+    }
+
+    /** @param slot Index 0 .. capacity-1 where to store the sample
+     *  @param sample Sample to store
+     */
+    void set(final int slot, final PlotSample sample)
+    {
+        if (sample.hasInfo()  ||  ! setColumns(slot, sample.getSource(), sample.getVType()))
+            setObject(slot, sample);
+    }
+
+    /** @param slot Index 0 .. capacity-1 where to store the sample
+     *  @param waveform_index Waveform index to use for the sample
+     *  @param source Source of the sample
+     *  @param value Value of the sample
+     */
+    void set(final int slot, final AtomicInteger waveform_index, final String source, final VType value)
+    {
+        if (! setColumns(slot, source, value))
+            setObject(slot, new PlotSample(waveform_index, source, value));
+    }
+
+    /** @param slot Index where to store the sample
+     *  @param sample Sample to store as object
+     */
+    private void setObject(final int slot, final PlotSample sample)
+    {
+        if (objects == null)
+            objects = new PlotSample[capacity];
+        objects[slot] = sample;
+        kinds[slot] = KIND_OBJECT;
+        times[slot] = toLimitedNanos(sample.getPosition());
+    }
+
+    /** @param slot Index where to store the sample
+     *  @param source Source of the sample
+     *  @param value Value of the sample
+     *  @return <code>true</code> if sample was stored in columns
+     */
+    private boolean setColumns(final int slot, final String source, final VType value)
+    {
+        if (! (value instanceof VNumber  ||  value instanceof VStatistics))
+            return false;
+        final int source_index = texts.indexOf(source);
+        final int status_index = texts.indexOf(VTypeHelper.getMessage(value));
+        if (source_index < 0  ||  status_index < 0)
+            return false;
+        final long time;
+        try
+        {
+            // Same time stamp as PlotSample.getPosition(), not checking if valid
+            time = toNanos(((Time) value).getTimestamp());
+        }
+        catch (ArithmeticException ex)
+        {
+            return false;
+        }
+
+        if (value instanceof VStatistics)
+        {
+            final VStatistics stats = (VStatistics) value;
+            if (mins == null)
+            {
+                mins = new double[capacity];
+                maxs = new double[capacity];
+                stddevs = new double[capacity];
+                counts = new int[capacity];
+            }
+            kinds[slot] = KIND_STATISTICS;
+            values[slot] = stats.getAverage();
+            mins[slot] = stats.getMin();
+            maxs[slot] = stats.getMax();
+            stddevs[slot] = stats.getStdDev();
+            counts[slot] = stats.getNSamples();
+        }
+        else
+        {
+            final Number number = ((VNumber) value).getValue();
+            if (number instanceof Double  ||  number instanceof Float)
+                kinds[slot] = KIND_DOUBLE;
+            else
+            {   // Integer that can't be represented as double?
+                if ((long) number.doubleValue() != number.longValue())
+                    return false;
+                kinds[slot] = KIND_LONG;
+            }
+            values[slot] = number.doubleValue();
+        }
+        if (display == null)
+            display = (Display) value;
+        if (objects != null)
+            objects[slot] = null;
+        times[slot] = time;
+        severities[slot] = (byte) VTypeHelper.getSeverity(value).ordinal();
+        status[slot] = (short) status_index;
+        sources[slot] = (short) source_index;
+        return true;
+    }
+
+    /** Copy samples
+     *  @param slot First sample to copy
+     *  @param target Where to copy the samples. Must use the same table of texts.
+     *  @param target_slot Where to place the first sample in target
+     *  @param count Number of samples to copy
+     */
+    void copy(final int slot, final SampleColumns target, final int target_slot, final int count)
+    {
+        if (target.texts != texts)
+            throw new IllegalArgumentException("Cannot copy samples that use different texts"); //$NON-NLS-1$
+        System.arraycopy(times, slot, target.times, target_slot, count);
+        System.arraycopy(values, slot, target.values, target_slot, count);
+        System.arraycopy(kinds, slot, target.kinds, target_slot, count);
+        System.arraycopy(severities, slot, target.severities, target_slot, count);
+        System.arraycopy(status, slot, target.status, target_slot, count);
+        System.arraycopy(sources, slot, target.sources, target_slot, count);
+        if (mins != null)
+        {
+            if (target.mins == null)
+            {
+                target.mins = new double[target.capacity];
+                target.maxs = new double[target.capacity];
+                target.stddevs = new double[target.capacity];
+                target.counts = new int[target.capacity];
+            }
+            System.arraycopy(mins, slot, target.mins, target_slot, count);
+            System.arraycopy(maxs, slot, target.maxs, target_slot, count);
+            System.arraycopy(stddevs, slot, target.stddevs, target_slot, count);
+            System.arraycopy(counts, slot, target.counts, target_slot, count);
+        }
+        if (objects != null)
+        {
+            if (target.objects == null)
+                target.objects = new PlotSample[target.capacity];
+            System.arraycopy(objects, slot, target.objects, target_slot, count);
+        }
+        else if (target.objects != null)
+            for (int i=0; i<count; ++i)
+                target.objects[target_slot + i] = null;
+        if (target.display == null)
+            target.display = display;
+    }
+
+    /** Remove references to samples that don't fit the columns
+     *  @param slot First sample to clear
+     *  @param count Number of samples to clear
+     */
+    void clear(final int slot, final int count)
+    {
+        if (objects != null)
+            for (int i=0; i<count; ++i)
+                objects[slot + i] = null;
+    }
+
+    /** @param slot Index of sample
+     *  @return Time stamp of sample in epoch nanoseconds
+     */
+    long getTime(final int slot)
+    {
+        return times[slot];
+    }
+
+    /** @return Display information of the samples, may be <code>null</code> */
+    Display getDisplay()
+    {
+        return display;
+    }
+
+    /** Write sample as record of {@link #RECORD_BYTES}
+     *
+     *  <p>Samples that don't fit the columns are written
+     *  with their numeric value, for arrays the first element.
+     *
+     *  @param slot Index of sample
+     *  @param buffer Buffer, only using absolute 'put' calls
+     *  @param offset Offset of record in buffer
+     */
+    void write(final int slot, final ByteBuffer buffer, final int offset)
+    {
+        byte kind = kinds[slot];
+        double value = values[slot];
+        byte severity = severities[slot];
+        int status_index = status[slot], source_index = sources[slot];
+        if (kind == KIND_OBJECT)
+        {
+            final PlotSample sample = objects[slot];
+            final VType vtype = sample.getVType();
+            kind = KIND_DOUBLE;
+            value = VTypeHelper.toDouble(vtype);
+            severity = (byte) VTypeHelper.getSeverity(vtype).ordinal();
+            status_index = texts.indexOf(VTypeHelper.getMessage(vtype));
+            source_index = texts.indexOf(sample.getSource());
+        }
+        buffer.putLong(offset, times[slot]);
+        buffer.putDouble(offset + 8, value);
+        if (kind == KIND_STATISTICS)
+        {
+            buffer.putDouble(offset + 16, mins[slot]);
+            buffer.putDouble(offset + 24, maxs[slot]);
+            buffer.putDouble(offset + 32, stddevs[slot]);
+            buffer.putInt(offset + 40, counts[slot]);
+        }
+        else
+        {
+            buffer.putDouble(offset + 16, Double.NaN);
+            buffer.putDouble(offset + 24, Double.NaN);
+            buffer.putDouble(offset + 32, Double.NaN);
+            buffer.putInt(offset + 40, 1);
+        }
+        buffer.putShort(offset + 44, (short) status_index);
+        buffer.putShort(offset + 46, (short) source_index);
+        buffer.put(offset + 48, kind);
+        buffer.put(offset + 49, severity);
+    }
+
+    /** Read sample from record
+     *  @param buffer Buffer, only using absolute 'get' calls
+     *  @param offset Offset of record in buffer
+     *  @param texts Table of status and source texts used to write the record
+     *  @param display Display information
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return {@link PlotSample}
+     *  @see #write(int, ByteBuffer, int)
+     */
+    static PlotSample read(final ByteBuffer buffer, final int offset, final Texts texts,
+                           final Display display, final AtomicInteger waveform_index)
+    {
+        final short status_index = buffer.getShort(offset + 44);
+        final short source_index = buffer.getShort(offset + 46);
+        return new ColumnSample(waveform_index,
+                                source_index < 0 ? "" : texts.get(source_index), //$NON-NLS-1$
+                                buffer.get(offset + 48), buffer.getLong(offset),
+                                buffer.getDouble(offset + 8), buffer.getDouble(offset + 16),
+                                buffer.getDouble(offset + 24), buffer.getDouble(offset + 32),
+                                buffer.getInt(offset + 40), SEVERITIES[buffer.get(offset + 49)],
+                                status_index < 0 ? "" : texts.get(status_index), //$NON-NLS-1$
+                                display);
+    }
+
+    /** @param slot Index of sample
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return {@link PlotSample}
+     */
+    PlotSample get(final int slot, final AtomicInteger waveform_index)
+    {
+        final byte kind = kinds[slot];
+        if (kind == KIND_OBJECT)
+            return objects[slot];
+        if (kind == KIND_STATISTICS)
+            return new ColumnSample(waveform_index, texts.get(sources[slot]), kind, times[slot], values[slot],
+                                    mins[slot], maxs[slot], stddevs[slot], counts[slot],
+                                    SEVERITIES[severities[slot]], texts.get(status[slot]), display);
+        return new ColumnSample(waveform_index, texts.get(sources[slot]), kind, times[slot], values[slot],
+                                Double.NaN, Double.NaN, Double.NaN, 1,
+                                SEVERITIES[severities[slot]], texts.get(status[slot]), display);
+    }
+
+    /** {@link PlotSample} for data from the columns */
+    private static class ColumnSample extends PlotSample
+    {
+        final private byte kind;
+        final private long time;
+        final private double value, min, max, stddev;
+        final private int count;
+        final private AlarmSeverity severity;
+        final private String status;
+        final private Display display;
+        private Instant position = null;
+        private VType vtype = null;
+
+        ColumnSample(final AtomicInteger waveform_index, final String source, final byte kind, final long time,
+                     final double value, final double min, final double max, final double stddev, final int count,
+                     final AlarmSeverity severity, final String status, final Display display)
+        {
+            super(waveform_index, source);
+            this.kind = kind;
+            this.time = time;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+            this.stddev = stddev;
+            this.count = count;
+            this.severity = severity;
+            this.status = status;
+            this.display = display;
+        }
+
+        @Override
+        public Instant getPosition()
+        {
+            if (position == null)
+                position = toInstant(time);
+            return position;
+        }
+
+        @Override
+        public VType getVType()
+        {
+            if (vtype == null)
+            {
+                if (kind == KIND_STATISTICS)
+                    vtype = new ArchiveVStatistics(getPosition(), severity, status, display,
+                                                   value, min, max, stddev, count);
+                else if (kind == KIND_LONG)
+                    vtype = new ArchiveVNumber(getPosition(), severity, status, display, (long) value);
+                else
+                    vtype = new ArchiveVNumber(getPosition(), severity, status, display, value);
+            }
+            return vtype;
+        }
+
+        @Override
+        public double getValue()
+        {
+            // Scalars have no waveform elements beyond index 0
+            return getWaveformIndex() == 0 ? value : Double.NaN;
+        }
+
+        @Override
+        public double getStdDev()
+        {
+            return getWaveformIndex() == 0 ? stddev : Double.NaN;
+        }
+
+        @Override
+        public double getMin()
+        {
+            return getWaveformIndex() == 0 ? min : Double.NaN;
+        }
+
+        @Override
+        public double getMax()
+        {
+            return getWaveformIndex() == 0 ? max : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.trends.databrowser2.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.csstudio.trends.databrowser2.Activator;
+import org.diirt.vtype.Display;
+
+/** Disk storage for 'live' samples that dropped out of the {@link LiveSamples} ring buffer
+ *
+ *  <p>Samples are written into segments of a memory-mapped file,
+ *  one file per {@link LiveSamples}, deleted when closed or on exit.
+ *  Newest samples are kept as 'raw' samples.
+ *  Once there are more raw samples than configured,
+ *  the oldest raw segment is down-sampled into statistics samples
+ *  with min/max/average of {@link #DOWNSAMPLE} samples each.
+ *  Samples with a NaN value, for example 'disconnected', are kept
+ *  as they are to preserve gaps.
+ *  When the file reaches its maximum size, the oldest segment is dropped.
+ *
+ *  <p>The samples are presented in time order,
+ *  oldest down-sampled data first, followed by the raw samples.
+ *
+ *  <p>No locking in here, all access is via {@link PVSamples}.
+ *  Concurrent reads are possible since the mapped buffers
+ *  are only accessed via absolute 'get' calls.
+ */
+public class SpilledSamples
+{
+    /** Number of samples in a segment */
+    final static int SEGMENT_SAMPLES = 64*1024;
+
+    /** Bytes per segment */
+    final static int SEGMENT_BYTES = SEGMENT_SAMPLES * SampleColumns.RECORD_BYTES;
+
+    /** Number of raw samples that are combined into one down-sampled sample */
+    final static int DOWNSAMPLE = 64;
+
+    /** Segment of the file */
+    private static class Segment
+    {
+        final MappedByteBuffer buffer;
+        /** Number of samples in segment */
+        int count = 0;
+        /** Has segment been down-sampled? */
+        boolean downsampled = false;
+
+        Segment(final MappedByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+    }
+
+    final private SampleColumns.Texts texts;
+
+    /** Maximum number of raw segments */
+    final private int raw_segments;
+
+    /** Maximum number of segments in file */
+    final private int max_segments;
+
+    private FileChannel file = null;
+
+    /** Segments in time order: Down-sampled segments, then raw segments */
+    final private List<Segment> segments = new ArrayList<>();
+
+    /** Segments that can be re-used */
+    final private List<Segment> free = new ArrayList<>();
+
+    /** Number of segments in file */
+    private int allocated = 0;
+
+    /** Number of down-sampled segments at start of segments */
+    private int downsampled = 0;
+
+    /** Index of first sample in each segment */
+    private int[] starts = new int[16];
+
+    /** Total number of samples */
+    private int size = 0;
+
+    /** Display information of the samples */
+    private Display display = null;
+
+    /** Set when file could not be written */
+    private boolean failed = false;
+
+    /** @param texts Table of status and source texts, shared with the {@link SampleColumns} of the live samples
+     *  @param raw_samples Number of raw samples to keep before down-sampling
+     *  @param max_bytes Maximum file size
+     */
+    SpilledSamples(final SampleColumns.Texts texts, final int raw_samples, final long max_bytes)
+    {
+        this.texts = texts;
+        raw_segments = Math.max(1, (raw_samples + SEGMENT_SAMPLES - 1) / SEGMENT_SAMPLES);
+        max_segments = (int) Math.max(raw_segments + 1, Math.min(Integer.MAX_VALUE, max_bytes / SEGMENT_BYTES));
+    }
+
+    /** @return Number of spilled samples */
+    public int size()
+    {
+        return size;
+    }
+
+    /** @return Size of the file in bytes */
+    public long getFileSize()
+    {
+        return (long) allocated * SEGMENT_BYTES;
+    }
+
+    /** @return <code>true</code> while the file is open */
+    boolean isFileOpen()
+    {
+        return file != null;
+    }
+
+    /** @param index Sample index, 0 for oldest sample
+     *  @param waveform_index Waveform index to use for the sample
+     *  @return {@link PlotSample}
+     */
+    @SuppressWarnings("nls")
+    public PlotSample get(final int index, final AtomicInteger waveform_index)
+    {
+        if (index < 0  ||  index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " exceeds size " + size);
+        // Locate segment: Last one that starts at-or-before index
+        int low = 0, high = segments.size() - 1;
+        while (low < high)
+        {
+            final int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= index)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        final Segment segment = segments.get(low);
+        return SampleColumns.read(segment.buffer, (index - starts[low]) * SampleColumns.RECORD_BYTES,
+                                  texts, display, waveform_index);
+    }
+
+    /** Add sample
+     *  @param columns Columns that hold the sample
+     *  @param slot Index of the sample in the columns
+     *  @return <code>true</code> if existing samples were down-sampled or dropped,
+     *          or the sample could not be added.
+     *          <code>false</code> if the sample was simply added at the end
+     */
+    boolean add(final SampleColumns columns, final int slot)
+    {
+        if (failed)
+            return true;
+        if (display == null)
+            display = columns.getDisplay();
+        final int old_size = size;
+        Segment last = segments.isEmpty() ? null : segments.get(segments.size()-1);
+        if (last == null  ||  last.downsampled  ||  last.count >= SEGMENT_SAMPLES)
+        {
+            if (segments.size() - downsampled >= raw_segments)
+                downsampleOldestRaw();
+            try
+            {
+                last = allocate();
+            }
+            catch (IOException ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot spill live samples to disk", ex); //$NON-NLS-1$
+                failed = true;
+                return true;
+            }
+            addSegment(last);
+        }
+        // Down-sampling or dropping the oldest segment changes the existing samples
+        final boolean changed = size != old_size;
+        columns.write(slot, last.buffer, last.count * SampleColumns.RECORD_BYTES);
+        ++last.count;
+        ++size;
+        return changed;
+    }
+
+    /** @return New segment, from free list or appended to file
+     *  @throws IOException on error
+     */
+    private Segment allocate() throws IOException
+    {
+        if (free.isEmpty()  &&  allocated >= max_segments)
+        {   // Drop oldest segment
+            final Segment oldest = segments.remove(0);
+            if (downsampled > 0)
+                --downsampled;
+            free.add(oldest);
+            updateStarts();
+        }
+        if (! free.isEmpty())
+        {
+            final Segment segment = free.remove(free.size()-1);
+            segment.count = 0;
+            segment.downsampled = false;
+            return segment;
+        }
+        if (file == null)
+        {
+            final Path path = Files.createTempFile("databrowser_live", ".spill"); //$NON-NLS-1$ //$NON-NLS-2$
+            path.toFile().deleteOnExit();
+            file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                    StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        final MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_WRITE, (long) allocated * SEGMENT_BYTES, SEGMENT_BYTES);
+        ++allocated;
+        return new Segment(buffer);
+    }
+
+    /** @param segment Segment to add at end */
+    private void addSegment(final Segment segment)
+    {
+        segments.add(segment);
+        updateStarts();
+    }
+
+    /** Update start index of each segment and total size */
+    private void updateStarts()
+    {
+        if (starts.length < segments.size())
+            starts = new int[2 * segments.size()];
+        int start = 0;
+        for (int i=0; i<segments.size(); ++i)
+        {
+            starts[i] = start;
+            start += segments.get(i).count;
+        }
+        size = start;
+    }
+
+    /** Down-sample the oldest raw segment
+     *  and append the result to the down-sampled segments
+     */
+    private void downsampleOldestRaw()
+    {
+        final Segment raw = segments.get(downsampled);
+        // Compact in place: Each output record is written at-or-before the records it's computed from
+        final int count = compact(raw);
+        raw.count = count;
+        raw.downsampled = true;
+
+        // Merge into the previous down-sampled segment if there's room
+        if (downsampled > 0)
+        {
+            final Segment previous = segments.get(downsampled-1);
+            if (previous.count + count <= SEGMENT_SAMPLES)
+            {
+                final ByteBuffer source = raw.buffer.duplicate();
+                source.position(0).limit(count * SampleColumns.RECORD_BYTES);
+                final ByteBuffer target = previous.buffer.duplicate();
+                target.position(previous.count * SampleColumns.RECORD_BYTES);
+                target.put(source);
+                previous.count += count;
+                segments.remove(downsampled);
+                free.add(raw);
+                updateStarts();
+                return;
+            }
+        }
+        ++downsampled;
+        updateStarts();
+    }
+
+    /** @param segment Segment of raw samples to down-sample in place
+     *  @return Number of down-sampled records
+     */
+    private static int compact(final Segment segment)
+    {
+        final MappedByteBuffer buffer = segment.buffer;
+        final int R = SampleColumns.RECORD_BYTES;
+        int out = 0;
+        int bucket = 0;
+        // Running statistics of current bucket
+        long time = 0;
+        double sum = 0, sum2 = 0, min = 0, max = 0;
+        long n = 0;
+        byte severity = 0;
+        short status = 0, source = 0;
+        for (int i=0; i<segment.count; ++i)
+        {
+            final int offset = i*R;
+            final double value = buffer.getDouble(offset + 8);
+            if (Double.isNaN(value))
+            {   // Keep gap as is
+                if (bucket > 0)
+                    out = writeStatistics(buffer, out, time, sum, sum2, min, max, n, severity, status, source);
+                bucket = 0;
+                copyRecord(buffer, offset, out++);
+                continue;
+            }
+            // Raw samples have count 1 and NaN min/max/std.dev.
+            final int count = Math.max(1, buffer.getInt(offset + 40));
+            final double s_min = buffer.getDouble(offset + 16);
+            final double s_max = buffer.getDouble(offset + 24);
+            final double dev = buffer.getDouble(offset + 32);
+            final double s_dev = Double.isNaN(dev) ? 0.0 : dev;
+            final byte s_severity = buffer.get(offset + 49);
+            if (bucket == 0)
+            {
+                time = buffer.getLong(offset);
+                sum = sum2 = 0;
+                n = 0;
+                min = Double.POSITIVE_INFINITY;
+                max = Double.NEGATIVE_INFINITY;
+                severity = s_severity;
+                status = buffer.getShort(offset + 44);
+                source = buffer.getShort(offset + 46);
+            }
+            else if (s_severity > severity)
+            {
+                severity = s_severity;
+                status = buffer.getShort(offset + 44);
+            }
+            sum += count * value;
+            sum2 += count * (s_dev*s_dev + value*value);
+            n += count;
+            min = Math.min(min, Double.isNaN(s_min) ? value : s_min);
+            max = Math.max(max, Double.isNaN(s_max) ? value : s_max);
+            if (++bucket >= DOWNSAMPLE)
+            {
+                out = writeStatistics(buffer, out, time, sum, sum2, min, max, n, severity, status, source);
+                bucket = 0;
+            }
+        }
+        if (bucket > 0)
+            out = writeStatistics(buffer, out, time, sum, sum2, min, max, n, severity, status, source);
+        return out;
+    }
+
+    /** Write statistics record
+     *  @return Index of next record
+     */
+    private static int writeStatistics(final MappedByteBuffer buffer, final int index, final long time,
+                                       final double sum, final double sum2, final double min, final double max,
+                                       final long n, final byte severity, final short status, final short source)
+    {
+        final int offset = index * SampleColumns.RECORD_BYTES;
+        final double average = sum / n;
+        buffer.putLong(offset, time);
+        buffer.putDouble(offset + 8, average);
+        buffer.putDouble(offset + 16, min);
+        buffer.putDouble(offset + 24, max);
+        buffer.putDouble(offset + 32, Math.sqrt(Math.max(0.0, sum2 / n - average*average)));
+        buffer.putInt(offset + 40, (int) Math.min(Integer.MAX_VALUE, n));
+        buffer.putShort(offset + 44, status);
+        buffer.putShort(offset + 46, source);
+        buffer.put(offset + 48, SampleColumns.KIND_STATISTICS);
+        buffer.put(offset + 49, severity);
+        return index + 1;
+    }
+
+    /** @param buffer Buffer
+     *  @param offset Offset of record to copy
+     *  @param index Index where to place the copy
+     */
+    private static void copyRecord(final MappedByteBuffer buffer, final int offset, final int index)
+    {
+        final int target = index * SampleColumns.RECORD_BYTES;
+        if (target == offset)
+            return;
+        for (int i=0; i<SampleColumns.RECORD_BYTES; ++i)
+            buffer.put(target + i, buffer.get(offset + i));
+    }
+
+    /** Delete all samples, close file */
+    void clear()
+    {
+        segments.clear();
+        free.clear();
+        allocated = downsampled = size = 0;
+        display = null;
+        failed = false;
+        if (file != null)
+        {
+            try
+            {
+                file.close();
+            }
+            catch (IOException ex)
+            {
+                Activator.getLogger().log(Level.WARNING, "Cannot close live sample spill file", ex); //$NON-NLS-1$
+            }
+            file = null;
+        }
+    }
+}
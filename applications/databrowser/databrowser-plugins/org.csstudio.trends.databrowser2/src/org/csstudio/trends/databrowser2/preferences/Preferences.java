@@ -50,6 +50,8 @@ public class Preferences
      */
     final public static String TIME_SPAN = "time_span",
             SCAN_PERIOD = "scan_period", BUFFER_SIZE = "live_buffer_size",
+            LIVE_SPILL = "live_spill", LIVE_SPILL_RAW_SAMPLES = "live_spill_raw_samples",
+            LIVE_SPILL_MAX_MB = "live_spill_max_mb",
             UPDATE_PERIOD = "update_period", LINE_WIDTH = "line_width",
             OPACITY = "opacity",
             TRACE_TYPE = "trace_type",
@@ -110,6 +112,34 @@ public class Preferences
         return prefs.getInt(Activator.PLUGIN_ID, BUFFER_SIZE, 5000, null);
     }
 
+    /** @return <code>true</code> if samples that drop out of the live sample buffer are kept on disk */
+    public static boolean isLiveSampleSpillEnabled()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null) // Allow some JUnit tests without prefs
+            return false;
+        return prefs.getBoolean(Activator.PLUGIN_ID, LIVE_SPILL, false, null);
+    }
+
+    /** @return Number of spilled live samples to keep before down-sampling them */
+    public static int getLiveSampleSpillRawSamples()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        if (prefs == null) // Allow some JUnit tests without prefs
+            return 1000000;
+        return prefs.getInt(Activator.PLUGIN_ID, LIVE_SPILL_RAW_SAMPLES, 1000000, null);
+    }
+
+    /** @return Maximum size of the spill file for each item in bytes */
+    public static long getLiveSampleSpillMaxSize()
+    {
+        final IPreferencesService prefs = Platform.getPreferencesService();
+        int mb = 200;
+        if (prefs != null)
+            mb = prefs.getInt(Activator.PLUGIN_ID, LIVE_SPILL_MAX_MB, mb, null);
+        return mb * 1024L * 1024L;
+    }
+
     public static double getUpdatePeriod()
     {
         final IPreferencesService prefs = Platform.getPreferencesService();
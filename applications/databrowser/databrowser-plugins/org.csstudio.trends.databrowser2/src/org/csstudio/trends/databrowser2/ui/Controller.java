@@ -661,7 +661,7 @@ public class Controller
         }
     }
 
-    /** Stop scrolling and model items
+    /** Stop scrolling and model items, release their samples
      *  @throws IllegalStateException when not running
      */
     public void stop()
@@ -677,6 +677,7 @@ public class Controller
         }
         // Stop update task
         model.stop();
+        model.dispose();
         model.removeListener(model_listener);
         update_task.cancel(true);
         update_task = null;
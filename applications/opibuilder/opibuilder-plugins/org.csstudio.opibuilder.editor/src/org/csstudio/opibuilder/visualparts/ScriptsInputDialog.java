@@ -69,6 +69,7 @@ public class ScriptsInputDialog extends HelpTrayDialog {
     private Button skipFirstExecutionButton;
     private Button checkConnectivityButton;
     private Button stopExecuteOnErrorButton;
+    private Button backgroundButton;
 
     private List<ScriptData> scriptDataList;
     private String title;
@@ -302,6 +303,33 @@ public class ScriptsInputDialog extends HelpTrayDialog {
         gd.minimumHeight = preferredSize.y;
         stopExecuteOnErrorButton.setLayoutData(gd);
 
+        backgroundButton = new Button(optionTabComposite, SWT.CHECK|SWT.WRAP);
+        backgroundButton.setSelection(false);
+        backgroundButton.setText(
+                "Execute the script in a background thread.");
+        backgroundButton.setToolTipText(
+                "Only select this option if the script changes widgets through\n" +
+                "widget.setPropertyValue() and does not access SWT or GEF objects.\n" +
+                "The property changes are applied in the UI thread after the script ran.\n" +
+                "Requires background script execution to be enabled in the preferences.");
+        backgroundButton.setEnabled(false);
+        backgroundButton.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                IStructuredSelection selection =
+                    (IStructuredSelection) scriptsViewer.getSelection();
+                if(!selection.isEmpty()){
+                    ((ScriptData)selection.getFirstElement()).setBackground(
+                            backgroundButton.getSelection());
+                }
+            }
+        });
+        gd = new GridData(SWT.FILL, SWT.FILL, true, false);
+        preferredSize = backgroundButton.computeSize(SWT.DEFAULT, SWT.DEFAULT);
+        gd.widthHint = preferredSize.x;
+        gd.minimumHeight = preferredSize.y;
+        backgroundButton.setLayoutData(gd);
+
         if(scriptDataList.size() > 0){
             setScriptsViewerSelection(scriptDataList.get(0));
             checkConnectivityButton.setSelection(
@@ -310,6 +338,8 @@ public class ScriptsInputDialog extends HelpTrayDialog {
                     scriptDataList.get(0).isSkipPVsFirstConnection());
             stopExecuteOnErrorButton.setSelection(
                     scriptDataList.get(0).isStopExecuteOnError());
+            backgroundButton.setSelection(
+                    scriptDataList.get(0).isBackground());
 
         }
         return parent_Composite;
@@ -343,6 +373,9 @@ public class ScriptsInputDialog extends HelpTrayDialog {
             stopExecuteOnErrorButton.setSelection(((ScriptData) selection
                     .getFirstElement()).isStopExecuteOnError());
             stopExecuteOnErrorButton.setEnabled(true);
+            backgroundButton.setSelection(((ScriptData) selection
+                    .getFirstElement()).isBackground());
+            backgroundButton.setEnabled(true);
 
         } else {
             removeAction.setEnabled(false);
@@ -354,6 +387,7 @@ public class ScriptsInputDialog extends HelpTrayDialog {
             checkConnectivityButton.setEnabled(false);
             skipFirstExecutionButton.setEnabled(false);
             stopExecuteOnErrorButton.setEnabled(false);
+            backgroundButton.setEnabled(false);
         }
     }
 
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.XMLTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.opibuilder.model.AbstractContainerModel;
+import org.csstudio.opibuilder.model.AbstractLinkingContainerModel;
+import org.csstudio.opibuilder.model.AbstractWidgetModel;
+import org.csstudio.opibuilder.model.DisplayModel;
+import org.csstudio.opibuilder.persistence.DisplayModelLoader;
+import org.csstudio.opibuilder.persistence.XMLUtil;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.junit.Test;
+
+/** JUnit test of the {@link DisplayModelLoader}
+ *
+ *  <p>Compares the model of an OPI with a linking container
+ *  to the one created by {@link XMLUtil}.
+ */
+@SuppressWarnings("nls")
+public class DisplayModelLoaderIT
+{
+    private static final String OPI = "opi/macros_test/MacrosTest_Target.opi";
+
+    /** @param streaming Use the {@link DisplayModelLoader}, or {@link XMLUtil}?
+     *  @return Display model of the test OPI
+     */
+    private static DisplayModel load(final boolean streaming) throws Exception
+    {
+        final IPath path = new Path(new File(OPI).getAbsolutePath());
+        final DisplayModel model = new DisplayModel(path);
+        if (streaming)
+            DisplayModelLoader.fillDisplayModel(new FileInputStream(path.toFile()), model, null, null);
+        else
+            XMLUtil.fillDisplayModelFromInputStream(new FileInputStream(path.toFile()), model);
+        return model;
+    }
+
+    /** @return Names of all widgets in the container, depth first */
+    private static List<String> getNames(final AbstractContainerModel container)
+    {
+        final List<String> names = new ArrayList<>();
+        for (AbstractWidgetModel widget : container.getAllDescendants())
+            names.add(widget.getName());
+        return names;
+    }
+
+    private static AbstractLinkingContainerModel getLinkingContainer(final DisplayModel model)
+    {
+        final AbstractWidgetModel widget = model.getChildByName("Linking Container");
+        assertNotNull(widget);
+        return (AbstractLinkingContainerModel) widget;
+    }
+
+    @Test
+    public void testLinkingContainer() throws Exception
+    {
+        final DisplayModel expected = load(false);
+        final DisplayModel model = load(true);
+        assertEquals(getNames(expected), getNames(model));
+
+        // Linked display is loaded with its own BOY version, which is checked like the one of the display
+        final DisplayModel expected_inside = getLinkingContainer(expected).getDisplayModel();
+        final AbstractLinkingContainerModel container = getLinkingContainer(model);
+        final DisplayModel inside = container.getDisplayModel();
+        assertNotNull(inside);
+        assertEquals(container.getOPIFilePath(), inside.getOpiFilePath());
+        assertSame(model, inside.getParentDisplayModel());
+        assertEquals(expected_inside.getBOYVersion(), inside.getBOYVersion());
+        assertEquals(getNames(expected_inside), getNames(inside));
+        assertNotNull(inside.getChildByName("group"));
+    }
+}
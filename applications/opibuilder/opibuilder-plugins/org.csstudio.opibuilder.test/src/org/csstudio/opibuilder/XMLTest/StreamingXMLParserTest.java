@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.XMLTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.opibuilder.persistence.LineAwareXMLParser.LineAwareElement;
+import org.csstudio.opibuilder.persistence.StreamingXMLParser;
+import org.jdom.Element;
+import org.junit.Test;
+
+/** JUnit test of the {@link StreamingXMLParser} */
+public class StreamingXMLParserTest
+{
+    private static final String OPI =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<display typeId=\"org.csstudio.opibuilder.Display\" version=\"1.0.0\">\n" +
+        "  <name>Test</name>\n" +
+        "  <widget typeId=\"org.csstudio.opibuilder.widgets.groupingContainer\" version=\"1.0.0\">\n" +
+        "    <name>Group</name>\n" +
+        "    <widget typeId=\"org.csstudio.opibuilder.widgets.Label\" version=\"1.0.0\">\n" +
+        "      <text><![CDATA[a < b]]></text>\n" +
+        "      <color><color red=\"255\" green=\"0\" blue=\"0\" /></color>\n" +
+        "    </widget>\n" +
+        "  </widget>\n" +
+        "  <widget typeId=\"org.csstudio.opibuilder.widgets.Label\" version=\"1.0.0\">\n" +
+        "    <name>Label</name>\n" +
+        "  </widget>\n" +
+        "  <width>800</width>\n" +
+        "  <connection typeId=\"org.csstudio.opibuilder.connection\" version=\"1.0.0\" />\n" +
+        "</display>\n";
+
+    @Test
+    public void testStreaming() throws Exception
+    {
+        final List<String> events = new ArrayList<>();
+        final List<Element> widgets = new ArrayList<>();
+        final LineAwareElement root = StreamingXMLParser.parse(new ByteArrayInputStream(OPI.getBytes("UTF-8")),
+            new StreamingXMLParser.Listener()
+            {
+                @Override
+                public void displayPropertiesRead(final Element display_element)
+                {
+                    events.add("properties " + display_element.getChildText("name"));
+                }
+
+                @Override
+                public void topWidgetRead(final Element widget_element)
+                {
+                    events.add("widget " + widget_element.getChildText("name"));
+                    assertNull(widget_element.getParent());
+                    widgets.add(widget_element);
+                }
+            });
+        assertEquals("[properties Test, widget Group, widget Label]", events.toString());
+
+        // Top level widgets are detached, properties and connections remain
+        assertEquals("display", root.getName());
+        assertEquals(2, root.getLineNumber());
+        assertEquals("1.0.0", root.getAttributeValue("version"));
+        assertTrue(root.getChildren("widget").isEmpty());
+        assertEquals("800", root.getChildText("width"));
+        assertEquals(1, root.getChildren("connection").size());
+
+        // Nested widgets stay within their container
+        final Element label = widgets.get(0).getChild("widget");
+        assertEquals("a < b", label.getChildText("text"));
+        assertEquals("255", label.getChild("color").getChild("color").getAttributeValue("red"));
+        assertEquals(6, ((LineAwareElement) label).getLineNumber());
+    }
+
+    @Test
+    public void testSingleWidget() throws Exception
+    {
+        final LineAwareElement root = StreamingXMLParser.parse(new ByteArrayInputStream(
+                "<widget typeId=\"x\"><name>W</name></widget>".getBytes("UTF-8")),
+            new StreamingXMLParser.Listener()
+            {
+                @Override
+                public void displayPropertiesRead(final Element display_element)
+                {
+                    throw new IllegalStateException();
+                }
+
+                @Override
+                public void topWidgetRead(final Element widget_element)
+                {
+                    throw new IllegalStateException();
+                }
+            });
+        assertEquals("W", root.getChildText("name"));
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link CoalescingExecution} used for background scripts */
+@SuppressWarnings("nls")
+public class CoalescingExecutionTest
+{
+    @Test(timeout=10000)
+    public void testCoalescing() throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> executed = new CopyOnWriteArrayList<>();
+        final CoalescingExecution<String> execution = new CoalescingExecution<>(request ->
+        {
+            executed.add(request);
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException ex)
+            {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        // First request starts the task
+        execution.submit(executor, "first");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Requests arriving while it runs replace each other
+        for (int i=1; i<=5; ++i)
+            execution.submit(executor, "trigger" + i);
+        assertEquals(4, execution.getCoalesced());
+
+        // Once released, the task runs once more with the latest request
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, executed.size());
+        assertEquals("first", executed.get(0));
+        assertEquals("trigger5", executed.get(1));
+    }
+
+    @Test(timeout=10000)
+    public void testSequentialRequests() throws Exception
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final List<Integer> executed = new CopyOnWriteArrayList<>();
+        final CoalescingExecution<Integer> execution = new CoalescingExecution<>(executed::add);
+
+        // Requests that arrive after the previous one completed are all executed
+        for (int i=0; i<3; ++i)
+        {
+            execution.submit(executor, i);
+            final long end = System.currentTimeMillis() + 5000;
+            while (executed.size() <= i  &&  System.currentTimeMillis() < end)
+                Thread.sleep(10);
+        }
+        assertEquals(3, executed.size());
+        assertEquals(0, execution.getCoalesced());
+
+        // Shut down executor is reported, and execution can be retried elsewhere
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        try
+        {
+            execution.submit(executor, 3);
+            fail("Accepted request for shut down executor");
+        }
+        catch (RejectedExecutionException ex)
+        {
+            // Expected
+        }
+        execution.submit(Runnable::run, 4);
+        assertEquals(Integer.valueOf(4), executed.get(3));
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.csstudio.opibuilder.model.AbstractWidgetModel;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+/** JUnit test of the {@link PropertyChangeSet} used for background scripts */
+@SuppressWarnings("nls")
+public class PropertyChangeSetTest
+{
+    @Test
+    public void testCaptureAndApply() throws Exception
+    {
+        final AbstractWidgetModel widget = mock(AbstractWidgetModel.class);
+        final AbstractWidgetModel other = mock(AbstractWidgetModel.class);
+
+        // Without active change set, changes are applied right away
+        assertFalse(PropertyChangeSet.capture(widget, "text", "a", null));
+
+        final PropertyChangeSet changes = new PropertyChangeSet();
+        changes.begin();
+        try
+        {
+            assertTrue(PropertyChangeSet.capture(widget, "text", "b", null));
+            assertTrue(PropertyChangeSet.capture(other, "visible", false, null));
+            assertTrue(PropertyChangeSet.capture(widget, "text", "c", true));
+
+            // Change set only applies to the thread that began it
+            final AtomicBoolean captured = new AtomicBoolean(true);
+            final Thread thread = new Thread(() -> captured.set(PropertyChangeSet.capture(widget, "text", "x", null)));
+            thread.start();
+            thread.join();
+            assertFalse(captured.get());
+        }
+        finally
+        {
+            changes.end();
+        }
+        assertFalse(PropertyChangeSet.capture(widget, "text", "d", null));
+
+        // Nothing was applied while recording
+        verifyZeroInteractions(widget, other);
+        assertEquals(3, changes.size());
+
+        // Applied in original order, with the force flag where given
+        changes.apply();
+        final InOrder order = inOrder(widget, other);
+        order.verify(widget).setPropertyValue("text", "b");
+        order.verify(other).setPropertyValue("visible", false);
+        order.verify(widget).setPropertyValue("text", "c", true);
+        verifyNoMoreInteractions(widget, other);
+        assertTrue(changes.isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ImporterTopLevel;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+/** Compare rule throughput of the {@link RuleEvaluator} with Rhino
+ *
+ *  <p>The Rhino variant runs the same kind of if/else chain that
+ *  {@link RuleData#generateScript()} creates, with the PV values
+ *  already available as script variables.
+ */
+@SuppressWarnings("nls")
+public class RuleEvaluatorBenchmark
+{
+    private static final long RUNTIME_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final List<Expression> EXPRESSIONS = Arrays.asList(
+        new Expression("pv0 > 5 && pvSev1 == 0", "red"),
+        new Expression("pv0 > 2 || pv1 < -2", "yellow"),
+        new Expression("pv0 + pv1 == 0", "blue"));
+
+    private static volatile Object result;
+
+    public static void main(String[] args)
+    {
+        final RuleEvaluator rule = RuleEvaluator.compile(2, EXPRESSIONS, false, "green");
+        final RuleEvaluator.Inputs inputs = new RuleEvaluator.Inputs(2);
+        long count = 0;
+        long start = System.currentTimeMillis();
+        long end = start + RUNTIME_MS;
+        while (System.currentTimeMillis() < end)
+        {
+            for (int i=0; i<1000; ++i)
+            {
+                inputs.pv[0] = i % 10;
+                inputs.pv[1] = -(i % 7);
+                inputs.pvSev[1] = i % 3;
+                result = rule.evaluate(inputs);
+            }
+            count += 1000;
+        }
+        final double compiled = count * 1000.0 / (System.currentTimeMillis() - start);
+        System.out.format("Compiled rule: %12.0f rules/sec\n", compiled);
+
+        final StringBuilder script = new StringBuilder();
+        for (int i=0; i<EXPRESSIONS.size(); ++i)
+        {
+            script.append(i == 0 ? "if(" : "else if(")
+                  .append(EXPRESSIONS.get(i).getBooleanExpression())
+                  .append(")\n\tresult = \"").append(EXPRESSIONS.get(i).getValue()).append("\";\n");
+        }
+        script.append("else\n\tresult = \"green\";\n");
+
+        final Context context = Context.enter();
+        try
+        {
+            final Scriptable scope = new ImporterTopLevel(context);
+            final Script compiled_script = context.compileString(script.toString(), "rule", 1, null);
+            count = 0;
+            start = System.currentTimeMillis();
+            end = start + RUNTIME_MS;
+            while (System.currentTimeMillis() < end)
+            {
+                for (int i=0; i<1000; ++i)
+                {
+                    ScriptableObject.putProperty(scope, "pv0", Double.valueOf(i % 10));
+                    ScriptableObject.putProperty(scope, "pv1", Double.valueOf(-(i % 7)));
+                    ScriptableObject.putProperty(scope, "pvSev1", Integer.valueOf(i % 3));
+                    compiled_script.exec(context, scope);
+                    result = scope.get("result", scope);
+                }
+                count += 1000;
+            }
+        }
+        finally
+        {
+            Context.exit();
+        }
+        final double rhino = count * 1000.0 / (System.currentTimeMillis() - start);
+        System.out.format("Rhino script : %12.0f rules/sec\n", rhino);
+        System.out.format("Speedup      : %12.1f\n", compiled / rhino);
+    }
+}
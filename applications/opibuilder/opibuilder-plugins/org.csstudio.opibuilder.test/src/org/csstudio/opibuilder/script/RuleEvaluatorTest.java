@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/** JUnit test of the {@link RuleEvaluator} */
+@SuppressWarnings("nls")
+public class RuleEvaluatorTest
+{
+    private static RuleEvaluator compile(final int pv_count, final String condition)
+    {
+        return RuleEvaluator.compile(pv_count, Arrays.asList(new Expression(condition, "yes")), false, "no");
+    }
+
+    private static Object evaluate(final String condition, final double pv0, final double pv1)
+    {
+        final RuleEvaluator rule = compile(2, condition);
+        assertNotNull("Cannot compile " + condition, rule);
+        final RuleEvaluator.Inputs inputs = new RuleEvaluator.Inputs(2);
+        inputs.pv[0] = pv0;
+        inputs.pv[1] = pv1;
+        inputs.pvInt[0] = (long) pv0;
+        inputs.pvInt[1] = (long) pv1;
+        inputs.pvStr[0] = "Text" + (long) pv0;
+        inputs.pvStr[1] = "";
+        inputs.pvSev[0] = 0;
+        inputs.pvSev[1] = 2;
+        return rule.evaluate(inputs);
+    }
+
+    @Test
+    public void testConditions()
+    {
+        assertEquals("yes", evaluate("pv0 > 5", 6, 0));
+        assertEquals("no", evaluate("pv0 > 5", 5, 0));
+        assertEquals("yes", evaluate("pv0>=5&&pv1<1", 5, 0));
+        assertEquals("yes", evaluate("pv0 == 1 || pv1 == 1", 0, 1));
+        assertEquals("yes", evaluate("!(pv0 > 5)", 1, 0));
+        assertEquals("yes", evaluate("pv0 + 2 * pv1 == 7", 1, 3));
+        assertEquals("yes", evaluate("(pv0 + 2) * pv1 == 9", 1, 3));
+        assertEquals("yes", evaluate("-pv0 < -2 && pv0 % 2 == 1", 3, 0));
+        assertEquals("yes", evaluate("pvInt0 == 3", 3.7, 0));
+        assertEquals("yes", evaluate("pvSev1 == 2 && pvSev0 != 2", 0, 0));
+        assertEquals("yes", evaluate("pvStr0 == \"Text4\"", 4, 0));
+        assertEquals("yes", evaluate("pvStr0 != 'Text4'", 5, 0));
+        assertEquals("no", evaluate("pvStr1", 5, 0));
+        assertEquals("yes", evaluate("pv0", 5, 0));
+        assertEquals("no", evaluate("pv0", Double.NaN, 0));
+        assertEquals("yes", evaluate("true", 0, 0));
+        assertEquals("yes", evaluate("1e3 == 1000.0", 0, 0));
+        assertEquals("yes", evaluate("(pv0 > 5) == true", 6, 0));
+    }
+
+    @Test
+    public void testOutputExpressions()
+    {
+        final RuleEvaluator rule = RuleEvaluator.compile(1,
+                Arrays.asList(new Expression("pv0 > 5", "pv0 * 2"),
+                              new Expression("pv0 > 0", "'Value ' + pv0"),
+                              new Expression("pv0 < -5", "pv0 < -10")),
+                true, "none");
+        assertNotNull(rule);
+        final RuleEvaluator.Inputs inputs = new RuleEvaluator.Inputs(1);
+        inputs.pv[0] = 6;
+        assertEquals(12.0, rule.evaluate(inputs));
+        inputs.pv[0] = 3;
+        assertEquals("Value 3", rule.evaluate(inputs));
+        inputs.pv[0] = 2.5;
+        assertEquals("Value 2.5", rule.evaluate(inputs));
+        inputs.pv[0] = -20;
+        assertEquals(Boolean.TRUE, rule.evaluate(inputs));
+        inputs.pv[0] = 0;
+        assertEquals("none", rule.evaluate(inputs));
+        assertTrue(rule.usesPV());
+        assertFalse(rule.usesPVStr());
+    }
+
+    @Test
+    public void testUnsupported()
+    {
+        assertNull(compile(1, "pv1 > 5"));
+        assertNull(compile(1, "Math.abs(pv0) > 5"));
+        assertNull(compile(1, "pv0 > 5 ? true : false"));
+        assertNull(compile(1, "pvStr0 > 5"));
+        assertNull(compile(1, "pv0 = 5"));
+        assertNull(compile(1, "pv0++ > 5"));
+        assertNull(compile(1, "widget.getPropertyValue('x')"));
+        assertNull(compile(1, "(pv0 > 5"));
+        assertNull(compile(1, "pv0 > 5;"));
+        assertNull(compile(1, "true === 1"));
+        assertNull(RuleEvaluator.compile(1, Arrays.asList(new Expression("pv0 > 5", "pv0 && 'x'")), true, null));
+    }
+}
@@ -67,6 +67,7 @@ public class IntensityGraphEditPart extends AbstractPVWidgetEditPart {
     protected IFigure doCreateFigure() {
         IntensityGraphModel model = getWidgetModel();
         graph = new IntensityGraphFigure(getExecutionMode() == ExecutionMode.RUN_MODE);
+        graph.setRenderInBackground(getExecutionMode() == ExecutionMode.RUN_MODE);
         graph.setMin(model.getMinimum());
         graph.setMax(model.getMaximum());
         graph.setDataWidth(model.getDataWidth());
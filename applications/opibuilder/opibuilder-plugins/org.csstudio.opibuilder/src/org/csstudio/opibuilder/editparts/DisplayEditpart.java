@@ -11,7 +11,9 @@ import org.csstudio.opibuilder.OPIBuilderPlugin;
 import org.csstudio.opibuilder.model.AbstractWidgetModel;
 import org.csstudio.opibuilder.model.ConnectionModel;
 import org.csstudio.opibuilder.model.DisplayModel;
+import org.csstudio.opibuilder.preferences.PreferencesHelper;
 import org.csstudio.opibuilder.properties.IWidgetPropertyChangeHandler;
+import org.csstudio.opibuilder.script.ScriptExecutionPool;
 import org.csstudio.opibuilder.util.OPIColor;
 import org.csstudio.ui.util.ColorConstants;
 import org.csstudio.ui.util.CustomMediaFactory;
@@ -53,6 +55,9 @@ public class DisplayEditpart extends AbstractContainerEditpart {
 
     private org.eclipse.swt.graphics.Point originSize, oldSize;
 
+    /** Thread pool for the scripts of this display, created when first used. Guarded by <code>this</code> */
+    private ScriptExecutionPool scriptExecutionPool;
+
     @Override
     protected void createEditPolicies() {
         super.createEditPolicies();
@@ -181,10 +186,24 @@ public class DisplayEditpart extends AbstractContainerEditpart {
             });
 
         }
+        synchronized (this) {
+            if(scriptExecutionPool != null)
+                scriptExecutionPool.shutdown();
+        }
         super.deactivate();
 
     }
 
+    /**
+     * @return the thread pool for executing the scripts of this display in the background.
+     */
+    public synchronized ScriptExecutionPool getScriptExecutionPool() {
+        if(scriptExecutionPool == null)
+            scriptExecutionPool = new ScriptExecutionPool(getWidgetModel().getName(),
+                    PreferencesHelper.getScriptExecutionThreads());
+        return scriptExecutionPool;
+    }
+
     @Override
     public DisplayModel getWidgetModel() {
         return (DisplayModel) super.getWidgetModel();
@@ -53,6 +53,7 @@ import org.csstudio.opibuilder.properties.UnchangableStringProperty;
 import org.csstudio.opibuilder.properties.UnsavableListProperty;
 import org.csstudio.opibuilder.properties.WidgetPropertyCategory;
 import org.csstudio.opibuilder.script.PVTuple;
+import org.csstudio.opibuilder.script.PropertyChangeSet;
 import org.csstudio.opibuilder.script.RuleData;
 import org.csstudio.opibuilder.script.RulesInput;
 import org.csstudio.opibuilder.script.ScriptData;
@@ -823,12 +824,17 @@ public abstract class AbstractWidgetModel implements IAdaptable,
     @Override
     public void setPropertyValue(Object id, Object value) {
         checkPropertyExist(id);
+        // Scripts executed in the background collect their changes for the UI thread
+        if(PropertyChangeSet.capture(this, id, value, null))
+            return;
         propertyMap.get(id).setPropertyValue(value);
 
     }
 
     public void setPropertyValue(Object id, Object value, boolean forceFire) {
         checkPropertyExist(id);
+        if(PropertyChangeSet.capture(this, id, value, forceFire))
+            return;
         propertyMap.get(id).setPropertyValue(value, forceFire);
     }
 
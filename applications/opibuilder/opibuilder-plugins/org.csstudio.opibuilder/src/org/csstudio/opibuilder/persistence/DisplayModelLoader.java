@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.persistence;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import org.csstudio.opibuilder.OPIBuilderPlugin;
+import org.csstudio.opibuilder.model.AbstractContainerModel;
+import org.csstudio.opibuilder.model.AbstractLinkingContainerModel;
+import org.csstudio.opibuilder.model.AbstractWidgetModel;
+import org.csstudio.opibuilder.model.DisplayModel;
+import org.csstudio.opibuilder.persistence.LineAwareXMLParser.LineAwareElement;
+import org.csstudio.opibuilder.util.MacrosInput;
+import org.csstudio.opibuilder.util.ResourceUtil;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.swt.widgets.Display;
+import org.jdom.Element;
+
+/**Loads a {@link DisplayModel} from an OPI file without blocking the UI thread.
+ *
+ * <p>The file is streamed with StAX instead of being parsed into a JDOM document.
+ * Each top level widget is handed to a fork-join pool as soon as its end tag has been read,
+ * so widget models are constructed while the rest of the file is still being parsed.
+ * Children of large containers are again constructed in parallel,
+ * and linking containers load their opi files concurrently.
+ *
+ * <p>The result is the same model that {@link XMLUtil#fillDisplayModelFromInputStream(InputStream, DisplayModel)}
+ * creates. In RAP, where the model must be created in the UI thread, the loader falls back to {@link XMLUtil}.
+ */
+public class DisplayModelLoader {
+
+    /** Containers with fewer children build them on the current thread */
+    private static final int PARALLEL_CHILDREN_THRESHOLD = 8;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            pool ->
+            {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("OPILoader-" + thread.getPoolIndex()); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+
+    /**Load the display model in the background and hand it to the UI thread once it is complete.
+     * @param inputStream the inputstream will be closed before the display model is handed over.
+     * @param displayModel the {@link DisplayModel} to be filled.
+     * @param macrosInput macros of the display, may be null.
+     * @param display the display of the UI thread.
+     * @param onLoaded called in the UI thread with the filled display model.
+     * @param onError called in the UI thread if the display model could not be loaded.
+     */
+    public static void loadDisplayModel(final InputStream inputStream, final DisplayModel displayModel,
+            final MacrosInput macrosInput, final Display display,
+            final Consumer<DisplayModel> onLoaded, final Consumer<Exception> onError) {
+        if (OPIBuilderPlugin.isRAP()) {
+            display.asyncExec(() -> fillAndNotify(inputStream, displayModel, macrosInput, display, onLoaded, onError));
+            return;
+        }
+        POOL.execute(() -> {
+            try {
+                fillDisplayModel(inputStream, displayModel, macrosInput, display);
+            } catch (final Exception ex) {
+                display.asyncExec(() -> onError.accept(ex));
+                return;
+            }
+            display.asyncExec(() -> onLoaded.accept(displayModel));
+        });
+    }
+
+    private static void fillAndNotify(final InputStream inputStream, final DisplayModel displayModel,
+            final MacrosInput macrosInput, final Display display,
+            final Consumer<DisplayModel> onLoaded, final Consumer<Exception> onError) {
+        try {
+            XMLUtil.fillDisplayModelFromInputStream(inputStream, displayModel, display, macrosInput);
+        } catch (Exception ex) {
+            onError.accept(ex);
+            return;
+        }
+        onLoaded.accept(displayModel);
+    }
+
+    /**Fill the DisplayModel from an OPI file inputstream, using the loader pool for model construction.
+     * The calling thread is blocked until the display model is complete, so this should not be called in the UI thread.
+     * @param inputStream the inputstream will be closed in this method before return.
+     * @param displayModel the {@link DisplayModel} to be filled.
+     * @param macrosInput macros of the display, may be null.
+     * @param display the display in UI Thread, used to report warnings. May be null.
+     * @throws Exception on error
+     */
+    public static void fillDisplayModel(final InputStream inputStream, final DisplayModel displayModel,
+            final MacrosInput macrosInput, final Display display) throws Exception {
+        if (OPIBuilderPlugin.isRAP()) {
+            XMLUtil.fillDisplayModelFromInputStream(inputStream, displayModel, display, macrosInput);
+            return;
+        }
+        final long start = System.nanoTime();
+        fillDisplayModelSub(inputStream, displayModel, display, new ArrayList<IPath>(), macrosInput);
+        if (OPIBuilderPlugin.getLogger().isLoggable(Level.FINE))
+            OPIBuilderPlugin.getLogger().log(Level.FINE, "Loaded {0} in {1} ms", //$NON-NLS-1$
+                    new Object[] { displayModel.getOpiFilePath(), (System.nanoTime() - start) / 1000000 });
+    }
+
+    private static void fillDisplayModelSub(final InputStream inputStream, final DisplayModel displayModel,
+            final Display display, final List<IPath> trace, final MacrosInput macrosInput) throws Exception {
+        final List<ForkJoinTask<AbstractWidgetModel>> children = new ArrayList<>();
+        final LineAwareElement root;
+        try {
+            root = StreamingXMLParser.parse(inputStream, new StreamingXMLParser.Listener() {
+                @Override
+                public void displayPropertiesRead(final Element display_element) {
+                    // Widgets check the BOY version of the display, so set it before any widget is built
+                    XMLUtil.setPropertiesFromXML(display_element, displayModel);
+                    display_element.removeContent();
+                }
+
+                @Override
+                public void topWidgetRead(final Element widget_element) {
+                    children.add(POOL.submit(new WidgetTask(widget_element, displayModel)));
+                }
+            });
+        } finally {
+            inputStream.close();
+        }
+
+        if (root == null)
+            return;
+        if (root.getName().equals(XMLUtil.XMLTAG_DISPLAY)) {
+            // Apply display properties which were not handled before the first widget
+            XMLUtil.setPropertiesFromXML(root, displayModel);
+
+            for (ForkJoinTask<AbstractWidgetModel> task : children) {
+                final AbstractWidgetModel widget = task.get();
+                if (widget != null)
+                    displayModel.addChild(widget);
+            }
+            displayModel.processVersionDifference(displayModel.getBOYVersion());
+            fillLinkingContainers(displayModel, display, trace, macrosInput);
+        } else {
+            // Single widget or connection: nothing to stream, use the plain conversion
+            final AbstractWidgetModel widget = XMLUtil.fillWidgets(root, displayModel);
+            if (widget instanceof AbstractContainerModel)
+                fillLinkingContainers((AbstractContainerModel) widget, display, trace, macrosInput);
+        }
+        XMLUtil.fillConnections(root, displayModel);
+        XMLUtil.checkBOYVersion(displayModel, display);
+    }
+
+    /** Load the opi files of the container, if it is a linking container, and of all linking containers in it in parallel */
+    private static void fillLinkingContainers(final AbstractContainerModel container, final Display display,
+            final List<IPath> trace, final MacrosInput macrosInput) throws Exception {
+        final List<AbstractWidgetModel> widgets = new ArrayList<>();
+        widgets.add(container);
+        widgets.addAll(container.getAllDescendants());
+        final List<LinkingContainerTask> tasks = new ArrayList<>();
+        for (AbstractWidgetModel w : widgets) {
+            if (w instanceof AbstractLinkingContainerModel) {
+                final AbstractLinkingContainerModel linkingContainer = (AbstractLinkingContainerModel) w;
+                final List<IPath> containerTrace = new ArrayList<>(trace);
+                final DisplayModel inside = XMLUtil.createLinkedDisplayModel(linkingContainer, containerTrace, macrosInput);
+                if (inside != null)
+                    tasks.add(new LinkingContainerTask(linkingContainer, inside, display, containerTrace, macrosInput));
+            }
+        }
+        if (tasks.isEmpty())
+            return;
+        if (ForkJoinTask.inForkJoinPool())
+            ForkJoinTask.invokeAll(tasks);
+        else
+            POOL.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+    }
+
+    /** Build the widget model for a widget element and its children */
+    private static class WidgetTask extends RecursiveTask<AbstractWidgetModel> {
+        private static final long serialVersionUID = 1L;
+        private final Element element;
+        private final DisplayModel displayModel;
+
+        WidgetTask(final Element element, final DisplayModel displayModel) {
+            this.element = element;
+            this.displayModel = displayModel;
+        }
+
+        @Override
+        protected AbstractWidgetModel compute() {
+            final AbstractWidgetModel widget = XMLUtil.createWidgetModel(element, displayModel);
+            if (widget == null)
+                return null;
+            XMLUtil.setPropertiesFromXML(element, widget);
+
+            if (widget instanceof AbstractContainerModel) {
+                final AbstractContainerModel container = (AbstractContainerModel) widget;
+                final List<?> child_elements = element.getChildren(XMLUtil.XMLTAG_WIDGET);
+                if (child_elements.size() < PARALLEL_CHILDREN_THRESHOLD) {
+                    for (Object child : child_elements)
+                        container.addChild(new WidgetTask((Element) child, displayModel).compute());
+                } else {
+                    final List<WidgetTask> child_tasks = new ArrayList<>(child_elements.size());
+                    for (Object child : child_elements)
+                        child_tasks.add(new WidgetTask((Element) child, displayModel));
+                    invokeAll(child_tasks);
+                    // Add in file order to preserve the z-order of the children
+                    for (WidgetTask child : child_tasks)
+                        container.addChild(child.join());
+                }
+            }
+            widget.processVersionDifference(displayModel.getBOYVersion());
+            return widget;
+        }
+    }
+
+    /** Fill the display model of one linking container */
+    private static class LinkingContainerTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final AbstractLinkingContainerModel container;
+        private final DisplayModel inside;
+        private final Display display;
+        private final List<IPath> trace;
+        private final MacrosInput macrosInput;
+
+        LinkingContainerTask(final AbstractLinkingContainerModel container, final DisplayModel inside,
+                final Display display, final List<IPath> trace, final MacrosInput macrosInput) {
+            this.container = container;
+            this.inside = inside;
+            this.display = display;
+            this.trace = trace;
+            this.macrosInput = macrosInput;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                fillDisplayModelSub(ResourceUtil.pathToInputStream(inside.getOpiFilePath()), inside, display, trace, macrosInput);
+            } catch (Exception ex) {
+                OPIBuilderPlugin.getLogger().log(Level.WARNING,
+                        "Failed to load LinkingContainer opi_file " + inside.getOpiFilePath(), ex);
+            }
+            XMLUtil.attachLinkedDisplayModel(container, inside);
+        }
+    }
+}
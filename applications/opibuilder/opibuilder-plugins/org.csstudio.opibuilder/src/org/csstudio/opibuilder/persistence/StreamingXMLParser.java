@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.persistence;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.csstudio.opibuilder.persistence.LineAwareXMLParser.LineAwareElement;
+import org.jdom.Element;
+
+/**
+ * <code>StreamingXMLParser</code> reads an OPI file with StAX.
+ *
+ * <p>Unlike {@link LineAwareXMLParser}, no JDOM document is created for the whole file.
+ * Each top level widget of a display is passed to a {@link Listener} as soon as it has been read
+ * and is then detached from the display element, so it can be turned into a widget model
+ * while the remaining file is parsed.
+ * The elements carry their line numbers just like the elements of the {@link LineAwareXMLParser}.
+ */
+public class StreamingXMLParser {
+
+    /** Listener to the elements of a display file */
+    public interface Listener {
+        /** Called when the first widget of the display starts, i.e. all leading display properties have been read.
+         *  @param display_element the display element with its properties so far
+         */
+        void displayPropertiesRead(Element display_element);
+
+        /** Called when a top level widget of the display has been read.
+         *  The widget element is no longer a child of the display element.
+         *  @param widget_element the complete widget element
+         */
+        void topWidgetRead(Element widget_element);
+    }
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    /**Parse an OPI file.
+     * @param stream the input stream, will not be closed.
+     * @param listener notified about display properties and top level widgets.
+     * @return the root element. For a display, it holds its properties and connections but no widgets.
+     * @throws Exception on error
+     */
+    public static LineAwareElement parse(final InputStream stream, final Listener listener) throws Exception {
+        final XMLStreamReader reader = FACTORY.createXMLStreamReader(stream);
+        try {
+            final Deque<LineAwareElement> stack = new ArrayDeque<>();
+            LineAwareElement root = null;
+            boolean is_display = false, display_properties_read = false;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                {
+                    final LineAwareElement element = new LineAwareElement(reader.getLocalName(), null,
+                            reader.getLocation().getLineNumber());
+                    for (int i=0; i<reader.getAttributeCount(); ++i)
+                        element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    if (root == null) {
+                        root = element;
+                        is_display = XMLUtil.XMLTAG_DISPLAY.equals(element.getName());
+                    } else {
+                        if (is_display && stack.size() == 1  &&  ! display_properties_read
+                                && XMLUtil.XMLTAG_WIDGET.equals(element.getName())) {
+                            display_properties_read = true;
+                            listener.displayPropertiesRead(root);
+                        }
+                        stack.peek().addContent(element);
+                    }
+                    stack.push(element);
+                    break;
+                }
+                case XMLStreamConstants.END_ELEMENT:
+                {
+                    final LineAwareElement element = stack.pop();
+                    if (is_display && stack.size() == 1
+                            && XMLUtil.XMLTAG_WIDGET.equals(element.getName())) {
+                        element.detach();
+                        listener.topWidgetRead(element);
+                    }
+                    break;
+                }
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (! stack.isEmpty())
+                        stack.peek().addContent(reader.getText());
+                    break;
+                default:
+                    break;
+                }
+            }
+            return root;
+        } finally {
+            reader.close();
+        }
+    }
+}
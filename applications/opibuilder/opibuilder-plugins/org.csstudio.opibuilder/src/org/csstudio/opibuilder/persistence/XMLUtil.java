@@ -246,38 +246,43 @@ public class XMLUtil {
         Element root = inputStreamToXML(inputStream);
         if(root != null){
              XMLElementToWidgetSub(root, displayModel, trace, macrosInput_);
-
-             //check version
-             if(compareVersion(displayModel.getBOYVersion(),
-                     OPIBuilderPlugin.getDefault().getBundle().getVersion()) > 0){
-                final String message = displayModel.getOpiFilePath() == null ? "This OPI"
-                        : displayModel.getOpiFilePath().lastSegment()
-                                + " was created in a newer version of BOY ("
-                                + displayModel.getBOYVersion().toString()
-                                + "). It may not function properly! "
-                                + "Please update your " +
-                                (OPIBuilderPlugin.isRAP()? "WebOPI":"BOY")
-                                + " (" + OPIBuilderPlugin.getDefault().getBundle().getVersion() +
-                                ") to the latest version.";
-                if(display == null){
-                    display = Display.getDefault();
-                }
-                if (display != null)
-                    display.asyncExec(new Runnable() {
-                        @Override
-                        public void run() {
-//                            MessageDialog.openWarning(null, "Warning", message);
-                            ConsoleService.getInstance().writeWarning(message);
-                            OPIBuilderPlugin.getLogger().log(Level.WARNING,
-                                    message); //$NON-NLS-1$
-                        }
-                    });
-             }
-
+             checkBOYVersion(displayModel, display);
         }
         inputStream.close();
     }
 
+    /**Warn if the display was created by a newer version of BOY.
+     * @param displayModel the filled display model.
+     * @param display the display in UI Thread, may be null.
+     */
+    static void checkBOYVersion(final DisplayModel displayModel, Display display) {
+        if(compareVersion(displayModel.getBOYVersion(),
+                OPIBuilderPlugin.getDefault().getBundle().getVersion()) > 0){
+            final String message = displayModel.getOpiFilePath() == null ? "This OPI"
+                    : displayModel.getOpiFilePath().lastSegment()
+                            + " was created in a newer version of BOY ("
+                            + displayModel.getBOYVersion().toString()
+                            + "). It may not function properly! "
+                            + "Please update your " +
+                            (OPIBuilderPlugin.isRAP()? "WebOPI":"BOY")
+                            + " (" + OPIBuilderPlugin.getDefault().getBundle().getVersion() +
+                            ") to the latest version.";
+            if(display == null){
+                display = Display.getDefault();
+            }
+            if (display != null)
+                display.asyncExec(new Runnable() {
+                    @Override
+                    public void run() {
+//                        MessageDialog.openWarning(null, "Warning", message);
+                        ConsoleService.getInstance().writeWarning(message);
+                        OPIBuilderPlugin.getLogger().log(Level.WARNING,
+                                message); //$NON-NLS-1$
+                    }
+                });
+        }
+    }
+
     /**Fill the DisplayModel from an OPI file inputstream. In RAP, it must be called in UI Thread.
      * @param inputStream the inputstream will be closed in this method before return.
      * @param displayModel
@@ -340,32 +345,8 @@ public class XMLUtil {
     public static AbstractWidgetModel fillWidgets(Element element, DisplayModel displayModel) throws Exception{
         if(element == null) return null;
 
-        AbstractWidgetModel rootWidgetModel = null;
-
-        //Determine root widget model
-        if(element.getName().equals(XMLTAG_DISPLAY)){
-            if(displayModel != null)
-                rootWidgetModel =displayModel;
-            else
-                rootWidgetModel = new DisplayModel(null);
-        }else if(element.getName().equals(XMLTAG_WIDGET)){
-            String typeId = element.getAttributeValue(XMLATTR_TYPEID);
-            WidgetDescriptor desc = WidgetsService.getInstance().getWidgetDescriptor(typeId);
-            if(desc != null)
-                rootWidgetModel = desc.getWidgetModel();
-            if(rootWidgetModel == null){
-                String errorMessage = NLS.bind("Fail to load the widget: {0}\n " +
-                    "The widget may not exist, as a consequence, the widget will be ignored.", typeId);
-                ErrorHandlerUtil.handleError(errorMessage, new Exception("Widget does not exist."));
-                return null;
-            }
-        }else if(element.getName().equals(XMLTAG_CONNECTION)){
-            rootWidgetModel = new ConnectionModel(displayModel);
-        }else {
-            String errorMessage = "Unknown Tag: " + element.getName();
-            ConsoleService.getInstance().writeError(errorMessage);
-            return null;
-        }
+        AbstractWidgetModel rootWidgetModel = createWidgetModel(element, displayModel);
+        if(rootWidgetModel == null) return null;
 
         setPropertiesFromXML(element, rootWidgetModel);
 
@@ -387,6 +368,38 @@ public class XMLUtil {
         return rootWidgetModel;
     }
 
+    /**Create the empty widget model for an XML element, without reading any property.
+     * @param element
+     * @param displayModel the root display model. If the element is a display, this display model is returned.
+     * If this is null, a new one will be created.
+     * @return the widget model or null if the widget type or tag is unknown.
+     */
+    static AbstractWidgetModel createWidgetModel(Element element, DisplayModel displayModel) {
+        if(element.getName().equals(XMLTAG_DISPLAY)){
+            if(displayModel != null)
+                return displayModel;
+            return new DisplayModel(null);
+        }else if(element.getName().equals(XMLTAG_WIDGET)){
+            AbstractWidgetModel widgetModel = null;
+            String typeId = element.getAttributeValue(XMLATTR_TYPEID);
+            WidgetDescriptor desc = WidgetsService.getInstance().getWidgetDescriptor(typeId);
+            if(desc != null)
+                widgetModel = desc.getWidgetModel();
+            if(widgetModel == null){
+                String errorMessage = NLS.bind("Fail to load the widget: {0}\n " +
+                    "The widget may not exist, as a consequence, the widget will be ignored.", typeId);
+                ErrorHandlerUtil.handleError(errorMessage, new Exception("Widget does not exist."));
+            }
+            return widgetModel;
+        }else if(element.getName().equals(XMLTAG_CONNECTION)){
+            return new ConnectionModel(displayModel);
+        }else {
+            String errorMessage = "Unknown Tag: " + element.getName();
+            ConsoleService.getInstance().writeError(errorMessage);
+            return null;
+        }
+    }
+
     /**
      * Fill all LinkingContainers under the model.
      *
@@ -417,7 +430,7 @@ public class XMLUtil {
     }
 
     @SuppressWarnings("rawtypes")
-    private static void fillConnections(Element element, DisplayModel displayModel) throws Exception {
+    static void fillConnections(Element element, DisplayModel displayModel) throws Exception {
         if(element.getName().equals(XMLTAG_CONNECTION)) {
             ConnectionModel result = new ConnectionModel(displayModel);
             setPropertiesFromXML(element, result);
@@ -434,7 +447,7 @@ public class XMLUtil {
     }
 
     @SuppressWarnings("rawtypes")
-    private static void setPropertiesFromXML(Element element, AbstractWidgetModel model) {
+    static void setPropertiesFromXML(Element element, AbstractWidgetModel model) {
         if(model == null || element == null) return;
 
         String versionOnFile = element.getAttributeValue(XMLATTR_VERSION);
@@ -493,7 +506,31 @@ public class XMLUtil {
             final MacrosInput macrosInput_)
         throws Exception {
 
-        if(container == null) return;
+        final DisplayModel inside = createLinkedDisplayModel(container, trace, macrosInput_);
+        if(inside == null) return;
+
+        try
+        {
+            fillDisplayModelFromInputStreamSub(ResourceUtil.pathToInputStream(inside.getOpiFilePath()),
+                    inside, Display.getCurrent(), trace, macrosInput_);
+        }
+        catch (Exception ex)
+        {
+            OPIBuilderPlugin.getLogger().log(Level.WARNING, "Failed to load LinkingContainer opi_file " + inside.getOpiFilePath(), ex);
+        }
+        attachLinkedDisplayModel(container, inside);
+    }
+
+    /**Check the link trace of a LinkingContainer and create the empty display model for its opi file.
+     * @param container the LinkingContainer.
+     * @param trace opi files on the way to this container, updated by this method.
+     * @param macrosInput_ macros of the top level display, may be null.
+     * @return the display model to be filled from the resolved opi file, or null if nothing is linked.
+     * @throws Exception if the link contains loops.
+     */
+    static DisplayModel createLinkedDisplayModel(final AbstractLinkingContainerModel container, List<IPath> trace,
+            final MacrosInput macrosInput_) throws Exception {
+        if(container == null) return null;
 
         if(container.getRootDisplayModel() != null &&
                 container.getRootDisplayModel().getOpiFilePath() != null) {
@@ -517,36 +554,35 @@ public class XMLUtil {
                 final DisplayModel inside = new DisplayModel(path);
                 inside.setDisplayID(container.getRootDisplayModel(false).getDisplayID());
                 inside.setParentDisplayModel(container.getRootDisplayModel());
+                return inside;
+            }
+        }
+        return null;
+    }
 
-                try
-                {
-                    fillDisplayModelFromInputStreamSub(ResourceUtil.pathToInputStream(path), inside, Display.getCurrent(), trace, macrosInput_);
-                }
-                catch (Exception ex)
-                {
-                    OPIBuilderPlugin.getLogger().log(Level.WARNING, "Failed to load LinkingContainer opi_file " + path, ex);
-                }
-
-                // mark connection as it is loaded from linked opi
-                for(AbstractWidgetModel w : inside.getAllDescendants())
-                    for(ConnectionModel conn : w.getSourceConnections())
-                        conn.setLoadedFromLinkedOpi(true);
-
-                AbstractContainerModel loadTarget = inside;
-
-                if(!container.getGroupName().trim().equals("")){ //$NON-NLS-1$
-                    AbstractWidgetModel group =
-                            inside.getChildByName(container.getGroupName());
-                    if(group != null && group instanceof AbstractContainerModel){
-                        loadTarget = (AbstractContainerModel) group;
-                    }
-                }
-
-//                container.addChildren(loadTarget.getChildren(), true);
-
-                container.setDisplayModel(inside);
+    /**Attach the filled display model of a linked opi file to its LinkingContainer.
+     * @param container the LinkingContainer.
+     * @param inside the display model filled from the linked opi file.
+     */
+    static void attachLinkedDisplayModel(final AbstractLinkingContainerModel container, final DisplayModel inside) {
+        // mark connection as it is loaded from linked opi
+        for(AbstractWidgetModel w : inside.getAllDescendants())
+            for(ConnectionModel conn : w.getSourceConnections())
+                conn.setLoadedFromLinkedOpi(true);
+
+        AbstractContainerModel loadTarget = inside;
+
+        if(!container.getGroupName().trim().equals("")){ //$NON-NLS-1$
+            AbstractWidgetModel group =
+                    inside.getChildByName(container.getGroupName());
+            if(group != null && group instanceof AbstractContainerModel){
+                loadTarget = (AbstractContainerModel) group;
             }
         }
+
+//        container.addChildren(loadTarget.getChildren(), true);
+
+        container.setDisplayModel(inside);
     }
 
     /**Compare version without comparing qualifier.
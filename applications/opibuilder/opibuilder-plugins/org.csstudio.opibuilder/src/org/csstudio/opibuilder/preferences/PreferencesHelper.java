@@ -63,6 +63,8 @@ public class PreferencesHelper {
     public static final String SHOW_STATUS_LINE_IN_FULL_SCREEN_MODE = "show_status_line_in_full_screen_mode";//$NON-NLS-1$
     public static final String SHOW_STATUS_LINE_IN_FULL_COMPACT_MODE = "show_status_line_in_compact_mode";//$NON-NLS-1$
     public static final String URL_FILE_LOADING_TIMEOUT = "url_file_loading_timeout";//$NON-NLS-1$
+    public static final String SCRIPT_EXECUTION_THREADS = "script_execution_threads";//$NON-NLS-1$
+    public static final String SCRIPT_OVERRUN_THRESHOLD = "script_overrun_threshold";//$NON-NLS-1$
     public static final String PULSING_ALARM_MINOR_PERIOD = "pulsing_alarm_minor_period";//$NON-NLS-1$
     public static final String PULSING_ALARM_MAJOR_PERIOD = "pulsing_alarm_major_period";//$NON-NLS-1$
     public static final String OPI_SEARCH_PATH="opi_search_path"; //$NON-NLS-1$
@@ -385,6 +387,27 @@ public class PreferencesHelper {
         return service.getInt(OPIBuilderPlugin.PLUGIN_ID, URL_FILE_LOADING_TIMEOUT, 8000, null);
     }
 
+    /**
+     * @return number of threads per display for executing scripts in the background.
+     *         0 to execute all scripts in the UI thread.
+     */
+    public static int getScriptExecutionThreads(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        if(service == null)
+            return 0;
+        return service.getInt(OPIBuilderPlugin.PLUGIN_ID, SCRIPT_EXECUTION_THREADS, 0, null);
+    }
+
+    /**
+     * @return execution time in milliseconds above which a script execution is reported as overrun.
+     */
+    public static int getScriptOverrunThreshold(){
+        final IPreferencesService service = Platform.getPreferencesService();
+        if(service == null)
+            return 500;
+        return service.getInt(OPIBuilderPlugin.PLUGIN_ID, SCRIPT_OVERRUN_THRESHOLD, 500, null);
+    }
+
     /**
      * @return the absolute path of the startup opi. null if not configured.
      */
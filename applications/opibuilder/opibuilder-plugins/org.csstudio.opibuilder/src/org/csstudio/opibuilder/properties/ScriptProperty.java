@@ -39,6 +39,7 @@ public class ScriptProperty extends AbstractWidgetProperty {
 
     public static final String XML_ATTRIBUTE_SKIP_FIRST_EXECUTION = "sfe"; //$NON-NLS-1$
     public static final String XML_ATTRIBUTE_STOP_EXECUTE_ON_ERROR = "seoe"; //$NON-NLS-1$
+    public static final String XML_ATTRIBUTE_BACKGROUND = "bg"; //$NON-NLS-1$
 
     public static final String EMBEDDEDJS = "EmbeddedJs"; ////$NON-NLS-1$
     public static final String EMBEDDEDPY = "EmbeddedPy"; ////$NON-NLS-1$
@@ -134,6 +135,9 @@ public class ScriptProperty extends AbstractWidgetProperty {
             if(se.getAttributeValue(XML_ATTRIBUTE_STOP_EXECUTE_ON_ERROR) != null)
                 sd.setStopExecuteOnError(
                         Boolean.parseBoolean(se.getAttributeValue(XML_ATTRIBUTE_STOP_EXECUTE_ON_ERROR)));
+            if(se.getAttributeValue(XML_ATTRIBUTE_BACKGROUND) != null)
+                sd.setBackground(
+                        Boolean.parseBoolean(se.getAttributeValue(XML_ATTRIBUTE_BACKGROUND)));
             for(Object o : se.getChildren(XML_ELEMENT_PV)){
                 Element pve = (Element)o;
                 boolean trig = true;
@@ -172,6 +176,8 @@ public class ScriptProperty extends AbstractWidgetProperty {
                         Boolean.toString(scriptData.isSkipPVsFirstConnection()));
                 pathElement.setAttribute(XML_ATTRIBUTE_STOP_EXECUTE_ON_ERROR,
                         Boolean.toString(scriptData.isStopExecuteOnError()));
+                pathElement.setAttribute(XML_ATTRIBUTE_BACKGROUND,
+                        Boolean.toString(scriptData.isBackground()));
                 for(PVTuple pv : scriptData.getPVList()){
                     Element pvElement = new Element(XML_ELEMENT_PV);
                     pvElement.setText(pv.pvName);
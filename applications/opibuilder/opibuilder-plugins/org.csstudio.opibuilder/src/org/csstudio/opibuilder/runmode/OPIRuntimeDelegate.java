@@ -13,6 +13,7 @@ import org.csstudio.opibuilder.editparts.ExecutionMode;
 import org.csstudio.opibuilder.editparts.WidgetEditPartFactory;
 import org.csstudio.opibuilder.model.AbstractContainerModel;
 import org.csstudio.opibuilder.model.DisplayModel;
+import org.csstudio.opibuilder.persistence.DisplayModelLoader;
 import org.csstudio.opibuilder.persistence.XMLUtil;
 import org.csstudio.opibuilder.util.ErrorHandlerUtil;
 import org.csstudio.opibuilder.util.MacrosInput;
@@ -432,34 +433,35 @@ public class OPIRuntimeDelegate implements IAdaptable{
 
                     final InputStream stream = ((IRunnerInput) input)
                             .getInputStream();
-                    display.asyncExec(new Runnable() {
-
-                            @Override
-                                public void run() {
-                                    try {
-                                        if(viewer != null){
-                                            SingleSourceHelper.removePaintListener(
-                                                    viewer.getControl(), loadingMessagePaintListener);
-                                        }
-                                        MacrosInput macrosInput = ((IRunnerInput) input).getMacrosInput();
-                                        XMLUtil.fillDisplayModelFromInputStream(
-                                                stream, displayModel, null, macrosInput);
-                                        displayModel.setOpiRuntime(opiRuntime);
-                                        displayModelFilled = true;
-                                        addRunnerInputMacros(input);
-                                        if(viewer != null){
-                                            viewer.setContents(displayModel);
-                                            displayModel.setViewer(viewer);
-                                        }
-                                        updateEditorTitle();
-                                        hideCloseButton(site);
-                                    } catch (Exception e) {
-                                        ErrorHandlerUtil.handleError(
-                                                "Failed to load widget from " + input, e,
-                                                true, true);
-                                    }
-                                }
-                            });
+                    final MacrosInput macrosInput = ((IRunnerInput) input).getMacrosInput();
+                    // Widget models are built off the UI thread, the UI thread only receives the complete display
+                    DisplayModelLoader.loadDisplayModel(stream, displayModel, macrosInput, display,
+                        model ->
+                        {
+                            if(viewer != null){
+                                SingleSourceHelper.removePaintListener(
+                                        viewer.getControl(), loadingMessagePaintListener);
+                            }
+                            displayModel.setOpiRuntime(opiRuntime);
+                            displayModelFilled = true;
+                            addRunnerInputMacros(input);
+                            if(viewer != null){
+                                viewer.setContents(displayModel);
+                                displayModel.setViewer(viewer);
+                            }
+                            updateEditorTitle();
+                            hideCloseButton(site);
+                        },
+                        ex ->
+                        {
+                            if(viewer != null){
+                                SingleSourceHelper.removePaintListener(
+                                        viewer.getControl(), loadingMessagePaintListener);
+                            }
+                            ErrorHandlerUtil.handleError(
+                                    "Failed to load widget from " + input, ex,
+                                    true, true);
+                        });
 
                 } catch (final Exception e) {
                     display.asyncExec(new Runnable() {
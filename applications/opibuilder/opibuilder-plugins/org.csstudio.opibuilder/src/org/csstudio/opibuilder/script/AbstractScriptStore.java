@@ -7,11 +7,16 @@
  ******************************************************************************/
 package org.csstudio.opibuilder.script;
 
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.csstudio.opibuilder.OPIBuilderPlugin;
@@ -20,6 +25,7 @@ import org.csstudio.opibuilder.editparts.DisplayEditpart;
 import org.csstudio.opibuilder.model.AbstractLinkingContainerModel;
 import org.csstudio.opibuilder.model.AbstractWidgetModel;
 import org.csstudio.opibuilder.model.DisplayModel;
+import org.csstudio.opibuilder.preferences.PreferencesHelper;
 import org.csstudio.opibuilder.util.ConsoleService;
 import org.csstudio.opibuilder.util.ResourceUtil;
 import org.csstudio.simplepv.IPV;
@@ -47,7 +53,7 @@ public abstract class AbstractScriptStore implements IScriptStore{
 
     private Map<IPV, IPVListener> pvListenerMap;
 
-    private boolean errorInScript;
+    private volatile boolean errorInScript;
 
     volatile boolean unRegistered = false;
 
@@ -59,6 +65,15 @@ public abstract class AbstractScriptStore implements IScriptStore{
 
     private boolean triggerSuppressed = false;
 
+    /** Background execution, where triggers that arrive while the script runs are coalesced */
+    private final CoalescingExecution<IPV> backgroundExecution = new CoalescingExecution<IPV>(this::execInBackground);
+
+    /** Execution statistics, guarded by <code>this</code> */
+    private long executions, totalNanos, maxNanos;
+
+    /** Execution time above which an execution is logged */
+    private long overrunMillis;
+
     private ScriptData scriptData;
     private AbstractBaseEditPart editPart;
     private IPV[] pvArray;
@@ -134,6 +149,8 @@ public abstract class AbstractScriptStore implements IScriptStore{
 
         initScriptEngine();
 
+        overrunMillis = PreferencesHelper.getScriptOverrunThreshold();
+
         errorInScript = false;
         errorSource =(scriptData instanceof RuleScriptData ?
                 ((RuleScriptData)scriptData).getRuleData().getName() : scriptData.getPath().toString())
@@ -163,7 +180,7 @@ public abstract class AbstractScriptStore implements IScriptStore{
             @Override
             public synchronized void valueChanged(IPV pv) {
                 if (triggerSuppressed && checkPVsConnected(scriptData, pvArray)) {
-                    executeScriptInUIThread(pv);
+                    executeScript(pv);
                     triggerSuppressed = false;
                 }
             }
@@ -190,7 +207,7 @@ public abstract class AbstractScriptStore implements IScriptStore{
                     }
                 }
 
-                executeScriptInUIThread(pv);
+                executeScript(pv);
             }
 
         };
@@ -225,10 +242,21 @@ public abstract class AbstractScriptStore implements IScriptStore{
     protected abstract void compileString(String string) throws Exception;
 
     /**Compile InputStream with script engine. The stream will be closed by this method.
-     * @param reader
+     * <p>By default, the script text is read from the stream and compiled with
+     * {@link #compileString(String)}. Script engines that can compile from the stream
+     * directly should override this.
+     * @param s
      * @throws Exception
      */
-    protected abstract void compileInputStream(InputStream s) throws Exception;
+    protected void compileInputStream(InputStream s) throws Exception {
+        final StringBuilder script = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(s))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                script.append(line).append('\n');
+        }
+        compileString(script.toString());
+    }
 
     /**
      * Execute the script with script engine.
@@ -236,31 +264,115 @@ public abstract class AbstractScriptStore implements IScriptStore{
      */
     protected abstract void execScript(final IPV triggerPV) throws Exception;
 
+    /**Execute the script in the background if the display has a script thread pool
+     * and the script may be executed in the background, otherwise in the UI thread.
+     * <p>Rules only change widget properties, which are batched for the UI thread.
+     * Scripts may access widgets in other ways, so they are only executed in the
+     * background when this is enabled for the script.
+     * @param triggerPV the PV that triggers this execution.
+     */
+    private void executeScript(final IPV triggerPV) {
+        if(scriptData instanceof RuleScriptData || scriptData.isBackground()){
+            final DisplayEditpart displayEditpart = getDisplayEditPart();
+            final ExecutorService executor = displayEditpart == null ? null :
+                displayEditpart.getScriptExecutionPool().getExecutor();
+            if(executor != null){
+                try {
+                    backgroundExecution.submit(executor, triggerPV);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // Display has been closed, fall back to UI thread
+                }
+            }
+        }
+        executeScriptInUIThread(triggerPV);
+    }
+
     private void executeScriptInUIThread(final IPV triggerPV) {
         Display display = editPart.getRoot().getViewer().getControl().getDisplay();
         UIBundlingThread.getInstance().addRunnable(display, new Runnable() {
             @Override
             public void run() {
-                if ((!scriptData.isStopExecuteOnError() || !errorInScript) && !unRegistered) {
-                    try {
-                        execScript(triggerPV);
-                    } catch (Exception e) {
-                        errorInScript = true;
-                        final String notExecuteWarning = "\nThe script or rule will not be executed afterwards. " +
-                                "You can change this setting in script dialog.";
-                        final String message = NLS
-                                .bind("Error in {0}.{1}\n{2}",
-                                        new String[]{errorSource,
-                                         !scriptData.isStopExecuteOnError()? "" : notExecuteWarning, //$NON-NLS-1$
-                                                 e.toString()});
-                        ConsoleService.getInstance().writeError(message);
-                        OPIBuilderPlugin.getLogger().log(Level.WARNING, message, e);
-                    }
-                }
+                if (isExecutable())
+                    timedExecScript(triggerPV);
             }
         });
     }
 
+    /**Execute the script in a background thread, recording its property changes
+     * and applying them in the UI thread.
+     * @param triggerPV the PV that triggers this execution.
+     */
+    private void execInBackground(final IPV triggerPV) {
+        if (!isExecutable())
+            return;
+        final PropertyChangeSet changes = new PropertyChangeSet();
+        changes.begin();
+        try {
+            timedExecScript(triggerPV);
+        } finally {
+            changes.end();
+        }
+        if(changes.isEmpty())
+            return;
+        final Display display = editPart.getRoot().getViewer().getControl().getDisplay();
+        UIBundlingThread.getInstance().addRunnable(display, new Runnable() {
+            @Override
+            public void run() {
+                if(!unRegistered)
+                    changes.apply();
+            }
+        });
+    }
+
+    private boolean isExecutable() {
+        return (!scriptData.isStopExecuteOnError() || !errorInScript) && !unRegistered;
+    }
+
+    /**Execute the script, report errors and keep execution time statistics.
+     * @param triggerPV the PV that triggers this execution.
+     */
+    private void timedExecScript(final IPV triggerPV) {
+        final long start = System.nanoTime();
+        try {
+            execScript(triggerPV);
+        } catch (Exception e) {
+            errorInScript = true;
+            final String notExecuteWarning = "\nThe script or rule will not be executed afterwards. " +
+                    "You can change this setting in script dialog.";
+            final String message = NLS
+                    .bind("Error in {0}.{1}\n{2}",
+                            new String[]{errorSource,
+                             !scriptData.isStopExecuteOnError()? "" : notExecuteWarning, //$NON-NLS-1$
+                                     e.toString()});
+            ConsoleService.getInstance().writeError(message);
+            OPIBuilderPlugin.getLogger().log(Level.WARNING, message, e);
+        }
+        final long nanos = System.nanoTime() - start;
+        synchronized (this) {
+            ++executions;
+            totalNanos += nanos;
+            if(nanos > maxNanos)
+                maxNanos = nanos;
+        }
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if(millis > overrunMillis)
+            OPIBuilderPlugin.getLogger().log(Level.WARNING, "{0} took {1} ms", //$NON-NLS-1$
+                    new Object[]{errorSource, millis});
+    }
+
+    /**
+     * @return execution statistics of the script: number of executions,
+     *         average and maximum execution time, and number of triggers that were
+     *         skipped because the script was still running.
+     */
+    public synchronized String getStatistics() {
+        return NLS.bind("{0}: {1} executions, average {2} ms, max {3} ms, {4} coalesced triggers", //$NON-NLS-1$
+                new Object[]{errorSource, executions,
+                        executions == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / executions),
+                        TimeUnit.NANOSECONDS.toMillis(maxNanos), backgroundExecution.getCoalesced()});
+    }
+
     private boolean checkPVsConnected(ScriptData scriptData, IPV[] pvArray){
         if(!scriptData.isCheckConnectivity())
             return true;
@@ -278,6 +390,8 @@ public abstract class AbstractScriptStore implements IScriptStore{
         for(Entry<IPV, IPVListener> entry :  pvListenerMap.entrySet()){
             entry.getKey().removeListener(entry.getValue());
         }
+        if(OPIBuilderPlugin.getLogger().isLoggable(Level.FINE))
+            OPIBuilderPlugin.getLogger().fine(getStatistics());
     }
 
     /**
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import org.csstudio.opibuilder.OPIBuilderPlugin;
+
+/**Executes a task in the background, coalescing the requests that arrive while it runs.
+ *
+ * <p>At most one execution is active. Requests that arrive while the task runs
+ * are not queued, only the latest one is kept, and the task is executed once more
+ * with that request when the current execution completes.
+ *
+ * @param <T> type of the request, for example the PV that triggered a script.
+ */
+class CoalescingExecution<T> {
+
+    private final Consumer<T> task;
+
+    /** Is the task currently executed? Guarded by <code>this</code> */
+    private boolean running = false;
+
+    /** Latest request that arrived while the task was running. Guarded by <code>this</code> */
+    private T pending;
+
+    /** Number of requests that were replaced by a later one. Guarded by <code>this</code> */
+    private long coalesced = 0;
+
+    /**
+     * @param task the task to execute for each request.
+     */
+    CoalescingExecution(final Consumer<T> task) {
+        this.task = task;
+    }
+
+    /**Execute the task for a request, or remember the request if the task is already running.
+     * @param executor executor for the task.
+     * @param request the request, must not be null.
+     * @throws RejectedExecutionException if the executor has been shut down.
+     */
+    void submit(final Executor executor, final T request) {
+        synchronized (this) {
+            if(running){
+                if(pending != null)
+                    ++coalesced;
+                pending = request;
+                return;
+            }
+            running = true;
+        }
+        try {
+            executor.execute(() -> run(request));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                running = false;
+                pending = null;
+            }
+            throw e;
+        }
+    }
+
+    private void run(final T request) {
+        T next = request;
+        while(next != null){
+            try {
+                task.accept(next);
+            } catch (RuntimeException e) {
+                OPIBuilderPlugin.getLogger().log(Level.WARNING, "Background execution failed", e); //$NON-NLS-1$
+            }
+            synchronized (this) {
+                next = pending;
+                pending = null;
+                if(next == null)
+                    running = false;
+            }
+        }
+    }
+
+    /**
+     * @return number of requests that were skipped because a later request replaced them.
+     */
+    synchronized long getCoalesced() {
+        return coalesced;
+    }
+}
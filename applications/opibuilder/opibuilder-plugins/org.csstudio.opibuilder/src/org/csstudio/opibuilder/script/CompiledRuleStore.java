@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import org.csstudio.opibuilder.editparts.AbstractBaseEditPart;
+import org.csstudio.opibuilder.scriptUtil.PVUtil;
+import org.csstudio.simplepv.IPV;
+
+/**
+ * This is the implementation of {@link AbstractScriptStore} for rules that could be
+ * compiled into a {@link RuleEvaluator}, so no script engine is involved.
+ */
+public class CompiledRuleStore extends AbstractScriptStore{
+
+    private RuleEvaluator evaluator;
+
+    private RuleEvaluator.Inputs inputs;
+
+    private String propId;
+
+    public CompiledRuleStore(final RuleScriptData scriptData, final AbstractBaseEditPart editpart,
+            final IPV[] pvArray) throws Exception {
+        super(scriptData, editpart, pvArray);
+    }
+
+    @Override
+    protected void initScriptEngine() throws Exception {
+        // Nothing to initialize
+    }
+
+    @Override
+    protected void compileString(String string) throws Exception {
+        // The rule has already been compiled, the generated script is ignored
+        final RuleScriptData ruleScriptData = (RuleScriptData) getScriptData();
+        evaluator = ruleScriptData.getCompiledRule();
+        propId = ruleScriptData.getRuleData().getPropId();
+        inputs = new RuleEvaluator.Inputs(getPvArray().length);
+    }
+
+    @Override
+    protected void execScript(final IPV triggerPV) throws Exception {
+        final IPV[] pvs = getPvArray();
+        // Read the same PV values as the generated script would
+        for (int i=0; i<pvs.length; ++i) {
+            if (evaluator.usesPV())
+                inputs.pv[i] = PVUtil.getDouble(pvs[i]);
+            if (evaluator.usesPVInt())
+                inputs.pvInt[i] = PVUtil.getLong(pvs[i]);
+            if (evaluator.usesPVStr())
+                inputs.pvStr[i] = PVUtil.getString(pvs[i]);
+            if (evaluator.usesPVSev())
+                inputs.pvSev[i] = PVUtil.getSeverity(pvs[i]);
+        }
+        getEditPart().setPropertyValue(propId, evaluator.evaluate(inputs));
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.csstudio.opibuilder.model.AbstractWidgetModel;
+
+/**Widget property changes of a script that is executed in a background thread.
+ *
+ * <p>While a change set is active for the current thread, {@link AbstractWidgetModel#setPropertyValue(Object, Object)}
+ * records the change instead of setting the property.
+ * The recorded changes are then applied in one batch in the UI thread.
+ * Reading a property within the script returns the value from before the batch.
+ */
+public class PropertyChangeSet {
+
+    private static final ThreadLocal<PropertyChangeSet> current = new ThreadLocal<PropertyChangeSet>();
+
+    private static class Change {
+        final AbstractWidgetModel widget;
+        final Object propId;
+        final Object value;
+        final Boolean forceFire;
+
+        Change(AbstractWidgetModel widget, Object propId, Object value, Boolean forceFire) {
+            this.widget = widget;
+            this.propId = propId;
+            this.value = value;
+            this.forceFire = forceFire;
+        }
+    }
+
+    private final List<Change> changes = new ArrayList<Change>();
+
+    /**Record a property change if a change set is active for the current thread.
+     * @param widget the widget.
+     * @param propId id of the property.
+     * @param value new value.
+     * @param forceFire force flag passed to the property, or null.
+     * @return true if the change was recorded, false if it needs to be applied right away.
+     */
+    public static boolean capture(final AbstractWidgetModel widget, final Object propId,
+            final Object value, final Boolean forceFire) {
+        final PropertyChangeSet changeSet = current.get();
+        if(changeSet == null)
+            return false;
+        changeSet.changes.add(new Change(widget, propId, value, forceFire));
+        return true;
+    }
+
+    /**Start recording property changes of the current thread in this change set. */
+    public void begin() {
+        current.set(this);
+    }
+
+    /**Stop recording property changes of the current thread. */
+    public void end() {
+        current.remove();
+    }
+
+    /**
+     * @return true if no change was recorded.
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return number of recorded changes.
+     */
+    public int size() {
+        return changes.size();
+    }
+
+    /**Apply all recorded changes in the order in which they were made. Must be called in the UI thread. */
+    public void apply() {
+        for(Change change : changes){
+            if(change.forceFire == null)
+                change.widget.setPropertyValue(change.propId, change.value);
+            else
+                change.widget.setPropertyValue(change.propId, change.value, change.forceFire);
+        }
+        changes.clear();
+    }
+}
@@ -14,6 +14,7 @@ import java.io.InputStreamReader;
 
 import org.csstudio.opibuilder.editparts.AbstractBaseEditPart;
 import org.csstudio.simplepv.IPV;
+import org.eclipse.swt.widgets.Display;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.Script;
@@ -75,9 +76,22 @@ public class RhinoScriptStore extends AbstractScriptStore{
 
     @Override
     protected void execScript(final IPV triggerPV) throws Exception {
-        ScriptableObject.putProperty(scriptScope,
-                ScriptService.TRIGGER_PV, Context.javaToJS(triggerPV, scriptScope));
-        script.exec(scriptContext, scriptScope);
+        if(Display.getCurrent() != null){
+            ScriptableObject.putProperty(scriptScope,
+                    ScriptService.TRIGGER_PV, Context.javaToJS(triggerPV, scriptScope));
+            script.exec(scriptContext, scriptScope);
+            return;
+        }
+        // A Rhino context is bound to its thread, so background threads need their own.
+        // The compiled script and its scope are shared.
+        final Context cx = Context.enter();
+        try {
+            ScriptableObject.putProperty(scriptScope,
+                    ScriptService.TRIGGER_PV, Context.javaToJS(triggerPV, scriptScope));
+            script.exec(cx, scriptScope);
+        } finally {
+            Context.exit();
+        }
     }
 
 }
@@ -249,9 +249,21 @@ public class RuleData implements IAdaptable{
         RuleScriptData ruleScriptData  = new RuleScriptData(this);
         ruleScriptData.setPVList(pvList);
         ruleScriptData.setScriptString(generateScript());
+        ruleScriptData.setCompiledRule(compile());
         return ruleScriptData;
     }
 
+    /**Compile the expressions of this rule so it can be executed without script engine.
+     * @return the compiled rule or null if the rule has no expression or
+     * uses expressions which are not supported by {@link RuleEvaluator}.
+     */
+    public RuleEvaluator compile(){
+        if(expressionList.size() <=0)
+            return null;
+        return RuleEvaluator.compile(pvList.size(), expressionList, outputExpValue,
+                getProperty().getPropertyValue());
+    }
+
     @Override
     public <T> T getAdapter(Class<T> adapter) {
         if(adapter == IWorkbenchAdapter.class)
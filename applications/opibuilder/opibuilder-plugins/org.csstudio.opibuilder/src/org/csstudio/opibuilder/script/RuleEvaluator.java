@@ -0,0 +1,754 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.util.List;
+
+/**Compiled form of the expressions of a {@link RuleData}.
+ *
+ * <p>Rules are usually simple comparisons of PV values like <code>pv0 &gt; 5 &amp;&amp; pvSev1 == 0</code>.
+ * Instead of generating JavaScript for them, such expressions are compiled into a tree of
+ * nodes which evaluate on primitive values without any allocation.
+ *
+ * <p>Supported are number, string and boolean literals, the variables
+ * <code>pvN, pvIntN, pvStrN, pvSevN</code>,
+ * the arithmetic operators <code>+ - * / %</code>, comparisons <code>&lt; &lt;= &gt; &gt;= == != === !==</code>,
+ * <code>! &amp;&amp; ||</code> and parentheses, with JavaScript semantics.
+ * For anything else, {@link #compile} returns <code>null</code> and the rule is executed as script.
+ */
+@SuppressWarnings("nls")
+public class RuleEvaluator {
+
+    /** PV values used by the expressions, to be updated before each {@link RuleEvaluator#evaluate(Inputs)} */
+    public static class Inputs {
+        /** Values of <code>pvN</code> */
+        public final double[] pv;
+        /** Values of <code>pvIntN</code> */
+        public final double[] pvInt;
+        /** Values of <code>pvStrN</code> */
+        public final String[] pvStr;
+        /** Values of <code>pvSevN</code> */
+        public final double[] pvSev;
+
+        public Inputs(final int pv_count) {
+            pv = new double[pv_count];
+            pvInt = new double[pv_count];
+            pvStr = new String[pv_count];
+            pvSev = new double[pv_count];
+        }
+    }
+
+    private enum Type { NUMBER, STRING, BOOLEAN, CONDITION }
+
+    /** Node of the compiled expression tree */
+    private static abstract class Node {
+        final Type type;
+
+        Node(final Type type) {
+            this.type = type;
+        }
+
+        abstract double number(Inputs in);
+
+        boolean bool(final Inputs in) {
+            final double value = number(in);
+            return value != 0.0  &&  !Double.isNaN(value);
+        }
+
+        String string(final Inputs in) {
+            return numberToString(number(in));
+        }
+
+        Object value(final Inputs in) {
+            if (type == Type.BOOLEAN)
+                return bool(in);
+            return number(in);
+        }
+    }
+
+    private static class NumberNode extends Node {
+        private final double value;
+
+        NumberNode(final double value) {
+            super(Type.NUMBER);
+            this.value = value;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return value;
+        }
+    }
+
+    private static class BooleanNode extends Node {
+        private final boolean value;
+
+        BooleanNode(final boolean value) {
+            super(Type.BOOLEAN);
+            this.value = value;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return value ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean bool(final Inputs in) {
+            return value;
+        }
+    }
+
+    private static abstract class StringValuedNode extends Node {
+        StringValuedNode() {
+            super(Type.STRING);
+        }
+
+        @Override
+        double number(final Inputs in) {
+            // Strings are never used in numeric context, see checkNumeric()
+            throw new IllegalStateException();
+        }
+
+        @Override
+        boolean bool(final Inputs in) {
+            return !string(in).isEmpty();
+        }
+
+        @Override
+        abstract String string(Inputs in);
+
+        @Override
+        Object value(final Inputs in) {
+            return string(in);
+        }
+    }
+
+    private static class StringNode extends StringValuedNode {
+        private final String value;
+
+        StringNode(final String value) {
+            this.value = value;
+        }
+
+        @Override
+        String string(final Inputs in) {
+            return value;
+        }
+    }
+
+    private static class PVNode extends Node {
+        private final int index;
+
+        PVNode(final int index) {
+            super(Type.NUMBER);
+            this.index = index;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return in.pv[index];
+        }
+    }
+
+    private static class PVIntNode extends Node {
+        private final int index;
+
+        PVIntNode(final int index) {
+            super(Type.NUMBER);
+            this.index = index;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return in.pvInt[index];
+        }
+    }
+
+    private static class PVSevNode extends Node {
+        private final int index;
+
+        PVSevNode(final int index) {
+            super(Type.NUMBER);
+            this.index = index;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return in.pvSev[index];
+        }
+    }
+
+    private static class PVStrNode extends StringValuedNode {
+        private final int index;
+
+        PVStrNode(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        String string(final Inputs in) {
+            return in.pvStr[index];
+        }
+    }
+
+    private static class NegateNode extends Node {
+        private final Node arg;
+
+        NegateNode(final Node arg) {
+            super(Type.NUMBER);
+            this.arg = arg;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return -arg.number(in);
+        }
+    }
+
+    private static class NotNode extends Node {
+        private final Node arg;
+
+        NotNode(final Node arg) {
+            super(Type.BOOLEAN);
+            this.arg = arg;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return bool(in) ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean bool(final Inputs in) {
+            return !arg.bool(in);
+        }
+    }
+
+    private static class ArithmeticNode extends Node {
+        private final char op;
+        private final Node left, right;
+
+        ArithmeticNode(final char op, final Node left, final Node right) {
+            super(Type.NUMBER);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            final double a = left.number(in), b = right.number(in);
+            switch (op) {
+            case '+': return a + b;
+            case '-': return a - b;
+            case '*': return a * b;
+            case '/': return a / b;
+            default:  return a % b;
+            }
+        }
+    }
+
+    private static class ConcatNode extends StringValuedNode {
+        private final Node left, right;
+
+        ConcatNode(final Node left, final Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        String string(final Inputs in) {
+            return left.string(in) + right.string(in);
+        }
+    }
+
+    private static final int LT = 0, LE = 1, GT = 2, GE = 3, EQ = 4, NE = 5;
+
+    private static int opcode(final String op) {
+        switch (op) {
+        case "<":  return LT;
+        case "<=": return LE;
+        case ">":  return GT;
+        case ">=": return GE;
+        case "==":
+        case "===": return EQ;
+        default:   return NE;
+        }
+    }
+
+    /** Comparison of numbers (or booleans, which are compared as numbers) */
+    private static class CompareNode extends Node {
+        private final int op;
+        private final Node left, right;
+
+        CompareNode(final String op, final Node left, final Node right) {
+            super(Type.BOOLEAN);
+            this.op = opcode(op);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return bool(in) ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean bool(final Inputs in) {
+            final double a = left.number(in), b = right.number(in);
+            switch (op) {
+            case LT: return a < b;
+            case LE: return a <= b;
+            case GT: return a > b;
+            case GE: return a >= b;
+            case EQ: return a == b;
+            default: return a != b;
+            }
+        }
+    }
+
+    private static class CompareStringNode extends Node {
+        private final int op;
+        private final Node left, right;
+
+        CompareStringNode(final String op, final Node left, final Node right) {
+            super(Type.BOOLEAN);
+            this.op = opcode(op);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return bool(in) ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean bool(final Inputs in) {
+            final int cmp = left.string(in).compareTo(right.string(in));
+            switch (op) {
+            case LT: return cmp < 0;
+            case LE: return cmp <= 0;
+            case GT: return cmp > 0;
+            case GE: return cmp >= 0;
+            case EQ: return cmp == 0;
+            default: return cmp != 0;
+            }
+        }
+    }
+
+    private static class LogicNode extends Node {
+        private final boolean and;
+        private final Node left, right;
+
+        LogicNode(final boolean and, final Node left, final Node right) {
+            // JavaScript returns one of the operands, which is only a boolean for boolean operands
+            super(left.type == Type.BOOLEAN  &&  right.type == Type.BOOLEAN ? Type.BOOLEAN : Type.CONDITION);
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double number(final Inputs in) {
+            return bool(in) ? 1.0 : 0.0;
+        }
+
+        @Override
+        boolean bool(final Inputs in) {
+            if (and)
+                return left.bool(in) && right.bool(in);
+            return left.bool(in) || right.bool(in);
+        }
+    }
+
+    /** Thrown by the parser for unsupported expressions */
+    private static class UnsupportedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedException(final String message) {
+            super(message);
+        }
+    }
+
+    /** Recursive descent parser for one expression */
+    private static class Parser {
+        private final String text;
+        private final int pv_count;
+        private int pos = 0;
+        boolean use_pv, use_int, use_str, use_sev;
+
+        Parser(final String text, final int pv_count) {
+            this.text = text;
+            this.pv_count = pv_count;
+        }
+
+        Node parse() throws UnsupportedException {
+            final Node node = parseOr();
+            skipSpace();
+            if (pos < text.length())
+                throw new UnsupportedException("Unexpected '" + text.substring(pos) + "'");
+            return node;
+        }
+
+        private void skipSpace() {
+            while (pos < text.length()  &&  Character.isWhitespace(text.charAt(pos)))
+                ++pos;
+        }
+
+        private boolean accept(final String token) {
+            skipSpace();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private Node parseOr() throws UnsupportedException {
+            Node node = parseAnd();
+            while (accept("||"))
+                node = new LogicNode(false, node, parseAnd());
+            return node;
+        }
+
+        private Node parseAnd() throws UnsupportedException {
+            Node node = parseEquality();
+            while (accept("&&"))
+                node = new LogicNode(true, node, parseEquality());
+            return node;
+        }
+
+        private Node parseEquality() throws UnsupportedException {
+            Node node = parseRelational();
+            while (true) {
+                final String op;
+                if (accept("==="))
+                    op = "===";
+                else if (accept("!=="))
+                    op = "!==";
+                else if (accept("=="))
+                    op = "==";
+                else if (accept("!="))
+                    op = "!=";
+                else
+                    return node;
+                node = createComparison(op, node, parseRelational());
+            }
+        }
+
+        private Node parseRelational() throws UnsupportedException {
+            Node node = parseAdditive();
+            while (true) {
+                final String op;
+                if (accept("<="))
+                    op = "<=";
+                else if (accept(">="))
+                    op = ">=";
+                else if (accept("<"))
+                    op = "<";
+                else if (accept(">"))
+                    op = ">";
+                else
+                    return node;
+                node = createComparison(op, node, parseAdditive());
+            }
+        }
+
+        private Node createComparison(final String op, final Node left, final Node right) throws UnsupportedException {
+            if (left.type == Type.STRING  &&  right.type == Type.STRING)
+                return new CompareStringNode(op, left, right);
+            checkNumeric(left);
+            checkNumeric(right);
+            // Strict equality of a boolean and a number is always false, don't bother
+            if (op.length() == 3  &&  left.type != right.type)
+                throw new UnsupportedException("Strict comparison of " + left.type + " and " + right.type);
+            return new CompareNode(op, left, right);
+        }
+
+        private Node parseAdditive() throws UnsupportedException {
+            Node node = parseMultiplicative();
+            while (true) {
+                skipSpace();
+                if (pos >= text.length())
+                    return node;
+                final char c = text.charAt(pos);
+                if ((c != '+'  &&  c != '-')  ||  followedBy(c)  ||  followedBy('='))
+                    return node;
+                ++pos;
+                final Node right = parseMultiplicative();
+                if (c == '+'  &&  (node.type == Type.STRING  ||  right.type == Type.STRING)) {
+                    checkPrintable(node);
+                    checkPrintable(right);
+                    node = new ConcatNode(node, right);
+                } else {
+                    checkNumeric(node);
+                    checkNumeric(right);
+                    node = new ArithmeticNode(c, node, right);
+                }
+            }
+        }
+
+        private Node parseMultiplicative() throws UnsupportedException {
+            Node node = parseUnary();
+            while (true) {
+                skipSpace();
+                if (pos >= text.length())
+                    return node;
+                final char c = text.charAt(pos);
+                if ((c != '*'  &&  c != '/'  &&  c != '%')  ||  followedBy('='))
+                    return node;
+                ++pos;
+                final Node right = parseUnary();
+                checkNumeric(node);
+                checkNumeric(right);
+                node = new ArithmeticNode(c, node, right);
+            }
+        }
+
+        private Node parseUnary() throws UnsupportedException {
+            skipSpace();
+            if (pos < text.length()) {
+                final char c = text.charAt(pos);
+                if (c == '!'  &&  !followedBy('=')) {
+                    ++pos;
+                    return new NotNode(parseUnary());
+                }
+                if ((c == '-'  ||  c == '+')  &&  !followedBy(c)) {
+                    ++pos;
+                    final Node arg = parseUnary();
+                    checkNumeric(arg);
+                    return c == '-' ? new NegateNode(arg) : new ArithmeticNode('+', new NumberNode(0.0), arg);
+                }
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() throws UnsupportedException {
+            skipSpace();
+            if (pos >= text.length())
+                throw new UnsupportedException("Missing operand");
+            final char c = text.charAt(pos);
+            if (c == '(') {
+                ++pos;
+                final Node node = parseOr();
+                if (!accept(")"))
+                    throw new UnsupportedException("Missing ')'");
+                return node;
+            }
+            if (c == '"'  ||  c == '\'')
+                return new StringNode(parseString(c));
+            if (Character.isDigit(c)  ||  c == '.')
+                return new NumberNode(parseNumber());
+            if (Character.isJavaIdentifierStart(c)) {
+                final int start = pos;
+                while (pos < text.length()  &&  Character.isJavaIdentifierPart(text.charAt(pos)))
+                    ++pos;
+                return createIdentifier(text.substring(start, pos));
+            }
+            throw new UnsupportedException("Unexpected '" + c + "'");
+        }
+
+        private Node createIdentifier(final String name) throws UnsupportedException {
+            if (name.equals("true"))
+                return new BooleanNode(true);
+            if (name.equals("false"))
+                return new BooleanNode(false);
+            skipSpace();
+            if (pos < text.length()  &&  (text.charAt(pos) == '.'  ||  text.charAt(pos) == '('  ||  text.charAt(pos) == '['))
+                throw new UnsupportedException("Unsupported access to " + name);
+            if (name.startsWith("pvInt"))
+                return new PVIntNode(use(pvIndex(name, 5), () -> use_int = true));
+            if (name.startsWith("pvStr"))
+                return new PVStrNode(use(pvIndex(name, 5), () -> use_str = true));
+            if (name.startsWith("pvSev"))
+                return new PVSevNode(use(pvIndex(name, 5), () -> use_sev = true));
+            if (name.startsWith("pv"))
+                return new PVNode(use(pvIndex(name, 2), () -> use_pv = true));
+            throw new UnsupportedException("Unknown variable " + name);
+        }
+
+        private int use(final int index, final Runnable mark) {
+            mark.run();
+            return index;
+        }
+
+        private int pvIndex(final String name, final int prefix) throws UnsupportedException {
+            final String digits = name.substring(prefix);
+            if (digits.isEmpty()  ||  digits.length() > 4  ||  !digits.chars().allMatch(Character::isDigit))
+                throw new UnsupportedException("Unknown variable " + name);
+            final int index = Integer.parseInt(digits);
+            if (index >= pv_count)
+                throw new UnsupportedException("No PV for " + name);
+            return index;
+        }
+
+        private double parseNumber() throws UnsupportedException {
+            final int start = pos;
+            while (pos < text.length()  &&  (Character.isDigit(text.charAt(pos))  ||  text.charAt(pos) == '.'))
+                ++pos;
+            if (pos < text.length()  &&  (text.charAt(pos) == 'e'  ||  text.charAt(pos) == 'E')) {
+                ++pos;
+                if (pos < text.length()  &&  (text.charAt(pos) == '+'  ||  text.charAt(pos) == '-'))
+                    ++pos;
+                while (pos < text.length()  &&  Character.isDigit(text.charAt(pos)))
+                    ++pos;
+            }
+            if (pos < text.length()  &&  Character.isJavaIdentifierPart(text.charAt(pos)))
+                throw new UnsupportedException("Unsupported number format");
+            try {
+                return Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException ex) {
+                throw new UnsupportedException("Invalid number " + text.substring(start, pos));
+            }
+        }
+
+        private String parseString(final char quote) throws UnsupportedException {
+            final StringBuilder buf = new StringBuilder();
+            ++pos;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == quote)
+                    return buf.toString();
+                if (c == '\\') {
+                    if (pos >= text.length())
+                        break;
+                    c = text.charAt(pos++);
+                    switch (c) {
+                    case 'n':  buf.append('\n'); break;
+                    case 't':  buf.append('\t'); break;
+                    case '\\':
+                    case '"':
+                    case '\'': buf.append(c);    break;
+                    default:
+                        throw new UnsupportedException("Unsupported escape sequence \\" + c);
+                    }
+                } else
+                    buf.append(c);
+            }
+            throw new UnsupportedException("Unterminated string");
+        }
+
+        private boolean followedBy(final char c) {
+            return pos+1 < text.length()  &&  text.charAt(pos+1) == c;
+        }
+
+        private static void checkNumeric(final Node node) throws UnsupportedException {
+            if (node.type != Type.NUMBER  &&  node.type != Type.BOOLEAN)
+                throw new UnsupportedException("Cannot use " + node.type + " as number");
+        }
+
+        private static void checkPrintable(final Node node) throws UnsupportedException {
+            if (node.type != Type.NUMBER  &&  node.type != Type.STRING)
+                throw new UnsupportedException("Cannot use " + node.type + " in string");
+        }
+    }
+
+    private final Node[] conditions;
+    private final Node[] outputs;
+    private final Object[] values;
+    private final Object default_value;
+    private final boolean use_pv, use_int, use_str, use_sev;
+
+    private RuleEvaluator(final Node[] conditions, final Node[] outputs, final Object[] values,
+            final Object default_value, final boolean use_pv, final boolean use_int,
+            final boolean use_str, final boolean use_sev) {
+        this.conditions = conditions;
+        this.outputs = outputs;
+        this.values = values;
+        this.default_value = default_value;
+        this.use_pv = use_pv;
+        this.use_int = use_int;
+        this.use_str = use_str;
+        this.use_sev = use_sev;
+    }
+
+    /**Compile rule expressions.
+     * @param pv_count number of input PVs.
+     * @param expressions the expressions of the rule.
+     * @param output_exp_value if the expression values are expressions that need to be evaluated.
+     * @param default_value the value if none of the expressions is true.
+     * @return the compiled rule or <code>null</code> if an expression is not supported.
+     */
+    public static RuleEvaluator compile(final int pv_count, final List<Expression> expressions,
+            final boolean output_exp_value, final Object default_value) {
+        final int N = expressions.size();
+        final Node[] conditions = new Node[N];
+        final Node[] outputs = output_exp_value ? new Node[N] : null;
+        final Object[] values = new Object[N];
+        boolean use_pv = false, use_int = false, use_str = false, use_sev = false;
+        try {
+            for (int i=0; i<N; ++i) {
+                final Expression exp = expressions.get(i);
+                Parser parser = new Parser(exp.getBooleanExpression(), pv_count);
+                conditions[i] = parser.parse();
+                use_pv |= parser.use_pv;
+                use_int |= parser.use_int;
+                use_str |= parser.use_str;
+                use_sev |= parser.use_sev;
+                if (output_exp_value) {
+                    parser = new Parser(String.valueOf(exp.getValue()), pv_count);
+                    outputs[i] = parser.parse();
+                    if (outputs[i].type == Type.CONDITION)
+                        return null;
+                    use_pv |= parser.use_pv;
+                    use_int |= parser.use_int;
+                    use_str |= parser.use_str;
+                    use_sev |= parser.use_sev;
+                } else
+                    values[i] = exp.getValue();
+            }
+        } catch (UnsupportedException ex) {
+            return null;
+        }
+        return new RuleEvaluator(conditions, outputs, values, default_value, use_pv, use_int, use_str, use_sev);
+    }
+
+    /** @return <code>true</code> if <code>pvN</code> is used */
+    public boolean usesPV() {
+        return use_pv;
+    }
+
+    /** @return <code>true</code> if <code>pvIntN</code> is used */
+    public boolean usesPVInt() {
+        return use_int;
+    }
+
+    /** @return <code>true</code> if <code>pvStrN</code> is used */
+    public boolean usesPVStr() {
+        return use_str;
+    }
+
+    /** @return <code>true</code> if <code>pvSevN</code> is used */
+    public boolean usesPVSev() {
+        return use_sev;
+    }
+
+    /**Evaluate the rule.
+     * @param inputs current PV values.
+     * @return the value of the first expression that is true, or the default value.
+     */
+    public Object evaluate(final Inputs inputs) {
+        for (int i=0; i<conditions.length; ++i)
+            if (conditions[i].bool(inputs))
+                return outputs == null ? values[i] : outputs[i].value(inputs);
+        return default_value;
+    }
+
+    /** @return JavaScript representation of a number */
+    private static String numberToString(final double value) {
+        if (value == Math.rint(value)  &&  Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "Infinity" : "-Infinity";
+        return Double.toString(value);
+    }
+}
@@ -17,6 +17,7 @@ public class RuleScriptData extends ScriptData {
 
     private String scriptString;
     private RuleData ruleData;
+    private RuleEvaluator compiledRule;
 
 
     public RuleScriptData(RuleData ruleData) {
@@ -41,6 +42,20 @@ public class RuleScriptData extends ScriptData {
         this.scriptString = scriptString;
     }
 
+    /**
+     * @return the compiled rule or null if the rule can only be executed as script
+     */
+    public final RuleEvaluator getCompiledRule() {
+        return compiledRule;
+    }
+
+    /**
+     * @param compiledRule the compiled rule, may be null
+     */
+    public final void setCompiledRule(RuleEvaluator compiledRule) {
+        this.compiledRule = compiledRule;
+    }
+
     public void setPVList(List<PVTuple> pvList){
         this.pvList = pvList;
     }
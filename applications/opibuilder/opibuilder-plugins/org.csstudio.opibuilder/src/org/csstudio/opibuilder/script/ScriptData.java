@@ -51,6 +51,11 @@ public class ScriptData implements IAdaptable {
      */
     private boolean stopExecuteOnError = false;
 
+    /**
+     * Execute the script in a background thread if background script execution is enabled.
+     */
+    private boolean background = false;
+
     private ScriptType scriptType;
 
     private boolean isEmbedded = false;
@@ -120,6 +125,7 @@ public class ScriptData implements IAdaptable {
         copy.setCheckConnectivity(checkConnectivity);
         copy.setSkipPVsFirstConnection(skipPVsFirstConnection);
         copy.setStopExecuteOnError(stopExecuteOnError);
+        copy.setBackground(background);
         copy.setEmbedded(isEmbedded);
         copy.setScriptName(scriptName);
         copy.setScriptText(scriptText);
@@ -203,6 +209,23 @@ public class ScriptData implements IAdaptable {
         return stopExecuteOnError;
     }
 
+    /**
+     * @param background
+     *  If true, the script is executed in a background thread if background
+     *  script execution is enabled. Only allowed for scripts that change widgets
+     *  through <code>setPropertyValue()</code> and do not access SWT or GEF objects.
+     */
+    public void setBackground(boolean background) {
+        this.background = background;
+    }
+
+    /**
+     * @return true if the script may be executed in a background thread.
+     */
+    public boolean isBackground() {
+        return background;
+    }
+
     /**
      * @return the scriptType
      */
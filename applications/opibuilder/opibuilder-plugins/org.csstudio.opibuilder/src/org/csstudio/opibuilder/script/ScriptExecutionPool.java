@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.opibuilder.script;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.csstudio.opibuilder.editparts.DisplayEditpart;
+import org.csstudio.opibuilder.preferences.PreferencesHelper;
+
+/**The thread pool of one display in which scripts are executed outside of the UI thread.
+ *
+ * <p>Each {@link DisplayEditpart} owns a pool, so a busy display cannot starve the scripts
+ * of other displays. The number of threads is configured with the preference
+ * {@link PreferencesHelper#SCRIPT_EXECUTION_THREADS}. If it is 0, there is no pool and
+ * all scripts are executed in the UI thread like before.
+ * The threads are created when first used and idle threads time out.
+ */
+public class ScriptExecutionPool {
+
+    private final String name;
+
+    private final int threads;
+
+    /** Guarded by <code>this</code> */
+    private ExecutorService executor;
+
+    /** Guarded by <code>this</code> */
+    private boolean shutdown = false;
+
+    /**
+     * @param name name of the display, used for the thread names.
+     * @param threads number of threads. 0 to execute scripts in the UI thread.
+     */
+    public ScriptExecutionPool(final String name, final int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    /**
+     * @return the executor for script execution, or null if scripts should be executed in the UI thread
+     *         or the pool has been shut down.
+     */
+    public synchronized ExecutorService getExecutor() {
+        if(shutdown || threads <= 0)
+            return null;
+        if(executor == null)
+            executor = createExecutor();
+        return executor;
+    }
+
+    /**Shut the pool down when the display is closed. Scripts that are still running will complete. */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if(executor != null)
+            executor.shutdown();
+        executor = null;
+    }
+
+    private ExecutorService createExecutor() {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "OPIScript " + name + "-" + count.incrementAndGet()); //$NON-NLS-1$ //$NON-NLS-2$
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
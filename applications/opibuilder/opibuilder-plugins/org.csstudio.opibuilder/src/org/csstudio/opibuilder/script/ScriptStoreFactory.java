@@ -164,6 +164,9 @@ public class ScriptStoreFactory {
      */
     public static AbstractScriptStore getScriptStore(
             ScriptData scriptData, AbstractBaseEditPart editpart, IPV[] pvArray) throws Exception{
+        if(scriptData instanceof RuleScriptData &&
+                ((RuleScriptData)scriptData).getCompiledRule() != null)
+            return new CompiledRuleStore((RuleScriptData)scriptData, editpart, pvArray);
         if(!scriptData.isEmbedded() &&
                 (scriptData.getPath() == null || scriptData.getPath().getFileExtension() == null)){
             if(scriptData instanceof RuleScriptData){
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.widgets.datadefinition;
+
+import org.csstudio.swt.widgets.datadefinition.ColorMap.PredefinedColorMap;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+
+/** Benchmark of the {@link ColorMap} image conversion for camera sized images
+ *
+ *  <p>Compares the conversion with a plain loop that calls setPixel for each pixel,
+ *  which is how images used to be converted.
+ *  Run as a Java application, the results are printed to the console.
+ */
+@SuppressWarnings("nls")
+public class ColorMapBenchmark
+{
+    private static final int WIDTH = 2048, HEIGHT = 2048;
+    private static final int WARMUP = 10, RUNS = 30;
+
+    private interface Conversion
+    {
+        void convert();
+    }
+
+    private static void run(final String name, final Conversion conversion)
+    {
+        for (int i=0; i<WARMUP; ++i)
+            conversion.convert();
+        final long start = System.nanoTime();
+        for (int i=0; i<RUNS; ++i)
+            conversion.convert();
+        final double ms = (System.nanoTime() - start) / 1e6 / RUNS;
+        System.out.format("%-40s: %8.2f ms/image\n", name, ms);
+    }
+
+    public static void main(final String[] args)
+    {
+        final short[] data = new short[WIDTH * HEIGHT];
+        for (int y=0; y<HEIGHT; ++y)
+            for (int x=0; x<WIDTH; ++x)
+                data[y*WIDTH + x] = (short) (Math.sin(x * 0.01) * Math.cos(y * 0.02) * 1000);
+        final IPrimaryArrayWrapper wrapper = new ShortArrayWrapper(data);
+        final ColorMap map = new ColorMap(PredefinedColorMap.JET, true, true);
+        final RGB[] colors = map.getColorsLookupTable();
+        final int[] pixels = new int[colors.length];
+        for (int i=0; i<colors.length; ++i)
+            pixels[i] = map.getPalette().getPixel(colors[i]);
+
+        final ImageData full = new ImageData(WIDTH, HEIGHT, 24, map.getPalette());
+        final ImageData widget = new ImageData(800, 600, 24, map.getPalette());
+
+        run("setPixel loop, full size", () ->
+        {
+            for (int y = 0; y < HEIGHT; y++)
+                for (int x = 0; x < WIDTH; x++)
+                {
+                    int index = (int) ((wrapper.get(y * WIDTH + x) + 1000) / 2000 * 255);
+                    if (index < 0)
+                        index = 0;
+                    else if (index > 255)
+                        index = 255;
+                    full.setPixel(x, y, pixels[index]);
+                }
+        });
+        run("ColorMap, full size", () -> map.drawImage(wrapper, WIDTH, HEIGHT, 1000, -1000, full, false));
+        run("ColorMap, shrunk to 800x600", () -> map.drawImage(wrapper, WIDTH, HEIGHT, 1000, -1000, widget, true));
+        run("ColorMap, cropped region 1024x1024", () ->
+            map.drawImage(wrapper, WIDTH, 512, 512, 1024, 1024, 1000, -1000, null, false));
+    }
+}
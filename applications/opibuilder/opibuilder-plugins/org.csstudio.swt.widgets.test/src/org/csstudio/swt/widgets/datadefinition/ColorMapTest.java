@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.swt.widgets.datadefinition;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import org.csstudio.swt.widgets.datadefinition.ColorMap.PredefinedColorMap;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.Test;
+
+/** JUnit test of the {@link ColorMap} image conversion
+ *
+ *  <p>Compares the converted images with a plain pixel by pixel conversion.
+ */
+public class ColorMapTest
+{
+    private static double[] createData(final int width, final int height)
+    {
+        final double[] data = new double[width * height];
+        for (int y=0; y<height; ++y)
+            for (int x=0; x<width; ++x)
+                data[y*width + x] = Math.sin(x * 0.01) * Math.cos(y * 0.02) * 100;
+        return data;
+    }
+
+    /** Reference conversion with one setPixel call per pixel */
+    private static ImageData reference(final ColorMap map, final double[] data, final int arrayWidth,
+            final int left, final int top, final int width, final int height,
+            final double max, final double min, final int imageWidth, final int imageHeight)
+    {
+        final RGB[] colors = map.getColorsLookupTable();
+        final ImageData image = new ImageData(imageWidth, imageHeight, 24, map.getPalette());
+        final int x_ratio = imageWidth == width ? 1<<16 : ((width<<16)/imageWidth) + 1;
+        final int y_ratio = imageHeight == height ? 1<<16 : ((height<<16)/imageHeight) + 1;
+        for (int y=0; y<imageHeight; ++y)
+            for (int x=0; x<imageWidth; ++x)
+            {
+                final double value = data[(top + ((y*y_ratio)>>16))*arrayWidth + left + ((x*x_ratio)>>16)];
+                final int index = Math.max(0, Math.min(255, (int) ((value - min) / (max - min) * 255)));
+                image.setPixel(x, y, map.getPalette().getPixel(colors[index]));
+            }
+        return image;
+    }
+
+    @Test
+    public void testFullImage()
+    {
+        final ColorMap map = new ColorMap(PredefinedColorMap.JET, true, true);
+        final int width = 600, height = 400;
+        final double[] data = createData(width, height);
+        final ImageData image = map.drawImage(new DoubleArrayWrapper(data), width, height, 80, -80, null, false);
+        assertArrayEquals(reference(map, data, width, 0, 0, width, height, 80, -80, width, height).data, image.data);
+    }
+
+    @Test
+    public void testShrunkImage()
+    {
+        final ColorMap map = new ColorMap(PredefinedColorMap.Hot, true, true);
+        final int width = 1000, height = 700;
+        final double[] data = createData(width, height);
+        final ImageData image = new ImageData(301, 199, 24, map.getPalette());
+        map.drawImage(new DoubleArrayWrapper(data), width, height, 100, -100, image, true);
+        assertArrayEquals(reference(map, data, width, 0, 0, width, height, 100, -100, 301, 199).data, image.data);
+    }
+
+    @Test
+    public void testRegion()
+    {
+        final ColorMap map = new ColorMap(PredefinedColorMap.GrayScale, true, false);
+        final int width = 800, height = 600;
+        final double[] data = createData(width, height);
+        final IPrimaryArrayWrapper wrapper = new DoubleArrayWrapper(data);
+        final ImageData image = map.drawImage(wrapper, width, 50, 20, 700, 500, 100, -100, null, false);
+        assertArrayEquals(reference(map, data, width, 50, 20, 700, 500, 100, -100, 700, 500).data, image.data);
+
+        final ImageData shrunk = new ImageData(70, 50, 24, map.getPalette());
+        map.drawImage(wrapper, width, 50, 20, 700, 500, 100, -100, shrunk, true);
+        assertArrayEquals(reference(map, data, width, 50, 20, 700, 500, 100, -100, 70, 50).data, shrunk.data);
+
+        // Region beyond the data
+        assertNull(map.drawImage(wrapper, width, 150, 20, 700, 500, 100, -100, null, false));
+        assertNull(map.drawImage(wrapper, width, 50, 120, 700, 500, 100, -100, null, false));
+    }
+}
@@ -9,6 +9,7 @@ package org.csstudio.swt.widgets.datadefinition;
 
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.stream.IntStream;
 
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.PaletteData;
@@ -77,6 +78,9 @@ public class ColorMap {
 
     }
 
+    /** Images with fewer pixels are drawn in the calling thread */
+    private static final int PARALLEL_THRESHOLD = 256*256;
+
     private LinkedHashMap<Double, RGB> colorMap;
     private PredefinedColorMap predefinedColorMap;
     private boolean autoScale;
@@ -191,58 +195,117 @@ public class ColorMap {
      */
     public ImageData drawImage(IPrimaryArrayWrapper dataArray,
             int dataWidth, int dataHeight, double max, double min, ImageData imageData, boolean shrink){
-        if(dataWidth <1 || dataHeight < 1 || dataWidth *dataHeight > dataArray.getSize()|| dataWidth * dataHeight < 0)
+        return drawImage(dataArray, dataWidth, 0, 0, dataWidth, dataHeight, max, min, imageData, shrink);
+    }
+
+    /**Calculate the image data from a region of the source data based on the color map.
+     * Only the source values that end up in the image are read, so the region does not have to be copied
+     * and a large array which is shrunk to a small image costs no more than the image itself.
+     * Large images are converted in parallel row stripes, so this may be called outside of the UI thread.
+     * @param dataArray the source data
+     * @param arrayWidth number of columns of dataArray.
+     * @param left first column of the region.
+     * @param top first row of the region.
+     * @param dataWidth number of columns of the region; This will be the width of image data.
+     * @param dataHeight number of rows of the region; This will be the height of image data.
+     * @param max the upper limit of the data in dataArray
+     * @param min the lower limit of the data in dataArray
+     * @param imageData the imageData to be filled. null if a new instance should be created.
+     * @param shrink true if area size of image data is smaller than dataWidth*dataHeight. If this is true, it will use
+     * the nearest neighbor iamge scaling algorithm.
+     * @return the image data. null if dataWidth or dataHeight is less than 1 or the region exceeds the data array.
+     */
+    public ImageData drawImage(final IPrimaryArrayWrapper dataArray, final int arrayWidth, final int left, final int top,
+            final int dataWidth, final int dataHeight, double max, double min, ImageData imageData, final boolean shrink){
+        if(dataWidth <1 || dataHeight < 1 || dataWidth * dataHeight < 0 || left < 0 || top < 0
+                || left + dataWidth > arrayWidth
+                || (long)(top + dataHeight - 1) * arrayWidth + left + dataWidth > dataArray.getSize())
             return null;
         if(imageData == null)
             imageData = new ImageData(dataWidth,dataHeight, 24, palette);
-        if(colorsLookupTable == null)
-            getColorsLookupTable();
+        final int[] pixels = getPixelLookupTable();
 
         if(!autoScale){
             min = colorMapMin;
             max = colorMapMax;
         }
-            if(shrink){
-                int height = imageData.height;
-                int width = imageData.width;
-                    // EDIT: added +1 to account for an early rounding problem
-                    int x_ratio = (int)((dataWidth<<16)/width) +1;
-                    int y_ratio = (int)((dataHeight<<16)/height) +1;
-                    //int x_ratio = (int)((w1<<16)/w2) ;
-                    //int y_ratio = (int)((h1<<16)/h2) ;
-                    int x2, y2 ;
-                    for (int i=0;i<height;i++) {
-                        for (int j=0;j<width;j++) {
-                            x2 = ((j*x_ratio)>>16) ;
-                            y2 = ((i*y_ratio)>>16) ;
-                            int index = (int) ((dataArray.get(y2 * dataWidth + x2) - min) / (max - min) * 255);
-                            if (index < 0)
-                                index = 0;
-                            else if (index > 255)
-                                index = 255;
-                            int pixel = pixelLookupTable[index];
-                            imageData.setPixel(j,i,pixel); ;
-                        }
-                    }
-
-
-            }else{
-                for (int y = 0; y < dataHeight; y++) {
-                    for (int x = 0; x < dataWidth; x++) {
-                        // the index of the value in the color table array
-                        int index = (int) ((dataArray.get(y * dataWidth + x) - min) / (max - min) * 255);
-                        if (index < 0)
-                            index = 0;
-                        else if (index > 255)
-                            index = 255;
-                        int pixel = pixelLookupTable[index];
-                        imageData.setPixel(x, y, pixel);
-                    }
-                }
-            }
 
+        final int width, height;
+        final int[] rowOffsets, columns;
+        if(shrink){
+            width = imageData.width;
+            height = imageData.height;
+            // EDIT: added +1 to account for an early rounding problem
+            final int x_ratio = (int)((dataWidth<<16)/width) +1;
+            final int y_ratio = (int)((dataHeight<<16)/height) +1;
+            columns = new int[width];
+            for (int j=0; j<width; j++)
+                columns[j] = left + ((j*x_ratio)>>16);
+            rowOffsets = new int[height];
+            for (int i=0; i<height; i++)
+                rowOffsets[i] = (top + ((i*y_ratio)>>16)) * arrayWidth;
+        }else{
+            width = dataWidth;
+            height = dataHeight;
+            columns = new int[width];
+            for (int j=0; j<width; j++)
+                columns[j] = left + j;
+            rowOffsets = new int[height];
+            for (int i=0; i<height; i++)
+                rowOffsets[i] = (top + i) * arrayWidth;
+        }
+
+        final ImageData target = imageData;
+        final double lower = min, range = max - min;
+        final int stripes = width * height < PARALLEL_THRESHOLD ? 1
+                : Math.min(height, Runtime.getRuntime().availableProcessors() * 4);
+        if(stripes <= 1)
+            drawRows(dataArray, rowOffsets, columns, 0, height, lower, range, pixels, target);
+        else
+            IntStream.range(0, stripes).parallel().forEach(stripe ->
+                drawRows(dataArray, rowOffsets, columns,
+                        stripe * height / stripes, (stripe+1) * height / stripes, lower, range, pixels, target));
+        return imageData;
+    }
 
-            return imageData;
+    /** Fill rows [start, end) of the image */
+    private static void drawRows(final IPrimaryArrayWrapper dataArray, final int[] rowOffsets, final int[] columns,
+            final int start, final int end, final double min, final double range,
+            final int[] pixels, final ImageData imageData){
+        final int width = columns.length;
+        if(imageData.depth == 24){
+            // Write the bytes directly, which is what setPixel does for 24 bit images,
+            // without its per pixel argument checks
+            final byte[] data = imageData.data;
+            for (int y = start; y < end; y++) {
+                final int rowOffset = rowOffsets[y];
+                int pos = y * imageData.bytesPerLine;
+                for (int x = 0; x < width; x++) {
+                    // the index of the value in the color table array
+                    int index = (int) ((dataArray.get(rowOffset + columns[x]) - min) / range * 255);
+                    if (index < 0)
+                        index = 0;
+                    else if (index > 255)
+                        index = 255;
+                    final int pixel = pixels[index];
+                    data[pos++] = (byte)(pixel >> 16);
+                    data[pos++] = (byte)(pixel >> 8);
+                    data[pos++] = (byte)pixel;
+                }
+            }
+        }else{
+            for (int y = start; y < end; y++) {
+                final int rowOffset = rowOffsets[y];
+                for (int x = 0; x < width; x++) {
+                    int index = (int) ((dataArray.get(rowOffset + columns[x]) - min) / range * 255);
+                    if (index < 0)
+                        index = 0;
+                    else if (index > 255)
+                        index = 255;
+                    imageData.setPixel(x, y, pixels[index]);
+                }
+            }
+        }
     }
 
     /**Calculate the image data from source data based on the color map.
@@ -296,7 +359,7 @@ public class ColorMap {
     /**Get a colors lookup table from 0 to 255. This only works for autoScale is true;
      * @return the colorsLookupTable a array of 256 colors corresponding to the value from min to max
      */
-    public RGB[] getColorsLookupTable() {
+    public synchronized RGB[] getColorsLookupTable() {
         if(colorsLookupTable == null){
             //convert map to array to simplify the calculation
             ColorTuple[] colorTupleArray = new ColorTuple[colorMap.size()];
@@ -319,17 +382,27 @@ public class ColorMap {
             for(int j = 0; j<colorTupleArray.length; j++)
                 keyArray[j] = colorTupleArray[j].value;
 
-            colorsLookupTable = new RGB[256];
-            pixelLookupTable = new int[256];
+            final RGB[] colors = new RGB[256];
+            final int[] pixels = new int[256];
             for(int k=0; k<256; k++){
-                colorsLookupTable[k] = getValueRGB(colorTupleArray, keyArray, autoScale? k/255.0 : colorMapMin + k*(colorMapMax-colorMapMin)/255.0);
-                pixelLookupTable[k] = palette.getPixel(colorsLookupTable[k]);
+                colors[k] = getValueRGB(colorTupleArray, keyArray, autoScale? k/255.0 : colorMapMin + k*(colorMapMax-colorMapMin)/255.0);
+                pixels[k] = palette.getPixel(colors[k]);
             }
+            pixelLookupTable = pixels;
+            colorsLookupTable = colors;
         }
 
         return colorsLookupTable;
     }
 
+    /**
+     * @return the pixel values of the colors lookup table.
+     */
+    private synchronized int[] getPixelLookupTable() {
+        getColorsLookupTable();
+        return pixelLookupTable;
+    }
+
     public PaletteData getPalette() {
         return palette;
     }
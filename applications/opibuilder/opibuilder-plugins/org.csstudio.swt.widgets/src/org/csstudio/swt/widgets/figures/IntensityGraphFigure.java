@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.csstudio.swt.widgets.datadefinition.ByteArrayWrapper;
 import org.csstudio.swt.widgets.datadefinition.ColorMap;
@@ -295,8 +296,9 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
             inDefaultPosition = false;
             if(updatedCrossDataIndex){
                 crossDataIndex = graphArea.getDataLocation(crossX, crossY);
-                if(croppedDataArray != null)
-                    fireProfileDataChanged(croppedDataArray, croppedDataWidth, croppedDataHeight);
+                final IPrimaryArrayWrapper cropped = graphArea.getCroppedDataArray();
+                if(cropped != null)
+                    fireProfileDataChanged(cropped, croppedDataWidth, croppedDataHeight);
             }
             hLine.setPoints(new PointList(new int[]{bounds.x,crossY, bounds.width+bounds.x, crossY}));
             vLine.setPoints(new PointList(new int[]{crossX, bounds.y, crossX, bounds.y + bounds.height}));
@@ -375,6 +377,16 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
         }
 
 
+        /**Get the cropped data array. It is only copied from the data array when needed,
+         * since the image is drawn from the data array directly.
+         * @return the cropped data array. null if there is no data.
+         */
+        synchronized IPrimaryArrayWrapper getCroppedDataArray(){
+            if(croppedDataArray == null && dataArray != null)
+                croppedDataArray = cropDataArray(cropLeft, cropRight, cropTop, cropBottom);
+            return croppedDataArray;
+        }
+
         /**Get data index location on cropped data array from geometry location.
          * @param x x much be inside graph area.
          * @param y y much be inside graph area
@@ -409,9 +421,11 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
                 return;
             Rectangle clientArea = getClientArea();
             //draw image if data is dirty or bufferedImage has not been created yet
-            if(dataDirty || bufferedImage == null){
+            if(dataDirty || (bufferedImage == null && !rendering)){
                 dataDirty = false;
-                if(bufferedImage != null){
+                final boolean background = renderInBackground && !inRGBMode;
+                //a background rendering keeps showing the previous image until the new one is ready
+                if(bufferedImage != null && !background){
                     bufferedImage.dispose();
                     bufferedImage = null;
                 }
@@ -419,6 +433,10 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
                     return;
                 if(dataWidth == 0 || dataHeight == 0 || (!isInRGBMode() && dataArray.getSize() < dataWidth * dataHeight)
                         || (isInRGBMode() && dataArray.getSize() < 3*dataWidth * dataHeight)){
+                    if(bufferedImage != null){
+                        bufferedImage.dispose();
+                        bufferedImage = null;
+                    }
                     graphics.drawRectangle(new Rectangle(
                             clientArea.x - (yAxis.isVisible()? 1:0),
                             clientArea.y,
@@ -438,9 +456,9 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
                 if(dataWidth - cropLeft - cropRight < 0 || dataHeight - cropTop - cropBottom < 0)
                     return;
 
-                croppedDataArray = cropDataArray(cropLeft, cropRight, cropTop, cropBottom);
-
-                fireProfileDataChanged(croppedDataArray, croppedDataWidth, croppedDataHeight);
+                croppedDataArray = null;
+                if(profileListeners.size() > 0)
+                    fireProfileDataChanged(getCroppedDataArray(), croppedDataWidth, croppedDataHeight);
 //                for(ROIFigure roiFigure : roiMap.values()){
 //                    roiFigure.fireROIUpdated();
 //                }
@@ -450,38 +468,38 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
                 }
 
 
-                if(shrink){
-                    if(bufferedImageData == null || bufferedImageData.width != clientArea.width
-                            || bufferedImageData.height !=clientArea.height){
-                        bufferedImageData = new ImageData(clientArea.width, clientArea.height, 24, colorMap.getPalette());
-                    }
-                }else if(bufferedImageData == null || bufferedImageData.width != croppedDataWidth
-                        || bufferedImageData.height !=croppedDataHeight)
-                    bufferedImageData = new ImageData(croppedDataWidth, croppedDataHeight, 24, colorMap.getPalette());
-
-
-                ImageData imageData = null;
-                if(inRGBMode)
-                    try {
-                        imageData = drawRGBImage(croppedDataArray,
-                                croppedDataWidth, croppedDataHeight,
-                                max, min, bufferedImageData, shrink);
-                    } catch (IllegalArgumentException e) {
-                        graphics.drawText("Drawing Exception: RGB value is not between 0 and 255." +
-                    "\nPlease check if the data or color depth is correct.",
-                                clientArea.getLocation());
-                    }
-                else
-                    imageData = colorMap.drawImage(croppedDataArray,
-                                croppedDataWidth, croppedDataHeight,
-                                max, min, bufferedImageData, shrink);
-
-                if(imageData == null)
-                    return;
-                bufferedImage = new Image(Display.getCurrent(), imageData);
-
+                final int imageWidth = shrink ? clientArea.width : croppedDataWidth;
+                final int imageHeight = shrink ? clientArea.height : croppedDataHeight;
+                if(background)
+                    startBackgroundRendering(imageWidth, imageHeight, shrink);
+                else {
+                    if(bufferedImageData == null || bufferedImageData.width != imageWidth
+                            || bufferedImageData.height != imageHeight)
+                        bufferedImageData = new ImageData(imageWidth, imageHeight, 24, colorMap.getPalette());
+
+                    ImageData imageData = null;
+                    if(inRGBMode)
+                        try {
+                            imageData = drawRGBImage(getCroppedDataArray(),
+                                    croppedDataWidth, croppedDataHeight,
+                                    max, min, bufferedImageData, shrink);
+                        } catch (IllegalArgumentException e) {
+                            graphics.drawText("Drawing Exception: RGB value is not between 0 and 255." +
+                        "\nPlease check if the data or color depth is correct.",
+                                    clientArea.getLocation());
+                        }
+                    else
+                        imageData = colorMap.drawImage(dataArray, dataWidth, cropLeft, cropTop,
+                                    croppedDataWidth, croppedDataHeight,
+                                    max, min, bufferedImageData, shrink);
+
+                    if(imageData == null)
+                        return;
+                    bufferedImage = new Image(Display.getCurrent(), imageData);
+                }
             }
-            graphics.drawImage(bufferedImage, new Rectangle(bufferedImage.getBounds()), clientArea);
+            if(bufferedImage != null)
+                graphics.drawImage(bufferedImage, new Rectangle(bufferedImage.getBounds()), clientArea);
 
             if(armed && end != null && start != null){
                 graphics.setLineStyle(SWTConstants.LINE_DOT);
@@ -500,6 +518,7 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
          *  @return PixelInfo for that mouse location
          */
         synchronized PixelInfo getPixelInfoForMouseLocation(final int x, final int y) {
+            final IPrimaryArrayWrapper croppedDataArray = getCroppedDataArray();
             if(croppedDataArray == null)
                 return null;
             final Point dataLocation = getDataLocation(x, y);
@@ -696,6 +715,11 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
     private boolean dataDirty;  //true if the image need to be redrawn
     private ImageData bufferedImageData;
     private Image bufferedImage; //the buffered image
+    private boolean renderInBackground = false;
+    private boolean rendering = false; //a background rendering is in progress. Only accessed in UI thread.
+    private boolean renderPending = false; //data changed while rendering. Only accessed in UI thread.
+    private ImageData renderImageData; //image data filled by the background rendering
+    private boolean disposed = false;
     private List<IProfileDataChangeLisenter> profileListeners;
     private List<IPixelInfoListener> pixelInfoListeners = new ArrayList<IPixelInfoListener>();
     private List<IPixelInfoProvider> pixelInfoProviders;
@@ -865,12 +889,68 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
     }
 
     public void dispose(){
+        disposed = true;
         if(bufferedImage != null){
             bufferedImage.dispose();
             bufferedImage = null;
         }
     }
 
+    /**Convert the current data into image data in a background thread.
+     * Only one rendering runs at a time. If the data changes while it runs,
+     * the latest data is rendered once it is done.
+     * The new image replaces the buffered image in the UI thread, so painting only has to draw the image.
+     * @param imageWidth width of the image data
+     * @param imageHeight height of the image data
+     * @param shrink true if the image is smaller than the cropped data
+     */
+    private void startBackgroundRendering(final int imageWidth, final int imageHeight, final boolean shrink) {
+        if(rendering){
+            renderPending = true;
+            return;
+        }
+        rendering = true;
+        final Display display = Display.getCurrent();
+        final IPrimaryArrayWrapper data = dataArray;
+        final int arrayWidth = dataWidth, left = cropLeft, top = cropTop;
+        final int width = croppedDataWidth, height = croppedDataHeight;
+        final double dataMax = max, dataMin = min;
+        final ColorMap map = colorMap;
+        ForkJoinPool.commonPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                ImageData imageData = renderImageData;
+                if(imageData == null || imageData.width != imageWidth || imageData.height != imageHeight)
+                    renderImageData = imageData = new ImageData(imageWidth, imageHeight, 24, map.getPalette());
+                final ImageData result = map.drawImage(data, arrayWidth, left, top, width, height,
+                        dataMax, dataMin, imageData, shrink);
+                display.asyncExec(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishBackgroundRendering(display, result);
+                    }
+                });
+            }
+        });
+    }
+
+    private void finishBackgroundRendering(final Display display, final ImageData imageData) {
+        rendering = false;
+        if(disposed)
+            return;
+        if(imageData != null){
+            if(bufferedImage != null)
+                bufferedImage.dispose();
+            bufferedImage = new Image(display, imageData);
+        }
+        if(renderPending){
+            renderPending = false;
+            dataDirty = true;
+        }else if(imageData == null)
+            return;
+        graphArea.repaint();
+    }
+
     /**Calculate the image data from source RGB data array [RGBRGBRGB...].
      * @param dataArray the source data in RGB mode.
      * @param dataWidth number of columns of dataArray; This will be the width of image data.
@@ -1125,6 +1205,23 @@ public class IntensityGraphFigure extends Figure implements Introspectable {
         return inRGBMode;
     }
 
+    /**
+     * @return true if the image is converted from the data in a background thread.
+     */
+    public boolean isRenderInBackground() {
+        return renderInBackground;
+    }
+
+    /**Set if the image should be converted from the data in a background thread.
+     * The UI thread then only has to draw the converted image, which keeps it responsive
+     * for large images at high update rates. The previous image is shown until the conversion is done.
+     * RGB mode images are always converted in the UI thread.
+     * @param renderInBackground true to convert the image in a background thread.
+     */
+    public void setRenderInBackground(boolean renderInBackground) {
+        this.renderInBackground = renderInBackground;
+    }
+
     /**
      * @return the runMode
      */
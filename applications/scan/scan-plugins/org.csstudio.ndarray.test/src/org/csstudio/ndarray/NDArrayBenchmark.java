@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.csstudio.ndarray;
+
+import org.csstudio.ndarray.NDKernels.Operation;
+import org.csstudio.ndarray.NDKernels.Reduction;
+
+/** Benchmark of {@link NDArray} operations
+ *
+ *  <p>Compares with the original implementations
+ *  that accessed each element by position.
+ *  The unit tests check that both have the same result.
+ *
+ *  <p>Run as plain Java application.
+ */
+@SuppressWarnings("nls")
+public class NDArrayBenchmark
+{
+    /** Run benchmark
+     *  @param name Name of the benchmark
+     *  @param runs Number of runs
+     *  @param code Code to run
+     */
+    private static void benchmark(final String name, final int runs, final Runnable code)
+    {
+        // Warm up
+        for (int run=0; run<runs; ++run)
+            code.run();
+        final long start = System.nanoTime();
+        for (int run=0; run<runs; ++run)
+            code.run();
+        final double ms = (System.nanoTime() - start) / 1e6 / runs;
+        System.out.format("%-30s: %8.1f ms per run\n", name, ms);
+    }
+
+    /** Compare with original implementation for 500x500 arrays.
+     *  Example results:
+     *  <pre>
+     *  Original dot                  :   1382.7 ms per run
+     *  Blocked dot                   :     97.1 ms per run
+     *  Original dot, transposed      :   1256.1 ms per run
+     *  Blocked dot, transposed       :     99.3 ms per run
+     *  Original matrix-vector        :      4.3 ms per run
+     *  Matrix-vector                 :      1.0 ms per run
+     *  </pre>
+     */
+    private static void benchmarkDot()
+    {
+        final int size = 500;
+        final int runs = 3;
+        final NDArray a = NDMatrixDotUnitTest.createMatrix(NDType.FLOAT64, size, size);
+        final NDArray b = NDMatrixDotUnitTest.createMatrix(NDType.FLOAT64, size, size);
+        final NDArray bt = NDMatrix.transpose(b);
+        final NDArray v = NDMatrix.arange(0, size, 1);
+
+        benchmark("Original dot", runs, () -> NDMatrixDotUnitTest.originalDot(a, b));
+        benchmark("Blocked dot", runs, () -> NDMatrix.dot(a, b));
+        benchmark("Original dot, transposed", runs, () -> NDMatrixDotUnitTest.originalDot(a, bt));
+        benchmark("Blocked dot, transposed", runs, () -> NDMatrix.dot(a, bt));
+        benchmark("Original matrix-vector", runs, () -> NDMatrixDotUnitTest.originalDot(a, v));
+        benchmark("Matrix-vector", runs, () -> NDMatrix.dot(a, v));
+    }
+
+    /** Compare kernels with generic implementation
+     *  for 1000x1000 arrays.
+     *  Example results:
+     *  <pre>
+     *  Generic add                   :     23.9 ms per run
+     *  Kernel add                    :      4.0 ms per run
+     *  Generic multiply              :     26.3 ms per run
+     *  Kernel multiply               :      3.7 ms per run
+     *  Generic sum                   :     10.2 ms per run
+     *  Kernel sum                    :      1.1 ms per run
+     *  Generic dot                   :     12.2 ms per run
+     *  Kernel dot                    :      1.4 ms per run
+     *  </pre>
+     */
+    private static void benchmarkKernels()
+    {
+        final int size = 1000;
+        final int runs = 20;
+        final NDArray a = NDMatrix.reshape(NDMatrix.linspace(0, 1, size*size, NDType.FLOAT64), size, size);
+        final NDArray b = NDMatrix.reshape(NDMatrix.linspace(1, 2, size*size, NDType.FLOAT64), size, size);
+        final NDArray flat_a = NDMatrix.reshape(a, size*size);
+        final NDArray flat_b = NDMatrix.reshape(b, size*size);
+
+        benchmark("Generic add", runs, () -> NDKernelsUnitTest.generic(a, b, Operation.ADD));
+        benchmark("Kernel add", runs, () -> NDMath.add(a, b));
+        benchmark("Generic multiply", runs, () -> NDKernelsUnitTest.generic(a, b, Operation.MULTIPLY));
+        benchmark("Kernel multiply", runs, () -> NDMath.multiply(a, b));
+        benchmark("Generic sum", runs, () -> NDKernelsUnitTest.genericSum(a));
+        benchmark("Kernel sum", runs, () -> NDMath.sum(a));
+        benchmark("Generic dot", runs, () -> NDKernelsUnitTest.genericDot(flat_a, flat_b));
+        benchmark("Kernel dot", runs, () -> NDMatrix.inner(flat_a, flat_b));
+    }
+
+    /** Compare with position-based reductions for typical image processing
+     *  on a 2048x2048 image.
+     *  Example results:
+     *  <pre>
+     *  Position-based sum of rows    :     45.3 ms per run
+     *  Sum of rows                   :      9.3 ms per run
+     *  Position-based sum of columns :    122.0 ms per run
+     *  Sum of columns                :     17.7 ms per run
+     *  Position-based max projection :     87.9 ms per run
+     *  Max projection                :     26.6 ms per run
+     *  Position-based argmax of rows :     42.4 ms per run
+     *  Argmax of rows                :     10.6 ms per run
+     *  Mean of ROI copy              :     31.6 ms per run
+     *  Mean of ROI view              :     16.7 ms per run
+     *  </pre>
+     */
+    private static void benchmarkImage()
+    {
+        final int size = 2048;
+        final int runs = 3;
+        final NDArray image = NDReduceUnitTest.createImage(NDType.FLOAT64, size, size);
+        final int[] roi_start = new int[] { 500, 700 }, roi_stop = new int[] { 1500, 1200 }, roi_step = new int[] { 1, 1 };
+
+        benchmark("Position-based sum of rows", runs, () -> NDReduceUnitTest.positionReduce(image, 1, Reduction.SUM));
+        benchmark("Sum of rows", runs, () -> NDMath.sum(image, 1));
+        benchmark("Position-based sum of columns", runs, () -> NDReduceUnitTest.positionReduce(image, 0, Reduction.SUM));
+        benchmark("Sum of columns", runs, () -> NDMath.sum(image, 0));
+        benchmark("Position-based max projection", runs, () -> NDReduceUnitTest.positionReduce(image, 0, Reduction.MAX));
+        benchmark("Max projection", runs, () -> NDMath.max(image, 0));
+        benchmark("Position-based argmax of rows", runs, () -> NDReduceUnitTest.positionReduce(image, 1, Reduction.ARGMAX));
+        benchmark("Argmax of rows", runs, () -> NDMath.argmax(image, 1));
+        benchmark("Mean of ROI copy", runs, () -> NDMath.mean(image.getSlice(roi_start, roi_stop, roi_step).clone()));
+        benchmark("Mean of ROI view", runs, () -> NDMath.mean(image.getSlice(roi_start, roi_stop, roi_step)));
+    }
+
+    /** @param args Ignored */
+    public static void main(final String[] args)
+    {
+        benchmarkKernels();
+        benchmarkDot();
+        benchmarkImage();
+    }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.csstudio.ndarray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.csstudio.ndarray.NDKernels.Operation;
+import org.junit.Test;
+
+/** JUnit tests of the {@link NDKernels}
+ *
+ *  <p>Compares the kernels with the generic implementation
+ *  that accesses each element by position.
+ *
+ *  @see NDArrayBenchmark
+ */
+@SuppressWarnings("nls")
+public class NDKernelsUnitTest
+{
+    /** @return Generic, position-based a op b for arrays of same shape */
+    static NDArray generic(final NDArray a, final NDArray b, final Operation operation)
+    {
+        final NDArray result = new NDArray(NDType.determineSuperType(a.getType(), b.getType()), a.getShape());
+        final ShapeIterator shape = new ShapeIterator(result.getShape());
+        while (shape.hasNext())
+        {
+            final int[] pos = shape.getPosition();
+            result.setDouble(operation.calc(a.getDouble(pos), b.getDouble(pos)), pos);
+        }
+        return result;
+    }
+
+    /** @return Generic, position-based sum */
+    static double genericSum(final NDArray a)
+    {
+        double sum = 0.0;
+        final ShapeIterator shape = new ShapeIterator(a.getShape());
+        while (shape.hasNext())
+            sum += a.getDouble(shape.getPosition());
+        return sum;
+    }
+
+    /** @return Generic, position-based inner product of 1-D arrays */
+    static double genericDot(final NDArray a, final NDArray b)
+    {
+        double sum = 0.0;
+        final int len = a.getSize();
+        for (int i=0; i<len; ++i)
+            sum += a.getDouble(i) * b.getDouble(i);
+        return sum;
+    }
+
+    @Test
+    public void testBinary()
+    {
+        for (NDType type : new NDType[] { NDType.FLOAT64, NDType.FLOAT32, NDType.INT64, NDType.INT32, NDType.INT16 })
+        {
+            final NDArray a = NDMatrix.arange(-5, 7, 1, type);
+            final NDArray b = NDMatrix.reshape(NDMatrix.arange(3, 15, 1, type), 3, 4);
+            final NDArray a2 = NDMatrix.reshape(a, 3, 4);
+            assertTrue(a2.isContiguous());
+
+            for (Operation op : Operation.values())
+            {
+                final NDArray expected = generic(a2, b, op);
+                final NDArray result;
+                switch (op)
+                {
+                case ADD:      result = NDMath.add(a2, b);      break;
+                case SUBTRACT: result = NDMath.subtract(a2, b); break;
+                case MULTIPLY: result = NDMath.multiply(a2, b); break;
+                case DIVIDE:   result = NDMath.divide(a2, b);   break;
+                default:       result = NDMath.power(a2, b);
+                }
+                assertSame(expected.getType(), result.getType());
+                assertEquals(type + " " + op, expected, result);
+            }
+        }
+    }
+
+    @Test
+    public void testViews()
+    {
+        final NDArray a = NDMatrix.reshape(NDMatrix.arange(0, 12, 1), 3, 4);
+        final NDArray b = NDMatrix.reshape(NDMatrix.arange(0, 12, 1), 4, 3);
+
+        // Transposed view is not contiguous, uses generic implementation
+        final NDArray t = NDMatrix.transpose(b);
+        assertFalse(t.isContiguous());
+        assertEquals(generic(a, t, Operation.ADD), NDMath.add(a, t));
+
+        // Row of a matrix has an offset into the data
+        final NDArray row = a.getSlice(new int[] { 1, 0 }, new int[] { 0, 4 }, new int[] { 0, 1 });
+        assertTrue(row.isContiguous());
+        assertEquals(NDArray.create(new double[] { 8, 10, 12, 14 }), NDMath.add(row, row));
+        assertEquals(4+5+6+7, NDMath.sum(row), 0.0);
+
+        // In-place
+        NDMath.increment(row, 100);
+        assertEquals(NDArray.create(new double[] { 104, 105, 106, 107 }), row);
+        assertEquals(NDArray.create(new double[] { 0, 1, 2, 3 }),
+                     a.getSlice(new int[] { 0, 0 }, new int[] { 0, 4 }, new int[] { 0, 1 }));
+    }
+
+    @Test
+    public void testScalarBroadcast()
+    {
+        final NDArray a = NDArray.create(new int[][] { { 1, 2 }, { 3, 4 } });
+        final NDArray two = NDArray.create(new double[] { 2 });
+
+        assertEquals(NDArray.create(new double[][] { { 0.5, 1 }, { 1.5, 2 } }), NDMath.divide(a, two));
+        assertEquals(NDArray.create(new double[][] { { 2, 1 }, { 2.0/3, 0.5 } }), NDMath.divide(two, a));
+        assertEquals(NDArray.create(new double[][] { { 1, 0 }, { -1, -2 } }), NDMath.subtract(two, a));
+        assertEquals(NDArray.create(new double[][] { { 2, 4 }, { 8, 16 } }), NDMath.power(two, a));
+
+        NDMath.scale(a, NDArray.create(new int[] { 3 }));
+        assertEquals(NDArray.create(new int[][] { { 3, 6 }, { 9, 12 } }), a);
+        NDMath.negative(a);
+        assertEquals(NDArray.create(new int[][] { { -3, -6 }, { -9, -12 } }), a);
+    }
+
+    @Test
+    public void testParallel()
+    {
+        final int size = 3 * Math.max(NDKernels.PARALLEL_THRESHOLD, 1000) + 17;
+        final NDArray a = NDMatrix.arange(0, size, 1);
+        final NDArray b = NDMatrix.arange(size, 0, -1);
+        final NDArray sum = NDMath.add(a, b);
+        assertEquals(size, sum.getSize());
+        for (int i=0; i<size; i += 99)
+            assertEquals(size, sum.getFlatDouble(i), 0.0);
+        assertEquals(size, sum.getFlatDouble(size-1), 0.0);
+        assertEquals((double)size * size, NDMath.sum(sum), 0.0);
+        assertEquals(genericDot(a, b), NDMatrix.inner(a, b).getDouble(0), 1e-6 * genericDot(a, b));
+    }
+
+    /** Compare kernels with generic implementation
+     *  for 1000x1000 arrays
+     */
+    @Test
+    public void testLargeArrays()
+    {
+        final int size = 1000;
+        final NDArray a = NDMatrix.reshape(NDMatrix.linspace(0, 1, size*size, NDType.FLOAT64), size, size);
+        final NDArray b = NDMatrix.reshape(NDMatrix.linspace(1, 2, size*size, NDType.FLOAT64), size, size);
+        final NDArray flat_a = NDMatrix.reshape(a, size*size);
+        final NDArray flat_b = NDMatrix.reshape(b, size*size);
+
+        assertEquals(generic(a, b, Operation.ADD), NDMath.add(a, b));
+        assertEquals(generic(a, b, Operation.MULTIPLY), NDMath.multiply(a, b));
+        assertEquals(genericSum(a), NDMath.sum(a), 1e-9 * genericSum(a));
+        assertEquals(genericDot(flat_a, flat_b), NDMatrix.inner(flat_a, flat_b).getDouble(0),
+                     1e-9 * genericDot(flat_a, flat_b));
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.csstudio.ndarray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/** JUnit tests of {@link NDMatrix#dot(NDArray, NDArray)}
+ *
+ *  <p>Compares with the original implementation that
+ *  accessed each element by position.
+ *
+ *  @see NDArrayBenchmark
+ */
+@SuppressWarnings("nls")
+public class NDMatrixDotUnitTest
+{
+    /** @return Original, position-based matrix multiplication */
+    static NDArray originalDot(final NDArray a, final NDArray b)
+    {
+        final NDType type = NDType.determineSuperType(a.getType(), b.getType());
+        final int a_rows = a.getShape().getSize(0);
+        final int a_cols = a.getShape().getSize(1);
+        if (b.getRank() == 1)
+        {
+            final NDArray result = NDMatrix.zeros(type, new NDShape(a_rows));
+            for (int i=0; i<a_rows; ++i)
+            {
+                double sum = 0.0;
+                for (int k=0; k<a_cols; ++k)
+                    sum += a.getDouble(i, k) * b.getDouble(k);
+                result.setDouble(sum, i);
+            }
+            return result;
+        }
+        final int b_cols = b.getShape().getSize(1);
+        final NDArray result = NDMatrix.zeros(type, new NDShape(a_rows, b_cols));
+        for (int i=0; i<a_rows; ++i)
+            for (int j=0; j<b_cols; ++j)
+            {
+                double sum = 0.0;
+                for (int k=0; k<a_cols; ++k)
+                    sum += a.getDouble(i, k) * b.getDouble(k, j);
+                result.setDouble(sum, i, j);
+            }
+        return result;
+    }
+
+    /** @return Matrix with pseudo-random values */
+    static NDArray createMatrix(final NDType type, final int rows, final int cols)
+    {
+        final NDArray result = NDMatrix.zeros(type, new NDShape(rows, cols));
+        for (int i=0; i<rows; ++i)
+            for (int j=0; j<cols; ++j)
+                result.setDouble(((i * 31 + j * 17) % 23) / 4.0 - 2.0, i, j);
+        return result;
+    }
+
+    @Test
+    public void testDot()
+    {
+        final NDArray a = NDArray.create(new int[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+        final NDArray b = NDArray.create(new double[][] { { 1, 0 }, { 0, 1 }, { 1, 1 } });
+        final NDArray r = NDMatrix.dot(a, b);
+        assertSame(NDType.FLOAT64, r.getType());
+        assertEquals(NDArray.create(new double[][] { { 4, 5 }, { 10, 11 } }), r);
+
+        // Sizes that are not multiples of the blocks, all supported types
+        for (NDType type : new NDType[] { NDType.FLOAT64, NDType.FLOAT32, NDType.INT64, NDType.INT32 })
+        {
+            final NDArray m = createMatrix(type, 150, 300);
+            final NDArray n = createMatrix(NDType.FLOAT64, 300, 530);
+            assertEquals(type.toString(), originalDot(m, n), NDMatrix.dot(m, n));
+            assertEquals(type.toString(), originalDot(n.getSlice(new int[] { 0, 0 }, new int[] { 300, 150 }, new int[] { 1, 1 }),
+                                                      m.getSlice(new int[] { 0, 0 }, new int[] { 150, 7 }, new int[] { 1, 1 })),
+                                          NDMatrix.dot(n.getSlice(new int[] { 0, 0 }, new int[] { 300, 150 }, new int[] { 1, 1 }),
+                                                       m.getSlice(new int[] { 0, 0 }, new int[] { 150, 7 }, new int[] { 1, 1 })));
+        }
+    }
+
+    @Test
+    public void testStridedViews()
+    {
+        final NDArray a = createMatrix(NDType.FLOAT64, 200, 100);
+        final NDArray b = createMatrix(NDType.FLOAT64, 200, 100);
+
+        // a^T . b without copying a
+        final NDArray at = NDMatrix.transpose(a);
+        assertFalse(at.isContiguous());
+        assertEquals(originalDot(at, b), NDMatrix.dot(at, b));
+
+        // Every other row and column
+        final NDArray even = a.getSlice(new int[] { 0, 0 }, new int[] { 200, 100 }, new int[] { 2, 2 });
+        final NDArray odd = b.getSlice(new int[] { 1, 1 }, new int[] { 100, 200 }, new int[] { 1, 1 });
+        assertEquals(50, even.getShape().getSize(1));
+        assertEquals(originalDot(even, NDMatrix.transpose(odd).getSlice(new int[] { 0, 0 }, new int[] { 50, 99 }, new int[] { 1, 1 })),
+                     NDMatrix.dot(even, NDMatrix.transpose(odd).getSlice(new int[] { 0, 0 }, new int[] { 50, 99 }, new int[] { 1, 1 })));
+    }
+
+    @Test
+    public void testMatrixVector()
+    {
+        final NDArray a = NDArray.create(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+        final NDArray v = NDArray.create(new int[] { 1, 0, 2 });
+        final NDArray r = NDMatrix.dot(a, v);
+        assertEquals(NDArray.create(new double[] { 7, 16 }), r);
+
+        final NDArray m = createMatrix(NDType.FLOAT32, 333, 150);
+        final NDArray column = NDMatrix.transpose(createMatrix(NDType.FLOAT64, 150, 3))
+                                       .getSlice(new int[] { 1, 0 }, new int[] { 0, 150 }, new int[] { 0, 1 });
+        assertEquals(1, column.getRank());
+        assertFalse(column.isContiguous());
+        assertEquals(originalDot(m, column), NDMatrix.dot(m, column));
+        assertEquals(originalDot(NDMatrix.transpose(m).getSlice(new int[] { 0, 0 }, new int[] { 150, 150 }, new int[] { 1, 1 }), column),
+                     NDMatrix.dot(NDMatrix.transpose(m).getSlice(new int[] { 0, 0 }, new int[] { 150, 150 }, new int[] { 1, 1 }), column));
+    }
+
+    @Test
+    public void testInner()
+    {
+        final NDArray a = NDArray.create(new int[] { 1, 2, 3 });
+        final NDArray b = NDArray.create(new float[] { 4, 5, 6 });
+        assertEquals(32.0, NDMatrix.dot(a, b).getDouble(0), 0.0);
+        // Strided view
+        final NDArray c = NDMatrix.arange(0, 6, 1).getSlice(new int[] { 0 }, new int[] { 6 }, new int[] { 2 });
+        assertEquals(1*0 + 2*2 + 3*4, NDMatrix.inner(a, c).getDouble(0), 0.0);
+    }
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.csstudio.ndarray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.csstudio.ndarray.NDKernels.Reduction;
+import org.junit.Test;
+
+/** JUnit tests of views and reductions along an axis
+ *
+ *  <p>Compares with reductions that access each element by position.
+ *
+ *  @see NDArrayBenchmark
+ */
+@SuppressWarnings("nls")
+public class NDReduceUnitTest
+{
+    /** @return Position-based reduction of array along axis */
+    static NDArray positionReduce(final NDArray array, final int axis, final Reduction reduction)
+    {
+        final int rank = array.getRank();
+        final int[] sizes = new int[Math.max(1, rank-1)];
+        sizes[0] = 1;
+        for (int d=0, o=0; d<rank; ++d)
+            if (d != axis)
+                sizes[o++] = array.getShape().getSize(d);
+        final NDType type = reduction == Reduction.ARGMAX
+                          ? NDType.INT64
+                          : (reduction == Reduction.MIN || reduction == Reduction.MAX) ? array.getType() : NDType.FLOAT64;
+        final NDArray result = new NDArray(type, new NDShape(sizes));
+        final ShapeIterator iter = new ShapeIterator(result.getShape());
+        final int n = array.getShape().getSize(axis);
+        final int[] pos = new int[rank];
+        while (iter.hasNext())
+        {
+            final int[] out = iter.getPosition();
+            for (int d=0, o=0; d<rank; ++d)
+                if (d != axis)
+                    pos[d] = out[o++];
+            double value = 0.0, best = 0.0;
+            for (int k=0; k<n; ++k)
+            {
+                pos[axis] = k;
+                final double v = array.getDouble(pos);
+                if (k == 0)
+                    best = v;
+                switch (reduction)
+                {
+                case MIN:    value = k == 0 ? v : Math.min(value, v); break;
+                case MAX:    value = k == 0 ? v : Math.max(value, v); break;
+                case ARGMAX:
+                    if (v > best)
+                    {
+                        best = v;
+                        value = k;
+                    }
+                    break;
+                default:     value += v;
+                }
+            }
+            if (reduction == Reduction.MEAN)
+                value /= n;
+            result.setDouble(value, out);
+        }
+        return result;
+    }
+
+    /** @return Image with pseudo-random values */
+    static NDArray createImage(final NDType type, final int rows, final int cols)
+    {
+        final NDArray result = NDMatrix.zeros(type, new NDShape(rows, cols));
+        for (int i=0; i<rows; ++i)
+            for (int j=0; j<cols; ++j)
+                result.setDouble((i * 31 + j * 17) % 101, i, j);
+        return result;
+    }
+
+    @Test
+    public void testNegativeStep()
+    {
+        final NDArray a = NDMatrix.arange(0, 5, 1);
+
+        // a[::-1]
+        final NDArray reversed = a.getSlice(new int[] { -1 }, new int[] { -6 }, new int[] { -1 });
+        assertEquals(NDArray.create(new double[] { 4, 3, 2, 1, 0 }), reversed);
+        // a[3:0:-2]
+        assertEquals(NDArray.create(new double[] { 3, 1 }),
+                     a.getSlice(new int[] { 3 }, new int[] { 0 }, new int[] { -2 }));
+        // Start beyond the end is limited to the last element
+        assertEquals(NDArray.create(new double[] { 4, 2, 0 }),
+                     a.getSlice(new int[] { 10 }, new int[] { -10 }, new int[] { -2 }));
+        // Empty
+        assertEquals(0, a.getSlice(new int[] { 1 }, new int[] { 3 }, new int[] { -1 }).getSize());
+
+        // View shares the data
+        reversed.setDouble(40, 0);
+        assertEquals(40, a.getDouble(4), 0.0);
+
+        // Flip rows of a matrix
+        final NDArray m = NDArray.create(new int[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+        final NDArray flipped = m.getSlice(new int[] { 0, -1 }, new int[] { 2, -4 }, new int[] { 1, -1 });
+        assertFalse(flipped.isContiguous());
+        assertEquals(NDArray.create(new int[][] { { 3, 2, 1 }, { 6, 5, 4 } }), flipped);
+        assertEquals(21, NDMath.sum(flipped), 0.0);
+        assertEquals(NDArray.create(new int[][] { { 3, 2, 1 }, { 6, 5, 4 } }), flipped.clone());
+    }
+
+    @Test
+    public void testViewOperations()
+    {
+        final NDArray m = NDArray.create(new double[][] { { 1, -2, 3 }, { -4, 5, -6 } });
+        final NDArray t = NDMatrix.transpose(m);
+
+        // Unary operations follow the view, not the underlying data
+        assertEquals(NDArray.create(new double[][] { { 1, 4 }, { 2, 5 }, { 3, 6 } }), NDMath.abs(t));
+
+        // Reshape of a view that is not contiguous copies the data
+        final NDArray r = NDMatrix.reshape(t, 6);
+        assertEquals(NDArray.create(new double[] { 1, -4, -2, 5, 3, -6 }), r);
+        r.setDouble(0, 0);
+        assertEquals(1, m.getDouble(0, 0), 0.0);
+
+        // Element-wise operations on views of the same shape
+        assertEquals(NDArray.create(new double[][] { { 0, 0, 0 }, { 0, 0, 0 } }),
+                     NDMath.subtract(m, NDMatrix.transpose(t)));
+
+        // In-place on a strided view only touches the view
+        final NDArray column = m.getSlice(new int[] { 0, 1 }, new int[] { 2, 0 }, new int[] { 1, 0 });
+        NDMath.scale(column, 10);
+        assertEquals(NDArray.create(new double[][] { { 1, -20, 3 }, { -4, 50, -6 } }), m);
+    }
+
+    @Test
+    public void testReduce()
+    {
+        final NDArray m = NDArray.create(new int[][] { { 1, 7, 3 }, { 4, 5, 9 } });
+        assertEquals(NDArray.create(new double[] { 5, 12, 12 }), NDMath.sum(m, 0));
+        assertEquals(NDArray.create(new double[] { 11, 18 }), NDMath.sum(m, 1));
+        assertEquals(NDArray.create(new double[] { 11, 18 }), NDMath.sum(m, -1));
+        assertEquals(NDArray.create(new double[] { 2.5, 6, 6 }), NDMath.mean(m, 0));
+        assertEquals(NDArray.create(new int[] { 4, 7, 9 }), NDMath.max(m, 0));
+        assertSame(m.getType(), NDMath.max(m, 0).getType());
+        assertEquals(NDArray.create(new int[] { 1, 4 }), NDMath.min(m, 1));
+        assertEquals(NDArray.create(new long[] { 1, 2 }), NDMath.argmax(m, 1));
+        assertEquals(5, NDMath.argmax(m));
+        assertEquals(29/6.0, NDMath.mean(m), 1e-12);
+
+        // Rank 1 reduces to single element
+        assertEquals(NDArray.create(new double[] { 6 }), NDMath.sum(NDMatrix.arange(0, 4, 1), 0));
+
+        try
+        {
+            NDMath.sum(m, 2);
+            fail("Accepted invalid axis");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Expected
+        }
+        try
+        {
+            NDMath.max(NDMatrix.zeros(NDType.FLOAT64, new NDShape(3, 0)), 1);
+            fail("Accepted empty axis");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // Expected
+        }
+        assertEquals(NDArray.create(new double[] { 0, 0, 0 }),
+                     NDMath.sum(NDMatrix.zeros(NDType.FLOAT64, new NDShape(3, 0)), 1));
+    }
+
+    @Test
+    public void testReduceViews()
+    {
+        for (NDType type : new NDType[] { NDType.FLOAT64, NDType.FLOAT32, NDType.INT32 })
+        {
+            final NDArray cube = NDMatrix.reshape(createImage(type, 12, 35), 3, 4, 35);
+            final NDArray[] arrays = new NDArray[]
+            {
+                cube,
+                NDMatrix.transpose(cube),
+                cube.getSlice(new int[] { -1, 1, -2 }, new int[] { -4, 4, 0 }, new int[] { -1, 2, -3 }),
+                cube.getSlice(new int[] { 1, 0, 0 }, new int[] { 0, 4, 35 }, new int[] { 0, 1, 1 }),
+            };
+            for (NDArray array : arrays)
+                for (int axis=0; axis<array.getRank(); ++axis)
+                    for (Reduction reduction : Reduction.values())
+                        assertEquals(type + " " + array.getShape() + " " + reduction + " along " + axis,
+                                     positionReduce(array, axis, reduction),
+                                     NDKernels.reduce(array, axis, reduction));
+        }
+    }
+
+    /** Compare with position-based reduction of a 2048x2048 image */
+    @Test
+    public void testLargeImage()
+    {
+        final NDArray image = createImage(NDType.FLOAT64, 2048, 2048);
+        assertEquals(positionReduce(image, 0, Reduction.MAX), NDMath.max(image, 0));
+        assertEquals(positionReduce(image, 1, Reduction.SUM), NDMath.sum(image, 1));
+    }
+}
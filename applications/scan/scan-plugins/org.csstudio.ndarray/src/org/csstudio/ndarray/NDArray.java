@@ -19,6 +19,7 @@ import org.diirt.util.array.ArrayFloat;
 import org.diirt.util.array.ArrayInt;
 import org.diirt.util.array.ArrayLong;
 import org.diirt.util.array.ArrayShort;
+import org.diirt.util.array.CollectionNumbers;
 import org.diirt.util.array.IteratorNumber;
 import org.diirt.util.array.ListNumber;
 
@@ -184,7 +185,7 @@ public class NDArray
     @Override
     public NDArray clone()
     {
-        final int size = data.size();
+        final int size = getSize();
         final ListNumber copy = createDataArray(getType(), size);
         final IteratorNumber iterator = getIterator();
         int i=0;
@@ -381,6 +382,28 @@ public class NDArray
         return stride;
     }
 
+    /** @return <code>true</code> if the array elements are stored in order,
+     *          without gaps, starting at the offset into the flat data
+     */
+    public boolean isContiguous()
+    {
+        return stride.isDefault(shape);
+    }
+
+    /** @return Offset of the first array element in the flat data */
+    int getOffset()
+    {
+        return offset;
+    }
+
+    /** @return Java array that holds the flat data, for example <code>double[]</code>,
+     *          or <code>null</code> if it cannot be accessed
+     */
+    Object getWrappedData()
+    {
+        return CollectionNumbers.wrappedArray(data);
+    }
+
     /** @return Iterator for the flat data */
     public IteratorNumber getIterator()
     {   // Can iterate over the raw data?
@@ -468,6 +491,12 @@ public class NDArray
      *
      *  <p>Requires a start:stop:step slice specification for each
      *  dimension of the array.
+     *  Like Python slices, negative start and stop indices count
+     *  from the end of the axis, and they are limited to the axis.
+     *  A negative step size steps backwards from the start
+     *  towards (but excluding) the stop index.
+     *  To step backwards up to and including the first element,
+     *  use a stop index of <code>-(size+1)</code>.
      *
      *  <p>When the stop and step values for a dimension are 0,
      *  just the start value is used as an index for a single element
@@ -491,6 +520,13 @@ public class NDArray
      *  [ 51, 52 ]
      *  </pre>
      *
+     *  The slice [1:0:0, 1:-3:-1] would result in
+     *  <pre>
+     *  [ 52, 51 ]
+     *  </pre>
+     *
+     *  <p>The slice shares the data of the original array.
+     *
      *  @param start Start indices
      *  @param stop Stop indices
      *  @param step Step sizes
@@ -506,36 +542,50 @@ public class NDArray
         if (start.length != step.length)
             throw new IllegalArgumentException("Length of start and step indices differ");
 
-        // Determine index of first element
-        final int offset = this.offset + stride.getIndex(shape, start);
-
-        // Determine new shape and stride
+        // Determine index of first element, new shape and stride
+        int offset = this.offset;
         final List<Integer> n_shape = new ArrayList<Integer>();
         final List<Integer> n_stride = new ArrayList<Integer>();
         for (int i=0; i<start.length; ++i)
         {
-            // System.out.println("Requesting " + start[i] + ":" + stop[i] + ":" + step[i]
-            //        + " from 0:" + shape.getSize(i) + ":1");
-            final int dim;
-            final int hop;
-            if (step[i] <= 0)
+            if (step[i] == 0)
+            {   // Single element, collapsing this axis
+                offset += shape.adjustIndex(i, start[i]) * stride.getStride(i);
+                continue;
+            }
+            // Limit start and stop to the axis
+            final int len = shape.getSize(i);
+            final int first, last;
+            if (step[i] > 0)
             {
-                dim = 1;
-                hop = stride.getStride(i);
+                first = limit(shape.adjustIndex(i, start[i]), 0, len);
+                last = limit(shape.adjustIndex(i, stop[i]), 0, len);
             }
             else
             {
-                dim = getCount(shape.adjustIndex(i, start[i]),
-                               shape.adjustIndex(i,  stop[i]), step[i]);
-                hop = stride.getStride(i) * step[i];
-                n_shape.add(dim);
-                n_stride.add(hop);
+                first = limit(shape.adjustIndex(i, start[i]), -1, len-1);
+                last = limit(shape.adjustIndex(i, stop[i]), -1, len-1);
             }
+            final int dim = getCount(first, last, step[i]);
+            if (dim > 0)
+                offset += first * stride.getStride(i);
+            n_shape.add(dim);
+            n_stride.add(stride.getStride(i) * step[i]);
         }
 
         return new NDArray(this, new NDShape(n_shape), offset, new NDStrides(n_stride));
     }
 
+    /** @param index Index
+     *  @param min Minimum
+     *  @param max Maximum
+     *  @return Index limited to min ... max
+     */
+    private static int limit(final int index, final int min, final int max)
+    {
+        return Math.max(min, Math.min(index, max));
+    }
+
     /** Compare arrays by shape and element values
      *  {@inheritDoc}
      */
@@ -549,8 +599,8 @@ public class NDArray
         if (! shape.equals(other.shape))
             return false;
         // Compare as double
-        if (stride.equals(other.stride))
-        {    // If strides match, perform flat comparison
+        if (isContiguous()  &&  other.isContiguous())
+        {    // If both are contiguous, perform flat comparison
             final int len = getSize();
             for (int i=0; i<len; ++i)
                 if (getFlatDouble(i) != other.getFlatDouble(i))
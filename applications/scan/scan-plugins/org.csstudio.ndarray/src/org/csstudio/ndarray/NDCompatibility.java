@@ -9,7 +9,7 @@ package org.csstudio.ndarray;
 
 /** Type of {@link NDArray} compatibility
  *
- *  <p>If two NDArrays have the same layout in shape and stride,
+ *  <p>If two NDArrays have the same shape and are both contiguous,
  *  operations can use element-by-element operations
  *  on the raw data (considering the offset).
  *
@@ -23,9 +23,9 @@ package org.csstudio.ndarray;
  */
 public enum NDCompatibility
 {
-    /** Arrays have same shape and stride, allowing flat iteration */
+    /** Arrays have same shape and are contiguous, allowing flat iteration */
     FLAT_ITERATION,
-    /** Arrays have same shape but not stride, allowing shape iteration */
+    /** Arrays have same shape but are not both contiguous, allowing shape iteration */
     SHAPE_ITERATION,
     /** Arrays have different shape, requiring broadcast iteration */
     BROADCAST_ITERATION,
@@ -43,7 +43,7 @@ public enum NDCompatibility
         final NDShape shape_b = b.getShape();
         if (shape_a.equals(shape_b))
         {
-            if (a.getStrides().equals(b.getStrides()))
+            if (a.isContiguous()  &&  b.isContiguous())
                 return FLAT_ITERATION;
             return SHAPE_ITERATION;
         }
@@ -0,0 +1,729 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.ndarray;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/** Kernels for {@link NDMath} that operate on the Java arrays of contiguous {@link NDArray}s
+ *
+ *  <p>The generic implementation accesses each element by position
+ *  or flat index via the {@link org.diirt.util.array.ListNumber}.
+ *  When arrays are contiguous, the kernels instead loop directly over the
+ *  <code>double[]</code>, <code>float[]</code>, ... that hold the data.
+ *  Results match the generic implementation, which computes each element
+ *  as a double and then casts it to the type of the result.
+ *
+ *  <p>Large arrays are split into chunks that are processed in parallel
+ *  by the fork-join common pool.
+ *  The minimum array size for parallel processing can be set
+ *  via the system property <code>org.csstudio.ndarray.parallel_threshold</code>,
+ *  where 0 disables parallel processing.
+ *
+ *  <p>Kernels return <code>false</code> or <code>null</code>
+ *  when they cannot handle the arrays,
+ *  and the caller then needs to use the generic implementation.
+ */
+@SuppressWarnings("nls")
+final class NDKernels
+{
+    /** Minimum number of elements for parallel processing, 0 to disable */
+    final static int PARALLEL_THRESHOLD = Integer.getInteger("org.csstudio.ndarray.parallel_threshold", 1 << 16);
+
+    /** Number of elements in each chunk of parallel processing */
+    final private static int CHUNK = 1 << 14;
+
+    /** Binary operation */
+    enum Operation
+    {
+        ADD      { @Override double calc(final double a, final double b) { return a + b; } },
+        SUBTRACT { @Override double calc(final double a, final double b) { return a - b; } },
+        MULTIPLY { @Override double calc(final double a, final double b) { return a * b; } },
+        DIVIDE   { @Override double calc(final double a, final double b) { return a / b; } },
+        POWER    { @Override double calc(final double a, final double b) { return Math.pow(a, b); } };
+
+        /** @param a First input
+         *  @param b Second input
+         *  @return Result of operation
+         */
+        abstract double calc(double a, double b);
+    }
+
+    /** Processing of one chunk of elements */
+    @FunctionalInterface
+    private interface Chunk
+    {
+        /** @param chunk Index of the chunk
+         *  @param start Index of first element in chunk
+         *  @param end Index after the last element in chunk
+         */
+        void process(int chunk, int start, int end);
+    }
+
+    /** @param size Number of elements
+     *  @return Number of chunks used to process the elements
+     */
+    private static int getChunkCount(final int size)
+    {
+        if (PARALLEL_THRESHOLD <= 0  ||  size < PARALLEL_THRESHOLD)
+            return 1;
+        return (size + CHUNK - 1) / CHUNK;
+    }
+
+    /** Process elements, in parallel chunks for large arrays
+     *  @param size Number of elements
+     *  @param chunk Processing of a chunk
+     */
+    private static void process(final int size, final Chunk chunk)
+    {
+        final int chunks = getChunkCount(size);
+        if (chunks <= 1)
+            chunk.process(0, 0, size);
+        else
+            IntStream.range(0, chunks).parallel().forEach(c ->
+                chunk.process(c, c * CHUNK, Math.min(size, (c + 1) * CHUNK)));
+    }
+
+    /** @param arrays Arrays to check
+     *  @return <code>true</code> if the Java arrays that hold the data can be accessed
+     */
+    static boolean isAccessible(final NDArray... arrays)
+    {
+        for (NDArray array : arrays)
+            if (! array.isContiguous()  ||  array.getWrappedData() == null)
+                return false;
+        return true;
+    }
+
+    /** Perform operation on arrays of same shape: result = a op b
+     *  @param a First array
+     *  @param b Second array, same shape as <code>a</code>
+     *  @param result Result array, same shape as <code>a</code>. May be <code>a</code>.
+     *  @param operation Operation
+     *  @return <code>true</code> if handled, <code>false</code> if generic implementation is required
+     */
+    static boolean binary(final NDArray a, final NDArray b, final NDArray result, final Operation operation)
+    {
+        if (! isAccessible(a, b, result))
+            return false;
+        final Object da = a.getWrappedData(), db = b.getWrappedData(), dr = result.getWrappedData();
+        final int oa = a.getOffset(), ob = b.getOffset(), or = result.getOffset();
+        if (dr instanceof double[]  &&  da instanceof double[]  &&  db instanceof double[])
+            process(result.getSize(), (c, start, end) ->
+                binary((double[]) da, oa, (double[]) db, ob, (double[]) dr, or, start, end, operation));
+        else if (dr instanceof float[]  &&  da instanceof float[]  &&  db instanceof float[])
+            process(result.getSize(), (c, start, end) ->
+                binary((float[]) da, oa, (float[]) db, ob, (float[]) dr, or, start, end, operation));
+        else if (dr instanceof long[]  &&  da instanceof long[]  &&  db instanceof long[])
+            process(result.getSize(), (c, start, end) ->
+                binary((long[]) da, oa, (long[]) db, ob, (long[]) dr, or, start, end, operation));
+        else if (dr instanceof int[]  &&  da instanceof int[]  &&  db instanceof int[])
+            process(result.getSize(), (c, start, end) ->
+                binary((int[]) da, oa, (int[]) db, ob, (int[]) dr, or, start, end, operation));
+        else
+            return false;
+        return true;
+    }
+
+    private static void binary(final double[] a, final int oa, final double[] b, final int ob,
+                               final double[] r, final int or, final int start, final int end,
+                               final Operation operation)
+    {
+        switch (operation)
+        {
+        case ADD:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] + b[ob+i];
+            break;
+        case SUBTRACT:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] - b[ob+i];
+            break;
+        case MULTIPLY:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] * b[ob+i];
+            break;
+        case DIVIDE:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] / b[ob+i];
+            break;
+        default:
+            for (int i=start; i<end; ++i)
+                r[or+i] = operation.calc(a[oa+i], b[ob+i]);
+        }
+    }
+
+    private static void binary(final float[] a, final int oa, final float[] b, final int ob,
+                               final float[] r, final int or, final int start, final int end,
+                               final Operation operation)
+    {
+        switch (operation)
+        {
+        // For float, computing in double and then rounding to float
+        // yields the same result as computing in float
+        case ADD:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] + b[ob+i];
+            break;
+        case SUBTRACT:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] - b[ob+i];
+            break;
+        case MULTIPLY:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] * b[ob+i];
+            break;
+        case DIVIDE:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] / b[ob+i];
+            break;
+        default:
+            for (int i=start; i<end; ++i)
+                r[or+i] = (float) operation.calc(a[oa+i], b[ob+i]);
+        }
+    }
+
+    private static void binary(final long[] a, final int oa, final long[] b, final int ob,
+                               final long[] r, final int or, final int start, final int end,
+                               final Operation operation)
+    {
+        for (int i=start; i<end; ++i)
+            r[or+i] = (long) operation.calc(a[oa+i], b[ob+i]);
+    }
+
+    private static void binary(final int[] a, final int oa, final int[] b, final int ob,
+                               final int[] r, final int or, final int start, final int end,
+                               final Operation operation)
+    {
+        for (int i=start; i<end; ++i)
+            r[or+i] = (int) operation.calc(a[oa+i], b[ob+i]);
+    }
+
+    /** Perform operation on array and scalar:
+     *  result = a op b, or result = b op a
+     *  @param a Array
+     *  @param b Scalar
+     *  @param scalar_first Compute b op a instead of a op b?
+     *  @param result Result array, same shape as <code>a</code>. May be <code>a</code>.
+     *  @param operation Operation
+     *  @return <code>true</code> if handled, <code>false</code> if arrays are not contiguous
+     */
+    static boolean scalar(final NDArray a, final double b, final boolean scalar_first,
+                          final NDArray result, final Operation operation)
+    {
+        if (! (a.isContiguous()  &&  result.isContiguous()))
+            return false;
+        final Object da = a.getWrappedData(), dr = result.getWrappedData();
+        final int oa = a.getOffset(), or = result.getOffset();
+        if (dr instanceof double[]  &&  da instanceof double[])
+            process(result.getSize(), (c, start, end) ->
+                scalar((double[]) da, oa, b, scalar_first, (double[]) dr, or, start, end, operation));
+        else if (dr instanceof float[]  &&  da instanceof float[])
+            process(result.getSize(), (c, start, end) ->
+            {
+                final float[] fa = (float[]) da, fr = (float[]) dr;
+                for (int i=start; i<end; ++i)
+                    fr[or+i] = (float) calc(fa[oa+i], b, scalar_first, operation);
+            });
+        else if (dr instanceof long[]  &&  da instanceof long[])
+            process(result.getSize(), (c, start, end) ->
+            {
+                final long[] la = (long[]) da, lr = (long[]) dr;
+                for (int i=start; i<end; ++i)
+                    lr[or+i] = (long) calc(la[oa+i], b, scalar_first, operation);
+            });
+        else if (dr instanceof int[]  &&  da instanceof int[])
+            process(result.getSize(), (c, start, end) ->
+            {
+                final int[] ia = (int[]) da, ir = (int[]) dr;
+                for (int i=start; i<end; ++i)
+                    ir[or+i] = (int) calc(ia[oa+i], b, scalar_first, operation);
+            });
+        else // Mixed types, or data not accessible: Still a flat loop
+            process(result.getSize(), (c, start, end) ->
+            {
+                for (int i=start; i<end; ++i)
+                    result.setFlatDouble(i, calc(a.getFlatDouble(i), b, scalar_first, operation));
+            });
+        return true;
+    }
+
+    private static double calc(final double a, final double b, final boolean scalar_first,
+                               final Operation operation)
+    {
+        return scalar_first ? operation.calc(b, a) : operation.calc(a, b);
+    }
+
+    private static void scalar(final double[] a, final int oa, final double b, final boolean scalar_first,
+                               final double[] r, final int or, final int start, final int end,
+                               final Operation operation)
+    {
+        switch (operation)
+        {
+        case ADD:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] + b;
+            break;
+        case MULTIPLY:
+            for (int i=start; i<end; ++i)
+                r[or+i] = a[oa+i] * b;
+            break;
+        case SUBTRACT:
+            if (scalar_first)
+                for (int i=start; i<end; ++i)
+                    r[or+i] = b - a[oa+i];
+            else
+                for (int i=start; i<end; ++i)
+                    r[or+i] = a[oa+i] - b;
+            break;
+        case DIVIDE:
+            if (scalar_first)
+                for (int i=start; i<end; ++i)
+                    r[or+i] = b / a[oa+i];
+            else
+                for (int i=start; i<end; ++i)
+                    r[or+i] = a[oa+i] / b;
+            break;
+        default:
+            for (int i=start; i<end; ++i)
+                r[or+i] = calc(a[oa+i], b, scalar_first, operation);
+        }
+    }
+
+    /** @param array Array
+     *  @return Sum over elements, or <code>null</code> if generic implementation is required
+     */
+    static Double sum(final NDArray array)
+    {
+        if (! isAccessible(array))
+            return null;
+        final Object data = array.getWrappedData();
+        final int offset = array.getOffset();
+        final int size = array.getSize();
+        // Sum each chunk, then add the chunks in order
+        // to get the same result independent of thread scheduling
+        final double[] sums = new double[getChunkCount(size)];
+        if (data instanceof double[])
+            process(size, (c, start, end) -> sums[c] = sum((double[]) data, offset, start, end));
+        else if (data instanceof float[])
+            process(size, (c, start, end) ->
+            {
+                final float[] values = (float[]) data;
+                double sum = 0.0;
+                for (int i=start; i<end; ++i)
+                    sum += values[offset+i];
+                sums[c] = sum;
+            });
+        else if (data instanceof long[])
+            process(size, (c, start, end) ->
+            {
+                final long[] values = (long[]) data;
+                double sum = 0.0;
+                for (int i=start; i<end; ++i)
+                    sum += values[offset+i];
+                sums[c] = sum;
+            });
+        else if (data instanceof int[])
+            process(size, (c, start, end) ->
+            {
+                final int[] values = (int[]) data;
+                double sum = 0.0;
+                for (int i=start; i<end; ++i)
+                    sum += values[offset+i];
+                sums[c] = sum;
+            });
+        else
+            return null;
+        double sum = 0.0;
+        for (double s : sums)
+            sum += s;
+        return sum;
+    }
+
+    private static double sum(final double[] values, final int offset, final int start, final int end)
+    {
+        double sum = 0.0;
+        for (int i=start; i<end; ++i)
+            sum += values[offset+i];
+        return sum;
+    }
+
+    /** Inner product of 1-D arrays
+     *  @param a 1-D array, may be a strided view
+     *  @param b 1-D array of same size, may be a strided view
+     *  @return Sum over products of elements
+     */
+    static double dot(final NDArray a, final NDArray b)
+    {
+        final Object da = a.getWrappedData(), db = b.getWrappedData();
+        final int oa = a.getOffset(), ob = b.getOffset();
+        final int sa = a.getStrides().getStride(0), sb = b.getStrides().getStride(0);
+        final int size = a.getSize();
+        final double[] sums = new double[getChunkCount(size)];
+        if (da instanceof double[]  &&  db instanceof double[])
+            process(size, (c, start, end) ->
+            {
+                final double[] va = (double[]) da, vb = (double[]) db;
+                double sum = 0.0;
+                for (int i=start; i<end; ++i)
+                    sum += va[oa+i*sa] * vb[ob+i*sb];
+                sums[c] = sum;
+            });
+        else
+            process(size, (c, start, end) ->
+            {
+                double sum = 0.0;
+                for (int i=start; i<end; ++i)
+                    sum += a.getFlatDouble(i*sa) * b.getFlatDouble(i*sb);
+                sums[c] = sum;
+            });
+        double sum = 0.0;
+        for (double s : sums)
+            sum += s;
+        return sum;
+    }
+
+    /** Number of rows in a block of matrix multiplication, handled by one thread */
+    final private static int BLOCK_ROWS = 64;
+
+    /** Number of inner elements in a block of matrix multiplication */
+    final private static int BLOCK_INNER = 128;
+
+    /** Number of columns in a block of matrix multiplication */
+    final private static int BLOCK_COLS = 512;
+
+    /** @param array 2-D array, may be a strided view
+     *  @return Elements of the array as row-major <code>double[]</code>
+     */
+    private static double[] pack(final NDArray array)
+    {
+        final int rows = array.getShape().getSize(0), cols = array.getShape().getSize(1);
+        final int s0 = array.getStrides().getStride(0), s1 = array.getStrides().getStride(1);
+        final double[] packed = new double[rows * cols];
+        final Object data = array.getWrappedData();
+        if (data instanceof double[])
+        {
+            final double[] values = (double[]) data;
+            final int offset = array.getOffset();
+            for (int i=0; i<rows; ++i)
+                for (int j=0; j<cols; ++j)
+                    packed[i*cols + j] = values[offset + i*s0 + j*s1];
+        }
+        else
+            for (int i=0; i<rows; ++i)
+                for (int j=0; j<cols; ++j)
+                    packed[i*cols + j] = array.getFlatDouble(i*s0 + j*s1);
+        return packed;
+    }
+
+    /** Process blocks of rows, in parallel for large computations
+     *  @param rows Number of rows
+     *  @param operations Number of multiply-add operations
+     *  @param block Handles block of rows, receiving index of the block's first row
+     */
+    private static void processRows(final int rows, final long operations, final IntConsumer block)
+    {
+        final int blocks = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        if (blocks > 1  &&  PARALLEL_THRESHOLD > 0  &&  operations >= PARALLEL_THRESHOLD)
+            IntStream.range(0, blocks).parallel().forEach(b -> block.accept(b * BLOCK_ROWS));
+        else
+            for (int b=0; b<blocks; ++b)
+                block.accept(b * BLOCK_ROWS);
+    }
+
+    /** Matrix multiplication
+     *
+     *  <p>Handles any data type and strided views,
+     *  for example a transposed array, without copying
+     *  the first array.
+     *  The second array is packed into a row-major <code>double[]</code>.
+     *  Rows of the result are computed in blocks,
+     *  using blocks of the inner dimension and columns
+     *  so that the accessed parts of the second array stay in the cache.
+     *  Each result element adds the products in the order of the inner index,
+     *  just like a plain triple loop.
+     *
+     *  @param a 2-D array of shape [rows, inner]
+     *  @param b 2-D array of shape [inner, cols]
+     *  @param result 2-D array of shape [rows, cols]
+     */
+    static void matmul(final NDArray a, final NDArray b, final NDArray result)
+    {
+        final int rows = a.getShape().getSize(0);
+        final int inner = a.getShape().getSize(1);
+        final int cols = b.getShape().getSize(1);
+        final double[] pb = pack(b);
+        final Object data = a.getWrappedData();
+        final double[] da = data instanceof double[] ? (double[]) data : null;
+        final int oa = a.getOffset();
+        final int sa0 = a.getStrides().getStride(0), sa1 = a.getStrides().getStride(1);
+
+        processRows(rows, (long) rows * inner * cols, r0 ->
+        {
+            final int r1 = Math.min(rows, r0 + BLOCK_ROWS);
+            final double[] acc = new double[(r1 - r0) * cols];
+            for (int c0=0; c0<cols; c0 += BLOCK_COLS)
+            {
+                final int c1 = Math.min(cols, c0 + BLOCK_COLS);
+                for (int k0=0; k0<inner; k0 += BLOCK_INNER)
+                {
+                    final int k1 = Math.min(inner, k0 + BLOCK_INNER);
+                    for (int i=r0; i<r1; ++i)
+                    {
+                        final int ri = (i - r0) * cols;
+                        for (int k=k0; k<k1; ++k)
+                        {
+                            final double aik = da != null ? da[oa + i*sa0 + k*sa1]
+                                                          : a.getFlatDouble(i*sa0 + k*sa1);
+                            final int bk = k * cols;
+                            for (int j=c0; j<c1; ++j)
+                                acc[ri + j] += aik * pb[bk + j];
+                        }
+                    }
+                }
+            }
+            store(acc, result, r0 * cols);
+        });
+    }
+
+    /** Matrix-vector multiplication
+     *  @param a 2-D array of shape [rows, cols], may be a strided view
+     *  @param v 1-D array of size cols, may be a strided view
+     *  @param result 1-D array of size rows
+     */
+    static void matvec(final NDArray a, final NDArray v, final NDArray result)
+    {
+        final int rows = a.getShape().getSize(0);
+        final int cols = a.getShape().getSize(1);
+        final int sv = v.getStrides().getStride(0);
+        final double[] pv = new double[cols];
+        for (int k=0; k<cols; ++k)
+            pv[k] = v.getFlatDouble(k*sv);
+        final Object data = a.getWrappedData();
+        final double[] da = data instanceof double[] ? (double[]) data : null;
+        final int oa = a.getOffset();
+        final int sa0 = a.getStrides().getStride(0), sa1 = a.getStrides().getStride(1);
+
+        processRows(rows, (long) rows * cols, r0 ->
+        {
+            final int r1 = Math.min(rows, r0 + BLOCK_ROWS);
+            final double[] acc = new double[r1 - r0];
+            for (int i=r0; i<r1; ++i)
+            {
+                double sum = 0.0;
+                if (da != null)
+                    for (int k=0; k<cols; ++k)
+                        sum += da[oa + i*sa0 + k*sa1] * pv[k];
+                else
+                    for (int k=0; k<cols; ++k)
+                        sum += a.getFlatDouble(i*sa0 + k*sa1) * pv[k];
+                acc[i - r0] = sum;
+            }
+            store(acc, result, r0);
+        });
+    }
+
+    /** @param values Values to store
+     *  @param result Contiguous array
+     *  @param start Flat index in result where to store the values
+     */
+    private static void store(final double[] values, final NDArray result, final int start)
+    {
+        final Object data = result.getWrappedData();
+        if (data instanceof double[])
+            System.arraycopy(values, 0, data, result.getOffset() + start, values.length);
+        else
+            for (int i=0; i<values.length; ++i)
+                result.setFlatDouble(start + i, values[i]);
+    }
+
+    /** Reduction along an axis */
+    enum Reduction
+    {
+        SUM, MEAN, MIN, MAX, ARGMAX
+    }
+
+    /** @param value Value
+     *  @param best Best value so far
+     *  @return <code>true</code> if value is a new maximum. NaN is considered the maximum.
+     */
+    private static boolean isNewMax(final double value, final double best)
+    {
+        return value > best  ||  (Double.isNaN(value)  &&  ! Double.isNaN(best));
+    }
+
+    /** Reduce array along an axis
+     *
+     *  <p>Reads the elements of the array, which may be a strided view,
+     *  directly from the underlying data without copying.
+     *  For contiguous arrays, the reduction loops over the elements in memory order.
+     *
+     *  @param array Array
+     *  @param axis Valid axis of the array
+     *  @param reduction Reduction
+     *  @return Array with shape of the original array without the axis.
+     *          SUM and MEAN return FLOAT64, ARGMAX returns INT64,
+     *          MIN and MAX return the type of the original array.
+     *  @throws IllegalArgumentException when MIN, MAX or ARGMAX are applied to an empty axis
+     */
+    static NDArray reduce(final NDArray array, final int axis, final Reduction reduction)
+    {
+        final NDShape shape = array.getShape();
+        final int rank = shape.getDimensions();
+        final int n = shape.getSize(axis);
+        if (n <= 0  &&  reduction != Reduction.SUM  &&  reduction != Reduction.MEAN)
+            throw new IllegalArgumentException(reduction + " not defined for empty axis " + axis + " of shape " + shape);
+
+        // Shape and strides of the remaining axes
+        final int[] sizes = new int[rank-1];
+        final int[] strides = new int[rank-1];
+        int outer = 1, inner = 1;
+        for (int d=0, o=0; d<rank; ++d)
+        {
+            if (d == axis)
+                continue;
+            sizes[o] = shape.getSize(d);
+            strides[o++] = array.getStrides().getStride(d);
+            if (d < axis)
+                outer *= shape.getSize(d);
+            else
+                inner *= shape.getSize(d);
+        }
+        final NDType type;
+        if (reduction == Reduction.ARGMAX)
+            type = NDType.INT64;
+        else if (reduction == Reduction.MIN  ||  reduction == Reduction.MAX)
+            type = array.getType();
+        else
+            type = NDType.FLOAT64;
+        final NDArray result = new NDArray(type, new NDShape(rank > 1 ? sizes : new int[] { 1 }));
+
+        final double[] values = new double[outer * inner];
+        if (n > 0)
+        {
+            if (array.isContiguous()  &&  inner > 1)
+                reduceContiguous(array, outer, n, inner, reduction, values);
+            else
+                reduceStrided(array, sizes, strides, n, array.getStrides().getStride(axis), reduction, values);
+        }
+        if (reduction == Reduction.MEAN)
+            for (int i=0; i<values.length; ++i)
+                values[i] /= n;
+        store(values, result, 0);
+        return result;
+    }
+
+    /** Reduce contiguous array, looping over the elements in memory order
+     *  @param array Contiguous array
+     *  @param outer Number of elements for the axes before the reduced axis
+     *  @param n Length of the reduced axis
+     *  @param inner Number of elements for the axes after the reduced axis
+     *  @param reduction Reduction
+     *  @param values Result
+     */
+    private static void reduceContiguous(final NDArray array, final int outer, final int n, final int inner,
+                                         final Reduction reduction, final double[] values)
+    {
+        final Object data = array.getWrappedData();
+        final double[] da = data instanceof double[] ? (double[]) data : null;
+        final int offset = array.getOffset();
+        // Maximum for ARGMAX
+        final double[] best = reduction == Reduction.ARGMAX ? new double[inner] : null;
+        for (int o=0; o<outer; ++o)
+        {
+            final int out = o * inner;
+            for (int k=0; k<n; ++k)
+            {
+                final int base = (o * n + k) * inner;
+                for (int i=0; i<inner; ++i)
+                {
+                    final double value = da != null ? da[offset + base + i] : array.getFlatDouble(base + i);
+                    switch (reduction)
+                    {
+                    case MIN:
+                        values[out + i] = k == 0 ? value : Math.min(values[out + i], value);
+                        break;
+                    case MAX:
+                        values[out + i] = k == 0 ? value : Math.max(values[out + i], value);
+                        break;
+                    case ARGMAX:
+                        if (k == 0  ||  isNewMax(value, best[i]))
+                        {
+                            best[i] = value;
+                            values[out + i] = k;
+                        }
+                        break;
+                    default:
+                        values[out + i] += value;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Reduce strided array, reducing one line along the axis at a time
+     *  @param array Array
+     *  @param sizes Sizes of the remaining axes
+     *  @param strides Strides of the remaining axes
+     *  @param n Length of the reduced axis
+     *  @param step Stride of the reduced axis
+     *  @param reduction Reduction
+     *  @param values Result
+     */
+    private static void reduceStrided(final NDArray array, final int[] sizes, final int[] strides,
+                                      final int n, final int step,
+                                      final Reduction reduction, final double[] values)
+    {
+        final Object data = array.getWrappedData();
+        final double[] da = data instanceof double[] ? (double[]) data : null;
+        final int offset = array.getOffset();
+        final int[] pos = new int[sizes.length];
+        int base = 0;
+        for (int out=0; out<values.length; ++out)
+        {
+            double result = da != null ? da[offset + base] : array.getFlatDouble(base);
+            double best = result;
+            if (reduction == Reduction.ARGMAX)
+                result = 0;
+            for (int k=1; k<n; ++k)
+            {
+                final int index = base + k * step;
+                final double value = da != null ? da[offset + index] : array.getFlatDouble(index);
+                switch (reduction)
+                {
+                case MIN:
+                    result = Math.min(result, value);
+                    break;
+                case MAX:
+                    result = Math.max(result, value);
+                    break;
+                case ARGMAX:
+                    if (isNewMax(value, best))
+                    {
+                        best = value;
+                        result = k;
+                    }
+                    break;
+                default:
+                    result += value;
+                }
+            }
+            values[out] = result;
+
+            // Advance to next position on the remaining axes
+            for (int d=sizes.length-1; d>=0; --d)
+            {
+                base += strides[d];
+                if (++pos[d] < sizes[d])
+                    break;
+                base -= strides[d] * sizes[d];
+                pos[d] = 0;
+            }
+        }
+    }
+}
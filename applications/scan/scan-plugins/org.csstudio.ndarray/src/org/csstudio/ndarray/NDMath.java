@@ -9,6 +9,7 @@
  ******************************************************************************/
 package org.csstudio.ndarray;
 
+import org.csstudio.ndarray.NDKernels.Operation;
 import org.diirt.util.array.IteratorNumber;
 
 /** Math operations for {@link NDArray}
@@ -17,6 +18,9 @@ import org.diirt.util.array.IteratorNumber;
  *  which also has a 'Maths' like this separate from
  *  a '*DataSet' similar to NDArray.
  *
+ *  <p>Contiguous arrays are handled by {@link NDKernels}
+ *  which directly access the underlying Java arrays.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -27,6 +31,9 @@ public class NDMath
      */
     public static double sum(final NDArray array)
     {
+        final Double fast = NDKernels.sum(array);
+        if (fast != null)
+            return fast;
         final IteratorNumber iter = array.getIterator();
         double sum = 0.0;
         while (iter.hasNext())
@@ -62,12 +69,99 @@ public class NDMath
         return min;
     }
 
+    /** @param array N-dim array
+     *  @return Mean of elements. NaN for empty array
+     */
+    public static double mean(final NDArray array)
+    {
+        return sum(array) / array.getSize();
+    }
+
+    /** @param array N-dim array
+     *  @return Flat index of first maximum array element, counting elements in row-major order
+     */
+    public static int argmax(final NDArray array)
+    {
+        final IteratorNumber iter = array.getIterator();
+        if (! iter.hasNext())
+            throw new IllegalArgumentException("Maximum not defined for empty array");
+        double max = iter.nextDouble();
+        int index = 0;
+        for (int i=1; iter.hasNext(); ++i)
+        {
+            final double value = iter.nextDouble();
+            if (value > max  ||  (Double.isNaN(value)  &&  ! Double.isNaN(max)))
+            {
+                max = value;
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /** @param array N-dim array
+     *  @param axis Axis along which to sum. Negative values count from the last axis
+     *  @return Array of sums with the remaining axes
+     */
+    public static NDArray sum(final NDArray array, final int axis)
+    {
+        return NDKernels.reduce(array, checkAxis(array, axis), NDKernels.Reduction.SUM);
+    }
+
+    /** @param array N-dim array
+     *  @param axis Axis along which to average. Negative values count from the last axis
+     *  @return Array of mean values with the remaining axes
+     */
+    public static NDArray mean(final NDArray array, final int axis)
+    {
+        return NDKernels.reduce(array, checkAxis(array, axis), NDKernels.Reduction.MEAN);
+    }
+
+    /** @param array N-dim array
+     *  @param axis Axis along which to locate the maximum. Negative values count from the last axis
+     *  @return Array of maximum values with the remaining axes
+     */
+    public static NDArray max(final NDArray array, final int axis)
+    {
+        return NDKernels.reduce(array, checkAxis(array, axis), NDKernels.Reduction.MAX);
+    }
+
+    /** @param array N-dim array
+     *  @param axis Axis along which to locate the minimum. Negative values count from the last axis
+     *  @return Array of minimum values with the remaining axes
+     */
+    public static NDArray min(final NDArray array, final int axis)
+    {
+        return NDKernels.reduce(array, checkAxis(array, axis), NDKernels.Reduction.MIN);
+    }
+
+    /** @param array N-dim array
+     *  @param axis Axis along which to locate the maximum. Negative values count from the last axis
+     *  @return Array of indices of the first maximum along the axis
+     */
+    public static NDArray argmax(final NDArray array, final int axis)
+    {
+        return NDKernels.reduce(array, checkAxis(array, axis), NDKernels.Reduction.ARGMAX);
+    }
+
+    /** @param array N-dim array
+     *  @param axis Axis, negative values counting from the last axis
+     *  @return Valid axis
+     *  @throws IllegalArgumentException for invalid axis
+     */
+    private static int checkAxis(final NDArray array, final int axis)
+    {
+        final int rank = array.getRank();
+        final int valid = axis < 0 ? rank + axis : axis;
+        if (valid < 0  ||  valid >= rank)
+            throw new IllegalArgumentException("Invalid axis " + axis + " for array of rank " + rank);
+        return valid;
+    }
+
     /** @param array N-dim array where each element is to be turned into its negative */
     public static void negative(final NDArray array)
     {
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            array.setFlatDouble(i, -array.getFlatDouble(i));
+        inplace_operation(array, -1.0, Operation.MULTIPLY);
     }
 
     /** @param array N-dim array
@@ -75,9 +169,7 @@ public class NDMath
      */
     public static void increment(final NDArray array, final double value)
     {
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            array.setFlatDouble(i, array.getFlatDouble(i) + value);
+        inplace_operation(array, value, Operation.ADD);
     }
 
     /** @param array N-dim array
@@ -85,9 +177,7 @@ public class NDMath
      */
     public static void scale(final NDArray array, final double value)
     {
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            array.setFlatDouble(i, array.getFlatDouble(i) * value);
+        inplace_operation(array, value, Operation.MULTIPLY);
     }
 
     /** @param array N-dim array
@@ -95,9 +185,7 @@ public class NDMath
      */
     public static void divide_elements(final NDArray array, final double value)
     {
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            array.setFlatDouble(i, array.getFlatDouble(i) / value);
+        inplace_operation(array, value, Operation.DIVIDE);
     }
 
     /** @param array N-dim array
@@ -106,9 +194,10 @@ public class NDMath
     public static NDArray abs(final NDArray array)
     {
         final NDArray result = new NDArray(array.getType(), array.getShape());
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            result.setFlatDouble(i, Math.abs(array.getFlatDouble(i)));
+        final IteratorNumber iter = array.getIterator();
+        int i = 0;
+        while (iter.hasNext())
+            result.setFlatDouble(i++, Math.abs(iter.nextDouble()));
         return result;
     }
 
@@ -118,14 +207,15 @@ public class NDMath
     public static NDArray sqrt(final NDArray array)
     {
         final NDArray result = new NDArray(NDType.FLOAT64, array.getShape());
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
+        final IteratorNumber iter = array.getIterator();
+        int i = 0;
+        while (iter.hasNext())
         {
-            final double val = array.getFlatDouble(i);
+            final double val = iter.nextDouble();
             if (val >= 0.0)
-                result.setFlatDouble(i, Math.sqrt(val));
+                result.setFlatDouble(i++, Math.sqrt(val));
             else
-                result.setFlatDouble(i, Double.NaN);
+                result.setFlatDouble(i++, Double.NaN);
         }
         return result;
     }
@@ -136,9 +226,10 @@ public class NDMath
     public static NDArray exp(final NDArray array)
     {
         final NDArray result = new NDArray(NDType.FLOAT64, array.getShape());
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            result.setFlatDouble(i, Math.exp(array.getFlatDouble(i)));
+        final IteratorNumber iter = array.getIterator();
+        int i = 0;
+        while (iter.hasNext())
+            result.setFlatDouble(i++, Math.exp(iter.nextDouble()));
         return result;
     }
 
@@ -148,9 +239,10 @@ public class NDMath
     public static NDArray log(final NDArray array)
     {
         final NDArray result = new NDArray(NDType.FLOAT64, array.getShape());
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            result.setFlatDouble(i, Math.log(array.getFlatDouble(i)));
+        final IteratorNumber iter = array.getIterator();
+        int i = 0;
+        while (iter.hasNext())
+            result.setFlatDouble(i++, Math.log(iter.nextDouble()));
         return result;
     }
 
@@ -160,52 +252,32 @@ public class NDMath
     public static NDArray log10(final NDArray array)
     {
         final NDArray result = new NDArray(NDType.FLOAT64, array.getShape());
-        final int size = array.getSize();
-        for (int i=0; i<size; ++i)
-            result.setFlatDouble(i, Math.log10(array.getFlatDouble(i)));
+        final IteratorNumber iter = array.getIterator();
+        int i = 0;
+        while (iter.hasNext())
+            result.setFlatDouble(i++, Math.log10(iter.nextDouble()));
         return result;
     }
 
-    /** Binary operation */
-    private interface BinaryOperation
+    /** Perform in-place operation with scalar on array
+     *  @param array N-dim array on which to operate
+     *  @param value Value for operation
+     *  @param operation Operation to perform on the elements
+     */
+    private static void inplace_operation(final NDArray array, final double value,
+            final Operation operation)
     {
-        /** @param a First input
-         *  @param b Second input
-         *  @return Result of operation
-         */
-        double calc(double a, double b);
+        if (NDKernels.scalar(array, value, false, array, operation))
+            return;
+        // Strided view
+        final ShapeIterator shape = new ShapeIterator(array.getShape());
+        while (shape.hasNext())
+        {
+            final int[] pos = shape.getPosition();
+            array.setDouble(operation.calc(array.getDouble(pos), value), pos);
+        }
     }
 
-    final private static BinaryOperation op_add = new BinaryOperation()
-    {
-        @Override
-        public double calc(final double a, final double b)     { return a + b;    }
-    };
-
-    final private static BinaryOperation op_sub = new BinaryOperation()
-    {
-        @Override
-        public double calc(final double a, final double b)    { return a - b;    }
-    };
-
-    final private static BinaryOperation op_mul = new BinaryOperation()
-    {
-        @Override
-        public double calc(final double a, final double b)    { return a * b; }
-    };
-
-    final private static BinaryOperation op_div = new BinaryOperation()
-    {
-        @Override
-        public double calc(final double a, final double b)    { return a / b;    }
-    };
-
-    final private static BinaryOperation op_pwr = new BinaryOperation()
-    {
-        @Override
-        public double calc(final double a, final double b)    { return Math.pow(a, b); }
-    };
-
     /** Perform in-place operation on array.
      *  Use element-by-element when possible.
      *  @param array N-dim array on which to operate
@@ -213,11 +285,13 @@ public class NDMath
      *  @param operation Operation to perform on the elements
      */
     private static void inplace_operation(final NDArray array, final NDArray other,
-            final BinaryOperation operation)
+            final Operation operation)
     {
         switch (NDCompatibility.forArrays(array, other))
         {
         case FLAT_ITERATION:
+            if (NDKernels.binary(array, other, array, operation))
+                break;
             final int size = array.getSize();
             for (int i=0; i<size; ++i)
             {
@@ -241,6 +315,9 @@ public class NDMath
             if (! i.getBroadcastShape().equals(array.getShape()))
                 throw new IllegalArgumentException("Cannot operate on array of shape  " + array.getShape() +
                         " in-place with (broadcast) argument of shape " + other.getShape());
+            if (other.getSize() == 1  &&
+                NDKernels.scalar(array, other.getFlatDouble(0), false, array, operation))
+                break;
             while (i.hasNext())
             {
                 final double value = operation.calc(array.getDouble(i.getPosA()),
@@ -262,7 +339,7 @@ public class NDMath
      */
     public static void increment(final NDArray array, final NDArray other)
     {
-        inplace_operation(array, other, op_add);
+        inplace_operation(array, other, Operation.ADD);
     }
 
 
@@ -274,7 +351,7 @@ public class NDMath
      */
     public static void scale(final NDArray array, final NDArray other)
     {
-        inplace_operation(array, other, op_mul);
+        inplace_operation(array, other, Operation.MULTIPLY);
     }
 
     /** Divide arrays element-by-element
@@ -285,7 +362,7 @@ public class NDMath
      */
     public static void divide_elements(final NDArray array, final NDArray other)
     {
-        inplace_operation(array, other, op_div);
+        inplace_operation(array, other, Operation.DIVIDE);
     }
 
     /** Perform operation on arrays element-by-element,
@@ -297,7 +374,7 @@ public class NDMath
      *  @return Result array
      */
     private static NDArray binary_operation(final NDArray a, final NDArray b,
-            final BinaryOperation operation)
+            final Operation operation)
     {
         final NDArray result;
         final NDType type = NDType.determineSuperType(a.getType(), b.getType());
@@ -306,6 +383,8 @@ public class NDMath
         {
         case FLAT_ITERATION:
             result = new NDArray(type, a.getShape());
+            if (NDKernels.binary(a, b, result, operation))
+                break;
             final int size = result.getSize();
             for (int i=0; i<size; ++i)
             {
@@ -328,6 +407,13 @@ public class NDMath
         case BROADCAST_ITERATION:
             final BroadcastIterator i = new BroadcastIterator(a.getShape(), b.getShape());
             result = new NDArray(type, i.getBroadcastShape());
+            // Scalar broadcast
+            if (b.getSize() == 1  &&  result.getShape().equals(a.getShape())  &&
+                NDKernels.scalar(a, b.getFlatDouble(0), false, result, operation))
+                break;
+            if (a.getSize() == 1  &&  result.getShape().equals(b.getShape())  &&
+                NDKernels.scalar(b, a.getFlatDouble(0), true, result, operation))
+                break;
             while (i.hasNext())
             {
                 final double value = operation.calc(a.getDouble(i.getPosA()),
@@ -349,7 +435,7 @@ public class NDMath
      */
     public static NDArray add(final NDArray a, final NDArray b)
     {
-        return binary_operation(a, b, op_add);
+        return binary_operation(a, b, Operation.ADD);
     }
 
     /** @param a N-dim array
@@ -358,7 +444,7 @@ public class NDMath
      */
     public static NDArray subtract(final NDArray a, final NDArray b)
     {
-        return binary_operation(a, b, op_sub);
+        return binary_operation(a, b, Operation.SUBTRACT);
     }
 
     /** @param a N-dim array
@@ -367,7 +453,7 @@ public class NDMath
      */
     public static NDArray multiply(final NDArray a, final NDArray b)
     {
-        return binary_operation(a, b, op_mul);
+        return binary_operation(a, b, Operation.MULTIPLY);
     }
 
     /** @param a N-dim array
@@ -376,7 +462,7 @@ public class NDMath
      */
     public static NDArray divide(final NDArray a, final NDArray b)
     {
-        return binary_operation(a, b, op_div);
+        return binary_operation(a, b, Operation.DIVIDE);
     }
 
     /** @param a N-dim array
@@ -385,6 +471,6 @@ public class NDMath
      */
     public static NDArray power(final NDArray a, final NDArray b)
     {
-        return binary_operation(a, b, op_pwr);
+        return binary_operation(a, b, Operation.POWER);
     }
 }
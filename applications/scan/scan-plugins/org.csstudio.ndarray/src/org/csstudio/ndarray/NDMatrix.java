@@ -16,6 +16,7 @@ import org.diirt.util.array.ListNumber;
 /** Matrix-type operations for {@link NDArray}
  *
  *  <p>Implementation influenced by GDA scisoftpy.
+ *  Matrix multiplication uses the blocked, parallel {@link NDKernels}.
  *
  *  @author Kay Kasemir
  */
@@ -113,6 +114,10 @@ public class NDMatrix
      *  <p>Must not change the overall size.
      *  For example, modifying [6] into [2,3] or [3,2] is possible,
      *  but not into [7].
+     *
+     *  <p>A contiguous array is reshaped into a view that shares its data.
+     *  Other arrays, for example a transposed view, are first copied.
+     *
      *  @param array Original Array
      *  @param shape Desired shape
      *  @return Array view with new shape
@@ -123,7 +128,9 @@ public class NDMatrix
         if (array.getShape().getSize() != shape.getSize())
             throw new IllegalArgumentException("Cannot change shape from " +
                     array.getShape() + " to " + shape);
-        return new NDArray(array, shape, new NDStrides(shape));
+        if (array.isContiguous())
+            return new NDArray(array, shape, new NDStrides(shape));
+        return new NDArray(array.clone(), shape, new NDStrides(shape));
     }
 
     /** Transpose an array, "swapping" rows and columns for the 2-D case.
@@ -230,14 +237,7 @@ public class NDMatrix
         final int b_cols = shape_b.getSize(1);
         final NDShape shape_r = new NDShape(a_rows, b_cols);
         final NDArray result = zeros(type, shape_r);
-        for (int i=0; i<a_rows; ++i)
-            for (int j=0; j<b_cols; ++j)
-            {
-                double sum = 0.0;
-                for (int k=0; k<a_cols; ++k)
-                    sum += a.getDouble(i, k) * b.getDouble(k, j);
-                result.setDouble(sum, i, j);
-            }
+        NDKernels.matmul(a, b, result);
         return result;
     }
 
@@ -260,14 +260,8 @@ public class NDMatrix
                 "For matrix multiplication, number of columns in first array must match number of rows in second array," +
                 " but got shapes " + shape + " and " + b.getShape());
 
-        final NDArray result = zeros(type, new NDShape(a_cols));
-        for (int i=0; i<a_rows; ++i)
-        {
-            double sum = 0.0;
-            for (int k=0; k<a_cols; ++k)
-                sum += a.getDouble(i, k) * b.getFlatDouble(k);
-            result.setDouble(sum, i);
-        }
+        final NDArray result = zeros(type, new NDShape(a_rows));
+        NDKernels.matvec(a, b, result);
         return result;
     }
 
@@ -297,6 +291,11 @@ public class NDMatrix
 
         final NDType type = NDType.determineSuperType(a.getType(), b.getType());
         final NDArray result = zeros(type, new NDShape(1));
+        if (shape_a.getDimensions() == 1)
+        {
+            result.setDouble(NDKernels.dot(a, b), 0);
+            return result;
+        }
         double sum = 0.0;
         for (int i=0; i<len; ++i)
             sum += a.getDouble(i) * b.getDouble(i);
@@ -162,10 +162,17 @@ class ndarray:
                 if isinstance(index, slice):
                     # Slice provided
                     any_slice = True
-                    # Replace 'None' in any portion of the slice
-                    start = 0 if index.start is None else index.start
-                    stop  = self.nda.getShape().getSize(i) if index.stop is None else index.stop
+                    # Replace 'None' in any portion of the slice.
+                    # Negative step defaults to running from the end
+                    # to include the first element
+                    size  = self.nda.getShape().getSize(i)
                     step  = 1 if index.step is None else index.step
+                    if step < 0:
+                        start = size-1 if index.start is None else index.start
+                        stop  = -size-1 if index.stop is None else index.stop
+                    else:
+                        start = 0 if index.start is None else index.start
+                        stop  = size if index.stop is None else index.stop
                 else:
                     # Simple index provided: stop = step = 0 indicates
                     # to NDArray.getSlice() to 'collapse' this axis,
@@ -391,17 +398,45 @@ class ndarray:
         """Determine if all elements are True (not zero)"""
         return NDCompare.all(self.nda)
     
-    def sum(self):
-        """Returns sum over all array elements"""
-        return NDMath.sum(self.nda)
+    def sum(self, axis=None):
+        """Returns sum over all array elements,
+           or array of sums along the given axis
+        """
+        if axis is None:
+            return NDMath.sum(self.nda)
+        return ndarray(NDMath.sum(self.nda, axis))
+
+    def mean(self, axis=None):
+        """Returns mean of all array elements,
+           or array of mean values along the given axis
+        """
+        if axis is None:
+            return NDMath.mean(self.nda)
+        return ndarray(NDMath.mean(self.nda, axis))
 
-    def max(self):
-        """Returns maximum array element"""
-        return NDMath.max(self.nda)
+    def max(self, axis=None):
+        """Returns maximum array element,
+           or array of maximum values along the given axis
+        """
+        if axis is None:
+            return NDMath.max(self.nda)
+        return ndarray(NDMath.max(self.nda, axis))
+
+    def min(self, axis=None):
+        """Returns minimum array element,
+           or array of minimum values along the given axis
+        """
+        if axis is None:
+            return NDMath.min(self.nda)
+        return ndarray(NDMath.min(self.nda, axis))
 
-    def min(self):
-        """Returns minimum array element"""
-        return NDMath.min(self.nda)
+    def argmax(self, axis=None):
+        """Returns index of the first maximum in the flattened array,
+           or array of indices along the given axis
+        """
+        if axis is None:
+            return NDMath.argmax(self.nda)
+        return ndarray(NDMath.argmax(self.nda, axis))
 
     def nonzero(self):
         """Return the indices of the elements that are non-zero.
@@ -508,9 +543,23 @@ def all(value):
     """Determine if all elements are True (not zero)"""
     return value.all()
 
-def sum(array):
-    """Returns sum over all array elements"""
-    return array.sum()
+def sum(array, axis=None):
+    """Returns sum over all array elements,
+       or array of sums along the given axis
+    """
+    return array.sum(axis)
+
+def mean(array, axis=None):
+    """Returns mean of all array elements,
+       or array of mean values along the given axis
+    """
+    return array.mean(axis)
+
+def argmax(array, axis=None):
+    """Returns index of the first maximum in the flattened array,
+       or array of indices along the given axis
+    """
+    return array.argmax(axis)
 
 def sqrt(value):
     """Determine square root of elements"""
@@ -552,7 +601,7 @@ def reshape(a, shape):
     reshape(arange(6), (3, 2))
     results in array([ [ 0, 1 ], [ 2, 3 ], [ 4, 5 ] ])
     """
-    return ndarray(NDMatrix.reshape(self.nda, __toNDShape__(shape)))
+    return ndarray(NDMatrix.reshape(a.nda, __toNDShape__(shape)))
 
 def transpose(a, axes=None):
     """transpose(a, axes=None):
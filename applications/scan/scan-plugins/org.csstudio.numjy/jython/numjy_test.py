@@ -137,6 +137,13 @@ class ScanDataTest(unittest.TestCase):
         sub = a[::2]
         self.assertTrue(all(sub == array([ 0.0, 2.0, 4.0, 6.0, 8.0 ])))
 
+        # Negative steps
+        sub = a[::-1]
+        self.assertTrue(all(sub == array([ 9.0, 8.0, 7.0, 6.0, 5.0, 4.0, 3.0, 2.0, 1.0, 0.0 ])))
+
+        sub = a[6:1:-2]
+        self.assertTrue(all(sub == array([ 6.0, 4.0, 2.0 ])))
+
         # Assignment to slice changes original array
         sub[1] = 666;
         self.assertEqual(666, a[2])
@@ -296,10 +303,25 @@ class ScanDataTest(unittest.TestCase):
         self.assertEqual(3, sum(array([ 0, 1, 2 ])))
         self.assertEqual(-2, sum(array([ -2 ])))
         self.assertEqual(0, sum(array([  ])))
+        a = arange(6).reshape(2, 3)
+        self.assertTrue(all(sum(a, 0) == array([ 3, 5, 7 ])))
+        self.assertTrue(all(a.sum(axis=1) == array([ 3, 12 ])))
+        self.assertTrue(all(a.T.sum(axis=-1) == array([ 3, 5, 7 ])))
+
+    def testMean(self):
+        a = arange(6).reshape(2, 3)
+        self.assertEqual(2.5, mean(a))
+        self.assertTrue(all(mean(a, 0) == array([ 1.5, 2.5, 3.5 ])))
+        self.assertTrue(all(a[:, ::-1].mean(1) == array([ 1, 4 ])))
 
     def testMinMax(self):
         self.assertEqual(2, max(array([ -2, 1, 2 ])))
         self.assertEqual(-2, min(array([ -2, 1, 2 ])))
+        a = array([ [ 1, 7, 3 ], [ 4, 5, 9 ] ])
+        self.assertTrue(all(a.max(axis=0) == array([ 4, 7, 9 ])))
+        self.assertTrue(all(a.min(axis=1) == array([ 1, 4 ])))
+        self.assertEqual(5, argmax(a))
+        self.assertTrue(all(argmax(a, axis=1) == array([ 1, 2 ])))
 
     def testAdd(self):
         # Flat array
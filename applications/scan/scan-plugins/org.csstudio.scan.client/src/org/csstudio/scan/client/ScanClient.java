@@ -15,6 +15,7 @@
  ******************************************************************************/
 package org.csstudio.scan.client;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.InputStream;
@@ -37,9 +38,11 @@ import org.csstudio.scan.PathUtil;
 import org.csstudio.scan.SystemSettings;
 import org.csstudio.scan.command.DOMHelper;
 import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataAccumulator;
 import org.csstudio.scan.device.DeviceInfo;
 import org.csstudio.scan.server.Scan;
 import org.csstudio.scan.server.ScanInfo;
+import org.csstudio.scan.server.ScanInfoUpdate;
 import org.csstudio.scan.server.ScanServerInfo;
 import org.csstudio.scan.server.ScanState;
 import org.csstudio.scan.server.SimulationResult;
@@ -99,8 +102,20 @@ public class ScanClient
      */
     private HttpURLConnection connect(final String path, final int timeout_seconds) throws Exception
     {
-        // URI will properly escape content of path
-        final URI uri = new URI("http", null, host, port, path, null, null);
+        return connect(path, null, timeout_seconds);
+    }
+
+    /** Connect to "http://server:port/path?query"
+     *  @param path Path to use in scan server REST interface
+     *  @param query Query or <code>null</code>
+     *  @param timeout_seconds Timeout to use for operations
+     *  @return {@link HttpURLConnection}
+     *  @throws Exception on error
+     */
+    private HttpURLConnection connect(final String path, final String query, final int timeout_seconds) throws Exception
+    {
+        // URI will properly escape content of path and query
+        final URI uri = new URI("http", null, host, port, path, query, null);
         final URL url = uri.toURL();
         final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setRequestProperty("Content-Type", "text/xml");
@@ -243,8 +258,9 @@ public class ScanClient
             final long non_heap = DOMHelper.getSubelementLong(root_node, "non_heap", 0);
             final String[] paths = PathUtil.splitPath(DOMHelper.getSubelementString(root_node, "script_paths", ""));
             final String macros = DOMHelper.getSubelementString(root_node, "macros", "");
+            final String jython = DOMHelper.getSubelementString(root_node, "jython", "");
             return new ScanServerInfo(version, start_time,
-                    scan_config, simulation_config, paths, macros, used_mem, max_mem, non_heap);
+                    scan_config, simulation_config, paths, macros, jython, used_mem, max_mem, non_heap);
         }
         finally
         {
@@ -258,7 +274,34 @@ public class ScanClient
      */
     public List<ScanInfo> getScanInfos() throws Exception
     {
-        final HttpURLConnection connection = connect("/scans");
+        return getScanInfos(connect("/scans")).getInfos();
+    }
+
+    /** Wait for changes of the scans on the server
+     *
+     *  <p>Returns when there are changes after the given version,
+     *  or when the timeout expires.
+     *
+     *  <p>A server that does not support this request
+     *  returns the complete infos right away, with version -1.
+     *
+     *  @param since_version Version of the infos known to the caller, -1 for complete infos
+     *  @param timeout_ms Time that server should wait for changes
+     *  @return {@link ScanInfoUpdate}
+     *  @throws Exception on error
+     */
+    public ScanInfoUpdate getScanInfos(final long since_version, final long timeout_ms) throws Exception
+    {
+        final int timeout_seconds = default_timeout + (int) MILLISECONDS.toSeconds(timeout_ms);
+        return getScanInfos(connect("/scans", "since=" + since_version + "&timeout=" + timeout_ms, timeout_seconds));
+    }
+
+    /** @param connection Connection for "/scans" request
+     *  @return {@link ScanInfoUpdate}
+     *  @throws Exception on error
+     */
+    private ScanInfoUpdate getScanInfos(final HttpURLConnection connection) throws Exception
+    {
         try
         {
             checkResponse(connection);
@@ -266,6 +309,10 @@ public class ScanClient
             if (! "scans".equals(root_node.getNodeName()))
                 throw new Exception("Expected <scans/>");
 
+            // Older servers don't provide version
+            final String version = root_node.getAttribute("version");
+            final boolean complete = ! "false".equals(root_node.getAttribute("complete"));
+
             Element node = DOMHelper.findFirstElementNode(root_node.getFirstChild(), "scan");
             final List<ScanInfo> infos = new ArrayList<>();
             while (node != null)
@@ -274,7 +321,16 @@ public class ScanClient
                 infos.add(info);
                 node = DOMHelper.findNextElementNode(node, "scan");
             }
-            return infos;
+
+            node = DOMHelper.findFirstElementNode(root_node.getFirstChild(), "removed");
+            final List<Long> removed = new ArrayList<>();
+            while (node != null)
+            {
+                removed.add(Long.valueOf(node.getTextContent().trim()));
+                node = DOMHelper.findNextElementNode(node, "removed");
+            }
+            return new ScanInfoUpdate(version.isEmpty() ? -1 : Long.parseLong(version),
+                                      complete, infos, removed);
         }
         finally
         {
@@ -330,7 +386,26 @@ public class ScanClient
      */
     public ScanData getScanData(final long id) throws Exception
     {
-        final HttpURLConnection connection = connect("/scan/" + id + "/data");
+        return getScanData(connect("/scan/" + id + "/data"));
+    }
+
+    /** Obtain data logged by a scan after a given serial
+     *
+     *  <p>Allows clients to only fetch new samples,
+     *  see {@link ScanDataAccumulator}.
+     *
+     *  @param id ID that uniquely identifies a scan (within JVM of the scan engine)
+     *  @param since_serial Only samples with a larger serial are returned
+     *  @return {@link ScanData}
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long id, final long since_serial) throws Exception
+    {
+        return getScanData(connect("/scan/" + id + "/data", "since=" + since_serial, default_timeout));
+    }
+
+    private ScanData getScanData(final HttpURLConnection connection) throws Exception
+    {
         try
         {
             checkResponse(connection);
@@ -422,7 +497,7 @@ public class ScanClient
      */
     public long submitScan(final String name, final String xml_commands, final boolean queue) throws Exception
     {
-        final HttpURLConnection connection = connect("/scan/" + name + (queue ? "" : "?queue=false"), long_timeout);
+        final HttpURLConnection connection = connect("/scan/" + name, queue ? null : "queue=false", long_timeout);
         connection.setReadTimeout(0);
         try
         {
@@ -449,7 +524,18 @@ public class ScanClient
      */
     public SimulationResult simulateScan(final String xml_commands) throws Exception
     {
-        final HttpURLConnection connection = connect("/simulate", long_timeout);
+        return simulateScan(xml_commands, false);
+    }
+
+    /** Submit a scan for simulation
+     *  @param xml_commands XML commands of the scan to submit
+     *  @param summary Only compute the time, without logging each step?
+     *  @return {@link SimulationResult}
+     *  @throws Exception on error
+     */
+    public SimulationResult simulateScan(final String xml_commands, final boolean summary) throws Exception
+    {
+        final HttpURLConnection connection = connect("/simulate", summary ? "summary=true" : null, long_timeout);
         try
         {
             post(connection, xml_commands);
@@ -50,7 +50,7 @@ public class ScanDataSAXHandler extends DefaultHandler
     private State state = State.NeedDevice;
 
     /** Most recently parsed XML text data */
-    private String cdata;
+    final private StringBuilder cdata = new StringBuilder();
 
     /** Currently parsed device */
     private String device = null;
@@ -74,7 +74,7 @@ public class ScanDataSAXHandler extends DefaultHandler
     public void startElement(final String uri, final String localName, final String qName,
             final Attributes attributes) throws SAXException
     {
-        cdata = "";
+        cdata.setLength(0);
         switch (state)
         {
         case NeedDevice:
@@ -104,7 +104,7 @@ public class ScanDataSAXHandler extends DefaultHandler
         case NeedName:
             if ("name".equalsIgnoreCase(qName))
             {
-                device = cdata;
+                device = cdata.toString();
                 samples = new ArrayList<>();
                 data.put(device, samples);
                 state = State.NeedSample;
@@ -115,7 +115,7 @@ public class ScanDataSAXHandler extends DefaultHandler
             {
                 try
                 {
-                    time = Instant.ofEpochMilli(Long.parseLong(cdata));
+                    time = Instant.ofEpochMilli(Long.parseLong(cdata.toString()));
                 }
                 catch (NumberFormatException ex)
                 {
@@ -126,7 +126,7 @@ public class ScanDataSAXHandler extends DefaultHandler
             {
                 try
                 {
-                    value = Double.parseDouble(cdata);
+                    value = Double.parseDouble(cdata.toString());
                 }
                 catch (NumberFormatException ex)
                 {
@@ -160,7 +160,8 @@ public class ScanDataSAXHandler extends DefaultHandler
     public void characters(final char[] ch, final int start, final int length)
             throws SAXException
     {
-        cdata = new String(ch, start, length);
+        // Text may be reported in several chunks
+        cdata.append(ch, start, length);
     }
 
     /** @return {@link ScanData} parsed from XML */
@@ -7,8 +7,10 @@
  ******************************************************************************/
 package org.csstudio.scan.client;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -16,13 +18,18 @@ import java.util.logging.Logger;
 import org.csstudio.scan.ScanSystemPreferences;
 import org.csstudio.scan.SystemSettings;
 import org.csstudio.scan.server.ScanInfo;
+import org.csstudio.scan.server.ScanInfoUpdate;
 import org.csstudio.scan.server.ScanServerInfo;
 
 /** Model of scan information on scan server
  *
  *  <p>Based on the {@link ScanClient},
- *  this model periodically polls the scan server for its
- *  state and sends updates to a (GUI) listener.
+ *  this model waits for the scan server to report changes
+ *  and sends updates to a (GUI) listener.
+ *  The server only responds when scans change or a timeout expires,
+ *  and only sends the infos of changed scans,
+ *  so idle clients cause little load on the server.
+ *  Updates are received at most once per poll period.
  *
  *  <p>Singleton to allow multiple views to monitor
  *  the scan server by using a single underlying
@@ -56,6 +63,16 @@ public class ScanInfoModel
     /** Most recent infos from <code>server</code> */
     private volatile List<ScanInfo> infos = Collections.emptyList();
 
+    /** Version of <code>infos</code> on the server, -1 to request complete infos.
+     *  Only accessed by poller
+     */
+    private long version = -1;
+
+    /** Start time of the server that provided <code>version</code>.
+     *  Only accessed by poller
+     */
+    private Instant server_start = null;
+
     /** Listeners */
     private List<ScanInfoModelListener> listeners = new CopyOnWriteArrayList<ScanInfoModelListener>();
 
@@ -130,6 +147,7 @@ public class ScanInfoModel
     private void start() throws Exception
     {
         final long poll_period = ScanSystemPreferences.getScanClientPollPeriod();
+        final long update_timeout = ScanSystemPreferences.getScanClientUpdateTimeout();
         poller = new Thread(new Runnable()
         {
             @Override
@@ -139,7 +157,7 @@ public class ScanInfoModel
                 {
                     try
                     {
-                        poll();
+                        poll(update_timeout);
                         Thread.sleep(poll_period);
                     }
                     catch (InterruptedException ex)
@@ -168,9 +186,10 @@ public class ScanInfoModel
     }
 
     /** Poll the server for info
+     *  @param update_timeout Time to wait for changes [millisecs]
      *  @throws InterruptedException
      */
-    private void poll() throws InterruptedException
+    private void poll(final long update_timeout) throws InterruptedException
     {
         try
         {
@@ -179,8 +198,18 @@ public class ScanInfoModel
             for (ScanInfoModelListener listener : listeners)
                 listener.scanServerUpdate(server_info);
 
-            // List of scans. Suppress updates if there is no change
-            final List<ScanInfo> update = client.getScanInfos();
+            // Versions of a restarted server don't relate to the previous ones
+            if (! Objects.equals(server_start, server_info.getStartTime()))
+            {
+                server_start = server_info.getStartTime();
+                version = -1;
+            }
+
+            // Wait for changes to the list of scans.
+            // Suppress updates if there is no change
+            final ScanInfoUpdate changes = client.getScanInfos(is_connected ? version : -1, update_timeout);
+            version = changes.getVersion();
+            final List<ScanInfo> update = changes.applyTo(infos);
             if (update.equals(infos) && is_connected)
                 return;
 
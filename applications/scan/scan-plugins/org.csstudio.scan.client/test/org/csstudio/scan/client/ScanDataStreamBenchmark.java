@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.client;
+
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataAccumulator;
+
+/** Benchmark of incremental scan data transfer
+ *
+ *  <p>Compares fetching all data on each update
+ *  with fetching only the new samples,
+ *  using the simulated transfer of the {@link ScanDataStreamUnitTest}.
+ *
+ *  <p>Run as plain Java application.
+ */
+@SuppressWarnings("nls")
+public class ScanDataStreamBenchmark
+{
+    final private static int STEPS = 250000;
+    final private static int UPDATES = 50;
+
+    /** @param args Ignored */
+    public static void main(final String[] args) throws Exception
+    {
+        final ScanData data = ScanDataStreamUnitTest.createScanData(STEPS);
+        final long samples = (long) STEPS * ScanDataStreamUnitTest.DEVICES.length;
+
+        // Reference: Fetch all data on each update
+        long start = System.nanoTime();
+        ScanDataStreamUnitTest.transfer(data);
+        long nanos = System.nanoTime() - start;
+        System.out.println("Full transfer of " + samples + " samples: " + nanos/1000000 + " ms, "
+                           + samples * 1000000000L / nanos + " samples/sec");
+        System.out.println(UPDATES + " updates would take about " + UPDATES * nanos/1000000 + " ms");
+
+        // Scan progresses in UPDATES chunks, client fetches only new samples
+        final ScanDataAccumulator accumulator = new ScanDataAccumulator();
+        long transferred = 0;
+        start = System.nanoTime();
+        for (int update=1; update<=UPDATES; ++update)
+        {
+            final ScanData progress = ScanDataStreamUnitTest.createView(data, STEPS / UPDATES * update);
+            final ScanData chunk = ScanDataStreamUnitTest.transfer(progress.getDataAfter(accumulator.getRequestSerial()));
+            for (String device : chunk.getDevices())
+                transferred += chunk.getSamples(device).size();
+            accumulator.add(chunk);
+        }
+        nanos = System.nanoTime() - start;
+        System.out.println(UPDATES + " incremental updates: " + nanos/1000000 + " ms, "
+                           + transferred * 1000000000L / nanos + " samples/sec");
+    }
+}
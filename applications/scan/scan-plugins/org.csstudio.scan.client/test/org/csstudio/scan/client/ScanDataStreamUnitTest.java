@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.client;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataAccumulator;
+import org.csstudio.scan.data.ScanDataXMLWriter;
+import org.csstudio.scan.data.ScanSample;
+import org.csstudio.scan.data.ScanSampleFactory;
+import org.junit.Test;
+
+/** JUnit test of incremental scan data transfer
+ *
+ *  <p>Simulates what the scan server and client do for
+ *  the "/scan/{id}/data?since={serial}" request,
+ *  without network.
+ *
+ *  @see ScanDataStreamBenchmark
+ */
+@SuppressWarnings("nls")
+public class ScanDataStreamUnitTest
+{
+    final static String[] DEVICES = { "setpoint", "readback", "counts", "position" };
+    final private static int STEPS = 5000;
+    final private static int UPDATES = 50;
+
+    /** @return Data for a scan with given number of steps */
+    static ScanData createScanData(final int steps)
+    {
+        final Instant start = Instant.now();
+        final Map<String, List<ScanSample>> data = new HashMap<>();
+        for (int d=0; d<DEVICES.length; ++d)
+        {
+            final List<ScanSample> samples = new ArrayList<>(steps);
+            for (int step=0; step<steps; ++step)
+                samples.add(ScanSampleFactory.createSample(start.plusMillis(step), step, step + d * 0.1));
+            data.put(DEVICES[d], samples);
+        }
+        return new ScanData(data);
+    }
+
+    /** Server writes, client reads */
+    static ScanData transfer(final ScanData data) throws Exception
+    {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ScanDataXMLWriter.write(data, buf);
+        final ScanDataSAXHandler handler = new ScanDataSAXHandler();
+        final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+        parser.parse(new ByteArrayInputStream(buf.toByteArray()), handler);
+        return handler.getScanData();
+    }
+
+    @Test
+    public void testTransfer() throws Exception
+    {
+        final ScanData data = createScanData(10);
+        final ScanData copy = transfer(data);
+        for (String device : DEVICES)
+        {
+            final List<ScanSample> orig = data.getSamples(device);
+            final List<ScanSample> received = copy.getSamples(device);
+            assertThat(received.size(), equalTo(orig.size()));
+            for (int i=0; i<orig.size(); ++i)
+            {
+                assertThat(received.get(i).getSerial(), equalTo(orig.get(i).getSerial()));
+                // Time stamps are transferred with millisecond resolution
+                assertThat(received.get(i).getTimestamp().toEpochMilli(), equalTo(orig.get(i).getTimestamp().toEpochMilli()));
+                assertThat(received.get(i).getValues()[0], equalTo(orig.get(i).getValues()[0]));
+            }
+        }
+    }
+
+    @Test
+    public void testAccumulator() throws Exception
+    {
+        final ScanData data = createScanData(10);
+        final ScanDataAccumulator accumulator = new ScanDataAccumulator();
+        assertThat(accumulator.add(data.getDataAfter(accumulator.getRequestSerial())), equalTo(true));
+        assertThat(accumulator.getLastSerial(), equalTo(9L));
+
+        // Request repeats the last serial, which must not be added again
+        final ScanData repeat = data.getDataAfter(accumulator.getRequestSerial());
+        assertThat(repeat.getSamples(DEVICES[0]).size(), equalTo(1));
+        assertThat(accumulator.add(repeat), equalTo(false));
+
+        final ScanData acc = accumulator.getScanData();
+        for (String device : DEVICES)
+            assertThat(acc.getSamples(device).size(), equalTo(10));
+    }
+
+    @Test
+    public void testIncrementalTransfer() throws Exception
+    {
+        final ScanData data = createScanData(STEPS);
+        final long samples = (long) STEPS * DEVICES.length;
+
+        // Scan progresses in UPDATES chunks, client fetches only new samples
+        final ScanDataAccumulator accumulator = new ScanDataAccumulator();
+        long transferred = 0;
+        for (int update=1; update<=UPDATES; ++update)
+        {
+            final ScanData progress = createView(data, STEPS / UPDATES * update);
+            final ScanData chunk = transfer(progress.getDataAfter(accumulator.getRequestSerial()));
+            for (String device : chunk.getDevices())
+                transferred += chunk.getSamples(device).size();
+            accumulator.add(chunk);
+        }
+
+        final ScanData received = accumulator.getScanData();
+        for (int d=0; d<DEVICES.length; ++d)
+        {
+            final List<ScanSample> device_samples = received.getSamples(DEVICES[d]);
+            assertThat(device_samples.size(), equalTo(STEPS));
+            for (int step=0; step<STEPS; step += 997)
+            {
+                assertThat(device_samples.get(step).getSerial(), equalTo((long) step));
+                assertThat(((Number) device_samples.get(step).getValues()[0]).doubleValue(), equalTo(step + d * 0.1));
+            }
+        }
+        // Each update only re-sent the samples of the last serial
+        assertThat(transferred, equalTo(samples + (UPDATES - 1) * DEVICES.length));
+    }
+
+    /** @return Data up to (excluding) given step */
+    static ScanData createView(final ScanData data, final int steps)
+    {
+        final Map<String, List<ScanSample>> view = new HashMap<>();
+        for (String device : data.getDevices())
+            view.put(device, data.getSamples(device).subList(0, steps));
+        return new ScanData(view);
+    }
+}
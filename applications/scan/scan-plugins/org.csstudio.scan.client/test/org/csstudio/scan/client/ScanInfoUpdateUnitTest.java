@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.client;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.csstudio.scan.server.Scan;
+import org.csstudio.scan.server.ScanInfo;
+import org.csstudio.scan.server.ScanInfoUpdate;
+import org.csstudio.scan.server.ScanState;
+import org.junit.Test;
+
+/** JUnit test of the {@link ScanInfoUpdate}
+ *  that {@link ScanInfoModel} applies to its infos
+ */
+@SuppressWarnings("nls")
+public class ScanInfoUpdateUnitTest
+{
+    final private static Instant now = Instant.now();
+
+    private static ScanInfo info(final long id, final ScanState state)
+    {
+        return new ScanInfo(new Scan(id, "Scan " + id, now), state);
+    }
+
+    @Test
+    public void testApplyUpdates()
+    {
+        final List<ScanInfo> infos = Arrays.asList(info(3, ScanState.Running),
+                                                   info(2, ScanState.Finished),
+                                                   info(1, ScanState.Finished));
+
+        // Complete update replaces infos
+        final List<ScanInfo> complete = Arrays.asList(info(1, ScanState.Finished));
+        assertThat(new ScanInfoUpdate(5, true, complete, Collections.emptyList()).applyTo(infos),
+                   equalTo(complete));
+
+        // No changes
+        assertThat(new ScanInfoUpdate(5, false, Collections.emptyList(), Collections.emptyList()).applyTo(infos),
+                   sameInstance(infos));
+
+        // Scan 3 finished, scan 1 removed, new scan 4 running
+        final ScanInfoUpdate update = new ScanInfoUpdate(6, false,
+                Arrays.asList(info(4, ScanState.Running), info(3, ScanState.Finished)),
+                Arrays.asList(1L));
+        final List<ScanInfo> result = update.applyTo(infos);
+        System.out.println(update + " -> " + result);
+        assertThat(result, equalTo(Arrays.asList(info(4, ScanState.Running),
+                                                 info(3, ScanState.Finished),
+                                                 info(2, ScanState.Finished))));
+    }
+}
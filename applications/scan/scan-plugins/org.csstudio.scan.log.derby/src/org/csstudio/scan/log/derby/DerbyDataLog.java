@@ -7,6 +7,14 @@
  ******************************************************************************/
 package org.csstudio.scan.log.derby;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.csstudio.scan.data.ScanData;
 import org.csstudio.scan.data.ScanSample;
 import org.csstudio.scan.log.DataLog;
@@ -14,16 +22,72 @@ import org.csstudio.scan.log.DataLog;
 /** Data log for Derby
  *
  *  <p>Uses the {@link DerbyDataLogger} for a specific scan ID.
- *  Creates a logger on <code>doLog()</code> and keeps that open
- *  until <code>close()</code>
+ *
+ *  <p><code>doLog()</code> only places samples in a queue.
+ *  A background thread writes them in batches, each batch in one transaction.
+ *  The thread and its logger are created on the first <code>doLog()</code>
+ *  and kept until <code>close()</code>.
+ *  When the queue is full, <code>doLog()</code> blocks until the writer catches up,
+ *  or fails if the writer stopped.
+ *
+ *  <p><code>getScanData()</code> and <code>close()</code>
+ *  wait for all queued samples to be written.
+ *  <code>flush()</code> only notifies listeners, so the scan
+ *  is not paced by the database.
  *
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public class DerbyDataLog extends DataLog
 {
+    /** Maximum number of queued samples */
+    final static int MAX_QUEUE = 100000;
+
+    /** Maximum number of samples written in one transaction */
+    final static int MAX_BATCH = 1000;
+
+    /** Device and sample in queue */
+    private static class QueuedSample
+    {
+        final String device;
+        final ScanSample sample;
+
+        QueuedSample(final String device, final ScanSample sample)
+        {
+            this.device = device;
+            this.sample = sample;
+        }
+    }
+
+    /** Queue entry that stops the writer */
+    final private static QueuedSample END = new QueuedSample(null, null);
+
     final private long scan_id;
 
-    private RDBDataLogger logger = null;
+    final private BlockingQueue<QueuedSample> queue = new LinkedBlockingQueue<>(MAX_QUEUE);
+
+    /** Thread that writes queued samples */
+    private Thread writer = null;
+
+    /** Error of the writer, reported by next <code>doLog()</code> */
+    private volatile Exception error = null;
+
+    /** Lock for the following counters, notified when samples have been written */
+    final private Object progress = new Object();
+
+    /** Number of samples that were queued */
+    private long queued = 0;
+
+    /** Number of queued samples that have been handled, i.e. written or failed */
+    private long written = 0;
+
+    /** Has the writer stopped? No more samples are queued once it has. */
+    private boolean writer_stopped = false;
+
+    /** Number of batches and time spent writing them.
+     *  Updated by writer, SYNC on progress to read
+     */
+    private long batches = 0, write_nanos = 0;
 
     /** Initialize
      *  @param scan_id ID of scan for which this logger should operate
@@ -47,15 +111,186 @@ public class DerbyDataLog extends DataLog
     @Override
     public void doLog(final String device, final ScanSample sample) throws Exception
     {
-        if (logger == null)
-            logger = new DerbyDataLogger();
-        logger.log(scan_id, device, sample);
+        final Exception failure = error;
+        if (failure != null)
+            throw new Exception("Cannot log data for scan " + scan_id, failure);
+        startWriter();
+        synchronized (progress)
+        {
+            if (writer_stopped)
+                throw new Exception("Data log writer for scan " + scan_id + " stopped", error);
+            ++queued;
+        }
+        try
+        {
+            enqueue(new QueuedSample(device, sample));
+        }
+        catch (Exception ex)
+        {
+            synchronized (progress)
+            {
+                --queued;
+                progress.notifyAll();
+            }
+            throw ex;
+        }
+    }
+
+    /** Add entry to the queue, waiting for space as long as the writer runs
+     *  @param entry Sample or END
+     *  @throws Exception if the writer stopped, or when interrupted
+     */
+    private void enqueue(final QueuedSample entry) throws Exception
+    {
+        while (! queue.offer(entry, 1, TimeUnit.SECONDS))
+        {
+            synchronized (progress)
+            {
+                if (writer_stopped)
+                    throw new Exception("Data log writer for scan " + scan_id + " stopped", error);
+            }
+        }
+    }
+
+    /** Start writer, unless already running
+     *  @throws Exception on error connecting to the database
+     */
+    private synchronized void startWriter() throws Exception
+    {
+        if (writer != null)
+            return;
+        final RDBDataLogger logger = new DerbyDataLogger();
+        synchronized (progress)
+        {
+            writer_stopped = false;
+        }
+        writer = new Thread(() -> writeSamples(logger), "DerbyDataLog " + scan_id);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Write queued samples until END is received
+     *  @param logger Logger to use, will be closed when done
+     */
+    private void writeSamples(final RDBDataLogger logger)
+    {
+        final List<QueuedSample> batch = new ArrayList<>(MAX_BATCH);
+        boolean done = false;
+        try
+        {
+            while (! done)
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                int count = batch.size();
+                if (batch.get(count - 1) == END)
+                {
+                    done = true;
+                    --count;
+                }
+                if (error == null)
+                {
+                    final long start = System.nanoTime();
+                    try
+                    {
+                        for (int i=0; i<count; ++i)
+                        {
+                            final QueuedSample entry = batch.get(i);
+                            logger.addBatch(scan_id, entry.device, entry.sample);
+                        }
+                        logger.executeBatch();
+                    }
+                    catch (Exception ex)
+                    {   // Samples of this batch are lost, and any
+                        // remaining samples will be dropped.
+                        // Next doLog() will report the error.
+                        Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                                "Cannot write data for scan " + scan_id, ex);
+                        error = ex;
+                    }
+                    synchronized (progress)
+                    {
+                        write_nanos += System.nanoTime() - start;
+                        ++batches;
+                    }
+                }
+                batch.clear();
+                synchronized (progress)
+                {
+                    written += count;
+                    progress.notifyAll();
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING, "Data log writer for scan " + scan_id + " interrupted", ex);
+            error = ex;
+        }
+        finally
+        {
+            logger.close();
+            // Don't leave anybody waiting for samples that won't be written,
+            // and don't accept new ones
+            synchronized (progress)
+            {
+                writer_stopped = true;
+                written = queued;
+                progress.notifyAll();
+            }
+        }
+    }
+
+    /** Wait until all queued samples have been written */
+    private void waitForWriter()
+    {
+        synchronized (progress)
+        {
+            try
+            {
+                while (written < queued  &&  ! writer_stopped)
+                    progress.wait();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** @return Number of samples that are queued, waiting to be written */
+    public long getQueueSize()
+    {
+        synchronized (progress)
+        {
+            return queued - written;
+        }
+    }
+
+    /** @return Number of samples that have been written, or dropped after an error */
+    public long getWrittenSampleCount()
+    {
+        synchronized (progress)
+        {
+            return written;
+        }
+    }
+
+    /** @return Number of samples written per second while writing batches, 0 if nothing was written */
+    public long getSampleThroughput()
+    {
+        synchronized (progress)
+        {
+            return write_nanos > 0 ? written * 1000000000L / write_nanos : 0;
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public ScanData getScanData() throws Exception
     {
+        // Include samples that are still queued
+        waitForWriter();
         // Can be called without doLog(), so use separate logger just for this call
         final RDBDataLogger logger = new DerbyDataLogger();
         try
@@ -70,12 +305,48 @@ public class DerbyDataLog extends DataLog
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void close()
+    public ScanData getScanData(final long since_serial) throws Exception
     {
-        if (logger != null)
+        waitForWriter();
+        final RDBDataLogger logger = new DerbyDataLogger();
+        try
+        {
+            return logger.getScanData(scan_id, since_serial);
+        }
+        finally
         {
             logger.close();
-            logger = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void close()
+    {
+        if (writer != null)
+        {
+            try
+            {
+                enqueue(END);
+                writer.join();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch (Exception ex)
+            {
+                // Writer already stopped, and logged its error
+            }
+            writer = null;
+            final long batch_count;
+            synchronized (progress)
+            {
+                batch_count = batches;
+            }
+            Logger.getLogger(getClass().getName()).log(Level.CONFIG,
+                    "Scan {0} data log: {1} samples in {2} batches, {3} samples/sec",
+                    new Object[] { scan_id, getWrittenSampleCount(), batch_count, getSampleThroughput() });
         }
         super.close();
     }
@@ -47,6 +47,9 @@ abstract public class RDBDataLogger
     /** Re-used statement */
     private PreparedStatement insert_sample_statement = null;
 
+    /** Number of samples added to the batch of the insert_sample_statement */
+    private int batched_samples = 0;
+
     /** Initialize
       *  @throws Exception on error
      */
@@ -254,6 +257,60 @@ abstract public class RDBDataLogger
      *  @throws Exception on error
      */
     public void log(final long scan_id, final String device, final ScanSample sample) throws Exception
+    {
+        setSampleParameters(scan_id, device, sample);
+        final int rows = insert_sample_statement.executeUpdate();
+        if (rows != 1)
+            throw new Exception("Sample insert affected " + rows + " rows");
+    }
+
+    /** Add a sample to the current batch
+     *
+     *  <p>Sample is only written by <code>executeBatch()</code>.
+     *
+     *  @param scan_id ID of associated scan
+     *  @param device Device name
+     *  @param sample Sample to log
+     *  @throws Exception on error
+     *  @see #executeBatch()
+     */
+    public void addBatch(final long scan_id, final String device, final ScanSample sample) throws Exception
+    {
+        setSampleParameters(scan_id, device, sample);
+        insert_sample_statement.addBatch();
+        ++batched_samples;
+    }
+
+    /** Write all samples of the current batch in one transaction
+     *  @return Number of samples written
+     *  @throws Exception on error, in which case none of the samples in the batch are written
+     */
+    public int executeBatch() throws Exception
+    {
+        if (batched_samples <= 0)
+            return 0;
+        final int count = batched_samples;
+        batched_samples = 0;
+        connection.setAutoCommit(false);
+        try
+        {
+            insert_sample_statement.executeBatch();
+            connection.commit();
+        }
+        catch (Exception ex)
+        {
+            insert_sample_statement.clearBatch();
+            connection.rollback();
+            throw ex;
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+        return count;
+    }
+
+    private void setSampleParameters(final long scan_id, final String device, final ScanSample sample) throws Exception
     {
         final int device_id = getDevice(device);
 
@@ -266,9 +323,6 @@ abstract public class RDBDataLogger
         insert_sample_statement.setLong(3, sample.getSerial());
         insert_sample_statement.setTimestamp(4, Timestamp.from(sample.getTimestamp()));
         insert_sample_statement.setObject(5, new SampleValue(sample.getValues()));
-        final int rows = insert_sample_statement.executeUpdate();
-        if (rows != 1)
-            throw new Exception("Sample insert affected " + rows + " rows");
     }
 
     /** Get serial of last logged sample.
@@ -312,6 +366,17 @@ abstract public class RDBDataLogger
      *  @throws Exception on error
      */
     public ScanData getScanData(final long scan_id) throws Exception
+    {
+        return getScanData(scan_id, -1);
+    }
+
+    /** Obtain data for a scan
+     *  @param scan_id ID of the scan
+     *  @param since_serial Only samples with a larger serial are returned
+     *  @return {@link ScanData}
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long scan_id, final long since_serial) throws Exception
     {
         final Map<String, List<ScanSample>> device_logs = new HashMap<String, List<ScanSample>>();
 
@@ -321,8 +386,9 @@ abstract public class RDBDataLogger
         final String[] devices = getScanDevices(scan_id);
         for (String device : devices)
         {
-            final List<ScanSample> samples = getScanSamples(scan_id, device);
-            device_logs.put(device, samples);
+            final List<ScanSample> samples = getScanSamples(scan_id, device, since_serial);
+            if (! samples.isEmpty())
+                device_logs.put(device, samples);
         }
 
         return new ScanData(device_logs);
@@ -331,20 +397,22 @@ abstract public class RDBDataLogger
     /** Get samples
      *  @param scan_id ID of the scan
      *  @param device_name Name of the device
+     *  @param since_serial Only samples with a larger serial are returned
      *  @return Samples for that scan
      *  @throws Exception on error
      */
-    private List<ScanSample> getScanSamples(final long scan_id, final String device_name) throws Exception
+    private List<ScanSample> getScanSamples(final long scan_id, final String device_name, final long since_serial) throws Exception
     {
         final List<ScanSample> samples = new ArrayList<ScanSample>();
         try
         (
             final PreparedStatement statement = connection.prepareStatement(
-                    "SELECT serial, timestamp, value FROM samples WHERE scan_id=? AND device_id=? ORDER BY serial");
+                    "SELECT serial, timestamp, value FROM samples WHERE scan_id=? AND device_id=? AND serial>? ORDER BY serial");
         )
         {
             statement.setLong(1, scan_id);
             statement.setInt(2, getDevice(device_name));
+            statement.setLong(3, since_serial);
             final ResultSet result = statement.executeQuery();
             while (result.next())
             {
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.log.derby;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanSample;
+import org.csstudio.scan.data.ScanSampleFactory;
+import org.csstudio.scan.server.Scan;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/** JUnit test of the batched {@link DerbyDataLog}
+ *
+ *  <p>Will execute Derby for the database, cannot run if another Derby instance (Scan Server)
+ *  already runs the database.
+ *
+ *  <p>Run as a Java application to compare with direct inserts.
+ */
+@SuppressWarnings("nls")
+public class DerbyDataLogBatchUnitTest
+{
+    final private static String[] DEVICES = { "setpoint", "readback", "counts", "position" };
+    final private static int STEPS = 12500;
+
+    @BeforeClass
+    public static void startup() throws Exception
+    {
+        DerbyDataLogger.startup();
+    }
+
+    @AfterClass
+    public static void shutdown() throws Exception
+    {
+        DerbyDataLogger.shutdown();
+    }
+
+    /** @return Time for logging the samples of a 'loop' in the scan thread and writing them in nanosecs */
+    private static long[] logLoop(final DerbyDataLog log, final int steps) throws Exception
+    {
+        final long start = System.nanoTime();
+        for (int step=0; step<steps; ++step)
+        {
+            final long serial = log.getNextScanDataSerial();
+            for (int d=0; d<DEVICES.length; ++d)
+                log.log(DEVICES[d], ScanSampleFactory.createSample(Instant.now(), serial, step + d * 0.1));
+        }
+        final long logged = System.nanoTime() - start;
+        log.flush();
+        // flush() doesn't wait for the writer, reading the data does
+        log.getScanData();
+        return new long[] { logged, System.nanoTime() - start };
+    }
+
+    @Test(timeout=120000)
+    public void testBatchedLogging() throws Exception
+    {
+        final Scan batch_scan = new DerbyDataLogFactory().createDataLog("Batch Test");
+        final DerbyDataLog log = new DerbyDataLog(batch_scan.getId());
+        logLoop(log, STEPS);
+
+        // Read back
+        final ScanData data = log.getScanData();
+        for (int d=0; d<DEVICES.length; ++d)
+        {
+            final List<ScanSample> device_samples = data.getSamples(DEVICES[d]);
+            assertThat(device_samples.size(), equalTo(STEPS));
+            for (int step=0; step<STEPS; step += 997)
+            {
+                assertThat(device_samples.get(step).getSerial(), equalTo((long) step));
+                assertThat(((Number) device_samples.get(step).getValues()[0]).doubleValue(), equalTo(step + d * 0.1));
+            }
+        }
+        assertThat(log.getLastScanDataSerial(), equalTo((long) STEPS - 1));
+        assertThat(log.getQueueSize(), equalTo(0L));
+        assertThat(log.getWrittenSampleCount(), equalTo((long) STEPS * DEVICES.length));
+        assertThat(log.getSampleThroughput() > 0, equalTo(true));
+        log.close();
+
+        new DerbyDataLogFactory().deleteDataLog(batch_scan);
+    }
+
+    /** Benchmark: Direct inserts versus batched {@link DerbyDataLog}
+     *  @param args Ignored
+     *  @throws Exception on error
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        startup();
+        final long samples = (long) STEPS * DEVICES.length;
+
+        // Reference: One insert per sample
+        final DerbyDataLogger logger = new DerbyDataLogger();
+        final Scan scan = logger.createScan("Direct Benchmark");
+        final long start = System.nanoTime();
+        for (int step=0; step<STEPS/10; ++step)
+            for (int d=0; d<DEVICES.length; ++d)
+                logger.log(scan.getId(), DEVICES[d], ScanSampleFactory.createSample(Instant.now(), step, step + d * 0.1));
+        final long nanos = System.nanoTime() - start;
+        System.out.println("Direct  : " + samples / 10 * 1000000000L / nanos + " samples/sec");
+        logger.deleteDataLog(scan.getId());
+        logger.close();
+
+        final Scan batch_scan = new DerbyDataLogFactory().createDataLog("Batch Benchmark");
+        final DerbyDataLog log = new DerbyDataLog(batch_scan.getId());
+        final long[] times = logLoop(log, STEPS);
+        System.out.println("Queued  : " + samples * 1000000000L / times[0] + " samples/sec in scan thread");
+        System.out.println("Written : " + samples * 1000000000L / times[1] + " samples/sec");
+        log.close();
+        new DerbyDataLogFactory().deleteDataLog(batch_scan);
+
+        shutdown();
+    }
+}
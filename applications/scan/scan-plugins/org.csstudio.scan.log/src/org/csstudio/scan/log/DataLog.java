@@ -115,6 +115,21 @@ abstract public class DataLog implements Closeable
      */
     abstract public ScanData getScanData() throws Exception;
 
+    /** Get samples that were logged after a given serial
+     *
+     *  <p>Default implementation filters the result of <code>getScanData()</code>.
+     *  Derived classes may override with a more efficient implementation.
+     *
+     *  @param since_serial Only samples with a larger serial are returned
+     *  @return {@link ScanData} with copy of the newer samples or <code>null</code>
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        final ScanData data = getScanData();
+        return data == null ? null : data.getDataAfter(since_serial);
+    }
+
     /** Should be called when done logging samples
      *  to allow logging mechanism to release resources.
      */
@@ -63,4 +63,12 @@ public class MemoryDataLog extends DataLog
     {
         return new ScanData(new HashMap<String, List<ScanSample>>(device_logs));
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized ScanData getScanData(final long since_serial) throws Exception
+    {
+        // Filter while holding the lock, since sample lists are appended by doLog()
+        return new ScanData(device_logs).getDataAfter(since_serial);
+    }
 }
@@ -20,19 +20,25 @@ import static org.junit.Assert.assertThat;
 import static org.hamcrest.CoreMatchers.*;
 import static org.csstudio.utility.test.HamcrestMatchers.*;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import org.csstudio.scan.command.LogCommand;
 import org.csstudio.scan.command.LoopCommand;
 import org.csstudio.scan.command.SetCommand;
+import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanSample;
 import org.csstudio.scan.commandimpl.LoopCommandImpl;
 import org.csstudio.scan.device.Device;
 import org.csstudio.scan.device.DeviceContext;
 import org.csstudio.scan.device.DeviceInfo;
+import org.csstudio.scan.device.SimulatedDevice;
 import org.csstudio.scan.device.VTypeHelper;
 import org.csstudio.scan.server.ScanCommandImpl;
 import org.csstudio.scan.server.ScanContext;
+import org.csstudio.scan.server.ScanState;
 import org.csstudio.scan.server.internal.ExecutableScan;
 import org.junit.Test;
 
@@ -210,4 +216,80 @@ public class LoopCommandHeadlessTest
             devices.stopDevices();
         }
     }
+
+
+    /** @return Simulated devices where 'motor' takes 100ms, 'a' and 'b' 50ms to update */
+    private DeviceContext getLatencyContext() throws Exception
+    {
+        final DeviceContext context = new DeviceContext();
+        for (String name : new String[] { "motor", "a", "b" })
+        {
+            final SimulatedDevice device = new SimulatedDevice(name);
+            device.setLatency(Duration.ofMillis(name.equals("motor") ? 100 : 50));
+            context.addDevice(device);
+        }
+        return context;
+    }
+
+    /** @param pipeline Pipeline the loop?
+     *  @return Data of the scan
+     */
+    private ScanData executeLatencyLoop(final boolean pipeline) throws Exception
+    {
+        final DeviceContext devices = getLatencyContext();
+        final LoopCommand command = new LoopCommand("motor", 1.0, 10.0, 1.0,
+                new SetCommand("a", 1.0, true, "a", true, 0.1, 0.0),
+                new SetCommand("b", 2.0, true, "b", true, 0.1, 0.0),
+                new LogCommand("a", "b"));
+        command.setPipeline(pipeline);
+
+        final ExecutableScan scan = new ExecutableScan("Latency Test", devices, new LoopCommandImpl(command));
+        scan.call();
+
+        assertThat(scan.getScanInfo().getState(), equalTo(ScanState.Finished));
+        assertThat(scan.getScanInfo().getPercentage(), equalTo(100));
+        assertEquals(10.0, VTypeHelper.toDouble(devices.getDevice("motor").read()), 0.1);
+        final ScanData data = scan.getScanData();
+        assertThat(data.getSamples("b").size(), greaterThanOrEqualTo(10));
+        return data;
+    }
+
+    /** @param data Scan data
+     *  @param device Device
+     *  @return Values of the device
+     */
+    private static double[] getValues(final ScanData data, final String device)
+    {
+        final List<ScanSample> samples = data.getSamples(device);
+        final double[] values = new double[samples.size()];
+        for (int i=0; i<values.length; ++i)
+            values[i] = ((Number) samples.get(i).getValues()[0]).doubleValue();
+        return values;
+    }
+
+    @Test(timeout=20000)
+    public void testPipelinedLoop() throws Exception
+    {
+        // Serial loop does not log move timing
+        ScanData data = executeLatencyLoop(false);
+        assertThat(data.getSamples("motor.move_time"), nullValue());
+
+        data = executeLatencyLoop(true);
+        final double[] move = getValues(data, "motor.move_time");
+        final double[] wait = getValues(data, "motor.wait_time");
+        final double[] body = getValues(data, "motor.body_time");
+        assertThat(move.length, equalTo(10));
+        assertThat(wait.length, equalTo(10));
+        assertThat(body.length, equalTo(10));
+
+        // After the first step, each move starts before the body of the previous step.
+        // The loop only waits for the part of the move that did not overlap the body,
+        // so the wait is shorter than the move.
+        for (int i=1; i<move.length; ++i)
+        {
+            assertThat(body[i-1] > 0.0, equalTo(true));
+            assertThat("Step " + i + " waited " + wait[i] + " s for move of " + move[i] + " s",
+                       wait[i] < move[i], equalTo(true));
+        }
+    }
 }
@@ -8,22 +8,32 @@
 package org.csstudio.scan;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.csstudio.scan.command.Comparison;
 import org.csstudio.scan.command.DelayCommand;
+import org.csstudio.scan.command.LogCommand;
 import org.csstudio.scan.command.LoopCommand;
 import org.csstudio.scan.command.ScanCommand;
 import org.csstudio.scan.command.SetCommand;
 import org.csstudio.scan.command.WaitCommand;
+import org.csstudio.scan.device.ScanConfig;
+import org.csstudio.scan.device.VTypeHelper;
 import org.csstudio.scan.server.ScanCommandImpl;
+import org.csstudio.scan.server.JythonSupport;
 import org.csstudio.scan.server.ScanCommandImplTool;
+import org.csstudio.scan.server.ScanContext;
 import org.csstudio.scan.server.SimulationContext;
+import org.csstudio.scan.server.SimulationHook;
 import org.junit.Test;
 
 /** [Headless] JUnit Plug-In test of the scan command simulation
@@ -53,18 +63,211 @@ public class ScanSimulationHeadlessTest
         List<ScanCommandImpl<?>> scan = tool.implement(commands, null);
 
         ByteArrayOutputStream simu_log = new ByteArrayOutputStream();
-        final SimulationContext context = new SimulationContext(new PrintStream(simu_log));
+        final SimulationContext context = new SimulationContext(new JythonSupport(), new PrintStream(simu_log));
         context.simulate(scan);
         final String log_text = simu_log.toString();
 
-        System.out.println("--------");
-        System.out.println("Simulation:");
-        System.out.println("--------");
-        System.out.print(log_text);
-        System.out.println("--------");
-        System.out.println(context.getSimulationTime() + "   Total estimated execution time");
-
         assertTrue(log_text.length() > 0);
         assertEquals(9*60+47, context.getSimulationSeconds(), 10);
     }
+
+    /** @param log_stream Stream for simulation log, <code>null</code> for summary
+     *  @return {@link SimulationContext} without simulation hook
+     */
+    private SimulationContext createContext(final PrintStream log_stream) throws Exception
+    {
+        return createContext(null, log_stream);
+    }
+
+    /** @param hook {@link SimulationHook} or <code>null</code>
+     *  @param log_stream Stream for simulation log, <code>null</code> for summary
+     *  @return {@link SimulationContext}
+     */
+    private SimulationContext createContext(final SimulationHook hook, final PrintStream log_stream) throws Exception
+    {
+        final ScanConfig config = new ScanConfig(new ByteArrayInputStream("<scan_config/>".getBytes()));
+        return new SimulationContext(config, hook, log_stream);
+    }
+
+    /** Command that counts how often it is simulated */
+    private static class CountingCommandImpl extends ScanCommandImpl<DelayCommand>
+    {
+        int simulations = 0;
+
+        CountingCommandImpl() throws Exception
+        {
+            super(new DelayCommand(1.0), null);
+        }
+
+        @Override
+        public boolean isSimulationRepeatable()
+        {
+            return true;
+        }
+
+        @Override
+        public void simulate(final SimulationContext context) throws Exception
+        {
+            ++simulations;
+            final double ypos = VTypeHelper.toDouble(context.getDevice("ypos").read());
+            context.logExecutionStep("Counting at ypos " + ypos, 1.0);
+        }
+
+        @Override
+        public void execute(final ScanContext context) throws Exception
+        {
+            // Only simulated
+        }
+    }
+
+    @Test
+    public void testRepeatedSimulation() throws Exception
+    {
+        final double[] ypos = { 1, 2, 1, 2, 2, 3, 1 };
+        for (boolean summary : new boolean[] { false, true })
+        {
+            final ByteArrayOutputStream simu_log = new ByteArrayOutputStream();
+            final SimulationContext context = createContext(summary ? null : new PrintStream(simu_log));
+            final CountingCommandImpl counter = new CountingCommandImpl();
+            final List<ScanCommandImpl<?>> body = Arrays.asList(counter);
+            for (double value : ypos)
+            {
+                context.getDevice("ypos").write(value);
+                assertEquals(Collections.singleton("ypos"), context.simulateRepeated(body));
+            }
+            // Body was simulated once for each distinct ypos, ..
+            assertEquals(3, counter.simulations);
+            // .. but every repetition was accounted for
+            assertEquals(ypos.length * 1.0, context.getSimulationSeconds(), 1e-9);
+            if (summary)
+                assertEquals(0, simu_log.size());
+            else
+            {
+                final String[] lines = simu_log.toString().split("\n");
+                assertEquals(ypos.length, lines.length);
+                for (int i=0; i<ypos.length; ++i)
+                    assertTrue(lines[i], lines[i].endsWith("Counting at ypos " + ypos[i]));
+            }
+        }
+    }
+
+    /** Hook that handles the delay commands, counting how often it is called */
+    private static class CountingHook extends SimulationHook
+    {
+        final boolean repeatable;
+        int calls = 0;
+
+        CountingHook(final boolean repeatable)
+        {
+            this.repeatable = repeatable;
+        }
+
+        @Override
+        public boolean handle(final ScanCommand command, final SimulationContext context)
+        {
+            if (! (command instanceof DelayCommand))
+                return false;
+            ++calls;
+            try
+            {
+                final double ypos = VTypeHelper.toDouble(context.getDevice("ypos").read());
+                context.logExecutionStep("Hooked at ypos " + ypos, 2.0);
+            }
+            catch (Exception ex)
+            {
+                throw new RuntimeException(ex);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isRepeatable()
+        {
+            return repeatable;
+        }
+    }
+
+    @Test
+    public void testRepeatedSimulationWithHook() throws Exception
+    {
+        final double[] ypos = { 1, 2, 1, 2, 2, 3, 1 };
+        for (boolean repeatable : new boolean[] { true, false })
+        {
+            final ByteArrayOutputStream simu_log = new ByteArrayOutputStream();
+            final CountingHook hook = new CountingHook(repeatable);
+            final SimulationContext context = createContext(hook, new PrintStream(simu_log));
+            final CountingCommandImpl counter = new CountingCommandImpl();
+            final List<ScanCommandImpl<?>> body = Arrays.asList(counter);
+            for (double value : ypos)
+            {
+                context.getDevice("ypos").write(value);
+                final Set<String> unchanged = context.simulateRepeated(body);
+                if (repeatable)
+                    assertEquals(Collections.singleton("ypos"), unchanged);
+                else
+                    assertNull(unchanged);
+            }
+            // Hook replaced the simulation of the command
+            assertEquals(0, counter.simulations);
+            // Repeatable hook was called once for each distinct ypos,
+            // hook with state for every repetition
+            assertEquals(repeatable ? 3 : ypos.length, hook.calls);
+            assertEquals(ypos.length * 2.0, context.getSimulationSeconds(), 1e-9);
+            final String[] lines = simu_log.toString().split("\n");
+            assertEquals(ypos.length, lines.length);
+            for (int i=0; i<ypos.length; ++i)
+                assertTrue(lines[i], lines[i].endsWith("Hooked at ypos " + ypos[i]));
+        }
+    }
+
+    /** @param steps Steps of each loop
+     *  @return Three nested loops with <code>steps</code>^3 inner steps
+     */
+    private List<ScanCommandImpl<?>> createNestedLoops(final int steps) throws Exception
+    {
+        final List<ScanCommand> commands = Arrays.asList( (ScanCommand)
+                new LoopCommand("xpos", 1, steps, 1,
+                    new LoopCommand("ypos", 1, steps, 1,
+                        new LoopCommand("zpos", 1, steps, 1,
+                            new SetCommand("shutter", 1.0),
+                            new DelayCommand(0.1),
+                            new WaitCommand("neutrons", Comparison.INCREASE_BY, 3.0),
+                            new SetCommand("shutter", 0.0),
+                            new LogCommand("xpos", "ypos", "zpos", "neutrons")
+                        )
+                    )
+                )
+            );
+        return ScanCommandImplTool.getInstance().implement(commands, null);
+    }
+
+    /** @param scan Scan to simulate
+     *  @param summary Only compute the time, or log all steps?
+     *  @return Estimated time in seconds
+     */
+    private double simulate(final List<ScanCommandImpl<?>> scan, final boolean summary) throws Exception
+    {
+        final ByteArrayOutputStream simu_log = new ByteArrayOutputStream();
+        final SimulationContext context = createContext(summary ? null : new PrintStream(simu_log));
+        context.simulate(scan);
+        assertEquals(summary, simu_log.size() == 0);
+        return context.getSimulationSeconds();
+    }
+
+    @Test(timeout=120000)
+    public void testSimulationBenchmark() throws Exception
+    {
+        // Summary and full log must estimate the same time,
+        // summary skips the remaining steps of the loops
+        List<ScanCommandImpl<?>> scan = createNestedLoops(20);
+        final double full = simulate(scan, false);
+        scan = createNestedLoops(20);
+        final double summary = simulate(scan, true);
+        assertEquals(full, summary, full * 1e-9);
+
+        // 10^6 inner steps
+        scan = createNestedLoops(100);
+        final double seconds = simulate(scan, true);
+        assertTrue(seconds > 1000000 * 0.1);
+    }
 }
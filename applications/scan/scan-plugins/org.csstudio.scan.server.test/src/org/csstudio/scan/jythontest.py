@@ -7,8 +7,18 @@ print "Path: ", sys.path
 
 from org.csstudio.scan.command import ScanScript
 
+# Count how often this module was executed
+# in the same namespace.
+# Each load of the script should start out fresh.
+try:
+    loaded += 1
+except NameError:
+    loaded = 1
+
 class JythonTest(ScanScript):
     def getDeviceNames(self):
+        if loaded > 1:
+            return [ 'device1', 'device2', 'stale_module_state' ]
         return [ 'device1', 'device2']
     
     def run(self, context):
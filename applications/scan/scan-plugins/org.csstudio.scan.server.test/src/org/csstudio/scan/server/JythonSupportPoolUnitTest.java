@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.csstudio.scan.TestSettings;
+import org.csstudio.scan.command.ScanScript;
+import org.junit.Test;
+import org.python.core.PyList;
+import org.python.core.PyString;
+import org.python.util.PythonInterpreter;
+
+/** JUnit test of the {@link JythonSupport} interpreter pool and code cache */
+@SuppressWarnings("nls")
+public class JythonSupportPoolUnitTest
+{
+    /** @return Number from {@link JythonSupport#getStatistics()} that precedes the label */
+    private static long getStatistic(final String label)
+    {
+        final String stats = JythonSupport.getStatistics();
+        final Matcher matcher = Pattern.compile("(\\d+) " + label).matcher(stats);
+        assertTrue(stats, matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    @Test
+    public void testInterpreterPool() throws Exception
+    {
+        TestSettings.init();
+
+        final JythonSupport first = new JythonSupport();
+        final PythonInterpreter interpreter = first.getInterpreter();
+        assertNotNull(interpreter);
+        final long idle = getStatistic("idle");
+        final long reused = getStatistic("re-used,");
+
+        // Closing returns the interpreter to the pool
+        first.close();
+        assertNull(first.getInterpreter());
+        assertEquals(idle + 1, getStatistic("idle"));
+        // Closing again has no effect
+        first.close();
+        assertEquals(idle + 1, getStatistic("idle"));
+
+        // .. and the next JythonSupport receives it
+        final JythonSupport second = new JythonSupport();
+        assertSame(interpreter, second.getInterpreter());
+        assertEquals(idle, getStatistic("idle"));
+        assertEquals(reused + 1, getStatistic("re-used,"));
+        second.close();
+    }
+
+    @Test
+    public void testFreshModule() throws Exception
+    {
+        TestSettings.init();
+
+        // Following loads re-use the interpreter and the compiled code,
+        // but each starts with a fresh module
+        ScanScript previous = null;
+        for (int run=0; run<5; ++run)
+            try
+            (
+                final JythonSupport jython = new JythonSupport();
+            )
+            {
+                final ScanScript script = jython.loadClass(ScanScript.class, "JythonTest");
+                assertNotSame(previous, script);
+                assertArrayEquals(new String[] { "device1", "device2" }, script.getDeviceNames());
+                previous = script;
+            }
+    }
+
+    /** @param file Script file to write
+     *  @param device Device name returned by the script
+     */
+    private static void writeScript(final File file, final String device) throws Exception
+    {
+        final String script =
+            "from org.csstudio.scan.command import ScanScript\n" +
+            "class CacheTest(ScanScript):\n" +
+            "    def getDeviceNames(self):\n" +
+            "        return [ '" + device + "' ]\n";
+        Files.write(file.toPath(), script.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCodeCache() throws Exception
+    {
+        TestSettings.init();
+
+        final File dir = Files.createTempDirectory("jython_cache").toFile();
+        final File file = new File(dir, "cachetest.py");
+        writeScript(file, "one");
+        try
+        (
+            final JythonSupport jython = new JythonSupport();
+        )
+        {
+            final PyList path = jython.getInterpreter().getSystemState().path;
+            path.insert(0, new PyString(dir.getAbsolutePath()));
+            try
+            {
+                final long compiled = getStatistic("scripts compiled");
+                final long cached = getStatistic("compiled scripts re-used");
+
+                // First load compiles the script, second load uses the cached code
+                assertArrayEquals(new String[] { "one" }, jython.loadClass(ScanScript.class, "CacheTest").getDeviceNames());
+                assertEquals(compiled + 1, getStatistic("scripts compiled"));
+                assertArrayEquals(new String[] { "one" }, jython.loadClass(ScanScript.class, "CacheTest").getDeviceNames());
+                assertEquals(compiled + 1, getStatistic("scripts compiled"));
+                assertEquals(cached + 1, getStatistic("compiled scripts re-used"));
+
+                // Changed modification time invalidates the cached code
+                final long modified = file.lastModified();
+                writeScript(file, "two");
+                assertTrue(file.setLastModified(modified + 10000));
+                assertArrayEquals(new String[] { "two" }, jython.loadClass(ScanScript.class, "CacheTest").getDeviceNames());
+                assertEquals(compiled + 2, getStatistic("scripts compiled"));
+                assertEquals(cached + 1, getStatistic("compiled scripts re-used"));
+            }
+            finally
+            {   // Interpreter returns to the pool, don't leave the test path in there
+                path.remove(new PyString(dir.getAbsolutePath()));
+                file.delete();
+                dir.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.scan.server.ScanState;
+import org.junit.After;
+import org.junit.Test;
+
+/** JUnit test of the {@link ScanScheduler}
+ *
+ *  <p>Uses stub scans that run until the test lets them finish.
+ */
+@SuppressWarnings("nls")
+public class ScanSchedulerUnitTest
+{
+    /** Names of started scans, in order of start */
+    private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+    private ScanScheduler scheduler;
+
+    /** Scan that runs until it is told to finish */
+    private class StubScan implements ScanScheduler.Schedulable
+    {
+        final String name;
+        final Set<String> devices;
+        volatile ScanState state = ScanState.Idle;
+        volatile boolean submitted = false;
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+
+        StubScan(final String name, final String... devices)
+        {
+            this.name = name;
+            this.devices = new HashSet<>(Arrays.asList(devices));
+        }
+
+        @Override
+        public ScanState getScanState()
+        {
+            return state;
+        }
+
+        @Override
+        public void submit(final Executor executor)
+        {
+            submitted = true;
+            executor.execute(() ->
+            {
+                state = ScanState.Running;
+                started.add(name);
+                running.countDown();
+                try
+                {
+                    finish.await();
+                    state = ScanState.Finished;
+                }
+                catch (InterruptedException ex)
+                {
+                    state = ScanState.Aborted;
+                }
+            });
+        }
+
+        void awaitRunning() throws InterruptedException
+        {
+            assertTrue(name + " did not start", running.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private StubScan submit(final String name, final String... devices)
+    {
+        final StubScan scan = new StubScan(name, devices);
+        scheduler.submit(scan, scan.devices, true);
+        return scan;
+    }
+
+    @After
+    public void shutdown()
+    {
+        if (scheduler != null)
+            scheduler.shutdown();
+    }
+
+    @Test(timeout=20000)
+    public void testConflictingScansInOrder() throws Exception
+    {
+        scheduler = new ScanScheduler(4);
+        final StubScan a = submit("A", "x");
+        final StubScan b = submit("B", "x", "y");
+        final StubScan c = submit("C", "y");
+        // 'D' uses a device of no other scan, so it may pass the waiting scans
+        final StubScan d = submit("D", "z");
+
+        // B waits for A, C waits for B because B was submitted first
+        assertTrue(a.submitted);
+        assertFalse(b.submitted);
+        assertFalse(c.submitted);
+        assertTrue(d.submitted);
+        assertEquals(2, scheduler.getPendingCount());
+        assertEquals(2, scheduler.getRunningCount());
+
+        a.awaitRunning();
+        d.awaitRunning();
+        a.finish.countDown();
+        b.awaitRunning();
+        assertFalse(c.submitted);
+        assertEquals(1, scheduler.getPendingCount());
+
+        b.finish.countDown();
+        c.awaitRunning();
+        c.finish.countDown();
+        d.finish.countDown();
+
+        final List<String> order = new ArrayList<>(started);
+        order.remove("D");
+        assertEquals(Arrays.asList("A", "B", "C"), order);
+    }
+
+    @Test(timeout=20000)
+    public void testDisjointScansRunConcurrently() throws Exception
+    {
+        scheduler = new ScanScheduler(4);
+        final StubScan a = submit("A", "x");
+        final StubScan b = submit("B", "y");
+        final StubScan c = submit("C", "z");
+
+        // All three are running at the same time, none has been told to finish
+        a.awaitRunning();
+        b.awaitRunning();
+        c.awaitRunning();
+        assertEquals(3, scheduler.getRunningCount());
+        assertEquals(0, scheduler.getPendingCount());
+
+        a.finish.countDown();
+        b.finish.countDown();
+        c.finish.countDown();
+    }
+
+    @Test(timeout=20000)
+    public void testMaxConcurrentScans() throws Exception
+    {
+        scheduler = new ScanScheduler(2);
+        final StubScan a = submit("A", "x");
+        final StubScan b = submit("B", "y");
+        final StubScan c = submit("C", "z");
+
+        assertTrue(a.submitted);
+        assertTrue(b.submitted);
+        assertFalse(c.submitted);
+        assertEquals(1, scheduler.getPendingCount());
+
+        // Scans that are not queued do not count against the limit
+        final StubScan now = new StubScan("Now", "x");
+        scheduler.submit(now, now.devices, false);
+        assertTrue(now.submitted);
+        assertEquals(3, scheduler.getRunningCount());
+        now.awaitRunning();
+        now.finish.countDown();
+
+        // Finishing one of the queued scans frees a slot
+        b.awaitRunning();
+        b.finish.countDown();
+        c.awaitRunning();
+
+        a.finish.countDown();
+        c.finish.countDown();
+    }
+
+    @Test(timeout=20000)
+    public void testAbortPendingScan() throws Exception
+    {
+        scheduler = new ScanScheduler(4);
+        final StubScan a = submit("A", "x");
+        final StubScan b = submit("B", "x");
+        final StubScan c = submit("C", "x");
+        assertEquals(2, scheduler.getPendingCount());
+
+        // Abort B while it waits for A
+        b.state = ScanState.Aborted;
+        scheduler.aborted(b);
+        assertEquals(1, scheduler.getPendingCount());
+
+        // When A is done, C starts. B never does.
+        a.awaitRunning();
+        a.finish.countDown();
+        c.awaitRunning();
+        c.finish.countDown();
+        assertFalse(b.submitted);
+        assertEquals(ScanState.Aborted, b.getScanState());
+        assertEquals(0, scheduler.getPendingCount());
+        assertEquals(Arrays.asList("A", "C"), new ArrayList<>(started));
+    }
+
+    @Test(timeout=20000)
+    public void testDoneSchedulesNext() throws Exception
+    {
+        scheduler = new ScanScheduler(1);
+        final StubScan a = submit("A", "x");
+        final StubScan b = submit("B", "y");
+        final StubScan c = submit("C", "z");
+
+        // Each completed scan starts the next one
+        for (StubScan scan : new StubScan[] { a, b, c })
+        {
+            scan.awaitRunning();
+            assertEquals(1, scheduler.getRunningCount());
+            scan.finish.countDown();
+        }
+        assertEquals(Arrays.asList("A", "B", "C"), new ArrayList<>(started));
+
+        // Running count drops to zero once the last scan is done
+        while (scheduler.getRunningCount() > 0)
+            Thread.sleep(10);
+        assertEquals(0, scheduler.getPendingCount());
+    }
+}
@@ -32,6 +32,13 @@ public class CommentCommandImpl extends ScanCommandImpl<CommentCommand>
         super(command, jython);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
@@ -31,6 +31,13 @@ public class ConfigLogCommandImpl extends ScanCommandImpl<ConfigLogCommand>
         super(command, jython);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context)  throws Exception
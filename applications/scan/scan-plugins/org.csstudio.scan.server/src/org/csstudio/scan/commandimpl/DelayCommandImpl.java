@@ -45,6 +45,13 @@ public class DelayCommandImpl extends ScanCommandImpl<DelayCommand>
         context.logExecutionStep(command.toString(), command.getSeconds());
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext command_context) throws Exception
@@ -103,6 +103,13 @@ public class IncludeCommandImpl extends ScanCommandImpl<IncludeCommand>
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return SimulationContext.isSimulationRepeatable(scan_impl);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
@@ -61,6 +61,13 @@ public class LogCommandImpl extends ScanCommandImpl<LogCommand>
         return names;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
@@ -17,20 +17,29 @@ package org.csstudio.scan.commandimpl;
 
 import static org.csstudio.scan.server.app.Application.logger;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import org.csstudio.scan.command.Comparison;
 import org.csstudio.scan.command.LoopCommand;
 import org.csstudio.scan.condition.NumericValueCondition;
+import org.csstudio.scan.data.ScanSampleFactory;
 import org.csstudio.scan.device.Device;
 import org.csstudio.scan.device.SimulatedDevice;
 import org.csstudio.scan.device.VTypeHelper;
 import org.csstudio.scan.log.DataLog;
 import org.csstudio.scan.server.JythonSupport;
 import org.csstudio.scan.server.MacroContext;
+import org.csstudio.scan.server.NamedThreadFactory;
 import org.csstudio.scan.server.ScanCommandImpl;
 import org.csstudio.scan.server.ScanCommandImplTool;
 import org.csstudio.scan.server.ScanContext;
@@ -38,11 +47,24 @@ import org.csstudio.scan.server.SimulationContext;
 import org.diirt.util.time.TimeDuration;
 
 /** Command that performs a loop
+ *
+ *  <p>When the loop is pipelined, the device is moved to the next value
+ *  on a separate thread while the body of the current step executes.
+ *  Consecutive set commands in the body that write different devices
+ *  are then performed concurrently.
+ *  For each step, the time spent moving the device,
+ *  waiting for the move after the body completed
+ *  and executing the body is logged in seconds as
+ *  "<i>device</i>.move_time", "<i>device</i>.wait_time" and "<i>device</i>.body_time".
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
 {
+    /** Executor for pipelined moves and concurrent set commands */
+    final private static ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("LoopCommands"));
+
     final private boolean reverse;
     final private List<ScanCommandImpl<?>> implementation;
     private int direction = 1;
@@ -126,53 +148,102 @@ public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
         return step;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        // Reversing loop changes direction each time
+        return !reverse  &&  SimulationContext.isSimulationRepeatable(implementation);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void simulate(final SimulationContext context) throws Exception
     {
         final SimulatedDevice device = context.getDevice(context.getMacros().resolveMacros(command.getDeviceName()));
 
+        final boolean repeatable = SimulationContext.isSimulationRepeatable(implementation);
         final double start = getLoopStart();
         final double end   = getLoopEnd();
         final double step  = getLoopStep();
-        if (step > 0)
-            for (double value = start; value <= end; value += step)
-                simulateStep(context, device, value);
-        else // step is < 0, so stepping down
-            for (double value = end; value >= start; value += step)
-                simulateStep(context, device, value);
+        double value = step > 0 ? start : end;
+        double previous_seconds = Double.NaN;
+        while (step > 0 ? value <= end : value >= start)
+        {
+            final double step_start = context.getSimulationSeconds();
+            final boolean repeats = simulateStep(context, device, value, repeatable);
+            final double seconds = context.getSimulationSeconds() - step_start;
+            value += step;
+
+            // Once steps take the same time and the body does not depend on the loop value,
+            // compute the time of the remaining steps unless they need to be logged
+            if (repeats  &&  context.isSummary()  &&
+                Math.abs(seconds - previous_seconds) <= 1e-9 * Math.max(1.0, seconds))
+            {
+                long steps = 0;
+                double last = value;
+                while (step > 0 ? value <= end : value >= start)
+                {
+                    ++steps;
+                    last = value;
+                    value += step;
+                }
+                if (steps > 0)
+                {
+                    context.logExecutionStep("Loop '" + device.getName() + "' " + steps + " more steps", steps * seconds);
+                    device.write(last);
+                }
+                break;
+            }
+            previous_seconds = seconds;
+        }
     }
 
     /** Simulate one step in the loop iteration
      *  @param context {@link SimulationContext}
      *  @param device {@link SimulatedDevice} that the loop modifies
      *  @param value Value of the loop variable for this iteration
+     *  @param repeatable Is simulation of the body repeatable?
+     *  @return <code>true</code> if the body does not depend on the loop device,
+     *          and the next step would simulate the body in the same way
      *  @throws Exception on error
      */
-    private void simulateStep(final SimulationContext context,
-            final SimulatedDevice device, final double value) throws Exception
+    private boolean simulateStep(final SimulationContext context,
+            final SimulatedDevice device, final double value,
+            final boolean repeatable) throws Exception
     {
-        // Get previous value
-        final double original = VTypeHelper.toDouble(device.read());
-
         // Estimate execution time
         final double time_estimate = command.getWait()
                 ? device.getChangeTimeEstimate(value)
                 : 0.0;
 
-        // Show command
-        final StringBuilder buf = new StringBuilder();
-        buf.append("Loop '").append(command.getDeviceName()).append("' = ").append(value);
-        command.appendConditionDetail(buf);
-        if (! Double.isNaN(original))
-            buf.append(" [was ").append(original).append("]");
-        context.logExecutionStep(context.getMacros().resolveMacros(buf.toString()), time_estimate);
+        if (context.isSummary())
+            context.logExecutionStep(null, time_estimate);
+        else
+        {
+            // Get previous value
+            final double original = VTypeHelper.toDouble(device.read());
+
+            // Show command
+            final StringBuilder buf = new StringBuilder();
+            buf.append("Loop '").append(command.getDeviceName()).append("' = ").append(value);
+            command.appendConditionDetail(buf);
+            if (! Double.isNaN(original))
+                buf.append(" [was ").append(original).append("]");
+            context.logExecutionStep(context.getMacros().resolveMacros(buf.toString()), time_estimate);
+        }
 
         // Set to (simulated) new value
         device.write(value);
 
         // Simulate loop body
-        context.simulate(implementation);
+        if (! repeatable)
+        {
+            context.simulate(implementation);
+            return false;
+        }
+        final Set<String> body_devices = context.simulateRepeated(implementation);
+        return body_devices != null  &&  ! body_devices.contains(device.getName());
     }
 
     /** {@inheritDoc} */
@@ -202,6 +273,17 @@ public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
         else
             condition = null;
 
+        if (command.getPipeline())
+        {
+            if (bodyUsesDevice(context.getMacros(), device))
+                logger.log(Level.WARNING, "Loop body uses {0}, cannot pipeline", device.getAlias());
+            else
+            {
+                executePipelined(context, device, condition, readback);
+                return;
+            }
+        }
+
         double start = getLoopStart();
         double end   = getLoopEnd();
         double step  = getLoopStep();
@@ -221,6 +303,10 @@ public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
                 start = getLoopStart();
                 step = - Math.abs(command.getStepSize());
             }
+
+        // Loop is a command boundary for automatically logged samples
+        if (context.isAutomaticLogMode())
+            context.getDataLog().get().flush();
     }
 
     /** Execute one step of the loop
@@ -245,25 +331,8 @@ public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
         }
         try
         {
-            if (command.getCompletion())
-                device.write(value, TimeDuration.ofSeconds(command.getTimeout()));
-            else
-                device.write(value);
-
-            // .. wait for device to reach value
-            if (condition != null)
-            {
-                condition.setDesiredValue(value);
-                condition.await();
-            }
-
-            // Log the device's value?
-            if (context.isAutomaticLogMode())
-            {
-                final DataLog log = context.getDataLog().get();
-                final long serial = log.getNextScanDataSerial();
-                log.log(readback.getAlias(), VTypeHelper.createSample(serial, readback.read()));
-            }
+            moveDevice(device, condition, value);
+            logReadback(context, readback);
         }
         catch (InterruptedException ex)
         {   // Ignore if 'next' was requested
@@ -290,6 +359,294 @@ public class LoopCommandImpl extends ScanCommandImpl<LoopCommand>
             context.workPerformed(1);
     }
 
+    /** Write device and wait for it to reach the value
+     *  @param device Loop device
+     *  @param condition Condition for the readback, may be <code>null</code>
+     *  @param value Value of the loop variable
+     *  @throws Exception on error
+     */
+    private void moveDevice(final Device device, final NumericValueCondition condition,
+                            final double value) throws Exception
+    {
+        if (command.getCompletion())
+            device.write(value, TimeDuration.ofSeconds(command.getTimeout()));
+        else
+            device.write(value);
+
+        // .. wait for device to reach value
+        if (condition != null)
+        {
+            condition.setDesiredValue(value);
+            condition.await();
+        }
+    }
+
+    /** Log the readback if the context is in automatic log mode
+     *  @param context Scan context
+     *  @param readback Readback device
+     *  @throws Exception on error
+     */
+    private void logReadback(final ScanContext context, final Device readback) throws Exception
+    {
+        if (context.isAutomaticLogMode())
+        {
+            final DataLog log = context.getDataLog().get();
+            final long serial = log.getNextScanDataSerial();
+            log.log(readback.getAlias(), VTypeHelper.createSample(serial, readback.read()));
+        }
+    }
+
+    /** @param macros Macros
+     *  @param device Loop device
+     *  @return <code>true</code> if a command in the body uses the loop device
+     *  @throws Exception on error
+     */
+    private boolean bodyUsesDevice(final MacroContext macros, final Device device) throws Exception
+    {
+        for (ScanCommandImpl<?> body_command : implementation)
+            for (String name : body_command.getDeviceNames(macros))
+                if (name.equals(device.getAlias())  ||  name.equals(device.getName()))
+                    return true;
+        return false;
+    }
+
+    /** Execute loop, moving to the next value while the body executes
+     *  @param context
+     *  @param device
+     *  @param condition
+     *  @param readback
+     *  @throws Exception
+     */
+    private void executePipelined(final ScanContext context, final Device device,
+            final NumericValueCondition condition, final Device readback)
+            throws Exception
+    {
+        final List<List<ScanCommandImpl<?>>> batches = createBatches(context.getMacros());
+        double start = getLoopStart();
+        double end   = getLoopEnd();
+        double step  = getLoopStep();
+        double value = step > 0 ? start : end;
+        Future<Long> move = (step > 0 ? value <= end : value >= start)
+                          ? startMove(device, condition, value)
+                          : null;
+        try
+        {
+            while (move != null)
+            {
+                // Wait for device to reach the value of this step
+                final long wait_start = System.nanoTime();
+                final long move_nanos = awaitMove(move);
+                final long wait_nanos = System.nanoTime() - wait_start;
+                final boolean skip = do_skip;
+                if (! skip)
+                    logReadback(context, readback);
+
+                // Permit changed step and end resp. start, but keep the direction
+                if (step > 0)
+                {
+                    end = getLoopEnd();
+                    step = Math.abs(command.getStepSize());
+                }
+                else
+                {
+                    start = getLoopStart();
+                    step = - Math.abs(command.getStepSize());
+                }
+                value += step;
+
+                // Move to next value while executing the body
+                move = (step > 0 ? value <= end : value >= start)
+                     ? startMove(device, condition, value)
+                     : null;
+
+                final long body_start = System.nanoTime();
+                if (skip)
+                    context.workPerformed(implementation.size());
+                else
+                    for (List<ScanCommandImpl<?>> batch : batches)
+                        executeBatch(context, batch);
+                if (implementation.size() <= 0)
+                    context.workPerformed(1);
+                final long body_nanos = System.nanoTime() - body_start;
+
+                logTiming(context, device, move_nanos, wait_nanos, body_nanos);
+            }
+        }
+        finally
+        {   // In case of error, stop a pending move
+            if (move != null)
+                move.cancel(true);
+        }
+        context.getDataLog().get().flush();
+    }
+
+    /** Start moving the device on a separate thread
+     *  @param device Loop device
+     *  @param condition Condition for the readback, may be <code>null</code>
+     *  @param value Value of the loop variable
+     *  @return {@link Future} for the nanoseconds spent moving the device
+     */
+    private Future<Long> startMove(final Device device, final NumericValueCondition condition,
+                                   final double value)
+    {
+        logger.log(Level.INFO, "Loop setting {0} = {1}{2} (pipelined)", new Object[] { device.getAlias(), value, (condition!=null ? " (waiting)" : "") });
+        do_skip = false;
+        return executor.submit(() ->
+        {
+            final long start = System.nanoTime();
+            synchronized (this)
+            {
+                thread = Thread.currentThread();
+            }
+            try
+            {
+                moveDevice(device, condition, value);
+            }
+            catch (InterruptedException ex)
+            {   // Ignore if 'next' was requested
+                if (! do_skip)
+                    throw ex;
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    thread = null;
+                }
+            }
+            return System.nanoTime() - start;
+        });
+    }
+
+    /** @param move Move started by <code>startMove</code>
+     *  @return Nanoseconds spent moving the device
+     *  @throws Exception on error in move
+     */
+    private long awaitMove(final Future<Long> move) throws Exception
+    {
+        try
+        {
+            return move.get();
+        }
+        catch (ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw ex;
+        }
+    }
+
+    /** Group body commands into batches
+     *
+     *  <p>Consecutive set commands for different devices are
+     *  placed in one batch, all other commands in batches of their own.
+     *
+     *  @param macros Macros
+     *  @return Batches of body commands
+     *  @throws Exception on error
+     */
+    private List<List<ScanCommandImpl<?>>> createBatches(final MacroContext macros) throws Exception
+    {
+        final List<List<ScanCommandImpl<?>>> batches = new ArrayList<>();
+        List<ScanCommandImpl<?>> batch = null;
+        final Set<String> batch_devices = new HashSet<>();
+        for (ScanCommandImpl<?> body_command : implementation)
+        {
+            if (body_command instanceof SetCommandImpl)
+            {
+                final List<String> devices = new ArrayList<>();
+                Collections.addAll(devices, body_command.getDeviceNames(macros));
+                if (batch != null  &&  Collections.disjoint(batch_devices, devices))
+                {
+                    batch.add(body_command);
+                    batch_devices.addAll(devices);
+                    continue;
+                }
+                batch = new ArrayList<>();
+                batch.add(body_command);
+                batches.add(batch);
+                batch_devices.clear();
+                batch_devices.addAll(devices);
+            }
+            else
+            {
+                batches.add(Collections.singletonList(body_command));
+                batch = null;
+            }
+        }
+        return batches;
+    }
+
+    /** Execute a batch of body commands
+     *
+     *  <p>Commands of the batch are executed concurrently,
+     *  and all of them need to complete before the next batch is executed.
+     *
+     *  @param context Scan context
+     *  @param batch Body commands
+     *  @throws Exception on error in any of the commands
+     */
+    private void executeBatch(final ScanContext context, final List<ScanCommandImpl<?>> batch) throws Exception
+    {
+        if (batch.size() == 1)
+        {
+            context.execute(batch);
+            return;
+        }
+        final List<Future<Object>> results = new ArrayList<>(batch.size());
+        try
+        {
+            for (ScanCommandImpl<?> body_command : batch)
+                results.add(executor.submit(() ->
+                {
+                    context.execute(body_command);
+                    return null;
+                }));
+            for (Future<Object> result : results)
+            {
+                try
+                {
+                    result.get();
+                }
+                catch (ExecutionException ex)
+                {
+                    final Throwable cause = ex.getCause();
+                    if (cause instanceof Exception)
+                        throw (Exception) cause;
+                    throw ex;
+                }
+            }
+        }
+        finally
+        {   // In case of error, cancel remaining commands.
+            // NOP if commands completed gracefully.
+            for (Future<Object> result : results)
+                result.cancel(true);
+        }
+    }
+
+    /** Log timing of one step
+     *  @param context Scan context
+     *  @param device Loop device
+     *  @param move_nanos Time spent moving the device
+     *  @param wait_nanos Time spent waiting for the move after the body of the previous step
+     *  @param body_nanos Time spent executing the body
+     *  @throws Exception on error
+     */
+    private void logTiming(final ScanContext context, final Device device,
+                           final long move_nanos, final long wait_nanos, final long body_nanos)
+            throws Exception
+    {
+        final DataLog log = context.getDataLog().get();
+        final long serial = log.getNextScanDataSerial();
+        final Instant now = Instant.now();
+        final String name = device.getAlias();
+        log.log(name + ".move_time", ScanSampleFactory.createSample(now, serial, move_nanos / 1e9));
+        log.log(name + ".wait_time", ScanSampleFactory.createSample(now, serial, wait_nanos / 1e9));
+        log.log(name + ".body_time", ScanSampleFactory.createSample(now, serial, body_nanos / 1e9));
+    }
+
     /** {@inheritDoc} */
     @Override
     public void next()
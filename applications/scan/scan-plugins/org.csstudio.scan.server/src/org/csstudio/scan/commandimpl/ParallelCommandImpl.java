@@ -99,6 +99,13 @@ public class ParallelCommandImpl extends ScanCommandImpl<ParallelCommand>
         context.logExecutionStep("Await completion of above commands", 0.0);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return SimulationContext.isSimulationRepeatable(implementation);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
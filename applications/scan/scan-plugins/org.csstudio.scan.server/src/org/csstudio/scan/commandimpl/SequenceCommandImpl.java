@@ -83,6 +83,13 @@ public class SequenceCommandImpl extends ScanCommandImpl<SequenceCommand>
         context.simulate(implementation);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return SimulationContext.isSimulationRepeatable(implementation);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
@@ -93,6 +93,13 @@ public class SetCommandImpl extends ScanCommandImpl<SetCommand>
         device.write(command.getValue());
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context)  throws Exception
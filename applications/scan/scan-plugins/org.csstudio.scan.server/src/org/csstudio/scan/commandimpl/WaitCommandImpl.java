@@ -109,6 +109,13 @@ public class WaitCommandImpl extends ScanCommandImpl<WaitCommand>
         device.write(desired);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
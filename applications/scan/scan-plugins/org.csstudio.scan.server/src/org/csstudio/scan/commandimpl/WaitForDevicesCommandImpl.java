@@ -34,6 +34,13 @@ public class WaitForDevicesCommandImpl extends ScanCommandImpl<WaitForDevicesCom
         super(command, jython);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean isSimulationRepeatable()
+    {
+        return true;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void execute(final ScanContext context) throws Exception
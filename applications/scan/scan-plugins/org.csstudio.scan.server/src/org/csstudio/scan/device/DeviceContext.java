@@ -76,7 +76,19 @@ public class DeviceContext
      */
     public synchronized Device addPVDevice(final DeviceInfo info) throws Exception
     {
-        final PVDevice device = new PVDevice(info);
+        return addDevice(new PVDevice(info));
+    }
+
+    /** Add a {@link Device} to the context.
+     *  When adding a device with a name
+     *  that is already in the context,
+     *  the original device will be replaced.
+     *
+     *  @param device {@link Device}, for example a {@link SimulatedDevice}
+     *  @return Device that was added
+     */
+    public synchronized Device addDevice(final Device device)
+    {
         device_by_alias.put(device.getAlias(), device);
         if (! device.getAlias().equals(device.getName()))
             device_by_name.put(device.getName(), device);
@@ -7,7 +7,9 @@
  ******************************************************************************/
 package org.csstudio.scan.device;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.csstudio.scan.server.MacroContext;
 import org.csstudio.scan.server.ScanCommandImpl;
@@ -33,6 +35,32 @@ public class DeviceContextHelper
                 addDevice(devices, aliases, name);
     }
 
+    /** Determine the devices used by commands
+     *  @param macros Macros to use when resolving names
+     *  @param commands Commands to check
+     *  @return Names of the devices, with aliases replaced by the actual device (PV) names
+     *  @throws Exception on error
+     */
+    public static Set<String> getScanDeviceNames(final MacroContext macros,
+            final List<ScanCommandImpl<?>> commands) throws Exception
+    {
+        final DeviceInfo[] aliases = DeviceContext.getDeviceAliases();
+        final Set<String> names = new HashSet<>();
+        for (ScanCommandImpl<?> command : commands)
+            for (String name : command.getDeviceNames(macros))
+            {
+                String device = name;
+                for (DeviceInfo alias : aliases)
+                    if (alias.getAlias().equals(name))
+                    {
+                        device = alias.getName();
+                        break;
+                    }
+                names.add(device);
+            }
+        return names;
+    }
+
     /** @param devices Existing {@link DeviceContext}
      *  @param aliases Aliases to use
      *  @param name
@@ -8,19 +8,30 @@
 package org.csstudio.scan.device;
 
 import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.csstudio.scan.server.NamedThreadFactory;
 import org.diirt.vtype.VType;
 import org.diirt.vtype.ValueFactory;
 
 /** Simulated device
  *  @author Kay Kasemir
  */
+@SuppressWarnings("nls")
 public class SimulatedDevice extends Device
 {
+    /** Timer for delayed updates of devices with latency */
+    final private static ScheduledExecutorService timer =
+        Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("SimulatedDevice"));
+
     private volatile VType value = ValueFactory.newVDouble(Double.NaN);
 
     final private double slew_rate;
 
+    private volatile Duration latency = Duration.ZERO;
+
     /** Initialize
      *  @param name Name of the simulated device
      */
@@ -60,6 +71,19 @@ public class SimulatedDevice extends Device
         return time_estimate;
     }
 
+    /** Simulate latency of a real device
+     *
+     *  <p>With a latency, a written value is only
+     *  read back after the latency,
+     *  and a write with completion takes that long to complete.
+     *
+     *  @param latency Latency of writes, <code>Duration.ZERO</code> to update right away
+     */
+    public void setLatency(final Duration latency)
+    {
+        this.latency = latency;
+    }
+
     /** {@inheritDoc} */
     @Override
     public VType read() throws Exception
@@ -67,19 +91,46 @@ public class SimulatedDevice extends Device
         return value;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public VType read(final Duration timeout) throws Exception
+    {
+        return value;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void write(final Object value) throws Exception
     {
-        if (value instanceof Number)
-            this.value = ValueFactory.newVDouble( ((Number) value).doubleValue() );
-        fireDeviceUpdate();
+        final long delay = latency.toNanos();
+        if (delay > 0)
+            timer.schedule(() -> update(value), delay, TimeUnit.NANOSECONDS);
+        else
+            update(value);
     }
 
     /** {@inheritDoc} */
     @Override
     public void write(final Object value, final Duration timeout) throws Exception
     {
-        write(value);
+        final long delay = latency.toNanos();
+        if (delay > 0)
+        {
+            if (timeout != null  &&  ! timeout.isZero()  &&  timeout.compareTo(latency) < 0)
+            {
+                TimeUnit.NANOSECONDS.sleep(timeout.toNanos());
+                throw new Exception("Timeout writing " + getAlias());
+            }
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+        update(value);
+    }
+
+    /** @param value New value of the device */
+    private void update(final Object value)
+    {
+        if (value instanceof Number)
+            this.value = ValueFactory.newVDouble( ((Number) value).doubleValue() );
+        fireDeviceUpdate();
     }
 }
@@ -9,11 +9,19 @@ package org.csstudio.scan.server;
 
 import static org.csstudio.scan.server.app.Application.logger;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -22,13 +30,28 @@ import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.osgi.framework.Bundle;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyCode;
 import org.python.core.PyException;
 import org.python.core.PyObject;
 import org.python.core.PyString;
+import org.python.core.PyStringMap;
 import org.python.core.PySystemState;
 import org.python.util.PythonInterpreter;
 
 /** Helper for obtaining Jython interpreter
+ *
+ *  <p>Creating an interpreter is slow, so closed interpreters
+ *  are kept in a pool for re-use by the next scan.
+ *  Each {@link JythonSupport} still starts out with new global variables,
+ *  and scan script classes are loaded into a new module namespace.
+ *  Modules that a script imports, however, remain loaded
+ *  in the pooled interpreter like any other library.
+ *
+ *  <p>The compiled code of scan scripts is cached,
+ *  keyed by the script path and its modification time.
  *
  *  @author Kay Kasemir
  */
@@ -37,7 +60,32 @@ public class JythonSupport implements AutoCloseable
 {
     static final boolean initialized = init();
 
-    final private PythonInterpreter interpreter;
+    /** Idle interpreters. SYNC on pool */
+    final private static Deque<PythonInterpreter> pool = new ArrayDeque<>();
+
+    /** Compiled code of a script file */
+    private static class CompiledScript
+    {
+        final long modified;
+        final PyCode code;
+
+        CompiledScript(final long modified, final PyCode code)
+        {
+            this.modified = modified;
+            this.code = code;
+        }
+    }
+
+    /** Compiled scripts by path */
+    final private static Map<String, CompiledScript> code_cache = new ConcurrentHashMap<>();
+
+    // Statistics
+    final private static AtomicLong created = new AtomicLong(), creation_nanos = new AtomicLong(),
+                                    reused = new AtomicLong(),
+                                    compiled = new AtomicLong(), cache_hits = new AtomicLong();
+
+    /** Interpreter, <code>null</code> when closed. SYNC on this */
+    private PythonInterpreter interpreter;
 
     /** Perform static, one-time initialization */
     private static boolean init()
@@ -146,12 +194,91 @@ public class JythonSupport implements AutoCloseable
        return path;
    }
 
+    /** Fill the pool of idle interpreters in background thread
+     *
+     *  <p>Allows the first scans to use an existing interpreter.
+     */
+    public static void startPool()
+    {
+        final int size = ScanSystemPreferences.getJythonPoolSize();
+        if (size <= 0)
+            return;
+        final Thread thread = new Thread(() ->
+        {
+            try
+            {
+                for (int i=0; i<size; ++i)
+                {
+                    final PythonInterpreter interpreter = createInterpreter();
+                    synchronized (pool)
+                    {
+                        if (pool.size() >= size)
+                        {
+                            interpreter.close();
+                            break;
+                        }
+                        pool.push(interpreter);
+                    }
+                }
+            }
+            catch (Exception ex)
+            {
+                logger.log(Level.WARNING, "Cannot create Jython interpreters", ex);
+            }
+        }, "JythonPool");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** @return Info about interpreter pool and code cache */
+    public static String getStatistics()
+    {
+        final int idle;
+        synchronized (pool)
+        {
+            idle = pool.size();
+        }
+        final long count = created.get();
+        final double ms = count > 0 ? creation_nanos.get() / 1e6 / count : 0.0;
+        return String.format("%d idle interpreters, %d created (average %.0f ms), %d re-used, %d scripts compiled, %d compiled scripts re-used",
+                             idle, count, ms, reused.get(), compiled.get(), cache_hits.get());
+    }
+
     /** Initialize
+     *
+     *  <p>Uses an idle interpreter from the pool,
+     *  or creates a new one.
+     *
      *  @throws Exception on error
      */
     public JythonSupport() throws Exception
     {
+        final PythonInterpreter idle;
+        synchronized (pool)
+        {
+            idle = pool.poll();
+        }
+        if (idle == null)
+            interpreter = createInterpreter();
+        else
+        {
+            reused.incrementAndGet();
+            interpreter = idle;
+        }
+        // Start with new global variables
+        final PyStringMap globals = new PyStringMap();
+        globals.__setitem__("__name__", new PyString("__main__"));
+        interpreter.setLocals(globals);
+    }
+
+    /** @return New interpreter
+     *  @throws Exception on error
+     */
+    private static PythonInterpreter createInterpreter() throws Exception
+    {
+        final long start = System.nanoTime();
         final PySystemState state = new PySystemState();
+        final PythonInterpreter interpreter;
 
         // Creating a PythonInterpreter is very slow.
         //
@@ -167,6 +294,17 @@ public class JythonSupport implements AutoCloseable
         {
             interpreter = new PythonInterpreter(null, state);
         }
+        final long nanos = System.nanoTime() - start;
+        created.incrementAndGet();
+        creation_nanos.addAndGet(nanos);
+        logger.log(Level.FINE, "Created Jython interpreter in {0} ms", nanos / 1000000);
+        return interpreter;
+    }
+
+    /** @return Interpreter, <code>null</code> when closed */
+    synchronized PythonInterpreter getInterpreter()
+    {
+        return interpreter;
     }
 
     /** Load a Jython class
@@ -179,20 +317,47 @@ public class JythonSupport implements AutoCloseable
      *  @throws Exception on error
      */
     @SuppressWarnings("unchecked")
-    public <T> T loadClass(final Class<T> type, final String class_name, final String... args) throws Exception
+    public synchronized <T> T loadClass(final Class<T> type, final String class_name, final String... args) throws Exception
     {
+        if (interpreter == null)
+            throw new Exception("Jython interpreter has been closed");
+
         // Get package name
         final String pack_name = class_name.toLowerCase();
         logger.log(Level.FINE, "Loading Jython class {0} from {1}",
             new Object[] { class_name, pack_name });
 
+        final PyObject py_class;
         try
         {
-            // Import class into Jython
-            // Debug: Print the path that's actually used
-            // final String statement = "import sys\nprint sys.path\nfrom " + pack_name +  " import " + class_name;
-            final String statement = "from " + pack_name +  " import " + class_name;
-            interpreter.exec(statement);
+            final File file = locateScript(pack_name);
+            if (file == null)
+            {
+                // Import class into Jython
+                // Debug: Print the path that's actually used
+                // final String statement = "import sys\nprint sys.path\nfrom " + pack_name +  " import " + class_name;
+                final String statement = "from " + pack_name +  " import " + class_name;
+                interpreter.exec(statement);
+                py_class = interpreter.get(class_name);
+            }
+            else
+            {   // Execute cached code in new module namespace
+                final PyStringMap module = new PyStringMap();
+                module.__setitem__("__name__", new PyString(pack_name));
+                module.__setitem__("__file__", new PyString(file.getPath()));
+                final PySystemState previous = Py.setSystemState(interpreter.getSystemState());
+                try
+                {
+                    Py.exec(getCode(file), module, null);
+                }
+                finally
+                {
+                    Py.setSystemState(previous);
+                }
+                py_class = module.__finditem__(class_name);
+                if (py_class == null)
+                    throw Py.ImportError("cannot import name " + class_name);
+            }
         }
         catch (PyException ex)
         {
@@ -203,7 +368,6 @@ public class JythonSupport implements AutoCloseable
             throw new Exception("Error loading Jython class " + class_name + ":" + getExceptionMessage(ex), ex);
         }
         // Create Java reference
-        final PyObject py_class = interpreter.get(class_name);
         final PyObject py_object;
         if (args.length <= 0)
             py_object = py_class.__call__();
@@ -218,6 +382,58 @@ public class JythonSupport implements AutoCloseable
         return java_ref;
     }
 
+    /** Locate script file for a module
+     *  @param module_name Name of module
+     *  @return Script file or <code>null</code> when not found as plain "*.py" file on the search path
+     */
+    private File locateScript(final String module_name)
+    {
+        if (module_name.indexOf('.') >= 0)
+            return null;
+        for (Object entry : interpreter.getSystemState().path)
+        {
+            final String dir = entry.toString();
+            // Skip "__classpath__" and similar
+            if (dir.startsWith("__"))
+                continue;
+            // Package would take precedence in import
+            if (new File(dir, module_name).isDirectory())
+                return null;
+            final File file = new File(dir, module_name + ".py");
+            if (file.canRead())
+                return file;
+        }
+        return null;
+    }
+
+    /** Get compiled code for script
+     *  @param file Script file
+     *  @return Code from cache, or newly compiled if file was modified
+     *  @throws Exception on error
+     */
+    private static PyCode getCode(final File file) throws Exception
+    {
+        final String path = file.getAbsolutePath();
+        final long modified = file.lastModified();
+        final CompiledScript cached = code_cache.get(path);
+        if (cached != null  &&  cached.modified == modified)
+        {
+            cache_hits.incrementAndGet();
+            return cached.code;
+        }
+        final PyCode code;
+        try
+        (
+            final InputStream stream = new FileInputStream(file);
+        )
+        {
+            code = Py.compile_flags(stream, path, CompileMode.exec, new CompilerFlags());
+        }
+        compiled.incrementAndGet();
+        code_cache.put(path, new CompiledScript(modified, code));
+        return code;
+    }
+
     /** We can only report the message of an exception back to scan server
      *  clients, not the whole exception because it doesn't 'serialize'.
      *  The PyException, however, tends to have no message at all.
@@ -241,10 +457,29 @@ public class JythonSupport implements AutoCloseable
         return buf.toString();
     }
 
-    /** Close the interpreter, release resources */
+    /** Release the interpreter
+     *
+     *  <p>Returns the interpreter to the pool,
+     *  or closes it when the pool is full.
+     *  May be called more than once.
+     */
     @Override
-    public void close() throws Exception
+    public synchronized void close() throws Exception
     {
+        if (interpreter == null)
+            return;
+        // Don't keep references to objects of this scan
+        interpreter.setLocals(new PyStringMap());
+        synchronized (pool)
+        {
+            if (pool.size() < ScanSystemPreferences.getJythonPoolSize())
+            {
+                pool.push(interpreter);
+                interpreter = null;
+                return;
+            }
+        }
         interpreter.close();
+        interpreter = null;
     }
 }
@@ -139,6 +139,23 @@ abstract public class ScanCommandImpl<C extends ScanCommand>
         context.logExecutionStep(context.getMacros().resolveMacros(command.toString()), 0.1);
     }
 
+    /** Can a previous simulation of the command be re-used?
+     *
+     *  <p>A command that only reads and writes the (simulated) devices
+     *  listed by <code>getDeviceNames()</code> logs the same steps
+     *  whenever it is simulated with the same values of those devices.
+     *  The {@link SimulationContext} may then re-use a previous simulation.
+     *
+     *  <p>Commands that keep their own state, invoke scripts etc.
+     *  must return <code>false</code>.
+     *
+     *  @return <code>true</code> if simulation only depends on the values of the command's devices
+     */
+    public boolean isSimulationRepeatable()
+    {
+        return false;
+    }
+
     /** Execute the command
      *
      *  <p>Should update the performed work units on the {@link ScanContext}
@@ -48,6 +48,14 @@ public interface ScanServer
      */
     public SimulationResult simulateScan(String commands_as_xml) throws Exception;
 
+    /** Submit a scan for simulation
+     *  @param commands_as_xml Commands to simulate in XML format
+     *  @param summary Only compute the time, without logging each step?
+     *  @return {@link SimulationResult}
+     *  @throws Exception
+     */
+    public SimulationResult simulateScan(String commands_as_xml, boolean summary) throws Exception;
+
     /** Submit a sequence of commands as a 'scan' to be executed
      *  @param scan_name Name of the scan
      *  @param commands_as_xml Commands to execute within the scan in XML format
@@ -63,6 +71,20 @@ public interface ScanServer
      */
     public List<ScanInfo> getScanInfos() throws Exception;
 
+    /** Wait for changes of the scans
+     *
+     *  <p>Returns as soon as there are changes after the given version,
+     *  or when the timeout expires.
+     *  On timeout, the update includes the infos of active scans
+     *  so that their runtime is updated.
+     *
+     *  @param since_version Version of the scan infos known to the caller, -1 for complete infos
+     *  @param timeout_ms Time to wait for changes
+     *  @return {@link ScanInfoUpdate}, complete if changes since that version are not known
+     *  @throws Exception on error
+     */
+    public ScanInfoUpdate getScanInfos(long since_version, long timeout_ms) throws Exception;
+
     /** Query server for scan info
      *  @param id ID that uniquely identifies a scan
      *  @return Info for that scan on the server or <code>null</code>
@@ -96,6 +118,15 @@ public interface ScanServer
      */
     public ScanData getScanData(long id) throws Exception;
 
+    /** Query server for scan data that was logged after a given serial
+     *  @param id ID that uniquely identifies a scan
+     *  @param since_serial Only samples with a larger serial are returned
+     *  @return Newer data for that scan on the server or <code>null</code>
+     *  @throws Exception on error
+     *  @see #getLastScanDataSerial(long)
+     */
+    public ScanData getScanData(long id, long since_serial) throws Exception;
+
     /** Ask server to update a command parameter to a new value
      *  @param id ID that uniquely identifies a scan
      *  @param address Address of the command
@@ -7,25 +7,83 @@
  ******************************************************************************/
 package org.csstudio.scan.server;
 
-import java.io.InputStream;
+import static org.csstudio.scan.server.app.Application.logger;
+
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
 
 import org.csstudio.apputil.macros.MacroUtil;
 import org.csstudio.scan.ScanSystemPreferences;
 import org.csstudio.scan.device.ScanConfig;
 import org.csstudio.scan.device.SimulatedDevice;
+import org.csstudio.scan.device.VTypeHelper;
 import org.csstudio.scan.server.internal.PathStreamTool;
 import org.python.core.PyException;
 
 /** Context used for the simulation of {@link ScanCommandImpl}
+ *
+ *  <p>Commands that are simulated over and over, for example the body of a loop,
+ *  can be simulated via <code>simulateRepeated()</code>.
+ *  When the commands are simulated again while the devices that they accessed
+ *  have the same values as before, the logged steps and time
+ *  of the previous simulation are re-used.
+ *
+ *  <p>Without a log stream, the context only computes the total time.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class SimulationContext
 {
+    /** Maximum number of simulations kept for the same commands */
+    final private static int MAX_SIMULATIONS = 100;
+
+    /** Maximum number of logged steps kept for one simulation */
+    final private static int MAX_SIMULATION_STEPS = 1000;
+
+    /** Result of simulating commands */
+    private static class Simulation
+    {
+        /** Devices accessed by the commands */
+        final String[] device_names;
+        /** Values of the devices before and after the commands */
+        final double[] start_values, end_values;
+        /** Time spent by the commands */
+        final double seconds;
+        /** Logged steps and their time, <code>null</code> when not logging */
+        final List<String> infos;
+        final List<Double> step_seconds;
+
+        Simulation(final String[] device_names, final double[] start_values, final double[] end_values,
+                   final double seconds, final List<String> infos, final List<Double> step_seconds)
+        {
+            this.device_names = device_names;
+            this.start_values = start_values;
+            this.end_values = end_values;
+            this.seconds = seconds;
+            this.infos = infos;
+            this.step_seconds = step_seconds;
+        }
+    }
+
+    /** Recording of a simulation in progress */
+    private static class Recording
+    {
+        /** Value of each accessed device when it was first accessed */
+        final Map<String, Double> start_values = new LinkedHashMap<>();
+        final List<String> infos = new ArrayList<>();
+        final List<Double> step_seconds = new ArrayList<>();
+        boolean complete = true;
+    }
+
     final private ScanConfig simulation_info;
 
     /** Macros for resolving device names */
@@ -39,30 +97,63 @@ public class SimulationContext
 
     private double simulation_seconds = 0.0;
 
+    /** Previous simulations of repeated commands */
+    final private Map<List<ScanCommandImpl<?>>, List<Simulation>> simulations = new IdentityHashMap<>();
+
+    /** Recordings of the repeated commands that are currently simulated */
+    final private List<Recording> recordings = new ArrayList<>();
+
+    /** Number of simulations that were re-used */
+    private long reused = 0;
+
     /** Initialize
      *  @param jython {@link JythonSupport}
-     *  @param log_stream Stream for simulation progress log
+     *  @param log_stream Stream for simulation progress log, <code>null</code> to only compute the time
      *  @throws Exception on error while initializing {@link SimulationInfo}
      */
     public SimulationContext(final JythonSupport jython, final PrintStream log_stream) throws Exception
     {
-        final InputStream config_stream = PathStreamTool.openStream(ScanSystemPreferences.getSimulationConfigPath());
-        simulation_info = new ScanConfig(config_stream);
+        this(jython, new ScanConfig(PathStreamTool.openStream(ScanSystemPreferences.getSimulationConfigPath())), log_stream);
+    }
+
+    /** Initialize with the hook of the simulation configuration */
+    private SimulationContext(final JythonSupport jython, final ScanConfig simulation_info, final PrintStream log_stream) throws Exception
+    {
+        this(simulation_info, loadHook(jython, simulation_info), log_stream);
+    }
+
+    /** Initialize
+     *  @param simulation_info Simulation configuration
+     *  @param hook {@link SimulationHook}, <code>null</code> for default simulation of all commands
+     *  @param log_stream Stream for simulation progress log, <code>null</code> to only compute the time
+     *  @throws Exception on error in macro handling
+     */
+    public SimulationContext(final ScanConfig simulation_info, final SimulationHook hook, final PrintStream log_stream) throws Exception
+    {
+        this.simulation_info = simulation_info;
         macros = new MacroContext(ScanSystemPreferences.getMacros());
         this.log_stream = log_stream;
+        this.hook = hook;
+    }
 
+    /** @param jython {@link JythonSupport}
+     *  @param simulation_info Simulation configuration
+     *  @return {@link SimulationHook} of the configuration, or <code>null</code>
+     *  @throws Exception on error while loading the hook
+     */
+    private static SimulationHook loadHook(final JythonSupport jython, final ScanConfig simulation_info) throws Exception
+    {
         final String hook_name = simulation_info.getSimulationHook();
         if (hook_name.isEmpty())
-            hook = null;
-        else
-            try
-            {
-                hook = jython.loadClass(SimulationHook.class, hook_name);
-            }
-            catch (PyException ex)
-            {
-                throw new Exception(JythonSupport.getExceptionMessage(ex), ex);
-            }
+            return null;
+        try
+        {
+            return jython.loadClass(SimulationHook.class, hook_name);
+        }
+        catch (PyException ex)
+        {
+            throw new Exception(JythonSupport.getExceptionMessage(ex), ex);
+        }
     }
 
     /** @return Macro support */
@@ -71,6 +162,12 @@ public class SimulationContext
         return macros;
     }
 
+    /** @return <code>true</code> if simulation only computes the time, without logging the steps */
+    public boolean isSummary()
+    {
+        return log_stream == null;
+    }
+
     /** @return Current time of simulation in seconds */
     public double getSimulationSeconds()
     {
@@ -103,6 +200,10 @@ public class SimulationContext
             device = new SimulatedDevice(expanded_name, simulation_info);
             devices.put(expanded_name, device);
         }
+        // Simulation of repeated commands depends on this device
+        for (Recording recording : recordings)
+            if (! recording.start_values.containsKey(expanded_name))
+                recording.start_values.put(expanded_name, VTypeHelper.toDouble(device.read()));
         return device;
     }
 
@@ -112,9 +213,28 @@ public class SimulationContext
      */
     public void logExecutionStep(final String info, final double seconds)
     {
-        log_stream.print(getSimulationTime());
-        log_stream.print(" - ");
-        log_stream.println(info);
+        if (log_stream != null)
+        {
+            log_stream.print(getSimulationTime());
+            log_stream.print(" - ");
+            log_stream.println(info);
+            for (Recording recording : recordings)
+            {
+                if (! recording.complete)
+                    continue;
+                if (recording.infos.size() >= MAX_SIMULATION_STEPS)
+                {   // Too large to keep
+                    recording.complete = false;
+                    recording.infos.clear();
+                    recording.step_seconds.clear();
+                }
+                else
+                {
+                    recording.infos.add(info);
+                    recording.step_seconds.add(seconds);
+                }
+            }
+        }
         simulation_seconds += seconds;
     }
 
@@ -127,4 +247,131 @@ public class SimulationContext
             if (hook == null  ||  ! hook.handle(impl.getCommand(), this))
                 impl.simulate(this);
     }
+
+    /** @param commands Commands
+     *  @return <code>true</code> if the simulation of all commands is repeatable
+     *  @see ScanCommandImpl#isSimulationRepeatable()
+     */
+    public static boolean isSimulationRepeatable(final List<ScanCommandImpl<?>> commands)
+    {
+        for (ScanCommandImpl<?> impl : commands)
+            if (! impl.isSimulationRepeatable())
+                return false;
+        return true;
+    }
+
+    /** Simulate commands that are repeated, for example the body of a loop
+     *
+     *  <p>If the same commands have already been simulated
+     *  while the devices that they accessed had the same values,
+     *  the steps and time of that simulation are re-used.
+     *
+     *  @param commands Commands to simulate, must be repeatable
+     *  @return Names of the devices accessed by the commands if the commands
+     *          left their values unchanged, so simulating them again would
+     *          have the same result. Otherwise <code>null</code>.
+     *  @throws Exception on error
+     */
+    public Set<String> simulateRepeated(final List<ScanCommandImpl<?>> commands) throws Exception
+    {
+        // A hook with its own state could handle the commands differently each time
+        if (hook != null  &&  ! hook.isRepeatable())
+        {
+            simulate(commands);
+            return null;
+        }
+
+        List<Simulation> previous = simulations.get(commands);
+        if (previous == null)
+        {
+            previous = new ArrayList<>();
+            simulations.put(commands, previous);
+        }
+
+        final Simulation simulation = findSimulation(previous);
+        if (simulation != null)
+        {   // Replay previous simulation
+            ++reused;
+            if (log_stream != null)
+                for (int i=0; i<simulation.infos.size(); ++i)
+                    logExecutionStep(simulation.infos.get(i), simulation.step_seconds.get(i));
+            else
+                simulation_seconds += simulation.seconds;
+            for (int i=0; i<simulation.device_names.length; ++i)
+                devices.get(simulation.device_names[i]).write(simulation.end_values[i]);
+            return getUnchangedDevices(simulation);
+        }
+
+        // Simulate, recording the steps
+        final Recording recording = new Recording();
+        recordings.add(recording);
+        final double start = simulation_seconds;
+        try
+        {
+            simulate(commands);
+        }
+        finally
+        {
+            recordings.remove(recordings.size() - 1);
+        }
+
+        final int count = recording.start_values.size();
+        final String[] device_names = recording.start_values.keySet().toArray(new String[count]);
+        final double[] start_values = new double[count];
+        final double[] end_values = new double[count];
+        for (int i=0; i<count; ++i)
+        {
+            start_values[i] = recording.start_values.get(device_names[i]);
+            end_values[i] = VTypeHelper.toDouble(devices.get(device_names[i]).read());
+        }
+        final Simulation recorded = new Simulation(device_names, start_values, end_values,
+                                                   simulation_seconds - start,
+                                                   log_stream == null ? null : recording.infos,
+                                                   log_stream == null ? null : recording.step_seconds);
+        if (recording.complete  &&  previous.size() < MAX_SIMULATIONS)
+            previous.add(recorded);
+        return getUnchangedDevices(recorded);
+    }
+
+    /** @param previous Previous simulations of commands
+     *  @return Simulation that started with the current device values, or <code>null</code>
+     *  @throws Exception on error
+     */
+    private Simulation findSimulation(final List<Simulation> previous) throws Exception
+    {
+        for (Simulation simulation : previous)
+        {
+            boolean match = true;
+            for (int i=0;  match  &&  i<simulation.device_names.length;  ++i)
+            {   // Access via getDevice() to inform enclosing recordings
+                final double value = VTypeHelper.toDouble(getDevice(simulation.device_names[i]).read());
+                match = Double.compare(value, simulation.start_values[i]) == 0;
+            }
+            if (match)
+                return simulation;
+        }
+        return null;
+    }
+
+    /** @param simulation Simulation
+     *  @return Names of accessed devices if they are unchanged by the simulation, else <code>null</code>
+     */
+    private Set<String> getUnchangedDevices(final Simulation simulation)
+    {
+        final Set<String> names = new HashSet<>();
+        for (int i=0; i<simulation.device_names.length; ++i)
+        {
+            if (Double.compare(simulation.start_values[i], simulation.end_values[i]) != 0)
+                return null;
+            names.add(simulation.device_names[i]);
+        }
+        return names;
+    }
+
+    /** Log statistics of the simulation */
+    public void logStatistics()
+    {
+        logger.log(Level.FINE, "Simulation re-used {0} previous simulations of {1} repeated command sequences",
+                   new Object[] { reused, simulations.size() });
+    }
 }
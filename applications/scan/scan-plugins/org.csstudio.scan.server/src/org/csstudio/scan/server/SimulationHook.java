@@ -36,4 +36,21 @@ public class SimulationHook
     {
         return false;
     }
+
+    /** Can a previous simulation of repeated commands be re-used?
+     *
+     *  <p>A hook that only reads and writes (simulated) devices
+     *  via <code>SimulationContext#getDevice(name)</code>
+     *  handles a command the same way whenever the devices have the same values.
+     *  The {@link SimulationContext} may then re-use a previous simulation
+     *  of repeated commands instead of calling the hook again.
+     *
+     *  <p>Hooks that keep their own state must return <code>false</code>.
+     *
+     *  @return <code>true</code> if the handling of commands only depends on the values of the simulated devices
+     */
+    public boolean isRepeatable()
+    {
+        return false;
+    }
 }
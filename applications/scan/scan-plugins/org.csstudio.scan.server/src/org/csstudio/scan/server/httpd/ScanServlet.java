@@ -24,6 +24,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.csstudio.scan.command.DOMHelper;
 import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataXMLWriter;
 import org.csstudio.scan.device.DeviceInfo;
 import org.csstudio.scan.server.ScanInfo;
 import org.csstudio.scan.server.ScanServer;
@@ -204,6 +205,7 @@ public class ScanServlet extends HttpServlet
      *  <p>GET scan/{id} - get scan info
      *  <p>GET scan/{id}/commands - get scan commands
      *  <p>GET scan/{id}/data - get scan data
+     *  <p>GET scan/{id}/data?since={serial} - get scan data logged after serial
      *  <p>GET scan/{id}/last_serial - get scan data's last serial
      *  <p>GET scan/{id}/devices - get devices used by a scan
      */
@@ -249,11 +251,15 @@ public class ScanServlet extends HttpServlet
                 out.flush();
             }
             else if ("data".equalsIgnoreCase(object))
-            {   // Get data
-                final ScanData data = scan_server.getScanData(id);
-                final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-                doc.appendChild(ServletHelper.createXMLElement(doc, data));
-                ServletHelper.submitXML(doc, response);
+            {   // Get all data, or data after 'since' serial
+                final String since = request.getParameter("since");
+                final ScanData data = since == null
+                                    ? scan_server.getScanData(id)
+                                    : scan_server.getScanData(id, Long.parseLong(since));
+                if (data == null)
+                    throw new Exception("No data for scan ID " + id);
+                response.setContentType("text/xml");
+                ScanDataXMLWriter.write(data, response.getOutputStream());
             }
             else if ("last_serial".equalsIgnoreCase(object))
             {   // Get last serial of data
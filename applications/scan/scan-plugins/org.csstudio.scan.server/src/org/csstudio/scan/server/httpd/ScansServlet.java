@@ -10,7 +10,6 @@ package org.csstudio.scan.server.httpd;
 import static org.csstudio.scan.server.app.Application.logger;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.logging.Level;
 
 import javax.servlet.ServletException;
@@ -20,6 +19,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.csstudio.scan.server.ScanInfo;
+import org.csstudio.scan.server.ScanInfoUpdate;
 import org.csstudio.scan.server.ScanServer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -31,6 +31,10 @@ import org.w3c.dom.Element;
 public class ScansServlet extends HttpServlet
 {
     final private static long serialVersionUID = 1L;
+
+    /** Maximum time that a request may wait for changes */
+    final private static long MAX_TIMEOUT_MS = 60000;
+
     final private ScanServer scan_server;
 
     public ScansServlet(final ScanServer scan_server)
@@ -40,6 +44,19 @@ public class ScansServlet extends HttpServlet
 
     /** Get scan information
      *  <p>GET scans - get all scan infos
+     *  <p>GET scans?since={version}&amp;timeout={millisecs} -
+     *     wait for changes after version, get changed scan infos
+     *
+     *  <p>The "scans" element has a "version" attribute.
+     *  When requesting changes, the "complete" attribute
+     *  indicates if the complete scan list is returned,
+     *  for example because changes since the requested version
+     *  are no longer known,
+     *  or only changed scans and "removed" elements with
+     *  the IDs of removed scans.
+     *
+     *  <p>A request for changes occupies a web server thread
+     *  until there are changes or the timeout expires.
      */
     @Override
     protected void doGet(final HttpServletRequest request,
@@ -49,15 +66,25 @@ public class ScansServlet extends HttpServlet
         final Document doc;
         try
         {
+            final String since = request.getParameter("since");
+            final long since_version = since == null ? -1 : Long.parseLong(since);
+            final String timeout = request.getParameter("timeout");
+            final long timeout_ms = timeout == null ? 0 : Math.min(Long.parseLong(timeout), MAX_TIMEOUT_MS);
+            final ScanInfoUpdate update = scan_server.getScanInfos(since_version, timeout_ms);
+
             doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            final List<ScanInfo> scans = scan_server.getScanInfos();
             final Element root = doc.createElement("scans");
+            root.setAttribute("version", Long.toString(update.getVersion()));
+            if (since != null)
+                root.setAttribute("complete", Boolean.toString(update.isComplete()));
             doc.appendChild(root);
-            for (ScanInfo info : scans)
+            for (ScanInfo info : update.getInfos())
             {
                 final Element scan = ServletHelper.createXMLElement(doc, info);
                 root.appendChild(scan);
             }
+            for (Long id : update.getRemoved())
+                root.appendChild(ServletHelper.createXMLElement(doc, "removed", id));
         }
         catch (Exception ex)
         {
@@ -21,9 +21,6 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
 import org.csstudio.scan.PathUtil;
-import org.csstudio.scan.data.ScanData;
-import org.csstudio.scan.data.ScanSample;
-import org.csstudio.scan.data.ScanSampleFormatter;
 import org.csstudio.scan.device.DeviceInfo;
 import org.csstudio.scan.server.ScanInfo;
 import org.csstudio.scan.server.ScanServerInfo;
@@ -107,6 +104,7 @@ public class ServletHelper
 
         server.appendChild(createXMLElement(doc, "script_paths", PathUtil.joinPaths(info.getScriptPaths())));
         server.appendChild(createXMLElement(doc, "macros", info.getMacros()));
+        server.appendChild(createXMLElement(doc, "jython", info.getJythonInfo()));
 
         server.appendChild(createXMLElement(doc, "used_mem", info.getUsedMem()));
         server.appendChild(createXMLElement(doc, "max_mem", info.getMaxMem()));
@@ -149,36 +147,6 @@ public class ServletHelper
         return scan;
     }
 
-    /** Create XML content for scan data
-     *  @param doc XML {@link Document}
-     *  @param data {@link ScanData}
-     *  @return XML {@link Element} for the scan data
-     */
-    public static Node createXMLElement(final Document doc, final ScanData data)
-    {
-        final Element result = doc.createElement("data");
-
-        for (String device_name : data.getDevices())
-        {
-            final Element device = doc.createElement("device");
-            device.appendChild(createXMLElement(doc, "name", device_name));
-
-            final Element samples = doc.createElement("samples");
-            for (ScanSample data_sample : data.getSamples(device_name))
-            {
-                final Element sample = doc.createElement("sample");
-                sample.setAttribute("id", Long.toString(data_sample.getSerial()));
-                sample.appendChild(createXMLElement(doc, "time", data_sample.getTimestamp()));
-                sample.appendChild(createXMLElement(doc, "value", ScanSampleFormatter.asString(data_sample)));
-                samples.appendChild(sample);
-            }
-
-            device.appendChild(samples);
-            result.appendChild(device);
-        }
-        return result;
-    }
-
     /** Create XML content for device infos
      *  @param doc XML {@link Document}
      *  @param devices {@link DeviceInfo}s
@@ -39,6 +39,8 @@ public class SimulateServlet extends HttpServlet
 
     /** POST simulate: Submit a scan for simulation
      *  Returns of the simulation
+     *
+     *  <p>With "?summary=true", only the time is computed
      */
     @Override
     protected void doPost(final HttpServletRequest request,
@@ -63,7 +65,8 @@ public class SimulateServlet extends HttpServlet
         // Simulate scan
         try
         {
-            final SimulationResult simulation = scan_server.simulateScan(scan_commands);
+            final boolean summary = Boolean.parseBoolean(request.getParameter("summary"));
+            final SimulationResult simulation = scan_server.simulateScan(scan_commands, summary);
             // Return scan ID
             out.println("<simulation>");
             out.print("  <log>");
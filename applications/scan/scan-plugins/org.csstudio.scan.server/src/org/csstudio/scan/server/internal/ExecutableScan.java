@@ -23,10 +23,12 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
@@ -64,7 +66,7 @@ import org.csstudio.scan.server.ScanState;
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
-public class ExecutableScan extends LoggedScan implements ScanContext, Callable<Object>, AutoCloseable
+public class ExecutableScan extends LoggedScan implements ScanContext, ScanScheduler.Schedulable, Callable<Object>, AutoCloseable
 {
     /** Pattern for "java.lang.Exception: ", "java...Exception: " */
     private static final Pattern java_exception_pattern = Pattern.compile("java[.a-zA-Z]+Exception: ");
@@ -73,7 +75,8 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     private final ScanEngine engine;
 
     /** Jython interpreter that some commands may use.
-     *  Owned by the ExecutableScan, see close()
+     *  Owned by the ExecutableScan,
+     *  released once the scan has been executed, see call() and close()
      */
     final private JythonSupport jython;
 
@@ -113,7 +116,7 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     /** Currently active commands, empty when nothing executes */
     final private Deque<ScanCommandImpl<?>> active_commands = new ConcurrentLinkedDeque<>();
 
-    /** {@link Future}, set when scan has been submitted to {@link ExecutorService}. Not reset back to empty. */
+    /** {@link Future}, set when scan has been submitted to {@link Executor}. Not reset back to empty. */
     private volatile Optional<Future<Object>> future = Optional.empty();
 
     /** Device Names for status PVs.
@@ -170,14 +173,25 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     }
 
     /** Submit scan for execution
-     *  @param executor {@link ExecutorService} to use
+     *  @param executor {@link Executor} to use
      *  @throws IllegalStateException if scan had been submitted before
      */
-    public void submit(final ExecutorService executor)
+    public void submit(final Executor executor)
     {
         if (future.isPresent())
             throw new IllegalStateException("Already submitted for execution");
-        future = Optional.of(executor.submit(this));
+        final FutureTask<Object> task = new FutureTask<>(this);
+        future = Optional.of(task);
+        executor.execute(task);
+    }
+
+    /** @return Names of devices used by the 'main' commands of the scan,
+     *          not including pre- and post-scan commands nor status PVs
+     *  @throws Exception on error
+     */
+    public Set<String> getScanDeviceNames() throws Exception
+    {
+        return DeviceContextHelper.getScanDeviceNames(macros, implementations);
     }
 
     /** @return {@link ScanState} */
@@ -367,6 +381,16 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
         return logger.getScanData();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        final DataLog logger = data_logger.orElse(null);
+        if (logger == null)
+            return super.getScanData(since_serial);
+        return logger.getScanData(since_serial);
+    }
+
     /** Callable for executing all commands on the scan,
      *  turning exceptions into a 'Failed' scan state.
      */
@@ -402,6 +426,16 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
         end_ms = System.currentTimeMillis();
         // Un-set data logger
         data_logger = Optional.empty();
+        // Return interpreter to pool for the next scan
+        try
+        {
+            jython.close();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot release Jython for scan " + getName(), ex);
+        }
+        engine.scanChanged(this);
         logger.log(Level.CONFIG, "Completed ID {0}: {1}", new Object[] { getId(), state.get().name() });
         return null;
     }
@@ -420,6 +454,7 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
             throw new IllegalStateException("Cannot run Scan that is " + state.get());
 
         start_ms = System.currentTimeMillis();
+        engine.scanChanged(this);
 
         // Locate devices for status PVs
         final String prefix = ScanSystemPreferences.getStatusPvPrefix();
@@ -573,6 +608,8 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     @Override
     public void execute(final ScanCommandImpl<?> command) throws Exception
     {
+        // Not reported as a change of the scan, clients see the current command
+        // with the next change of progress or state
         active_commands.addLast(command);
         try
         {
@@ -670,6 +707,7 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     {
         if (! state.compareAndSet(ScanState.Running, ScanState.Paused))
             return;
+        engine.scanChanged(this);
 
         if (device_state.isPresent())
         {
@@ -689,6 +727,7 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     {
         if (! state.compareAndSet(ScanState.Paused, ScanState.Running))
             return;
+        engine.scanChanged(this);
 
         if (device_state.isPresent())
         {
@@ -713,6 +752,8 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     {
         // Set state to aborted unless it is already 'done'
         state.getAndUpdate((current_state)  ->  current_state.isDone() ? current_state : ScanState.Aborted);
+        engine.scanChanged(this);
+        engine.scanAborted(this);
 
         if (future.isPresent())
             future.get().cancel(true);
@@ -726,7 +767,21 @@ public class ExecutableScan extends LoggedScan implements ScanContext, Callable<
     @Override
     public void workPerformed(final int work_units)
     {
-        work_performed.addAndGet(work_units);
+        final long performed = work_performed.addAndGet(work_units);
+        // Only report a change when the percentage shown to clients changes,
+        // not for every unit of work
+        if (getPercentage(performed - work_units) != getPercentage(performed))
+            engine.scanChanged(this);
+    }
+
+    /** @param performed Performed work units
+     *  @return Percentage of the total work units, as shown in {@link ScanInfo}
+     */
+    private int getPercentage(final long performed)
+    {
+        if (total_work_units <= 0)
+            return 0;
+        return (int) (performed * 100 / total_work_units);
     }
 
     /** Release resources */
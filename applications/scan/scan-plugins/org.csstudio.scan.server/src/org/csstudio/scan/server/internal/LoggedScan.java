@@ -77,6 +77,22 @@ public class LoggedScan extends Scan
         }
     }
 
+    /** Get logged samples.
+     *  @param since_serial Only samples with a larger serial are returned
+     *  @return {@link ScanData}
+     *  @throws Exception on error
+     */
+    public ScanData getScanData(final long since_serial) throws Exception
+    {
+        try
+        (
+            final DataLog logger = DataLogFactory.getDataLog(this);
+        )
+        {
+            return logger.getScanData(since_serial);
+        }
+    }
+
     // Compare by ID
     @Override
     public boolean equals(final Object obj)
@@ -15,30 +15,39 @@
  ******************************************************************************/
 package org.csstudio.scan.server.internal;
 
+import static org.csstudio.scan.server.app.Application.logger;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
+import org.csstudio.scan.ScanSystemPreferences;
 import org.csstudio.scan.log.DataLogFactory;
-import org.csstudio.scan.server.NamedThreadFactory;
 import org.csstudio.scan.server.Scan;
 import org.csstudio.scan.server.UnknownScanException;
 
 /** Engine that accepts {@link ExecutableScan}s, queuing them and executing
  *  them in order
+ *
+ *  <p>Queued scans that use different devices may execute concurrently,
+ *  see {@link ScanScheduler}.
+ *
+ *  <p>Tracks changes to the scans with a version counter
+ *  so that clients can wait for changes instead of polling.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
 public class ScanEngine
 {
-    /** Executor for scans off the queue, handling one by one */
-    final private ExecutorService queue_executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("ScanEngineQueue"));
-
-    /** Executor for scans that executes all submitted scans in parallel */
-    final private ExecutorService parallel_executor = Executors.newCachedThreadPool(new NamedThreadFactory("ScanEnginePool"));
+    /** Scheduler that executes queued scans as their devices permit,
+     *  and other scans right away
+     */
+    final private ScanScheduler scheduler = new ScanScheduler(ScanSystemPreferences.getMaxConcurrentScans());
 
     /** All the scans handled by this engine
      *
@@ -49,6 +58,28 @@ public class ScanEngine
      */
     final private List<LoggedScan> scan_queue = new CopyOnWriteArrayList<>();
 
+    /** Maximum number of removed scans for which changes are tracked */
+    final private static int MAX_REMOVED_CHANGES = 1000;
+
+    /** Lock for change tracking, notified on change */
+    final private Object change_lock = new Object();
+
+    /** Version of the scans, incremented on every change.
+     *  SYNC on change_lock
+     */
+    private long version = 0;
+
+    /** Version of most recent change for each scan ID,
+     *  including scans that have been removed.
+     *  SYNC on change_lock
+     */
+    final private Map<Long, Long> changes = new HashMap<>();
+
+    /** Changes up to this version are no longer known.
+     *  SYNC on change_lock
+     */
+    private long forgotten_version = 0;
+
     /** Start the scan engine, i.e. create thread that will process
      *  scans
      *  @param load_existing_scans Load info about existing scans?
@@ -61,32 +92,102 @@ public class ScanEngine
 
         final Scan[] scans = DataLogFactory.getScans();
         for (Scan scan : scans)
-            scan_queue.add(new LoggedScan(scan));
+        {
+            final LoggedScan logged = new LoggedScan(scan);
+            scan_queue.add(logged);
+            scanChanged(logged);
+        }
     }
 
-    /** Stop the scan engine, aborting scans
-     *  that are still running
+    /** Note that a scan was added, removed, or changed its state or progress
+     *
+     *  <p>Scans report progress when its percentage changes,
+     *  not for each command or unit of work.
+     *  @param scan Scan that changed
      */
-    public void stop()
+    public void scanChanged(final Scan scan)
     {
-        queue_executor.shutdownNow();
-        parallel_executor.shutdownNow();
-        try
+        synchronized (change_lock)
         {
-            queue_executor.awaitTermination(10, TimeUnit.SECONDS);
+            changes.put(scan.getId(), ++version);
+            change_lock.notifyAll();
         }
-        catch (InterruptedException e)
+    }
+
+    /** Note that a scan was removed
+     *  @param scan Scan that was removed
+     */
+    private void scanRemoved(final Scan scan)
+    {
+        synchronized (change_lock)
         {
-            // Ignore, shutting down anyway
+            scanChanged(scan);
+            // Limit the number of removed scans that are remembered
+            if (changes.size() > scan_queue.size() + MAX_REMOVED_CHANGES)
+            {
+                final Set<Long> existing = new HashSet<>();
+                for (LoggedScan known : scan_queue)
+                    existing.add(known.getId());
+                changes.keySet().retainAll(existing);
+                forgotten_version = version;
+            }
         }
-        try
+    }
+
+    /** @return Current version of the scans */
+    public long getVersion()
+    {
+        synchronized (change_lock)
         {
-            parallel_executor.awaitTermination(10, TimeUnit.SECONDS);
+            return version;
         }
-        catch (InterruptedException e)
+    }
+
+    /** Wait for changes
+     *  @param since_version Version known to the caller
+     *  @param timeout_ms Time to wait for a newer version
+     *  @return Current version, same as <code>since_version</code> on timeout
+     *  @throws InterruptedException on interruption
+     */
+    public long waitForChange(final long since_version, final long timeout_ms) throws InterruptedException
+    {
+        final long end = System.currentTimeMillis() + timeout_ms;
+        synchronized (change_lock)
         {
-            // Ignore, shutting down anyway
+            long remaining = timeout_ms;
+            while (version <= since_version  &&  remaining > 0)
+            {
+                change_lock.wait(remaining);
+                remaining = end - System.currentTimeMillis();
+            }
+            return version;
         }
+    }
+
+    /** @param since_version Version known to the caller
+     *  @return IDs of scans that were added, changed or removed after that version,
+     *          or <code>null</code> if those changes are no longer known
+     */
+    public Set<Long> getChangedScans(final long since_version)
+    {
+        synchronized (change_lock)
+        {
+            if (since_version < forgotten_version  ||  since_version > version)
+                return null;
+            final Set<Long> changed = new HashSet<>();
+            for (Map.Entry<Long, Long> change : changes.entrySet())
+                if (change.getValue() > since_version)
+                    changed.add(change.getKey());
+            return changed;
+        }
+    }
+
+    /** Stop the scan engine, aborting scans
+     *  that are still running
+     */
+    public void stop()
+    {
+        scheduler.shutdown();
 
         for (LoggedScan scan : scan_queue)
             closeExecutableScan(scan);
@@ -121,11 +222,25 @@ public class ScanEngine
      */
     public void submit(final ExecutableScan scan, final boolean queue)
     {
-        if (queue)
-            scan.submit(queue_executor);
-        else
-            scan.submit(parallel_executor);
+        Set<String> devices;
+        try
+        {
+            devices = scan.getScanDeviceNames();
+        }
+        catch (Exception ex)
+        {
+            logger.log(Level.WARNING, "Cannot determine devices of " + scan + ", it will not execute concurrently with other scans", ex);
+            devices = null;
+        }
+        scheduler.submit(scan, devices, queue);
         scan_queue.add(scan);
+        scanChanged(scan);
+    }
+
+    /** @param scan Scan that was aborted, will be removed from queue if it did not start */
+    public void scanAborted(final ExecutableScan scan)
+    {
+        scheduler.aborted(scan);
     }
 
     /** Check if there are any scans executing or waiting to be executed
@@ -198,6 +313,7 @@ public class ScanEngine
             DataLogFactory.deleteDataLog(scan);
             scan_queue.remove(scan);
             closeExecutableScan(scan);
+            scanRemoved(scan);
         }
     }
 
@@ -220,6 +336,7 @@ public class ScanEngine
             {
                 scan_queue.remove(scan);
                 closeExecutableScan(scan);
+                scanRemoved(scan);
                 return scan;
             }
         return null;
@@ -236,6 +353,7 @@ public class ScanEngine
                 final LoggedScan logged = new LoggedScan(scan);
                 final int index = scan_queue.indexOf(scan);
                 scan_queue.set(index, logged);
+                scanChanged(logged);
                 return logged;
             }
         return null;
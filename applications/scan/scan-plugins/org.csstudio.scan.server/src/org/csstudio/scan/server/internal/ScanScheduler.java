@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.csstudio.scan.server.NamedThreadFactory;
+import org.csstudio.scan.server.ScanState;
+
+/** Scheduler for {@link ExecutableScan}s
+ *
+ *  <p>Each scan is submitted with the names of the devices that it uses.
+ *  A queued scan starts when
+ *  <ul>
+ *  <li>fewer than the maximum number of queued scans are running,
+ *  <li>it uses none of the devices of running scans,
+ *  <li>and none of the devices of scans that were queued before it.
+ *  </ul>
+ *  Scans that use the same devices thus execute in the order
+ *  in which they were submitted,
+ *  while scans that use different devices can execute concurrently.
+ *
+ *  <p>Scans that are not queued start right away,
+ *  but queued scans will wait for their devices.
+ *
+ *  <p>A scan with unknown devices conflicts with all other scans.
+ */
+class ScanScheduler
+{
+    /** What the scheduler needs to know about a scan, implemented by {@link ExecutableScan} */
+    interface Schedulable
+    {
+        /** @return {@link ScanState} */
+        public ScanState getScanState();
+
+        /** @param executor {@link Executor} that runs the scan */
+        public void submit(Executor executor);
+    }
+
+    /** Scan and its devices */
+    private static class Entry
+    {
+        final Schedulable scan;
+        /** Device names, <code>null</code> if unknown */
+        final Set<String> devices;
+        final boolean queued;
+
+        Entry(final Schedulable scan, final Set<String> devices, final boolean queued)
+        {
+            this.scan = scan;
+            this.devices = devices;
+            this.queued = queued;
+        }
+
+        boolean conflictsWith(final Entry other)
+        {
+            if (devices == null  ||  other.devices == null)
+                return true;
+            return ! Collections.disjoint(devices, other.devices);
+        }
+
+        boolean conflictsWith(final List<Entry> others)
+        {
+            for (Entry other : others)
+                if (conflictsWith(other))
+                    return true;
+            return false;
+        }
+    }
+
+    /** Executor for the scans, sized by the scheduler */
+    final private ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("ScanEngine"));
+
+    /** Maximum number of running queued scans */
+    final private int max_concurrent;
+
+    /** Queued scans that have not been started, in order of submission.
+     *  SYNC on this
+     */
+    final private List<Entry> pending = new ArrayList<>();
+
+    /** Scans that have been started.
+     *  SYNC on this
+     */
+    final private List<Entry> running = new ArrayList<>();
+
+    /** Number of queued scans in <code>running</code>.
+     *  SYNC on this
+     */
+    private int running_queued = 0;
+
+    /** @param max_concurrent Maximum number of queued scans that may execute concurrently */
+    public ScanScheduler(final int max_concurrent)
+    {
+        this.max_concurrent = max_concurrent;
+    }
+
+    /** Submit a scan
+     *  @param scan Scan to execute
+     *  @param devices Names of the devices used by the scan, <code>null</code> if unknown
+     *  @param queue Queue the scan, or execute right away?
+     */
+    public synchronized void submit(final Schedulable scan, final Set<String> devices, final boolean queue)
+    {
+        final Entry entry = new Entry(scan, devices, queue);
+        if (queue)
+        {
+            pending.add(entry);
+            schedule();
+        }
+        else
+            start(entry);
+    }
+
+    /** @param scan Scan that was aborted. If it did not start, yet, it is removed */
+    public synchronized void aborted(final Schedulable scan)
+    {
+        if (pending.removeIf(entry -> entry.scan == scan))
+            schedule();
+    }
+
+    /** @return Number of queued scans that wait to be executed */
+    public synchronized int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    /** @return Number of scans that are executing */
+    public synchronized int getRunningCount()
+    {
+        return running.size();
+    }
+
+    /** Start pending scans that are not blocked by devices of other scans */
+    private void schedule()
+    {
+        // Pending scans ahead of the one being checked
+        final List<Entry> waiting = new ArrayList<>();
+        final Iterator<Entry> iter = pending.iterator();
+        while (iter.hasNext()  &&  running_queued < max_concurrent)
+        {
+            final Entry entry = iter.next();
+            if (entry.scan.getScanState().isDone())
+            {   // Aborted before it started
+                iter.remove();
+                continue;
+            }
+            if (entry.conflictsWith(running)  ||  entry.conflictsWith(waiting))
+                waiting.add(entry);
+            else
+            {
+                iter.remove();
+                start(entry);
+            }
+        }
+    }
+
+    /** @param entry Scan to start */
+    private void start(final Entry entry)
+    {
+        running.add(entry);
+        if (entry.queued)
+            ++running_queued;
+        entry.scan.submit(task -> executor.execute(() ->
+        {
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                done(entry);
+            }
+        }));
+    }
+
+    /** @param entry Scan that completed, or was cancelled before it ran */
+    private synchronized void done(final Entry entry)
+    {
+        if (running.remove(entry)  &&  entry.queued)
+            --running_queued;
+        schedule();
+    }
+
+    /** Stop executing scans, drop pending scans */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        try
+        {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            // Ignore, shutting down anyway
+        }
+        synchronized (this)
+        {
+            pending.clear();
+        }
+    }
+}
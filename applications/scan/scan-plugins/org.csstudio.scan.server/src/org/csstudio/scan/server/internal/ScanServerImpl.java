@@ -21,7 +21,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
 import org.csstudio.scan.ScanSystemPreferences;
@@ -40,6 +42,7 @@ import org.csstudio.scan.server.ScanCommandImpl;
 import org.csstudio.scan.server.ScanCommandImplTool;
 import org.csstudio.scan.server.ScanContext;
 import org.csstudio.scan.server.ScanInfo;
+import org.csstudio.scan.server.ScanInfoUpdate;
 import org.csstudio.scan.server.ScanServer;
 import org.csstudio.scan.server.ScanServerInfo;
 import org.csstudio.scan.server.SimulationContext;
@@ -65,6 +68,7 @@ public class ScanServerImpl implements ScanServer
             throw new Exception("Already started");
 
         scan_engine.start(true);
+        JythonSupport.startPool();
         start_time = Instant.now();
     }
 
@@ -83,7 +87,8 @@ public class ScanServerImpl implements ScanServer
                 ScanSystemPreferences.getScanConfigPath(),
                 ScanSystemPreferences.getSimulationConfigPath(),
                 ScanSystemPreferences.getScriptPaths(),
-                ScanSystemPreferences.getMacros());
+                ScanSystemPreferences.getMacros(),
+                JythonSupport.getStatistics());
     }
 
     /** Query server for devices used by a scan
@@ -136,6 +141,14 @@ public class ScanServerImpl implements ScanServer
     @Override
     public SimulationResult simulateScan(final String commands_as_xml)
             throws Exception
+    {
+        return simulateScan(commands_as_xml, false);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SimulationResult simulateScan(final String commands_as_xml, final boolean summary)
+            throws Exception
     {
         try
         (   // Create Jython interpreter for this scan
@@ -156,8 +169,11 @@ public class ScanServerImpl implements ScanServer
             log_out.println("--------");
 
             // Simulate
-            final SimulationContext simulation = new SimulationContext(jython, log_out);
+            final SimulationContext simulation = new SimulationContext(jython, summary ? null : log_out);
             simulation.simulate(scan);
+            simulation.logStatistics();
+            if (summary)
+                log_out.println("(Summary, steps not listed)");
 
             // Close log
             log_out.println("--------");
@@ -207,17 +223,27 @@ public class ScanServerImpl implements ScanServer
             // Create Jython interpreter for this scan
             final JythonSupport jython = new JythonSupport();
 
-            // Obtain implementations for the requested commands as well as pre/post scan
-            final ScanCommandImplTool implementor = ScanCommandImplTool.getInstance();
-            final List<ScanCommandImpl<?>> pre_impl = implementor.implement(pre_commands, jython);
-            final List<ScanCommandImpl<?>> main_impl = implementor.implement(commands, jython);
-            final List<ScanCommandImpl<?>> post_impl = implementor.implement(post_commands, jython);
+            final ExecutableScan scan;
+            try
+            {
+                // Obtain implementations for the requested commands as well as pre/post scan
+                final ScanCommandImplTool implementor = ScanCommandImplTool.getInstance();
+                final List<ScanCommandImpl<?>> pre_impl = implementor.implement(pre_commands, jython);
+                final List<ScanCommandImpl<?>> main_impl = implementor.implement(commands, jython);
+                final List<ScanCommandImpl<?>> post_impl = implementor.implement(post_commands, jython);
 
-            // Get empty device context
-            final DeviceContext devices = new DeviceContext();
+                // Get empty device context
+                final DeviceContext devices = new DeviceContext();
+
+                scan = new ExecutableScan(scan_engine, jython, scan_name, devices, pre_impl, main_impl, post_impl);
+            }
+            catch (Exception ex)
+            {   // Return interpreter to pool
+                jython.close();
+                throw ex;
+            }
 
             // Submit scan to engine for execution
-            final ExecutableScan scan = new ExecutableScan(scan_engine, jython, scan_name, devices, pre_impl, main_impl, post_impl);
             scan_engine.submit(scan, queue);
             return scan.getId();
         }
@@ -271,6 +297,36 @@ public class ScanServerImpl implements ScanServer
         return infos;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ScanInfoUpdate getScanInfos(final long since_version, final long timeout_ms) throws Exception
+    {
+        final long version = since_version < 0
+                           ? scan_engine.getVersion()
+                           : scan_engine.waitForChange(since_version, timeout_ms);
+        final Set<Long> changed = since_version < 0 ? null : scan_engine.getChangedScans(since_version);
+        final List<LoggedScan> scans = scan_engine.getScans();
+        final List<ScanInfo> infos = new ArrayList<ScanInfo>(scans.size());
+        if (changed == null)
+        {   // Complete list, most recent scan first
+            for (int i=scans.size()-1; i>=0; --i)
+                infos.add(scans.get(i).getScanInfo());
+            return new ScanInfoUpdate(version, true, infos, Collections.emptyList());
+        }
+
+        // Changed scans, plus active scans on timeout to update their runtime
+        final boolean timeout = version == since_version;
+        for (int i=scans.size()-1; i>=0; --i)
+        {
+            final LoggedScan scan = scans.get(i);
+            if (changed.remove(scan.getId())  ||
+                (timeout  &&  scan.getScanState().isActive()))
+                infos.add(scan.getScanInfo());
+        }
+        // Remaining changes are for removed scans
+        return new ScanInfoUpdate(version, false, infos, new ArrayList<>(changed));
+    }
+
     /** {@inheritDoc} */
     @Override
     public ScanInfo getScanInfo(final long id) throws Exception
@@ -337,6 +393,21 @@ public class ScanServerImpl implements ScanServer
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public ScanData getScanData(final long id, final long since_serial) throws Exception
+    {
+        try
+        {
+            final LoggedScan scan = scan_engine.getScan(id);
+            return scan.getScanData(since_serial);
+        }
+        catch (Exception ex)
+        {
+            throw new Exception("Error retrieving log data", ex);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void updateScanProperty(final long id, final long address,
@@ -15,6 +15,7 @@ import java.util.logging.Logger;
 import org.csstudio.scan.client.ScanClient;
 import org.csstudio.scan.client.ScanInfoModel;
 import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataAccumulator;
 import org.csstudio.scan.server.ScanInfo;
 import org.eclipse.swt.widgets.Display;
 
@@ -27,7 +28,8 @@ import org.eclipse.swt.widgets.Display;
  *
  *  <p>Periodically queries {@link ScanInfoModel} for
  *  changes in the data of selected scan,
- *  fetches that data, and updates {@link PlotDataProvider}.
+ *  fetches the new samples, and updates {@link PlotDataProvider}
+ *  with all the data accumulated so far.
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -56,6 +58,14 @@ public class PlotDataModel implements Runnable
      */
     private volatile long last_serial = -1;
 
+    /** Samples of the scan <code>accumulated_scan_id</code> received so far,
+     *  only accessed by update thread
+     */
+    final private ScanDataAccumulator accumulator = new ScanDataAccumulator();
+
+    /** Scan for which <code>accumulator</code> holds data */
+    private long accumulated_scan_id = -1;
+
     /** Device used for the X axis
      *  SYNC on this
      */
@@ -204,10 +214,23 @@ public class PlotDataModel implements Runnable
                 try
                 {   // Check if there is new data
                     final ScanClient client = model.getScanClient();
+                    if (accumulated_scan_id != scan.getId())
+                    {
+                        accumulator.clear();
+                        accumulated_scan_id = scan.getId();
+                    }
                     final long current_serial = client.getLastScanDataSerial(scan.getId());
                     if (last_serial != current_serial)
-                    {
-                        final ScanData scan_data = client.getScanData(scan.getId());
+                    {   // Fetch only the new samples
+                        final ScanData new_data = client.getScanData(scan.getId(), accumulator.getRequestSerial());
+                        final ScanData scan_data;
+                        if (new_data == null)
+                            scan_data = null;
+                        else
+                        {
+                            accumulator.add(new_data);
+                            scan_data = accumulator.getScanData();
+                        }
                         last_serial = current_serial;
                         if (scan_data == null)
                             devices = null;
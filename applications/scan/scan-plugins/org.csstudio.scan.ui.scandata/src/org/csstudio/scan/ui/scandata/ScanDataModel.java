@@ -18,6 +18,7 @@ import org.csstudio.scan.client.ScanClient;
 import org.csstudio.scan.client.ScanInfoModel;
 import org.csstudio.scan.client.ScanInfoModelListener;
 import org.csstudio.scan.data.ScanData;
+import org.csstudio.scan.data.ScanDataAccumulator;
 import org.csstudio.scan.data.ScanSample;
 import org.csstudio.scan.server.ScanInfo;
 import org.csstudio.scan.server.ScanServerInfo;
@@ -25,10 +26,11 @@ import org.csstudio.scan.server.ScanServerInfo;
 /** Model that monitors the data of a scan
  *
  *  <p>Implementation note:
- *  Fetching the whole data for every scan update
- *  plus then converting that to a "spreadsheet"
+ *  Only samples that are new since the last update are fetched
+ *  and accumulated.
+ *  Converting the data to a "spreadsheet"
  *  in the {@link ScanDataEditor}'s {@link ScanDataModelListener}
- *  seems expensive, but causes neglegible CPU load for
+ *  still handles all samples, which causes neglegible CPU load for
  *  scans with a few thousand rows of data and a handful
  *  of devices, so "good enough" for now.
  *
@@ -58,6 +60,9 @@ public class ScanDataModel implements ScanInfoModelListener
     /** Last sample serial of scan data */
     private long last_scan_data_serial = -1;
 
+    /** Samples received so far */
+    final private ScanDataAccumulator accumulator = new ScanDataAccumulator();
+
     /** Listener to notify about updates in the scan's data */
     final private ScanDataModelListener listener;
 
@@ -110,10 +115,15 @@ public class ScanDataModel implements ScanInfoModelListener
             if (serial == last_scan_data_serial)
                 return;
 
-            // Get data
-            final ScanData data = serial == ScanClient.UNKNOWN_SCAN_SERIAL
-                                ? UNKNOWN_SCAN
-                                : client.getScanData(scan_id);
+            // Get new data
+            final ScanData data;
+            if (serial == ScanClient.UNKNOWN_SCAN_SERIAL)
+                data = UNKNOWN_SCAN;
+            else
+            {
+                accumulator.add(client.getScanData(scan_id, accumulator.getRequestSerial()));
+                data = accumulator.getScanData();
+            }
             scan_data = data;
             last_scan_data_serial = serial;
             // Update listener
@@ -3,6 +3,12 @@ from org.csstudio.scan.device import VTypeHelper
 
 class SimulationHookDemo(SimulationHook):
 
+    def isRepeatable(self):
+        """Hook only depends on the simulated devices,
+           so simulations of loops may be re-used
+        """
+        return True
+
     def getRate(self, context):
         """Get rep. rate from simulated device, with fallback"""
         try:
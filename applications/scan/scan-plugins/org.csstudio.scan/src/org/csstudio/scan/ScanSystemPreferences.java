@@ -119,6 +119,26 @@ public class ScanSystemPreferences extends SystemSettings
         return service.getDouble(Activator.ID, "old_scan_removal_memory_threshold", threshold, null);
     }
 
+    /** @return Maximum number of queued scans that may execute concurrently */
+    public static int getMaxConcurrentScans()
+    {
+        int count = 1;
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service != null)
+            count = service.getInt(Activator.ID, "max_concurrent_scans", count, null);
+        return Math.max(1, count);
+    }
+
+    /** @return Number of idle Jython interpreters to keep */
+    public static int getJythonPoolSize()
+    {
+        int count = 2;
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service != null)
+            count = service.getInt(Activator.ID, "jython_pool_size", count, null);
+        return Math.max(0, count);
+    }
+
     /** @return Memory threshold for data logger */
     public static double getDataLoggerMemoryThreshold()
     {
@@ -136,6 +156,16 @@ public class ScanSystemPreferences extends SystemSettings
         return period;
     }
 
+    /** @return Time that scan client waits for the server to report changes [millisecs] */
+    public static long getScanClientUpdateTimeout()
+    {
+        long timeout = 10000;
+        final IPreferencesService service = Platform.getPreferencesService();
+        if (service != null)
+            timeout = service.getLong(Activator.ID, "scan_client_update_timeout", timeout, null);
+        return timeout;
+    }
+
     /** @return Prefix to scan server status PVs */
     public static String getStatusPvPrefix()
     {
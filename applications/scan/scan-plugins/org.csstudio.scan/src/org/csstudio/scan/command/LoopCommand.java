@@ -43,6 +43,11 @@ import org.w3c.dom.Element;
  *  By default, the read-back uses the device that the loop writes,
  *  but alternate read-back device can be configured.
  *
+ *  <p>In 'pipeline' mode, the loop writes the value for the next step
+ *  while the body of the current step is still executing.
+ *  The body thus no longer finds the loop device at the value of its step,
+ *  but the time spent moving the device overlaps with the body.
+ *
  *  @author Kay Kasemir
  */
 @SuppressWarnings("nls")
@@ -57,6 +62,7 @@ public class LoopCommand extends ScanCommandWithBody
     private volatile boolean wait = true;
     private volatile double tolerance = 0.1;
     private volatile double timeout = 0.0;
+    private volatile boolean pipeline = false;
 
     /** Initialize empty loop */
     public LoopCommand()
@@ -131,6 +137,7 @@ public class LoopCommand extends ScanCommandWithBody
         properties.add(ScanCommandProperty.READBACK);
         properties.add(ScanCommandProperty.TOLERANCE);
         properties.add(ScanCommandProperty.TIMEOUT);
+        properties.add(new ScanCommandProperty("pipeline", "Pipeline Steps", Boolean.class));
         super.configureProperties(properties);
     }
 
@@ -254,6 +261,18 @@ public class LoopCommand extends ScanCommandWithBody
         this.timeout = Math.max(0.0, timeout);
     }
 
+    /** @return Move to next value while body executes? */
+    public boolean getPipeline()
+    {
+        return pipeline;
+    }
+
+    /** @param pipeline Move to next value while body executes? */
+    public void setPipeline(final Boolean pipeline)
+    {
+        this.pipeline = pipeline;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void addXMLElements(final Document dom, final Element command_element)
@@ -304,6 +323,12 @@ public class LoopCommand extends ScanCommandWithBody
             element.appendChild(dom.createTextNode(Double.toString(timeout)));
             command_element.appendChild(element);
         }
+        if (pipeline)
+        {
+            element = dom.createElement("pipeline");
+            element.appendChild(dom.createTextNode(Boolean.toString(pipeline)));
+            command_element.appendChild(element);
+        }
         super.addXMLElements(dom, command_element);
     }
 
@@ -323,6 +348,7 @@ public class LoopCommand extends ScanCommandWithBody
         setReadback(DOMHelper.getSubelementString(element, ScanCommandProperty.TAG_READBACK, ""));
         setTolerance(DOMHelper.getSubelementDouble(element, ScanCommandProperty.TAG_TOLERANCE, 0.1));
         setTimeout(DOMHelper.getSubelementDouble(element, ScanCommandProperty.TAG_TIMEOUT, 0.0));
+        setPipeline(Boolean.parseBoolean(DOMHelper.getSubelementString(element, "pipeline", "false")));
     }
 
     /** @param buf If the set command uses a condition,
@@ -352,6 +378,8 @@ public class LoopCommand extends ScanCommandWithBody
                 buf.append(", ").append(timeout).append(" sec timeout");
             buf.append(")");
         }
+        if (pipeline)
+            buf.append(", pipelined");
     }
 
     /** {@inheritDoc} */
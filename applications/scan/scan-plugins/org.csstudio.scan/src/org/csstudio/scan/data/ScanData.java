@@ -15,7 +15,9 @@
  ******************************************************************************/
 package org.csstudio.scan.data;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,4 +59,23 @@ public class ScanData
     {
         return device_logs.get(device_name);
     }
+
+    /** @param serial Sample serial
+     *  @return {@link ScanData} with only those samples that have a larger serial.
+     *          Devices without such samples are omitted.
+     */
+    public ScanData getDataAfter(final long serial)
+    {
+        final Map<String, List<ScanSample>> newer = new HashMap<>();
+        for (Map.Entry<String, List<ScanSample>> entry : device_logs.entrySet())
+        {
+            final List<ScanSample> samples = new ArrayList<>();
+            for (ScanSample sample : entry.getValue())
+                if (sample.getSerial() > serial)
+                    samples.add(sample);
+            if (! samples.isEmpty())
+                newer.put(entry.getKey(), samples);
+        }
+        return new ScanData(newer);
+    }
 }
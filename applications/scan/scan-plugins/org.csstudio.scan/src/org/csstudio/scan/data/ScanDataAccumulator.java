@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/** Accumulates {@link ScanData} from incremental updates
+ *
+ *  <p>Client fetches the samples after the serial provided by
+ *  <code>getRequestSerial()</code> and adds them.
+ *
+ *  <p>Samples for several devices can be logged with the same serial,
+ *  and a request could return only some of them.
+ *  The request serial therefore includes the last serial again,
+ *  and samples that were already received are skipped.
+ *
+ *  <p>The {@link ScanData} returned by <code>getScanData()</code>
+ *  is a snapshot that remains unchanged as further samples are added.
+ */
+public class ScanDataAccumulator
+{
+    /** Append-only samples of one device */
+    private static class DeviceSamples
+    {
+        private ScanSample[] samples = new ScanSample[16];
+        private int size = 0;
+
+        long getLastSerial()
+        {
+            return size > 0 ? samples[size-1].getSerial() : -1;
+        }
+
+        void add(final ScanSample sample)
+        {
+            if (size >= samples.length)
+                samples = Arrays.copyOf(samples, samples.length * 2);
+            samples[size++] = sample;
+        }
+
+        /** @return Read-only list of current samples, not affected by added samples */
+        List<ScanSample> snapshot()
+        {
+            return new Snapshot(samples, size);
+        }
+    }
+
+    /** Read-only view of the first 'size' elements of an array
+     *  that is only appended
+     */
+    private static class Snapshot extends AbstractList<ScanSample> implements RandomAccess
+    {
+        final private ScanSample[] samples;
+        final private int size;
+
+        Snapshot(final ScanSample[] samples, final int size)
+        {
+            this.samples = samples;
+            this.size = size;
+        }
+
+        @Override
+        public ScanSample get(final int index)
+        {
+            if (index < 0  ||  index >= size)
+                throw new IndexOutOfBoundsException();
+            return samples[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    final private Map<String, DeviceSamples> devices = new HashMap<>();
+
+    /** Largest serial received */
+    private long last_serial = -1;
+
+    /** @return Serial for the next request, i.e. ask for samples with a serial larger than this */
+    public synchronized long getRequestSerial()
+    {
+        return last_serial - 1;
+    }
+
+    /** @return Largest serial received, -1 if nothing has been received */
+    public synchronized long getLastSerial()
+    {
+        return last_serial;
+    }
+
+    /** @param data Samples received in response to a request for samples after <code>getRequestSerial()</code>
+     *  @return <code>true</code> if there were new samples
+     */
+    public synchronized boolean add(final ScanData data)
+    {
+        boolean changed = false;
+        for (String device : data.getDevices())
+        {
+            DeviceSamples known = devices.get(device);
+            if (known == null)
+            {
+                known = new DeviceSamples();
+                devices.put(device, known);
+            }
+            for (ScanSample sample : data.getSamples(device))
+            {
+                // Skip samples that were already received
+                if (sample.getSerial() <= known.getLastSerial())
+                    continue;
+                known.add(sample);
+                last_serial = Math.max(last_serial, sample.getSerial());
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /** @return {@link ScanData} with all samples received so far */
+    public synchronized ScanData getScanData()
+    {
+        final Map<String, List<ScanSample>> data = new HashMap<>();
+        for (Map.Entry<String, DeviceSamples> entry : devices.entrySet())
+            data.put(entry.getKey(), entry.getValue().snapshot());
+        return new ScanData(data);
+    }
+
+    /** Remove all samples, for example to start over with a different scan */
+    public synchronized void clear()
+    {
+        devices.clear();
+        last_serial = -1;
+    }
+}
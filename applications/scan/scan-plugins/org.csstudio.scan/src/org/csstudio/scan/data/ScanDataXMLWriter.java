@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.data;
+
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+/** Write {@link ScanData} as XML
+ *
+ *  <p>Streams the samples without building a DOM
+ *  in the format used by the scan server's "/scan/{id}/data":
+ *  <pre>
+ *  &lt;data>
+ *    &lt;device>
+ *      &lt;name>readback&lt;/name>
+ *      &lt;samples>
+ *        &lt;sample id="0">
+ *          &lt;time>1369935537970&lt;/time>
+ *          &lt;value>0.0&lt;/value>
+ *        &lt;/sample>
+ *      &lt;/samples>
+ *    &lt;/device>
+ *  &lt;/data>
+ *  </pre>
+ *  Time is in milliseconds since epoch.
+ */
+@SuppressWarnings("nls")
+public class ScanDataXMLWriter
+{
+    /** @param data {@link ScanData} to write
+     *  @param out Stream for XML. Will be flushed, but not closed.
+     *  @throws Exception on error
+     */
+    public static void write(final ScanData data, final OutputStream out) throws Exception
+    {
+        final XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("data");
+        for (String device : data.getDevices())
+        {
+            writer.writeStartElement("device");
+            writeElement(writer, "name", device);
+            writer.writeStartElement("samples");
+            for (ScanSample sample : data.getSamples(device))
+            {
+                writer.writeStartElement("sample");
+                writer.writeAttribute("id", Long.toString(sample.getSerial()));
+                writeElement(writer, "time", Long.toString(sample.getTimestamp().toEpochMilli()));
+                writeElement(writer, "value", ScanSampleFormatter.asString(sample));
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+        out.flush();
+    }
+
+    private static void writeElement(final XMLStreamWriter writer, final String name, final String text) throws Exception
+    {
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.scan.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Changes of the scan server's {@link ScanInfo}s
+ *
+ *  <p>The server keeps a version counter that is incremented
+ *  whenever a scan is added, removed, or changes its state or progress.
+ *  A client that knows the infos for one version can request
+ *  the changes since that version.
+ *
+ *  <p>If the server no longer knows all changes since the requested
+ *  version, it sends a complete list of infos.
+ */
+@SuppressWarnings("nls")
+public class ScanInfoUpdate
+{
+    final private long version;
+    final private boolean complete;
+    final private List<ScanInfo> infos;
+    final private List<Long> removed;
+
+    /** Initialize
+     *  @param version Version of the server's scan infos, -1 if server does not support versions
+     *  @param complete Are <code>infos</code> the complete list, or only the changed infos?
+     *  @param infos Complete or changed infos, most recent scan first
+     *  @param removed IDs of scans that have been removed
+     */
+    public ScanInfoUpdate(final long version, final boolean complete,
+                          final List<ScanInfo> infos, final List<Long> removed)
+    {
+        this.version = version;
+        this.complete = complete;
+        this.infos = Collections.unmodifiableList(infos);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+    /** @return Version of the scan infos, to be used for the next request */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /** @return <code>true</code> if infos are complete, <code>false</code> for changes */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /** @return Complete list of infos or changed infos, most recent scan first */
+    public List<ScanInfo> getInfos()
+    {
+        return infos;
+    }
+
+    /** @return IDs of removed scans */
+    public List<Long> getRemoved()
+    {
+        return removed;
+    }
+
+    /** Apply update to scan infos
+     *  @param previous Previous infos, most recent scan first
+     *  @return Updated infos, most recent scan first
+     */
+    public List<ScanInfo> applyTo(final List<ScanInfo> previous)
+    {
+        if (complete)
+            return infos;
+        if (infos.isEmpty()  &&  removed.isEmpty())
+            return previous;
+
+        final Map<Long, ScanInfo> changed = new HashMap<>();
+        for (ScanInfo info : infos)
+            changed.put(info.getId(), info);
+
+        final List<ScanInfo> result = new ArrayList<>(previous.size() + infos.size());
+        for (ScanInfo info : previous)
+        {
+            if (removed.contains(info.getId()))
+                continue;
+            final ScanInfo update = changed.remove(info.getId());
+            result.add(update != null ? update : info);
+        }
+        // Remaining changes are new scans
+        result.addAll(changed.values());
+        // IDs increase, so sorting by ID puts most recent scan first
+        result.sort((a, b) -> Long.compare(b.getId(), a.getId()));
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Scan info update " + version + (complete ? " (complete): " : ": ") +
+               infos.size() + " infos, " + removed.size() + " removed";
+    }
+}
@@ -32,18 +32,23 @@ public class ScanServerInfo extends MemoryInfo
     final private String simulation_config;
     final private String[] script_paths;
     final private String macros;
+    final private String jython;
 
     /** Initialize
      *  @param version
      *  @param start_time
      *  @param scan_config
      *  @param simulation_config
+     *  @param script_paths
+     *  @param macros
+     *  @param jython Jython interpreter pool info
      */
     public ScanServerInfo(final String version, final Instant start_time,
             final String scan_config,
             final String simulation_config,
             final String[] script_paths,
-            final String macros)
+            final String macros,
+            final String jython)
     {
         this.version = version;
         this.start_time = start_time;
@@ -51,6 +56,7 @@ public class ScanServerInfo extends MemoryInfo
         this.simulation_config = simulation_config;
         this.script_paths = script_paths;
         this.macros = macros;
+        this.jython = jython;
     }
 
     /** Initialize
@@ -60,6 +66,7 @@ public class ScanServerInfo extends MemoryInfo
      *  @param simulation_config
      *  @param script_paths
      *  @param macros
+     *  @param jython Jython interpreter pool info
      *  @param used_mem Used memory (kB)
      *  @param max_mem Maximum available memory (kB)
      *  @param non_heap
@@ -69,6 +76,7 @@ public class ScanServerInfo extends MemoryInfo
             final String simulation_config,
             final String[] script_paths,
             final String macros,
+            final String jython,
             final long used_mem, final long max_mem, final long non_heap)
     {
         super(used_mem, max_mem, non_heap);
@@ -78,6 +86,7 @@ public class ScanServerInfo extends MemoryInfo
         this.simulation_config = simulation_config;
         this.script_paths = script_paths;
         this.macros = macros;
+        this.jython = jython;
     }
 
     /** @return Version number */
@@ -118,6 +127,12 @@ public class ScanServerInfo extends MemoryInfo
         return macros;
     }
 
+    /** @return Jython interpreter pool info */
+    public String getJythonInfo()
+    {
+        return jython;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString()
@@ -129,6 +144,7 @@ public class ScanServerInfo extends MemoryInfo
         buf.append("Simulation Configuration: ").append(simulation_config).append("\n");
         buf.append("Script paths: ").append(PathUtil.joinPaths(script_paths)).append("\n");
         buf.append("Macros: ").append(macros).append("\n");
+        buf.append("Jython: ").append(jython).append("\n");
         buf.append("Memory: ").append(getMemoryInfo()).append("\n");
         return buf.toString();
     }
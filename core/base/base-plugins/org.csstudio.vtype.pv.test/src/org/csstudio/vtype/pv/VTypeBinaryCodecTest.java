@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.csstudio.vtype.pv.mqtt.MQTT_PV;
+import org.csstudio.vtype.pv.mqtt.VTypeBinaryCodec;
+import org.csstudio.vtype.pv.mqtt.VTypeToFromString;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayInt;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VDouble;
+import org.diirt.vtype.VDoubleArray;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VLong;
+import org.diirt.vtype.VLongArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.junit.Test;
+
+/** JUnit tests of the binary MQTT value encoding
+ */
+@SuppressWarnings("nls")
+public class VTypeBinaryCodecTest
+{
+    private final Alarm alarm = ValueFactory.newAlarm(AlarmSeverity.MINOR, "LOW");
+    private final Time time = ValueFactory.newTime(Instant.ofEpochSecond(1470000000, 123456789));
+
+    private VType roundtrip(final VType value) throws Exception
+    {
+        final byte[] payload = VTypeBinaryCodec.encode(value);
+        assertThat(VTypeBinaryCodec.isBinary(payload), equalTo(true));
+        final VType decoded = VTypeBinaryCodec.decode(payload);
+        assertThat(((Alarm) decoded).getAlarmSeverity(), equalTo(alarm.getAlarmSeverity()));
+        assertThat(((Alarm) decoded).getAlarmName(), equalTo(alarm.getAlarmName()));
+        assertThat(((Time) decoded).getTimestamp(), equalTo(time.getTimestamp()));
+        return decoded;
+    }
+
+    @Test
+    public void testScalars() throws Exception
+    {
+        VType value = roundtrip(ValueFactory.newVDouble(3.14, alarm, time, ValueFactory.displayNone()));
+        assertThat(value, instanceOf(VDouble.class));
+        assertThat(((VDouble) value).getValue(), equalTo(3.14));
+
+        value = roundtrip(ValueFactory.newVLong(1L << 40, alarm, time, ValueFactory.displayNone()));
+        assertThat(value, instanceOf(VLong.class));
+        assertThat(((VLong) value).getValue(), equalTo(1L << 40));
+
+        value = roundtrip(ValueFactory.newVString("Hello, \"MQTT\" \u00b5", alarm, time));
+        assertThat(value, instanceOf(VString.class));
+        assertThat(((VString) value).getValue(), equalTo("Hello, \"MQTT\" \u00b5"));
+
+        value = roundtrip(ValueFactory.newVEnum(1, Arrays.asList("Off", "On"), alarm, time));
+        assertThat(value, instanceOf(VEnum.class));
+        assertThat(((VEnum) value).getIndex(), equalTo(1));
+        assertThat(((VEnum) value).getLabels(), equalTo(Arrays.asList("Off", "On")));
+    }
+
+    @Test
+    public void testArrays() throws Exception
+    {
+        final double[] numbers = new double[10000];
+        for (int i=0; i<numbers.length; ++i)
+            numbers[i] = Math.sin(i * 0.01);
+        VType value = roundtrip(ValueFactory.newVDoubleArray(new ArrayDouble(numbers), alarm, time, ValueFactory.displayNone()));
+        assertThat(value, instanceOf(VDoubleArray.class));
+        final ArrayDouble decoded = (ArrayDouble) ((VDoubleArray) value).getData();
+        for (int i=0; i<numbers.length; ++i)
+            assertThat(decoded.getDouble(i), equalTo(numbers[i]));
+
+        value = roundtrip(ValueFactory.newVIntArray(new ArrayInt(1, 2, -3), alarm, time, ValueFactory.displayNone()));
+        assertThat(value, instanceOf(VLongArray.class));
+        assertThat(((VLongArray) value).getData().getLong(2), equalTo(-3L));
+
+        value = roundtrip(ValueFactory.newVStringArray(Arrays.asList("a", "", "b, c"), alarm, time));
+        assertThat(value, instanceOf(VStringArray.class));
+        assertThat(((VStringArray) value).getData(), equalTo(Arrays.asList("a", "", "b, c")));
+    }
+
+    @Test
+    public void testSize() throws Exception
+    {
+        final double[] numbers = new double[1000];
+        for (int i=0; i<numbers.length; ++i)
+            numbers[i] = Math.PI * i;
+        final VType value = ValueFactory.toVType(numbers);
+        final int text = VTypeToFromString.ToString(value).getBytes().length;
+        final int binary = VTypeBinaryCodec.encode(value).length;
+        System.out.println("Text: " + text + " bytes, binary: " + binary + " bytes");
+        assertThat(binary < text, equalTo(true));
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        assertThat(VTypeBinaryCodec.isBinary("3.14".getBytes()), equalTo(false));
+        final byte[] payload = VTypeBinaryCodec.encode(ValueFactory.newVDoubleArray(new ArrayDouble(1, 2, 3),
+                alarm, time, ValueFactory.displayNone()));
+        try
+        {
+            VTypeBinaryCodec.decode(Arrays.copyOf(payload, payload.length - 4));
+            fail("Did not catch truncated array");
+        }
+        catch (Exception ex)
+        {
+            System.out.println("Successful error catch of truncated array: " + ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testBinaryOption() throws Exception
+    {
+        final String[] ntv = MQTT_PV.parseName("topic<VDoubleArray,binary>");
+        assertThat(ntv[0], equalTo("topic"));
+        assertThat(ntv[1], equalTo("VDoubleArray,binary"));
+    }
+}
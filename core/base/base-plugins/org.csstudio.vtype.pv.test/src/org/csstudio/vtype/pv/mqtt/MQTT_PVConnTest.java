@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.mqtt;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.csstudio.vtype.pv.PV;
+import org.csstudio.vtype.pv.PVListener;
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.VDouble;
+import org.diirt.vtype.VDoubleArray;
+import org.diirt.vtype.VLong;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.Test;
+
+/** JUnit tests of the MQTT PV name options and message dispatch
+ *
+ *  <p>Uses a connection that does not contact a broker.
+ */
+@SuppressWarnings("nls")
+public class MQTT_PVConnTest
+{
+    /** Connection that tracks broker subscriptions instead of contacting a broker */
+    private static class TestConnection extends MQTT_PVConn
+    {
+        final AtomicInteger broker_subscriptions = new AtomicInteger();
+
+        @Override
+        boolean connect()
+        {
+            is_connected = true;
+            return true;
+        }
+
+        @Override
+        void disconnect()
+        {
+            is_connected = false;
+        }
+
+        @Override
+        void subscribeBroker(final String topicStr)
+        {
+            broker_subscriptions.incrementAndGet();
+        }
+
+        @Override
+        void unsubscribeBroker(final String topicStr)
+        {
+            broker_subscriptions.decrementAndGet();
+        }
+    }
+
+    /** Listener that remembers the last value */
+    private static class ValueListener implements PVListener
+    {
+        final AtomicReference<VType> value = new AtomicReference<>();
+
+        @Override
+        public void permissionsChanged(final PV pv, final boolean readonly)
+        {
+            // Ignore
+        }
+
+        @Override
+        public void valueChanged(final PV pv, final VType value)
+        {
+            this.value.set(value);
+        }
+
+        @Override
+        public void disconnected(final PV pv)
+        {
+            // Ignore
+        }
+    }
+
+    @Test
+    public void testBinaryOption() throws Exception
+    {
+        final TestConnection conn = new TestConnection();
+
+        MQTT_PV pv = new MQTT_PV("mqtt://topic<VDoubleArray,binary>", "topic<VDoubleArray,binary>", conn);
+        assertThat(pv.isBinary(), equalTo(true));
+        assertThat(pv.getType(), sameInstance(VDoubleArray.class));
+
+        pv = new MQTT_PV("mqtt://topic<Binary>", "topic<Binary>", conn);
+        assertThat(pv.isBinary(), equalTo(true));
+        assertThat(pv.getType(), sameInstance(VDouble.class));
+
+        pv = new MQTT_PV("mqtt://topic<VLong>", "topic<VLong>", conn);
+        assertThat(pv.isBinary(), equalTo(false));
+        assertThat(pv.getType(), sameInstance(VLong.class));
+
+        assertThat(conn.subscribers.get("topic").size(), equalTo(3));
+        assertThat(conn.broker_subscriptions.get(), equalTo(1));
+    }
+
+    @Test
+    public void testBinaryMessage() throws Exception
+    {
+        final TestConnection conn = new TestConnection();
+        final MQTT_PV pv1 = new MQTT_PV("mqtt://wave<VDoubleArray,binary>", "wave<VDoubleArray,binary>", conn);
+        final MQTT_PV pv2 = new MQTT_PV("mqtt://wave<VDoubleArray>", "wave<VDoubleArray>", conn);
+        final MQTT_PV other = new MQTT_PV("mqtt://other<VDoubleArray>", "other<VDoubleArray>", conn);
+        final ValueListener listener1 = new ValueListener(), listener2 = new ValueListener(), other_listener = new ValueListener();
+        pv1.addListener(listener1);
+        pv2.addListener(listener2);
+        other.addListener(other_listener);
+
+        final VType value = ValueFactory.newVDoubleArray(new ArrayDouble(1, 2, 3),
+                ValueFactory.newAlarm(AlarmSeverity.MAJOR, "HIHI"),
+                ValueFactory.newTime(Instant.ofEpochSecond(1470000000)),
+                ValueFactory.displayNone());
+        conn.messageArrived("wave", new MqttMessage(VTypeBinaryCodec.encode(value)));
+
+        // Decoded by content, independent of the "binary" option of the receiving PV
+        for (ValueListener listener : new ValueListener[] { listener1, listener2 })
+        {
+            assertThat(listener.value.get(), instanceOf(VDoubleArray.class));
+            final VDoubleArray received = (VDoubleArray) listener.value.get();
+            assertThat(received.getData().getDouble(2), equalTo(3.0));
+            assertThat(received.getAlarmSeverity(), equalTo(AlarmSeverity.MAJOR));
+        }
+        assertThat(pv1.read(), sameInstance(listener1.value.get()));
+        assertThat(other_listener.value.get(), nullValue());
+    }
+
+    @Test
+    public void testSubscribeWhileUnsubscribing() throws Exception
+    {
+        final TestConnection conn = new TestConnection();
+        final MQTT_PV pv1 = new MQTT_PV("mqtt://race", "race", conn);
+        final MQTT_PV pv2 = new MQTT_PV("mqtt://race", "race", conn);
+        conn.unsubscribeTopic("race", pv1);
+        conn.unsubscribeTopic("race", pv2);
+        assertThat(conn.subscribers.isEmpty(), equalTo(true));
+
+        // Each thread subscribes and unsubscribes its PV,
+        // so the subscriber set of the topic keeps being removed and re-created
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final Future<?>[] results = new Future<?>[2];
+        final MQTT_PV[] pvs = new MQTT_PV[] { pv1, pv2 };
+        for (int i=0; i<pvs.length; ++i)
+        {
+            final MQTT_PV pv = pvs[i];
+            results[i] = executor.submit(() ->
+            {
+                for (int run=0; run<10000; ++run)
+                {
+                    conn.subscribeTopic("race", pv);
+                    // The PV must be in the set that is registered for the topic
+                    assertThat(conn.subscribers.get("race").contains(pv), equalTo(true));
+                    conn.unsubscribeTopic("race", pv);
+                }
+                return null;
+            });
+        }
+        for (Future<?> result : results)
+            result.get();
+        executor.shutdown();
+
+        assertThat(conn.subscribers.isEmpty(), equalTo(true));
+        assertThat(conn.broker_subscriptions.get(), equalTo(0));
+    }
+}
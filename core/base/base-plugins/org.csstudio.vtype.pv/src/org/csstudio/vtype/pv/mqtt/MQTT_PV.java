@@ -27,16 +27,39 @@ import org.eclipse.paho.client.mqttv3.MqttMessage;
 @SuppressWarnings("nls")
 public class MQTT_PV extends PV
 {
-    static final MQTT_PVConn conx = new MQTT_PVConn();
+    /** Option in the type part of the name to select binary encoding */
+    public static final String BINARY_OPTION = "binary";
+
+    /** Broker connection shared by all MQTT PVs, created when the first PV is created */
+    private static class SharedConnection
+    {
+        static final MQTT_PVConn conx = new MQTT_PVConn();
+    }
+
+    private final MQTT_PVConn conx;
 
     volatile private String topicStr;
 
     private Class<? extends VType> type;
 
+    /** Publish values with the {@link VTypeBinaryCodec}? */
+    private boolean binary = false;
+
 
     protected MQTT_PV(final String name, final String base_name) throws Exception
+    {
+        this(name, base_name, SharedConnection.conx);
+    }
+
+    /** @param name PV name
+     *  @param base_name Name without type prefix
+     *  @param conx Broker connection
+     *  @throws Exception on error
+     */
+    MQTT_PV(final String name, final String base_name, final MQTT_PVConn conx) throws Exception
     {
         super(name);
+        this.conx = conx;
         final String initial_value = parseTopicValue(base_name);
 
         if (initial_value == null)
@@ -57,20 +80,35 @@ public class MQTT_PV extends PV
         final String[] ntv = parseName(base_name);
         topicStr = ntv[0];
 
-        if (ntv[1] != null) {
+        String type_spec = ntv[1];
+        if (type_spec != null)
+        {   // "binary" option, alone or next to the type as in "<VDoubleArray,binary>"
+            final String lower = type_spec.toLowerCase();
+            final int option = lower.indexOf(BINARY_OPTION);
+            if (option >= 0)
+            {
+                binary = true;
+                type_spec = (type_spec.substring(0, option) +
+                             type_spec.substring(option + BINARY_OPTION.length())).replace(',', ' ').trim();
+                if (type_spec.isEmpty())
+                    type_spec = null;
+            }
+        }
+
+        if (type_spec != null) {
             //topicStr += ntv[1];
-            type = parseType(ntv[1]);
+            type = parseType(type_spec);
         }
 
         if (ntv[2] == null)
         {
-            if (ntv[1] == null)
+            if (type_spec == null)
                 type = VDouble.class;
         }
         else
         {
             final List<String> initial_value_items = VTypeToFromString.splitStringList(ntv[2]);
-            if (ntv[1] == null)
+            if (type_spec == null)
                 type = VTypeToFromString.determineValueType(initial_value_items);
         }
 
@@ -78,6 +116,12 @@ public class MQTT_PV extends PV
     }
 
     /** Parse PV name
+     *
+     *  <p>The type may include the option "binary",
+     *  for example "name&lt;VDoubleArray,binary>",
+     *  to publish values in the compact {@link VTypeBinaryCodec} encoding.
+     *  Received values are decoded based on their content, independent of the option.
+     *
      *  @param base_name "name", "name(value)" or "name&lt;type>(value)"
      *  @return Name, type-or-null, value-or-null
      *  @throws Exception on error
@@ -116,6 +160,18 @@ public class MQTT_PV extends PV
         return new String[] { name, type, value };
     }
 
+    /** @return Value type */
+    Class<? extends VType> getType()
+    {
+        return type;
+    }
+
+    /** @return Are values published with the {@link VTypeBinaryCodec}? */
+    boolean isBinary()
+    {
+        return binary;
+    }
+
     private Class<? extends VType> parseType(final String type) throws Exception
     {   // Lenient check, ignore case and allow partial match
         final String lower = type.toLowerCase();
@@ -148,11 +204,14 @@ public class MQTT_PV extends PV
         if (new_value == null)
             throw new Exception(getName() + " got null");
 
-        final String pubMsg;
+        final byte[] pubMsg;
         try
         {
             final VType value = VTypeToFromString.convert(new_value, type, read());
-            pubMsg = VTypeToFromString.ToString(value);
+            if (binary)
+                pubMsg = VTypeBinaryCodec.encode(value);
+            else
+                pubMsg = VTypeToFromString.ToString(value).getBytes();
         }
         catch (Exception ex)
         {
@@ -188,24 +247,25 @@ public class MQTT_PV extends PV
      */
     public void messageArrived(String topic, MqttMessage msg) throws Exception
     {
-        final String new_value = msg.toString();
-        System.out.println("MQTT_PV Message arrived: " + topic + " : " + msg.toString());
-
         if (!topic.equals(topicStr))
         {
             logger.log(Level.SEVERE, "Got message with topic " + topic + " != " + topicStr);
             throw new Exception(getName() + " topic mismatch");
         }
 
+        final byte[] payload = msg.getPayload();
         try
         {
-            final VType value = VTypeToFromString.convert(new_value, type, read());
+            final VType value;
+            if (VTypeBinaryCodec.isBinary(payload))
+                value = VTypeBinaryCodec.decode(payload);
+            else
+                value = VTypeToFromString.convert(new String(payload), type, read());
             notifyListenersOfValue(value);
         }
         catch (Exception ex)
         {
-            logger.log(Level.SEVERE, "Could not parse message: '" + new_value + "' to " + getName());
-            ex.printStackTrace();
+            logger.log(Level.SEVERE, "Could not parse message: '" + msg + "' to " + getName(), ex);
             //throw new Exception("Failed to parse message", ex);
         }
     }
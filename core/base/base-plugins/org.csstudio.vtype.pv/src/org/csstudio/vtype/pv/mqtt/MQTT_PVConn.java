@@ -60,19 +60,12 @@ public class MQTT_PVConn implements MqttCallback
     @Override
     public void messageArrived(String topic, MqttMessage msg) throws Exception
     {
-        System.out.println("MQTT Connections Message arrived: " + topic + " : " + msg.toString());
-
-        //Synchronize this so a pv can't unsubscribe and leave an invalid pointer in the map while we deliver message
-        synchronized(subscribers)
-        {
-            if (subscribers.containsKey(topic))
-            {
-                for (MQTT_PV pv : subscribers.get(topic))
-                {
-                    pv.messageArrived(topic, msg);
-                }
-            }
-        }
+        // Both the map and the subscriber sets are concurrent, so no lock is needed.
+        // A PV that unsubscribes while the message is delivered may still receive it.
+        final Set<MQTT_PV> pvs = subscribers.get(topic);
+        if (pvs != null)
+            for (MQTT_PV pv : pvs)
+                pv.messageArrived(topic, msg);
 
     }
 
@@ -85,19 +78,24 @@ public class MQTT_PVConn implements MqttCallback
             throw new Exception("MQTT subscribe failed: no broker connection");
         }
 
-        if (!subscribers.containsKey(topicStr))
+        // Add the PV inside the atomic update of the map entry, so unsubscribeTopic
+        // cannot remove the subscriber set of the topic while the PV is added.
+        // If there is no set, maybe because it was just removed, create it and retry.
+        while (subscribers.computeIfPresent(topicStr, (topic, pvs) ->
+        {
+            pvs.add(pv);
+            return pvs;
+        }) == null)
         {
             synchronized(subscribers)
             {
                 if (!subscribers.containsKey(topicStr))
                 {
+                    subscribeBroker(topicStr);
                     subscribers.put(topicStr, ConcurrentHashMap.newKeySet());
-                    int subQoS = 0;
-                    myClient.subscribe(topicStr, subQoS);
                 }
             }
         }
-        subscribers.get(topicStr).add(pv);
     }
 
     public void unsubscribeTopic (String topicStr, MQTT_PV pv) throws Exception
@@ -109,34 +107,58 @@ public class MQTT_PVConn implements MqttCallback
             throw new Exception("MQTT unsubscribe failed: no broker connection");
         }
 
-        if (!subscribers.containsKey(topicStr))
+        synchronized(subscribers)
         {
-            PV.logger.log(Level.WARNING, "Could not unsubscribe to mqtt topic \"" + topicStr
-                    + "\" due to no internal record of topic");
-            throw new Exception("MQTT unsubscribe failed: no topic record");
-        }
-
-        subscribers.get(topicStr).remove(pv);
+            if (!subscribers.containsKey(topicStr))
+            {
+                PV.logger.log(Level.WARNING, "Could not unsubscribe to mqtt topic \"" + topicStr
+                        + "\" due to no internal record of topic");
+                throw new Exception("MQTT unsubscribe failed: no topic record");
+            }
 
-        if (subscribers.get(topicStr).size() == 0)
-        {
-            synchronized(subscribers)
+            // Remove the set of the topic when it becomes empty,
+            // atomically with respect to subscribeTopic adding a PV
+            final Set<MQTT_PV> remaining = subscribers.computeIfPresent(topicStr, (topic, pvs) ->
             {
-                if (subscribers.get(topicStr).size() == 0)
-                {
-                    subscribers.remove(topicStr);
-                    myClient.unsubscribe(topicStr);
-                }
+                pvs.remove(pv);
+                return pvs.isEmpty() ? null : pvs;
+            });
+            if (remaining == null)
+            {
+                unsubscribeBroker(topicStr);
                 if (subscribers.isEmpty())
                 {
                     disconnect();
                 }
             }
         }
+    }
 
+    /** Subscribe to topic on the broker
+     *  @param topicStr Topic
+     *  @throws Exception on error
+     */
+    void subscribeBroker(final String topicStr) throws Exception
+    {
+        int subQoS = 0;
+        myClient.subscribe(topicStr, subQoS);
+    }
+
+    /** Unsubscribe from topic on the broker
+     *  @param topicStr Topic
+     *  @throws Exception on error
+     */
+    void unsubscribeBroker(final String topicStr) throws Exception
+    {
+        myClient.unsubscribe(topicStr);
     }
 
     public void publishTopic(String topicStr, String pubMsg, int pubQoS, boolean retained) throws Exception
+    {
+        publishTopic(topicStr, pubMsg.getBytes(), pubQoS, retained);
+    }
+
+    public void publishTopic(String topicStr, byte[] pubMsg, int pubQoS, boolean retained) throws Exception
     {
         if ((!is_connected) && (!connect()))
         {
@@ -146,12 +168,13 @@ public class MQTT_PVConn implements MqttCallback
         }
 
         MqttTopic topic = myClient.getTopic(topicStr);
-        MqttMessage message = new MqttMessage(pubMsg.getBytes());
+        MqttMessage message = new MqttMessage(pubMsg);
         message.setQos(pubQoS);
         message.setRetained(retained);
 
         // Publish the message
-        System.out.println("Publishing \"" + pubMsg + "\" to topic \"" + topic + "\" qos " + pubQoS);
+        PV.logger.log(Level.FINE, "Publishing {0} bytes to topic \"{1}\" qos {2}",
+                      new Object[] { pubMsg.length, topic, pubQoS });
         MqttDeliveryToken token = null;
         try {
             // publish message to broker
@@ -164,7 +187,7 @@ public class MQTT_PVConn implements MqttCallback
         }
     }
 
-    private void disconnect()
+    void disconnect()
     {
         if (is_connected) {
             synchronized(conn_lock)
@@ -192,7 +215,7 @@ public class MQTT_PVConn implements MqttCallback
         }
     }
 
-    private boolean connect()
+    boolean connect()
     {
         if (!is_connected)
         {
@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2016 Oak Ridge National Laboratory.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.csstudio.vtype.pv.mqtt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.diirt.util.array.ArrayDouble;
+import org.diirt.util.array.ArrayLong;
+import org.diirt.util.array.ListByte;
+import org.diirt.util.array.ListInt;
+import org.diirt.util.array.ListLong;
+import org.diirt.util.array.ListNumber;
+import org.diirt.util.array.ListShort;
+import org.diirt.vtype.Alarm;
+import org.diirt.vtype.AlarmSeverity;
+import org.diirt.vtype.Time;
+import org.diirt.vtype.VEnum;
+import org.diirt.vtype.VNumber;
+import org.diirt.vtype.VNumberArray;
+import org.diirt.vtype.VString;
+import org.diirt.vtype.VStringArray;
+import org.diirt.vtype.VType;
+import org.diirt.vtype.ValueFactory;
+
+/** Compact binary encoding of values for MQTT messages
+ *
+ *  <p>Unlike the text of {@link VTypeToFromString}, a binary message
+ *  carries the time stamp and alarm of the value,
+ *  and arrays are packed as primitives instead of formatted and parsed numbers.
+ *
+ *  <p>Message layout, all numbers big endian:
+ *  <pre>
+ *  byte 0, 'V'       Marker, never the start of a text message
+ *  byte version      {@link #VERSION}
+ *  byte type         One of the TYPE_* codes
+ *  long seconds      Time stamp
+ *  int  nanoseconds
+ *  byte severity     Ordinal of the {@link AlarmSeverity}
+ *  string alarm      Alarm name
+ *  value             Depends on type
+ *  </pre>
+ *  Strings are written as int length and UTF-8 bytes,
+ *  arrays as int length followed by the elements.
+ */
+@SuppressWarnings("nls")
+public class VTypeBinaryCodec
+{
+    /** Version of the message layout */
+    public static final byte VERSION = 1;
+
+    private static final byte MARKER0 = 0, MARKER1 = 'V';
+
+    private static final byte TYPE_DOUBLE = 1,
+                              TYPE_LONG = 2,
+                              TYPE_STRING = 3,
+                              TYPE_ENUM = 4,
+                              TYPE_DOUBLE_ARRAY = 5,
+                              TYPE_LONG_ARRAY = 6,
+                              TYPE_STRING_ARRAY = 7;
+
+    /** Size of marker, version, type, time stamp and alarm severity */
+    private static final int HEADER_SIZE = 2 + 1 + 1 + 8 + 4 + 1;
+
+    /** @param payload Message payload
+     *  @return <code>true</code> if the payload is a binary encoded value
+     */
+    public static boolean isBinary(final byte[] payload)
+    {
+        return payload.length >= HEADER_SIZE  &&
+               payload[0] == MARKER0  &&  payload[1] == MARKER1;
+    }
+
+    /** @param value Value to encode
+     *  @return Message payload
+     *  @throws Exception if the value type is not supported
+     */
+    public static byte[] encode(final VType value) throws Exception
+    {
+        final Alarm alarm = (value instanceof Alarm) ? (Alarm) value : ValueFactory.alarmNone();
+        final Instant time = (value instanceof Time) ? ((Time) value).getTimestamp() : Instant.now();
+        final byte[] alarm_name = alarm.getAlarmName().getBytes(StandardCharsets.UTF_8);
+
+        final byte type;
+        int size = HEADER_SIZE + 4 + alarm_name.length;
+        byte[][] strings = null;
+        ListNumber numbers = null;
+        if (value instanceof VNumberArray)
+        {
+            numbers = ((VNumberArray) value).getData();
+            type = isInteger(numbers) ? TYPE_LONG_ARRAY : TYPE_DOUBLE_ARRAY;
+            size += 4 + 8 * numbers.size();
+        }
+        else if (value instanceof VStringArray)
+        {
+            type = TYPE_STRING_ARRAY;
+            strings = toBytes(((VStringArray) value).getData());
+            size += 4;
+            for (byte[] s : strings)
+                size += 4 + s.length;
+        }
+        else if (value instanceof VNumber)
+        {
+            final Number number = ((VNumber) value).getValue();
+            type = (number instanceof Double  ||  number instanceof Float) ? TYPE_DOUBLE : TYPE_LONG;
+            size += 8;
+        }
+        else if (value instanceof VString)
+        {
+            type = TYPE_STRING;
+            strings = new byte[][] { ((VString) value).getValue().getBytes(StandardCharsets.UTF_8) };
+            size += 4 + strings[0].length;
+        }
+        else if (value instanceof VEnum)
+        {
+            type = TYPE_ENUM;
+            strings = toBytes(((VEnum) value).getLabels());
+            size += 4 + 4;
+            for (byte[] s : strings)
+                size += 4 + s.length;
+        }
+        else
+            throw new Exception("Cannot encode " + value.getClass().getName());
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MARKER0).put(MARKER1).put(VERSION).put(type);
+        buffer.putLong(time.getEpochSecond()).putInt(time.getNano());
+        buffer.put((byte) alarm.getAlarmSeverity().ordinal());
+        buffer.putInt(alarm_name.length).put(alarm_name);
+
+        switch (type)
+        {
+        case TYPE_DOUBLE:
+            buffer.putDouble(((VNumber) value).getValue().doubleValue());
+            break;
+        case TYPE_LONG:
+            buffer.putLong(((VNumber) value).getValue().longValue());
+            break;
+        case TYPE_STRING:
+            putString(buffer, strings[0]);
+            break;
+        case TYPE_ENUM:
+            buffer.putInt(((VEnum) value).getIndex());
+            putStrings(buffer, strings);
+            break;
+        case TYPE_DOUBLE_ARRAY:
+        {
+            final int n = numbers.size();
+            buffer.putInt(n);
+            for (int i=0; i<n; ++i)
+                buffer.putDouble(numbers.getDouble(i));
+            break;
+        }
+        case TYPE_LONG_ARRAY:
+        {
+            final int n = numbers.size();
+            buffer.putInt(n);
+            for (int i=0; i<n; ++i)
+                buffer.putLong(numbers.getLong(i));
+            break;
+        }
+        case TYPE_STRING_ARRAY:
+            putStrings(buffer, strings);
+            break;
+        default:
+            break;
+        }
+        return buffer.array();
+    }
+
+    /** @param payload Message payload
+     *  @return Decoded value
+     *  @throws Exception if the payload is not a valid binary value
+     */
+    public static VType decode(final byte[] payload) throws Exception
+    {
+        if (! isBinary(payload))
+            throw new Exception("Not a binary value");
+        final ByteBuffer buffer = ByteBuffer.wrap(payload);
+        buffer.position(2);
+        final byte version = buffer.get();
+        if (version != VERSION)
+            throw new Exception("Cannot decode binary value version " + version);
+        final byte type = buffer.get();
+        try
+        {
+            final Time time = ValueFactory.newTime(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()));
+            final int severity = buffer.get();
+            if (severity < 0  ||  severity >= AlarmSeverity.values().length)
+                throw new Exception("Invalid alarm severity " + severity);
+            final Alarm alarm = ValueFactory.newAlarm(AlarmSeverity.values()[severity], getString(buffer));
+
+            switch (type)
+            {
+            case TYPE_DOUBLE:
+                return ValueFactory.newVDouble(buffer.getDouble(), alarm, time, ValueFactory.displayNone());
+            case TYPE_LONG:
+                return ValueFactory.newVLong(buffer.getLong(), alarm, time, ValueFactory.displayNone());
+            case TYPE_STRING:
+                return ValueFactory.newVString(getString(buffer), alarm, time);
+            case TYPE_ENUM:
+            {
+                final int index = buffer.getInt();
+                return ValueFactory.newVEnum(index, getStrings(buffer), alarm, time);
+            }
+            case TYPE_DOUBLE_ARRAY:
+            {
+                final double[] data = new double[getLength(buffer, 8)];
+                buffer.asDoubleBuffer().get(data);
+                return ValueFactory.newVDoubleArray(new ArrayDouble(data), alarm, time, ValueFactory.displayNone());
+            }
+            case TYPE_LONG_ARRAY:
+            {
+                final long[] data = new long[getLength(buffer, 8)];
+                buffer.asLongBuffer().get(data);
+                return ValueFactory.newVLongArray(new ArrayLong(data), alarm, time, ValueFactory.displayNone());
+            }
+            case TYPE_STRING_ARRAY:
+                return ValueFactory.newVStringArray(getStrings(buffer), alarm, time);
+            default:
+                throw new Exception("Unknown binary value type " + type);
+            }
+        }
+        catch (BufferUnderflowException ex)
+        {
+            throw new Exception("Truncated binary value", ex);
+        }
+    }
+
+    private static boolean isInteger(final ListNumber numbers)
+    {
+        return numbers instanceof ListByte  ||  numbers instanceof ListShort  ||
+               numbers instanceof ListInt   ||  numbers instanceof ListLong;
+    }
+
+    private static byte[][] toBytes(final List<String> strings)
+    {
+        final byte[][] result = new byte[strings.size()][];
+        for (int i=0; i<result.length; ++i)
+            result[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+        return result;
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] string)
+    {
+        buffer.putInt(string.length).put(string);
+    }
+
+    private static void putStrings(final ByteBuffer buffer, final byte[][] strings)
+    {
+        buffer.putInt(strings.length);
+        for (byte[] s : strings)
+            putString(buffer, s);
+    }
+
+    /** @param buffer Buffer positioned on array length
+     *  @param element_size Bytes per element
+     *  @return Array length
+     *  @throws Exception if the buffer is too small for the array
+     */
+    private static int getLength(final ByteBuffer buffer, final int element_size) throws Exception
+    {
+        final int length = buffer.getInt();
+        if (length < 0  ||  (long)length * element_size > buffer.remaining())
+            throw new Exception("Invalid array length " + length);
+        return length;
+    }
+
+    private static String getString(final ByteBuffer buffer) throws Exception
+    {
+        final int length = getLength(buffer, 1);
+        final String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                                         length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private static List<String> getStrings(final ByteBuffer buffer) throws Exception
+    {
+        final int count = getLength(buffer, 4);
+        final List<String> strings = new ArrayList<>(count);
+        for (int i=0; i<count; ++i)
+            strings.add(getString(buffer));
+        return strings;
+    }
+}